@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.Gson;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The conversion of JSON data into the variables rules are evaluated
+ * against, for payloads of different shapes and sizes.
+ *
+ * @author Richard
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataConversionBenchmark {
+
+    @Param({"flat", "nested", "arrayOfObjects"})
+    public String shape;
+
+    /**
+     * The number of fields, or of objects for arrayOfObjects.
+     */
+    @Param({"10", "100"})
+    public int size;
+
+    private Gson gson;
+    private String data;
+
+    @Setup
+    public void setUp() {
+        gson = new Gson();
+        data = Workloads.payload(shape, size);
+    }
+
+    @Benchmark
+    public Map<String, Result> convertData() throws ParseException {
+        return JsonLogicTree.convertData(gson, data);
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.Gson;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * all, some, none, map, filter and reduce over arrays of growing size. The
+ * conditions are chosen so that none of them stops early. map and reduce go
+ * through arrays of numbers, the others through arrays of objects, as each
+ * of them expects.
+ *
+ * @author Richard
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HigherOrderBenchmark {
+
+    private static final Map<String, String> RULES = new HashMap<>();
+
+    static {
+        RULES.put("all", "{\"all\":[{\"var\":\"items\"},{\">=\":[{\"var\":\"price\"},0]}]}");
+        RULES.put("some", "{\"some\":[{\"var\":\"items\"},{\"<\":[{\"var\":\"price\"},0]}]}");
+        RULES.put("none", "{\"none\":[{\"var\":\"items\"},{\"<\":[{\"var\":\"price\"},0]}]}");
+        RULES.put("map", "{\"map\":[{\"var\":\"xs\"},{\"*\":[{\"var\":\"\"},2]}]}");
+        RULES.put("filter", "{\"filter\":[{\"var\":\"items\"},{\">=\":[{\"var\":\"price\"},0]}]}");
+        RULES.put("reduce", "{\"reduce\":[{\"var\":\"xs\"},{\"+\":[{\"var\":\"current\"},{\"var\":\"accumulator\"}]},0]}");
+    }
+
+    @Param({"all", "some", "none", "map", "filter", "reduce"})
+    public String operator;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private JsonLogicTree tree;
+    private Map<String, Result> data;
+
+    @Setup
+    public void setUp() throws ParseException, EvaluationException {
+        tree = new JsonLogic().parse(RULES.get(operator));
+        data = JsonLogicTree.convertData(new Gson(),
+                "{\"xs\":" + Workloads.numbers(size) + ",\"items\":" + Workloads.objects(size) + "}");
+        tree.evaluate(data);
+    }
+
+    @Benchmark
+    public Result evaluate() throws EvaluationException {
+        return tree.evaluate(data);
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the engine with generated rules and payloads from a number of
+ * threads at a fixed arrival rate and reports latency percentiles and
+ * throughput.
+ * <p>
+ * Every request has an intended start time on a fixed schedule, and its
+ * latency is measured from that time rather than from when the thread got
+ * round to sending it. A thread held up by a slow evaluation or a GC pause
+ * therefore charges the wait to every request queued behind it, as a real
+ * client at that rate would see, instead of silently sending fewer requests
+ * during the stall (coordinated omission).
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.jsonlogic.LoadHarness --threads 4 --rate 200000 --duration 30
+ * </pre>
+ *
+ * @author Richard
+ */
+public final class LoadHarness {
+
+    private static final String USAGE = "usage: LoadHarness [--threads n] [--rate per second]"
+            + " [--duration seconds] [--warmup seconds] [--rules n] [--depth n] [--fields n]"
+            + " [--payloads n] [--zipf exponent] [--mix comparison=40,logic=30,in=10,arithmetic=10,if=10]"
+            + " [--seed n] [--json]";
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("threads", "4");
+        options.put("rate", "100000");
+        options.put("duration", "30");
+        options.put("warmup", "10");
+        options.put("rules", "1000");
+        options.put("depth", "3");
+        options.put("fields", "20");
+        options.put("payloads", "1000");
+        options.put("zipf", "1.0");
+        options.put("mix", "comparison=40,logic=30,in=10,arithmetic=10,if=10");
+        options.put("seed", "42");
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--json")) {
+                options.put("json", "true");
+            } else if (args[i].startsWith("--") && i + 1 < args.length
+                    && options.containsKey(args[i].substring(2))) {
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+        }
+
+        int threads = Integer.parseInt(options.get("threads"));
+        double rate = Double.parseDouble(options.get("rate"));
+        long duration = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+        long warmup = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup")));
+        double exponent = Double.parseDouble(options.get("zipf"));
+        WorkloadGenerator.Mix mix = WorkloadGenerator.Mix.parse(options.get("mix"));
+        long seed = Long.parseLong(options.get("seed"));
+
+        WorkloadGenerator generator = new WorkloadGenerator(seed,
+                Integer.parseInt(options.get("depth")), Integer.parseInt(options.get("fields")),
+                mix, exponent);
+        JsonLogic jsonLogic = new JsonLogic();
+        JsonLogicTree[] rules = new JsonLogicTree[Integer.parseInt(options.get("rules"))];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = jsonLogic.parse(generator.rule());
+        }
+        String[] payloads = new String[Integer.parseInt(options.get("payloads"))];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = generator.payload();
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        LongAdder completed = new LongAdder();
+        long interval = (long) (threads * 1e9 / rate);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + warmup;
+        long end = measureFrom + duration;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Worker worker = new Worker(rules, payloads, new ZipfDistribution(rules.length, exponent),
+                    new Random(seed + t + 1), histogram, errors, completed,
+                    start + t * interval / threads, interval, measureFrom, end);
+            Thread thread = new Thread(worker, "load-" + t);
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : workers) {
+            thread.join();
+        }
+
+        double seconds = duration / 1e9;
+        long count = histogram.getCount();
+        if (options.containsKey("json")) {
+            System.out.println(String.format(Locale.ROOT,
+                    "{\"threads\":%d,\"targetRate\":%.1f,\"throughput\":%.1f,"
+                    + "\"requests\":%d,\"errors\":%d,\"p50\":%d,\"p99\":%d,\"p999\":%d,\"max\":%d,"
+                    + "\"mean\":%.1f,\"mix\":\"%s\",\"zipf\":%s}",
+                    threads, rate, completed.sum() / seconds, count, errors.sum(),
+                    histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+                    histogram.getValueAtPercentile(99.9), histogram.getMax(), histogram.getMean(),
+                    mix, exponent));
+        } else {
+            System.out.println(String.format(Locale.ROOT,
+                    "threads %d, target %.0f/s, throughput %.0f/s, %d requests, %d errors",
+                    threads, rate, completed.sum() / seconds, count, errors.sum()));
+            System.out.println(String.format(Locale.ROOT,
+                    "latency (us): p50 %.1f  p99 %.1f  p99.9 %.1f  max %.1f  mean %.1f",
+                    histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(99) / 1e3,
+                    histogram.getValueAtPercentile(99.9) / 1e3, histogram.getMax() / 1e3,
+                    histogram.getMean() / 1e3));
+        }
+    }
+
+    private static final class Worker implements Runnable {
+
+        private final JsonLogicTree[] rules;
+        private final String[] payloads;
+        private final ZipfDistribution popularity;
+        private final Random random;
+        private final LatencyHistogram histogram;
+        private final LongAdder errors;
+        private final LongAdder completed;
+        private final long first;
+        private final long interval;
+        private final long measureFrom;
+        private final long end;
+
+        Worker(JsonLogicTree[] rules, String[] payloads, ZipfDistribution popularity, Random random,
+                LatencyHistogram histogram, LongAdder errors, LongAdder completed,
+                long first, long interval, long measureFrom, long end) {
+            this.rules = rules;
+            this.payloads = payloads;
+            this.popularity = popularity;
+            this.random = random;
+            this.histogram = histogram;
+            this.errors = errors;
+            this.completed = completed;
+            this.first = first;
+            this.interval = interval;
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            for (long intended = first; intended < end; intended += interval) {
+                long now = System.nanoTime();
+                while (now < intended) {
+                    LockSupport.parkNanos(intended - now);
+                    now = System.nanoTime();
+                }
+                JsonLogicTree rule = rules[popularity.sample(random)];
+                String payload = payloads[random.nextInt(payloads.length)];
+                try {
+                    rule.evaluate(payload);
+                } catch (ParseException | EvaluationException | RuntimeException e) {
+                    if (intended >= measureFrom) {
+                        errors.increment();
+                    }
+                }
+                long done = System.nanoTime();
+                if (intended >= measureFrom) {
+                    histogram.record(done - intended);
+                    if (done < end) {
+                        completed.increment();
+                    }
+                }
+            }
+        }
+    }
+
+}
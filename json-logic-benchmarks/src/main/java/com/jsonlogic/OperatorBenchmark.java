@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.Gson;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The evaluation of each operator on its own, with the data already
+ * converted, so that only the operator and its operands are measured.
+ *
+ * @author Richard
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OperatorBenchmark {
+
+    private static final String DATA = "{\"a\":3,\"b\":7,\"s\":\"hello world\",\"t\":true,\"xs\":[1,2,3,4,5],\"ys\":[\"a\",\"b\",\"c\"]}";
+    private static final Map<String, String> RULES = new HashMap<>();
+
+    static {
+        RULES.put("==", "{\"==\":[{\"var\":\"a\"},3]}");
+        RULES.put("===", "{\"===\":[{\"var\":\"a\"},3]}");
+        RULES.put("!=", "{\"!=\":[{\"var\":\"a\"},3]}");
+        RULES.put("!==", "{\"!==\":[{\"var\":\"a\"},3]}");
+        RULES.put(">", "{\">\":[{\"var\":\"b\"},{\"var\":\"a\"}]}");
+        RULES.put(">=", "{\">=\":[{\"var\":\"b\"},{\"var\":\"a\"}]}");
+        RULES.put("<", "{\"<\":[{\"var\":\"a\"},{\"var\":\"b\"}]}");
+        RULES.put("<=", "{\"<=\":[{\"var\":\"a\"},{\"var\":\"b\"}]}");
+        RULES.put("between", "{\"<\":[1,{\"var\":\"a\"},10]}");
+        RULES.put("betweenInclusive", "{\"<=\":[1,{\"var\":\"a\"},10]}");
+        RULES.put("and", "{\"and\":[{\"var\":\"t\"},{\"var\":\"a\"}]}");
+        RULES.put("or", "{\"or\":[false,{\"var\":\"t\"}]}");
+        RULES.put("!", "{\"!\":[{\"var\":\"t\"}]}");
+        RULES.put("if", "{\"if\":[{\"var\":\"t\"},\"yes\",\"no\"]}");
+        RULES.put("max", "{\"max\":[{\"var\":\"a\"},{\"var\":\"b\"},5]}");
+        RULES.put("min", "{\"min\":[{\"var\":\"a\"},{\"var\":\"b\"},5]}");
+        RULES.put("+", "{\"+\":[{\"var\":\"a\"},{\"var\":\"b\"}]}");
+        RULES.put("*", "{\"*\":[{\"var\":\"a\"},{\"var\":\"b\"}]}");
+        RULES.put("-", "{\"-\":[{\"var\":\"b\"},{\"var\":\"a\"}]}");
+        RULES.put("unary-", "{\"-\":[{\"var\":\"a\"}]}");
+        RULES.put("/", "{\"/\":[{\"var\":\"b\"},{\"var\":\"a\"}]}");
+        RULES.put("%", "{\"%\":[{\"var\":\"b\"},{\"var\":\"a\"}]}");
+        RULES.put("var", "{\"var\":\"a\"}");
+        RULES.put("missing", "{\"missing\":[\"a\",\"c\"]}");
+        RULES.put("missing_some", "{\"missing_some\":[1,[\"a\",\"c\"]]}");
+        RULES.put("merge", "{\"merge\":[{\"var\":\"xs\"},[6,7]]}");
+        RULES.put("cat", "{\"cat\":[{\"var\":\"s\"},\"!\"]}");
+        RULES.put("in", "{\"in\":[\"world\",{\"var\":\"s\"}]}");
+        RULES.put("inArray", "{\"in\":[\"b\",{\"var\":\"ys\"}]}");
+        RULES.put("substr", "{\"substr\":[{\"var\":\"s\"},6]}");
+        RULES.put("log", "{\"log\":[{\"var\":\"a\"}]}");
+    }
+
+    @Param({"==", "===", "!=", "!==", ">", ">=", "<", "<=", "between", "betweenInclusive",
+        "and", "or", "!", "if", "max", "min", "+", "*", "-", "unary-", "/", "%",
+        "var", "missing", "missing_some", "merge", "cat", "in", "inArray", "substr", "log"})
+    public String operator;
+
+    private JsonLogicTree tree;
+    private Map<String, Result> data;
+
+    @Setup
+    public void setUp() throws ParseException, EvaluationException {
+        tree = new JsonLogic().parse(RULES.get(operator));
+        data = JsonLogicTree.convertData(new Gson(), DATA);
+        tree.evaluate(data);
+    }
+
+    @Benchmark
+    public Result evaluate() throws EvaluationException {
+        return tree.evaluate(data);
+    }
+
+}
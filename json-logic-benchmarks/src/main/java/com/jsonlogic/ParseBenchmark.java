@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JsonLogic.parse of Strings and of UTF-8 bytes, and JsonLogic.read of the
+ * binary form, over rules of a growing number of conditions.
+ *
+ * @author Richard
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    /**
+     * The number of conditions in the rule.
+     */
+    @Param({"1", "10", "100", "1000"})
+    public int conditions;
+
+    private JsonLogic jsonLogic;
+    private String rule;
+    private byte[] utf8;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        jsonLogic = new JsonLogic();
+        rule = Workloads.rule(conditions);
+        utf8 = rule.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jsonLogic.parse(rule).write(out);
+        binary = out.toByteArray();
+    }
+
+    @Benchmark
+    public JsonLogicTree parse() throws ParseException {
+        return jsonLogic.parse(rule);
+    }
+
+    @Benchmark
+    public JsonLogicTree parseBytes() throws ParseException {
+        return jsonLogic.parse(utf8);
+    }
+
+    @Benchmark
+    public JsonLogicTree read() throws ParseException {
+        return jsonLogic.read(ByteBuffer.wrap(binary));
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Random;
+
+/**
+ * Generates random rules and payloads that fit each other: rules compare
+ * fields f0, f1, ... of the payloads with values drawn from the same
+ * Zipf distributed vocabulary, so that conditions match as often as they
+ * would on real data. The same seed always gives the same workload.
+ *
+ * @author Richard
+ */
+final class WorkloadGenerator {
+
+    /**
+     * The weights of the kinds of node generated inside a rule.
+     */
+    static final class Mix {
+
+        final int comparison;
+        final int logic;
+        final int membership;
+        final int arithmetic;
+        final int condition;
+
+        Mix(int comparison, int logic, int membership, int arithmetic, int condition) {
+            this.comparison = comparison;
+            this.logic = logic;
+            this.membership = membership;
+            this.arithmetic = arithmetic;
+            this.condition = condition;
+        }
+
+        /**
+         * Parses weights written as "comparison=40,logic=30,in=10,arithmetic=10,if=10";
+         * kinds not mentioned get no weight.
+         */
+        static Mix parse(String text) {
+            int comparison = 0;
+            int logic = 0;
+            int membership = 0;
+            int arithmetic = 0;
+            int condition = 0;
+            for (String part : text.split(",")) {
+                String[] pair = part.trim().split("=");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("bad operator mix " + text);
+                }
+                int weight = Integer.parseInt(pair[1].trim());
+                switch (pair[0].trim()) {
+                    case "comparison":
+                        comparison = weight;
+                        break;
+                    case "logic":
+                        logic = weight;
+                        break;
+                    case "in":
+                        membership = weight;
+                        break;
+                    case "arithmetic":
+                        arithmetic = weight;
+                        break;
+                    case "if":
+                        condition = weight;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown operator kind " + pair[0]);
+                }
+            }
+            if (comparison + logic + membership + arithmetic + condition <= 0) {
+                throw new IllegalArgumentException("the operator mix needs a positive weight");
+            }
+            return new Mix(comparison, logic, membership, arithmetic, condition);
+        }
+
+        @Override
+        public String toString() {
+            return "comparison=" + comparison + ",logic=" + logic + ",in=" + membership
+                    + ",arithmetic=" + arithmetic + ",if=" + condition;
+        }
+    }
+
+    private static final String[] COMPARISONS = {"==", "!=", "<", "<=", ">", ">="};
+    private static final String[] ARITHMETIC = {"+", "-", "*"};
+    private static final int VOCABULARY = 1000;
+
+    private final Random random;
+    private final int depth;
+    private final int fields;
+    private final Mix mix;
+    private final ZipfDistribution values;
+
+    /**
+     * @param depth the depth of the rules, counting the comparisons at the
+     * bottom but not their operands
+     * @param fields the number of fields of a payload
+     * @param exponent the Zipf exponent of field values
+     */
+    WorkloadGenerator(long seed, int depth, int fields, Mix mix, double exponent) {
+        random = new Random(seed);
+        this.depth = depth;
+        this.fields = fields;
+        this.mix = mix;
+        values = new ZipfDistribution(VOCABULARY, exponent);
+    }
+
+    String rule() {
+        StringBuilder rule = new StringBuilder();
+        node(rule, depth);
+        return rule.toString();
+    }
+
+    /**
+     * A payload with every field: even fields hold numbers, odd fields
+     * strings.
+     */
+    String payload() {
+        StringBuilder payload = new StringBuilder("{");
+        for (int i = 0; i < fields; i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append("\"f").append(i).append("\":");
+            value(payload, i);
+        }
+        return payload.append('}').toString();
+    }
+
+    private void node(StringBuilder rule, int levels) {
+        int total = mix.comparison + mix.membership + mix.arithmetic
+                + (levels > 1 ? mix.logic + mix.condition : 0);
+        if (total == 0) {
+            comparison(rule);
+            return;
+        }
+        int pick = random.nextInt(total);
+        if ((pick -= mix.comparison) < 0) {
+            comparison(rule);
+        } else if ((pick -= mix.membership) < 0) {
+            membership(rule);
+        } else if ((pick -= mix.arithmetic) < 0) {
+            arithmetic(rule);
+        } else if ((pick -= mix.logic) < 0) {
+            int operands = 2 + random.nextInt(3);
+            rule.append(random.nextInt(3) == 0 ? "{\"or\":[" : "{\"and\":[");
+            for (int i = 0; i < operands; i++) {
+                if (i > 0) {
+                    rule.append(',');
+                }
+                node(rule, levels - 1);
+            }
+            rule.append("]}");
+        } else {
+            rule.append("{\"if\":[");
+            node(rule, levels - 1);
+            rule.append(',');
+            node(rule, levels - 1);
+            rule.append(',');
+            node(rule, levels - 1);
+            rule.append("]}");
+        }
+    }
+
+    private void comparison(StringBuilder rule) {
+        int field = random.nextInt(fields);
+        String operator = field % 2 == 0 ? COMPARISONS[random.nextInt(COMPARISONS.length)]
+                : COMPARISONS[random.nextInt(2)];
+        rule.append("{\"").append(operator).append("\":[{\"var\":\"f").append(field).append("\"},");
+        value(rule, field);
+        rule.append("]}");
+    }
+
+    private void membership(StringBuilder rule) {
+        int field = 1 + 2 * random.nextInt(Math.max(1, fields / 2));
+        rule.append("{\"in\":[{\"var\":\"f").append(Math.min(field, fields - 1)).append("\"},[");
+        int size = 2 + random.nextInt(8);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                rule.append(',');
+            }
+            rule.append("\"v").append(values.sample(random)).append('"');
+        }
+        rule.append("]]}");
+    }
+
+    private void arithmetic(StringBuilder rule) {
+        int field = 2 * random.nextInt(Math.max(1, (fields + 1) / 2));
+        rule.append("{\"").append(COMPARISONS[2 + random.nextInt(4)]).append("\":[{\"")
+                .append(ARITHMETIC[random.nextInt(ARITHMETIC.length)])
+                .append("\":[{\"var\":\"f").append(field).append("\"},")
+                .append(1 + random.nextInt(10)).append("]},")
+                .append(values.sample(random)).append("]}");
+    }
+
+    private void value(StringBuilder builder, int field) {
+        int rank = values.sample(random);
+        if (field % 2 == 0) {
+            builder.append(rank);
+        } else {
+            builder.append("\"v").append(rank).append('"');
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+/**
+ * Rules and data for the benchmarks.
+ *
+ * @author Richard
+ */
+final class Workloads {
+
+    private Workloads() {
+    }
+
+    /**
+     * A rule checking as many conditions on fields f0, f1, ..., alternating
+     * numeric and string comparisons and joined by 'and'.
+     */
+    static String rule(int conditions) {
+        if (conditions == 1) {
+            return condition(0);
+        }
+        StringBuilder rule = new StringBuilder("{\"and\":[");
+        for (int i = 0; i < conditions; i++) {
+            if (i > 0) {
+                rule.append(',');
+            }
+            rule.append(condition(i));
+        }
+        return rule.append("]}").toString();
+    }
+
+    private static String condition(int field) {
+        if (field % 2 == 0) {
+            return "{\">=\":[{\"var\":\"f" + field + "\"}," + field + "]}";
+        }
+        return "{\"==\":[{\"var\":\"f" + field + "\"},\"s" + field + "\"]}";
+    }
+
+    /**
+     * A JSON payload matching the fields rule() reads.
+     *
+     * @param shape flat: size fields; nested: size fields spread over objects
+     * of ten; arrayOfObjects: an array of size objects under "items"
+     */
+    static String payload(String shape, int size) {
+        StringBuilder data = new StringBuilder("{");
+        switch (shape) {
+            case "flat":
+                fields(data, 0, size);
+                break;
+            case "nested":
+                for (int group = 0; group * 10 < size; group++) {
+                    if (group > 0) {
+                        data.append(',');
+                    }
+                    data.append("\"g").append(group).append("\":{");
+                    fields(data, group * 10, Math.min(size, group * 10 + 10));
+                    data.append('}');
+                }
+                break;
+            case "arrayOfObjects":
+                data.append("\"items\":").append(objects(size));
+                break;
+            default:
+                throw new IllegalArgumentException(shape);
+        }
+        return data.append('}').toString();
+    }
+
+    private static void fields(StringBuilder data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                data.append(',');
+            }
+            data.append("\"f").append(i).append("\":");
+            if (i % 2 == 0) {
+                data.append(i);
+            } else {
+                data.append("\"s").append(i).append('"');
+            }
+        }
+    }
+
+    /**
+     * An array of objects with an id, a name and a price.
+     */
+    static String objects(int size) {
+        StringBuilder array = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                array.append(',');
+            }
+            array.append("{\"id\":").append(i)
+                    .append(",\"name\":\"item").append(i)
+                    .append("\",\"price\":").append(i % 100).append('}');
+        }
+        return array.append(']').toString();
+    }
+
+    /**
+     * An array of the numbers 0 to size - 1.
+     */
+    static String numbers(int size) {
+        StringBuilder array = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                array.append(',');
+            }
+            array.append(i);
+        }
+        return array.append(']').toString();
+    }
+
+}
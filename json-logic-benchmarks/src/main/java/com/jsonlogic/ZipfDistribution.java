@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws ranks from 0 to n - 1 with probability proportional to
+ * 1 / (rank + 1)^exponent, so that a few values are very common and most
+ * are rare, as field values and rule popularity are in practice. An
+ * exponent of 0 gives a uniform distribution.
+ *
+ * @author Richard
+ */
+final class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    ZipfDistribution(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be at least 1");
+        }
+        cumulative = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+
+}
@@ -40,6 +40,27 @@ class AdditionCastingOverloadNode extends Node {
         return tryCast(node,data);
     }
 
+    @Override
+    int childCount() {
+        return 1;
+    }
+
+    @Override
+    Node child(int index) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return node;
+    }
+
+    @Override
+    void setChild(int index, Node child) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        node = child;
+    }
+
     @Override
     boolean isConstant() {
         return node.isConstant();
@@ -47,7 +68,9 @@ class AdditionCastingOverloadNode extends Node {
 
     @Override
     void reduce() throws EvaluationException {
-        if (!(node instanceof ConstantNode)) {
+        if (!node.isConstant()) {
+            node.reduce();
+        } else if (!(node instanceof ConstantNode)) {
             node = new ConstantNode(node.eval(null));
         }
     }
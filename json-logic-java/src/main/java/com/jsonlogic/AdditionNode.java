@@ -70,5 +70,21 @@ class AdditionNode extends MultiNode {
         return null;
     }
 
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        if (nodes.size() == 1) {
+            return super.evalColumn(batch, selection);
+        }
+        int rows = batch.rows();
+        Column total = new Column.Constant(new Result(Double.valueOf(0)));
+        for (Node node : nodes) {
+            double[] values = Column.arithmetic(ColumnKernels.ADD, total, node.evalColumn(batch, selection), rows);
+            if (values == null) {
+                return super.evalColumn(batch, selection);
+            }
+            total = new Column.Doubles(values);
+        }
+        return total;
+    }
 
 }
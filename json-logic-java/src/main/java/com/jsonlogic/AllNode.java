@@ -30,22 +30,27 @@ class AllNode extends BinaryNode {
     }
 
     @Override
-    Result eval(Map<String, Result> data) throws EvaluationException{
-        Result leftResult = left.eval(data);
-
-        StringBuilder sb=new StringBuilder();
+    Result eval(Map<String, Result> data) throws EvaluationException {
+        Object event = JfrEvents.beginOperator();
+        try {
+            return evalElements(data, event);
+        } finally {
+            JfrEvents.commitOperator(event, "all", this);
+        }
+    }
 
-        right.treeToString(sb);
+    private Result evalElements(Map<String, Result> data, Object event) throws EvaluationException{
+        Result leftResult = left.eval(data);
+        if (leftResult.isArray())
+            JfrEvents.operatorInput(event, leftResult.getArrayValue().size());
 
-        if(sb.toString().contains("{\"var\":\"\"}"))
+        if(ElementData.reads(right, ""))
         {
             for(int i=0;i<leftResult.getArrayValue().size();i++)
             {
-                String afterReplace=sb.toString().replace("{\"var\":\"\"}",leftResult.getArrayValue().get(i).getAsString());
-
                 try {
 
-                    Result r=new JsonLogic().apply(afterReplace,"");
+                    Result r=right.eval(ElementData.element(leftResult.getArrayValue().get(i)));
 
                     if(!r.getBooleanValue())
                         return new Result(false);
@@ -65,7 +70,7 @@ class AllNode extends BinaryNode {
                 try {
                     JsonObject jojo=leftResult.getArrayValue().get(i).getAsJsonObject();
 
-                    Result r=new JsonLogic().apply(sb.toString(),jojo.toString());
+                    Result r=right.eval(ElementData.fields(jojo));
 
                     if(!r.getBooleanValue())
                         return new Result(false);
@@ -23,13 +23,68 @@ import java.util.Map;
  */
 class AndNode extends MultiNode {
 
+    private volatile OperandOrder order;
+
     AndNode(Node left, Node right) {
         super(left, right, "&&");
     }
 
+    /**
+     * Turns adaptive ordering of the operands on or off.
+     */
+    void setAdaptive(boolean adaptive) {
+        order = adaptive ? OperandOrder.of(nodes, 0) : null;
+    }
+
+    /**
+     * @return the adaptive order, or null when the operands are evaluated
+     * in the written order
+     */
+    OperandOrder order() {
+        return order;
+    }
+
+    @Override
+    void detach() {
+        super.detach();
+        if (order != null) {
+            order = OperandOrder.of(nodes, 0);
+        }
+    }
+
     @Override
     Result eval(Map<String, Result> data) throws EvaluationException {
-        
+        OperandOrder order = this.order;
+        if (order != null) {
+            return evalReordered(order, data);
+        }
+        return evalInOrder(data);
+    }
+
+    /**
+     * Evaluates the operands in the adaptive order. The value is the same as
+     * in the written order, and so is a failure: OperandOrder only moves
+     * operands that cannot fail, ahead of the first one that can. Should one
+     * fail all the same, the operands are evaluated again in the written
+     * order, which decides.
+     */
+    private Result evalReordered(OperandOrder order, Map<String, Result> data) throws EvaluationException {
+        order.tick();
+        try {
+            for (int index : order.permutation()) {
+                boolean truthy = nodes.get(index).eval(data).getBooleanValue();
+                order.evaluated(index, !truthy);
+                if (!truthy) {
+                    return new Result(false);
+                }
+            }
+        } catch (EvaluationException | RuntimeException ex) {
+            return evalInOrder(data);
+        }
+        return new Result(true);
+    }
+
+    private Result evalInOrder(Map<String, Result> data) throws EvaluationException {
         for (Node node : nodes) {
             Result result = node.eval(data);
             
@@ -40,4 +95,22 @@ class AndNode extends MultiNode {
         return new Result(true);
     }
 
+    /**
+     * Each operand is only evaluated for the rows that are still true, the
+     * same short-circuit eval() does one row at a time.
+     */
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        int rows = batch.rows();
+        long[] live = selection == null ? Column.all(rows) : selection.clone();
+        for (Node node : nodes) {
+            if (Column.isEmpty(live)) {
+                break;
+            }
+            long[] truthy = node.evalColumn(batch, live).truthy(rows, live);
+            ColumnKernels.and(live, truthy, live);
+        }
+        return new Column.Booleans(live);
+    }
+
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A TraceSink that hands records to another sink on a background thread, so
+ * that evaluating threads never wait on I/O. Records are sampled, rate
+ * limited and then queued; a record that finds the queue full is dropped and
+ * counted rather than blocking.
+ *
+ * @author Richard
+ */
+public class AsyncTraceSink implements TraceSink, AutoCloseable {
+
+    private final TraceSink delegate;
+    private final BlockingQueue<Runnable> queue;
+    private final int sampleEvery;
+    private final long interval;
+    private final long burst;
+    private final AtomicLong nextFree = new AtomicLong(System.nanoTime());
+    private final LongAdder dropped = new LongAdder();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Keeps every record, queuing up to 1024.
+     */
+    public AsyncTraceSink(TraceSink delegate) {
+        this(delegate, 1024, 1, 0);
+    }
+
+    /**
+     * @param delegate receives the records on the background thread
+     * @param capacity the number of records that can wait for the delegate
+     * @param sampleEvery keep one record in this many, picked at random
+     * @param recordsPerSecond the most records kept per second, with bursts of
+     * up to a second's worth; 0 for no limit
+     */
+    public AsyncTraceSink(TraceSink delegate, int capacity, int sampleEvery, double recordsPerSecond) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.interval = recordsPerSecond > 0 ? Math.max(1, (long) (1e9 / recordsPerSecond)) : 0;
+        this.burst = TimeUnit.SECONDS.toNanos(1);
+        thread = new Thread(this::drain, "jsonlogic-trace");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public boolean sample() {
+        if (!running) {
+            return false;
+        }
+        if (sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+            return false;
+        }
+        return interval == 0 || acquire();
+    }
+
+    /**
+     * A lock-free token bucket: nextFree is the time at which the bucket will
+     * be full again, and a record is let through while that is less than a
+     * burst ahead of now.
+     */
+    private boolean acquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long free = nextFree.get();
+            long next = (free - now > 0 ? free : now) + interval;
+            if (next - now > burst) {
+                dropped.increment();
+                return false;
+            }
+            if (nextFree.compareAndSet(free, next)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void log(String expression, Result result) {
+        offer(() -> delegate.log(expression, result));
+    }
+
+    @Override
+    public void evaluation(long fingerprint, Result result, long nanos) {
+        offer(() -> delegate.evaluation(fingerprint, result, nanos));
+    }
+
+    private void offer(Runnable record) {
+        if (!running || !queue.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * @return the number of records lost to a full queue or the rate limit
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Hands the records still queued to the delegate and stops the background
+     * thread. Records arriving afterwards are dropped. An interrupt does not
+     * cut the wait short; the thread's interrupt status is set again once the
+     * background thread has stopped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            Runnable record;
+            try {
+                record = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            if (record != null) {
+                try {
+                    record.run();
+                } catch (RuntimeException ex) {
+                    // a failing delegate loses the record, not the thread
+                }
+            }
+        }
+    }
+
+}
@@ -35,6 +35,47 @@ class BetweenEqualsLeftNode extends BinaryNode {
         return left.isConstant() && right.isConstant()&&middle.isConstant();
     }
 
+    @Override
+    int childCount() {
+        return 3;
+    }
+
+    @Override
+    long shallowBytes() {
+        return Footprint.object(4, 0);
+    }
+
+    @Override
+    Node child(int index) {
+        switch (index) {
+            case 0:
+                return left;
+            case 1:
+                return middle;
+            case 2:
+                return right;
+            default:
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+    }
+
+    @Override
+    void setChild(int index, Node child) {
+        switch (index) {
+            case 0:
+                left = child;
+                break;
+            case 1:
+                middle = child;
+                break;
+            case 2:
+                right = child;
+                break;
+            default:
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+    }
+
     @Override
     Result eval(Map<String, Result> data) throws EvaluationException {
         Result leftResult = left.eval(data);
@@ -48,6 +89,21 @@ class BetweenEqualsLeftNode extends BinaryNode {
     }
 
 
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        Column leftColumn = left.evalColumn(batch, selection);
+        Column middleColumn = middle.evalColumn(batch, selection);
+        Column rightColumn = right.evalColumn(batch, selection);
+        int rows = batch.rows();
+        long[] lower = Column.compare(ColumnKernels.LE, leftColumn, middleColumn, rows);
+        long[] upper = Column.compare(ColumnKernels.LT, middleColumn, rightColumn, rows);
+        if (lower == null || upper == null) {
+            return super.evalColumn(batch, selection);
+        }
+        ColumnKernels.and(lower, upper, lower);
+        return new Column.Booleans(lower);
+    }
+
     @Override
     void reduce() throws EvaluationException {
         if (left.isConstant()) {
@@ -49,6 +49,71 @@ abstract class BinaryNode extends Node {
         }
     }
 
+    @Override
+    int childCount() {
+        return 2;
+    }
+
+    @Override
+    long shallowBytes() {
+        // the operator is a literal shared by every node of the kind
+        return Footprint.object(3, 0);
+    }
+
+    @Override
+    Node child(int index) {
+        switch (index) {
+            case 0:
+                return left;
+            case 1:
+                return right;
+            default:
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+    }
+
+    @Override
+    void setChild(int index, Node child) {
+        switch (index) {
+            case 0:
+                left = child;
+                break;
+            case 1:
+                right = child;
+                break;
+            default:
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+    }
+
+    /**
+     * Evaluates a comparison of two numbers over a batch with a single loop,
+     * falling back to row by row evaluation for any other kind of operand.
+     */
+    Column compareColumns(ColumnBatch batch, long[] selection, int op) throws EvaluationException {
+        Column leftColumn = left.evalColumn(batch, selection);
+        Column rightColumn = right.evalColumn(batch, selection);
+        long[] bits = Column.compare(op, leftColumn, rightColumn, batch.rows());
+        if (bits == null) {
+            return super.evalColumn(batch, selection);
+        }
+        return new Column.Booleans(bits);
+    }
+
+    /**
+     * Evaluates arithmetic on two numbers over a batch with a single loop,
+     * falling back to row by row evaluation for any other kind of operand.
+     */
+    Column arithmeticColumns(ColumnBatch batch, long[] selection, int op) throws EvaluationException {
+        Column leftColumn = left.evalColumn(batch, selection);
+        Column rightColumn = right.evalColumn(batch, selection);
+        double[] values = Column.arithmetic(op, leftColumn, rightColumn, batch.rows());
+        if (values == null) {
+            return super.evalColumn(batch, selection);
+        }
+        return new Column.Doubles(values);
+    }
+
     @Override
     void treeToString(StringBuilder builder) {
 //        builder.append("(");
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One evaluation kept by a SlowEvaluationRecorder.
+ *
+ * @author Richard
+ */
+public class CapturedEvaluation {
+
+    private final long sequence;
+    private final Node root;
+    private final long fingerprint;
+    private final Map<String, Result> data;
+    private final String json;
+    private final long nanos;
+    private final boolean sampled;
+    private final long timestamp = System.currentTimeMillis();
+    private EvaluationProfile profile;
+
+    CapturedEvaluation(long sequence, Node root, long fingerprint, Map<String, Result> data, String json,
+            long nanos, boolean sampled) {
+        this.sequence = sequence;
+        this.root = root;
+        this.fingerprint = fingerprint;
+        this.data = data;
+        this.json = json;
+        this.nanos = nanos;
+        this.sampled = sampled;
+    }
+
+    /**
+     * The order in which the evaluations were captured.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * When the evaluation was captured, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * The rule as treeToString() writes it.
+     */
+    public String getRule() {
+        StringBuilder builder = new StringBuilder();
+        root.treeToString(builder);
+        return builder.toString();
+    }
+
+    /**
+     * The data as it was given to evaluate(String), or null if the tree was
+     * evaluated from data that was already converted, such as by a RuleSet or
+     * an EvaluationPipeline; getVariables() has the data in either case.
+     */
+    public String getData() {
+        return json;
+    }
+
+    /**
+     * The variables the evaluation ran on, by the dotted names 'var' uses.
+     */
+    public Map<String, Result> getVariables() {
+        return Collections.unmodifiableMap(new TreeMap<>(data));
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return true if the evaluation was kept as part of the 1 in N sample,
+     * false if it was kept for exceeding the threshold
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * Returns the time each node takes on this data. The timings come from
+     * replaying the evaluation, once, on a profiled copy of the rule the
+     * first time this is called, so they show where the time goes rather
+     * than reproducing the original latency exactly.
+     *
+     * @throws EvaluationException if the replay fails
+     */
+    public synchronized EvaluationProfile getProfile() throws EvaluationException {
+        if (profile == null) {
+            ProfilingNode replay = ProfilingNode.instrument(root);
+            replay.eval(new HashMap<>(data));
+            profile = new EvaluationProfile(replay.snapshot(""));
+        }
+        return profile;
+    }
+
+}
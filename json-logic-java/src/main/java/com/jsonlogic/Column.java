@@ -0,0 +1,346 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+/**
+ * The value of a node for every row of a ColumnBatch. Boolean values are kept
+ * as bitmaps, one bit per row in 64 bit words.
+ *
+ * A column only has to be correct for the rows of the selection it was
+ * evaluated for; the values of the other rows are unspecified.
+ *
+ * @author Richard
+ */
+abstract class Column {
+
+    static int words(int rows) {
+        return (rows + 63) >>> 6;
+    }
+
+    /**
+     * Returns a bitmap with the first rows bits set.
+     */
+    static long[] all(int rows) {
+        long[] bits = new long[words(rows)];
+        java.util.Arrays.fill(bits, -1L);
+        if ((rows & 63) != 0) {
+            bits[bits.length - 1] = (1L << rows) - 1;
+        }
+        return bits;
+    }
+
+    static boolean isSet(long[] bits, int row) {
+        return (bits[row >> 6] & (1L << row)) != 0;
+    }
+
+    static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares two numeric columns.
+     *
+     * @return the rows where the comparison holds, or null if either column
+     * is not numeric
+     */
+    static long[] compare(int op, Column left, Column right, int rows) {
+        double[] a = left.doubles();
+        double[] b = right.doubles();
+        long[] out = new long[words(rows)];
+        if (a != null && b != null) {
+            ColumnKernels.compare(op, a, b, out, rows);
+        } else if (a != null && isDouble(right.constant())) {
+            ColumnKernels.compare(op, a, right.constant().getDoubleValue(), out, rows);
+        } else if (b != null && isDouble(left.constant())) {
+            ColumnKernels.compare(op, left.constant().getDoubleValue(), b, out, rows);
+        } else {
+            return null;
+        }
+        return out;
+    }
+
+    /**
+     * Combines two numeric columns.
+     *
+     * @return the values, or null if either column is not numeric
+     */
+    static double[] arithmetic(int op, Column left, Column right, int rows) {
+        double[] a = left.doubles();
+        double[] b = right.doubles();
+        double[] out = new double[rows];
+        if (a != null && b != null) {
+            ColumnKernels.arithmetic(op, a, b, out, rows);
+        } else if (a != null && isDouble(right.constant())) {
+            ColumnKernels.arithmetic(op, a, right.constant().getDoubleValue(), out, rows);
+        } else if (b != null && isDouble(left.constant())) {
+            ColumnKernels.arithmetic(op, left.constant().getDoubleValue(), b, out, rows);
+        } else {
+            return null;
+        }
+        return out;
+    }
+
+    /**
+     * Returns the bits of a column of booleans, or null if the column holds
+     * anything else.
+     */
+    static long[] booleans(Column column, int rows) {
+        if (column instanceof Booleans) {
+            return ((Booleans) column).bits;
+        }
+        Result constant = column.constant();
+        if (constant != null && constant.isBoolean()) {
+            return constant.getBooleanValue() ? all(rows) : new long[words(rows)];
+        }
+        return null;
+    }
+
+    static boolean isNumeric(Column column) {
+        return column.doubles() != null || isDouble(column.constant());
+    }
+
+    private static boolean isDouble(Result result) {
+        return result != null && result.isDouble();
+    }
+
+    abstract Result get(int row);
+
+    /**
+     * Returns the rows whose value is truthy, as Result.getBooleanValue()
+     * decides it.
+     */
+    long[] truthy(int rows, long[] selection) {
+        long[] bits = new long[words(rows)];
+        for (int i = 0; i < rows; i++) {
+            if ((selection == null || isSet(selection, i)) && get(i).getBooleanValue()) {
+                bits[i >> 6] |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Returns the rows whose value is the boolean true.
+     */
+    long[] booleanTrue(int rows, long[] selection) {
+        long[] bits = new long[words(rows)];
+        for (int i = 0; i < rows; i++) {
+            if (selection == null || isSet(selection, i)) {
+                Result result = get(i);
+                if (result.isBoolean() && result.getBooleanValue()) {
+                    bits[i >> 6] |= 1L << i;
+                }
+            }
+        }
+        return bits;
+    }
+
+    Result[] toResults(int rows) {
+        Result[] results = new Result[rows];
+        for (int i = 0; i < rows; i++) {
+            results[i] = get(i);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the numeric values of the column, or null if the column is not
+     * made of doubles only.
+     */
+    double[] doubles() {
+        return null;
+    }
+
+    /**
+     * Returns the value shared by every row, or null if the rows differ.
+     */
+    Result constant() {
+        return null;
+    }
+
+    static final class Doubles extends Column {
+
+        private final double[] values;
+
+        Doubles(double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        Result get(int row) {
+            return new Result(values[row]);
+        }
+
+        @Override
+        long[] truthy(int rows, long[] selection) {
+            long[] bits = new long[words(rows)];
+            ColumnKernels.notZero(values, bits, rows);
+            return bits;
+        }
+
+        @Override
+        long[] booleanTrue(int rows, long[] selection) {
+            return new long[words(rows)];
+        }
+
+        @Override
+        double[] doubles() {
+            return values;
+        }
+    }
+
+    static final class Booleans extends Column {
+
+        private final long[] bits;
+
+        Booleans(long[] bits) {
+            this.bits = bits;
+        }
+
+        long[] bits() {
+            return bits;
+        }
+
+        @Override
+        Result get(int row) {
+            return isSet(bits, row) ? JsonLogic.TRUE_RESULT : JsonLogic.FALSE_RESULT;
+        }
+
+        @Override
+        long[] truthy(int rows, long[] selection) {
+            return bits;
+        }
+
+        @Override
+        long[] booleanTrue(int rows, long[] selection) {
+            return bits;
+        }
+    }
+
+    static final class Strings extends Column {
+
+        private static final Result NULL = new Result(null);
+
+        private final int[] codes;
+        private final String[] dictionary;
+        private Result[] decoded;
+
+        Strings(int[] codes, String[] dictionary) {
+            this.codes = codes;
+            this.dictionary = dictionary;
+        }
+
+        int[] codes() {
+            return codes;
+        }
+
+        String[] dictionary() {
+            return dictionary;
+        }
+
+        @Override
+        Result get(int row) {
+            int code = codes[row];
+            if (code < 0) {
+                return NULL;
+            }
+            Result[] values = decoded;
+            if (values == null) {
+                values = new Result[dictionary.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = new Result(dictionary[i]);
+                }
+                decoded = values;
+            }
+            return values[code];
+        }
+
+        @Override
+        long[] truthy(int rows, long[] selection) {
+            boolean[] nonEmpty = new boolean[dictionary.length];
+            for (int i = 0; i < dictionary.length; i++) {
+                nonEmpty[i] = !dictionary[i].isEmpty();
+            }
+            long[] bits = new long[words(rows)];
+            for (int i = 0; i < rows; i++) {
+                int code = codes[i];
+                if (code >= 0 && nonEmpty[code]) {
+                    bits[i >> 6] |= 1L << i;
+                }
+            }
+            return bits;
+        }
+
+        @Override
+        long[] booleanTrue(int rows, long[] selection) {
+            return new long[words(rows)];
+        }
+    }
+
+    static final class Results extends Column {
+
+        private final Result[] values;
+
+        Results(Result[] values) {
+            this.values = values;
+        }
+
+        @Override
+        Result get(int row) {
+            return values[row];
+        }
+
+        @Override
+        Result[] toResults(int rows) {
+            return values.length == rows ? values : super.toResults(rows);
+        }
+    }
+
+    static final class Constant extends Column {
+
+        private final Result value;
+
+        Constant(Result value) {
+            this.value = value;
+        }
+
+        @Override
+        Result get(int row) {
+            return value;
+        }
+
+        @Override
+        long[] truthy(int rows, long[] selection) {
+            return value.getBooleanValue() ? all(rows) : new long[words(rows)];
+        }
+
+        @Override
+        long[] booleanTrue(int rows, long[] selection) {
+            return value.isBoolean() && value.getBooleanValue() ? all(rows) : new long[words(rows)];
+        }
+
+        @Override
+        Result constant() {
+            return value;
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ColumnBatch holds the data of many rows in columnar form, one array per
+ * variable, so that a JsonLogicTree can be evaluated over all the rows at
+ * once. Variable names use the same dotted notation as 'var'.
+ *
+ * The arrays are used as they are, not copied, and must not be changed while
+ * the batch is being evaluated.
+ *
+ * @author Richard
+ */
+public class ColumnBatch {
+
+    private final int rows;
+    private final Map<String, Column> columns = new HashMap<>();
+
+    /**
+     * @param rows the number of rows, every column must have this many values
+     */
+    public ColumnBatch(int rows) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("rows must not be negative");
+        }
+        this.rows = rows;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Adds a numeric column.
+     */
+    public ColumnBatch addDoubles(String name, double[] values) {
+        checkLength(values.length);
+        columns.put(name, new Column.Doubles(values));
+        return this;
+    }
+
+    /**
+     * Adds a boolean column.
+     */
+    public ColumnBatch addBooleans(String name, boolean[] values) {
+        checkLength(values.length);
+        long[] bits = new long[Column.words(rows)];
+        for (int i = 0; i < rows; i++) {
+            if (values[i]) {
+                bits[i >> 6] |= 1L << i;
+            }
+        }
+        columns.put(name, new Column.Booleans(bits));
+        return this;
+    }
+
+    /**
+     * Adds a dictionary encoded string column.
+     *
+     * @param codes the index into dictionary of each row's value, or -1 for
+     * a null value
+     * @param dictionary the distinct values of the column
+     */
+    public ColumnBatch addStrings(String name, int[] codes, String[] dictionary) {
+        checkLength(codes.length);
+        columns.put(name, new Column.Strings(codes, dictionary));
+        return this;
+    }
+
+    /**
+     * Adds a column of arbitrary values, evaluated row by row.
+     */
+    public ColumnBatch addResults(String name, Result[] values) {
+        checkLength(values.length);
+        columns.put(name, new Column.Results(values));
+        return this;
+    }
+
+    Column column(String name) {
+        return columns.get(name);
+    }
+
+    /**
+     * Returns a view of one row in the form Node.eval expects. The view is
+     * moved from row to row with at(), so only one row is live at a time.
+     */
+    RowView rowView() {
+        return new RowView();
+    }
+
+    private void checkLength(int length) {
+        if (length < rows) {
+            throw new IllegalArgumentException("column has " + length + " values, expecting " + rows);
+        }
+    }
+
+    final class RowView extends AbstractMap<String, Result> {
+
+        private int row;
+
+        RowView at(int row) {
+            this.row = row;
+            return this;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return columns.containsKey(key);
+        }
+
+        @Override
+        public Result get(Object key) {
+            Column column = columns.get(key);
+            return column == null ? null : column.get(row);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return columns.isEmpty();
+        }
+
+        @Override
+        public Set<Entry<String, Result>> entrySet() {
+            return new AbstractSet<Entry<String, Result>>() {
+                @Override
+                public Iterator<Entry<String, Result>> iterator() {
+                    Iterator<Entry<String, Column>> it = columns.entrySet().iterator();
+                    int at = row;
+                    return new Iterator<Entry<String, Result>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Result> next() {
+                            Entry<String, Column> entry = it.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().get(at));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return columns.size();
+                }
+            };
+        }
+    }
+
+}
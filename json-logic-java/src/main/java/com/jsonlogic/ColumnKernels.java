@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+/**
+ * Tight loops over primitive arrays used by columnar evaluation. Comparisons
+ * write one bit per row into a bitmap of 64 bit words. The comparisons and
+ * arithmetic give exactly the results the row by row nodes give for doubles.
+ *
+ * The loops themselves are in ScalarKernels. On a JDK with the Vector API
+ * available the multi-release jar swaps in an implementation using SIMD
+ * instructions; see KernelSupport.
+ *
+ * @author Richard
+ */
+final class ColumnKernels {
+
+    static final int LT = 0;
+    static final int LE = 1;
+    static final int GT = 2;
+    static final int GE = 3;
+    /**
+     * Equality as Double.equals defines it: NaN equals NaN, 0.0 does not
+     * equal -0.0.
+     */
+    static final int EQ = 4;
+
+    static final int ADD = 0;
+    static final int SUB = 1;
+    static final int MUL = 2;
+    static final int DIV = 3;
+    static final int MOD = 4;
+
+    private static final ScalarKernels KERNELS = KernelSupport.load();
+
+    private ColumnKernels() {
+    }
+
+    static void compare(int op, double[] a, double[] b, long[] out, int rows) {
+        KERNELS.compare(op, a, b, out, 0, rows);
+    }
+
+    static void compare(int op, double[] a, double b, long[] out, int rows) {
+        KERNELS.compare(op, a, b, out, 0, rows);
+    }
+
+    static void compare(int op, double a, double[] b, long[] out, int rows) {
+        KERNELS.compare(op, a, b, out, 0, rows);
+    }
+
+    static void arithmetic(int op, double[] a, double[] b, double[] out, int rows) {
+        KERNELS.arithmetic(op, a, b, out, 0, rows);
+    }
+
+    static void arithmetic(int op, double[] a, double b, double[] out, int rows) {
+        KERNELS.arithmetic(op, a, b, out, 0, rows);
+    }
+
+    static void arithmetic(int op, double a, double[] b, double[] out, int rows) {
+        KERNELS.arithmetic(op, a, b, out, 0, rows);
+    }
+
+    static void notZero(double[] a, long[] out, int rows) {
+        KERNELS.notZero(a, out, 0, rows);
+    }
+
+    static void equal(int[] codes, int code, long[] out, int rows) {
+        KERNELS.equal(codes, code, out, 0, rows);
+    }
+
+    static void equal(int[] a, int[] b, long[] out, int rows) {
+        KERNELS.equal(a, b, out, 0, rows);
+    }
+
+    static void and(long[] a, long[] b, long[] out) {
+        KERNELS.and(a, b, out);
+    }
+
+    static void or(long[] a, long[] b, long[] out) {
+        KERNELS.or(a, b, out);
+    }
+
+    static void andNot(long[] a, long[] b, long[] out) {
+        KERNELS.andNot(a, b, out);
+    }
+
+}
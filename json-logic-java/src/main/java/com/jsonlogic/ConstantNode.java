@@ -29,6 +29,10 @@ class ConstantNode extends Node {
         this.result = result;
     }
 
+    Result result() {
+        return result;
+    }
+
     @Override
     Result eval(Map<String, Result> data) {
         return result;
@@ -39,6 +43,16 @@ class ConstantNode extends Node {
         return true;
     }
 
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) {
+        return new Column.Constant(result);
+    }
+
+    @Override
+    long shallowBytes() {
+        return Footprint.object(1, 0) + Footprint.result(result);
+    }
+
     @Override
     void treeToString(StringBuilder builder) {
         if(result.isNull())
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Collections;
+import java.util.SortedSet;
+
+/**
+ * A static estimate of what evaluating a JsonLogicTree costs, worked out
+ * from the rule alone, without any data. Counts are worst cases: every
+ * operand of 'and', 'or' and 'if' is assumed to be evaluated, and arrays are
+ * assumed to have the sizes given as hints.
+ *
+ * Counts that do not fit in a long are reported as Long.MAX_VALUE.
+ *
+ * @author Richard
+ * @see JsonLogicTree#estimateCost(int, java.util.Map)
+ */
+public class CostEstimate {
+
+    private final int nodeCount;
+    private final int depth;
+    private final long evaluations;
+    private final long iterations;
+    private final SortedSet<String> variables;
+    private final PlanNode plan;
+
+    CostEstimate(int nodeCount, int depth, long evaluations, long iterations,
+            SortedSet<String> variables, PlanNode plan) {
+        this.nodeCount = nodeCount;
+        this.depth = depth;
+        this.evaluations = evaluations;
+        this.iterations = iterations;
+        this.variables = Collections.unmodifiableSortedSet(variables);
+        this.plan = plan;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * The number of nodes on the longest path from the root to a leaf; 1 for
+     * a rule that is a single constant or variable.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * The number of node evaluations one evaluation of the tree takes, at
+     * most. This is the figure to compare rules by.
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * The number of array elements all, some, none, map, filter and reduce
+     * go through together, at most, nested operators multiplying.
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * The variables the rule reads from the data, including those named by
+     * 'missing' and 'missing_some'. Variables read inside all, some, none,
+     * map, filter and reduce refer to array elements and are not included.
+     */
+    public SortedSet<String> getVariables() {
+        return variables;
+    }
+
+    public PlanNode getPlan() {
+        return plan;
+    }
+
+    /**
+     * Writes the plan as an indented tree, one node per line.
+     */
+    public String explain() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("nodes=").append(nodeCount)
+                .append(" depth=").append(depth)
+                .append(" evaluations=").append(evaluations)
+                .append(" iterations=").append(iterations)
+                .append(" variables=").append(variables)
+                .append('\n');
+        explain(plan, 0, builder);
+        return builder.toString();
+    }
+
+    private static void explain(PlanNode node, int level, StringBuilder builder) {
+        for (int i = 0; i < level; i++) {
+            builder.append("  ");
+        }
+        builder.append(node.getOperator()).append("  (evaluations=").append(node.getEvaluations());
+        if (node.getIterations() > 0) {
+            builder.append(", iterations=").append(node.getIterations());
+        }
+        builder.append(")\n");
+        for (PlanNode child : node.getChildren()) {
+            explain(child, level + 1, builder);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+
+}
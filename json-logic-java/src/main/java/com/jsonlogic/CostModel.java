@@ -0,0 +1,222 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Works out a CostEstimate by walking a tree once, carrying down how many
+ * times each node is evaluated. The element expression of all, some, none,
+ * map, filter and reduce is evaluated once per element of its array, so it
+ * multiplies the count for its whole subtree.
+ *
+ * @author Richard
+ */
+final class CostModel {
+
+    /**
+     * The number of elements assumed for an array when nothing better is
+     * known.
+     */
+    static final int DEFAULT_ARRAY_SIZE = 100;
+
+    private static final Map<Class<?>, String> OPERATORS = new HashMap<>();
+
+    static {
+        OPERATORS.put(EqualsNode.class, "==");
+        OPERATORS.put(StrictEqualsNode.class, "===");
+        OPERATORS.put(NotEqualsNode.class, "!=");
+        OPERATORS.put(StrictNotEqualsNode.class, "!==");
+        OPERATORS.put(GreaterThanNode.class, ">");
+        OPERATORS.put(GreaterThanEqualsNode.class, ">=");
+        OPERATORS.put(LessThanNode.class, "<");
+        OPERATORS.put(LessThanEqualsNode.class, "<=");
+        OPERATORS.put(BetweenNode.class, "<");
+        OPERATORS.put(BetweenEqualsLeftNode.class, "<=");
+        OPERATORS.put(AndNode.class, "and");
+        OPERATORS.put(OrNode.class, "or");
+        OPERATORS.put(NotNode.class, "!");
+        OPERATORS.put(IfNode.class, "if");
+        OPERATORS.put(MaxNode.class, "max");
+        OPERATORS.put(MinNode.class, "min");
+        OPERATORS.put(AdditionNode.class, "+");
+        OPERATORS.put(AdditionCastingOverloadNode.class, "+");
+        OPERATORS.put(MultiplicationNode.class, "*");
+        OPERATORS.put(SubtractionNode.class, "-");
+        OPERATORS.put(SubtractionNegatingOverloadNode.class, "-");
+        OPERATORS.put(DivisionNode.class, "/");
+        OPERATORS.put(ModuloNode.class, "%");
+        OPERATORS.put(MissingNode.class, "missing");
+        OPERATORS.put(MissingSomeNode.class, "missing_some");
+        OPERATORS.put(MergeNode.class, "merge");
+        OPERATORS.put(CatNode.class, "cat");
+        OPERATORS.put(InNode.class, "in");
+        OPERATORS.put(AllNode.class, "all");
+        OPERATORS.put(SomeNode.class, "some");
+        OPERATORS.put(NoneNode.class, "none");
+        OPERATORS.put(MapNode.class, "map");
+        OPERATORS.put(FilterNode.class, "filter");
+        OPERATORS.put(ReduceNode.class, "reduce");
+        OPERATORS.put(SubstrNode.class, "substr");
+        OPERATORS.put(LogNode.class, "log");
+        OPERATORS.put(LazyNode.class, "lazy");
+        OPERATORS.put(ArrayNode.class, "[]");
+    }
+
+    private final int defaultArraySize;
+    private final Map<String, Integer> arraySizeHints;
+    private final SortedSet<String> variables = new TreeSet<>();
+    private int nodeCount;
+    private int depth;
+    private long evaluations;
+    private long iterations;
+
+    private CostModel(int defaultArraySize, Map<String, Integer> arraySizeHints) {
+        this.defaultArraySize = defaultArraySize;
+        this.arraySizeHints = arraySizeHints;
+    }
+
+    static CostEstimate estimate(Node root, int defaultArraySize, Map<String, Integer> arraySizeHints) {
+        CostModel model = new CostModel(defaultArraySize, arraySizeHints);
+        PlanNode plan = model.plan(root, 1, 1, false);
+        return new CostEstimate(model.nodeCount, model.depth, model.evaluations, model.iterations,
+                model.variables, plan);
+    }
+
+    /**
+     * @param times how many times the node is evaluated
+     * @param level the depth of the node, 1 for the root
+     * @param element whether the node is inside an element expression, where
+     * variables refer to the array element rather than to the data
+     */
+    private PlanNode plan(Node node, long times, int level, boolean element) {
+        nodeCount++;
+        depth = Math.max(depth, level);
+        // a custom operator counts as many evaluations as its declared cost
+        evaluations = add(evaluations, node instanceof CustomNode ? multiply(times, ((CustomNode) node).cost()) : times);
+        if (!element) {
+            if (node instanceof VarNode) {
+                variables.add(((VarNode) node).name());
+            } else if (node instanceof MissingNode || node instanceof MissingSomeNode) {
+                addNamedVariables(node);
+            }
+        }
+        boolean iterating = isIterating(node);
+        long elements = iterating ? multiply(times, arraySize(node.child(0))) : 0;
+        iterations = add(iterations, elements);
+        List<PlanNode> children = new ArrayList<>(node.childCount());
+        for (int i = 0; i < node.childCount(); i++) {
+            if (iterating && i == 1) {
+                children.add(plan(node.child(i), elements, level + 1, true));
+            } else {
+                children.add(plan(node.child(i), times, level + 1, element));
+            }
+        }
+        return new PlanNode(label(node), times, elements, children);
+    }
+
+    private static boolean isIterating(Node node) {
+        return (node instanceof AllNode || node instanceof SomeNode || node instanceof NoneNode
+                || node instanceof MapNode || node instanceof FilterNode || node instanceof ReduceNode)
+                && node.childCount() >= 2;
+    }
+
+    /**
+     * The number of elements the node is assumed to produce when it is the
+     * array operand of an iterating operator.
+     */
+    private long arraySize(Node node) {
+        if (node instanceof VarNode) {
+            Integer hint = arraySizeHints.get(((VarNode) node).name());
+            return hint != null ? hint : defaultArraySize;
+        }
+        if (node instanceof ArrayNode) {
+            return node.childCount();
+        }
+        if (node instanceof ConstantNode) {
+            Result result = ((ConstantNode) node).result();
+            return result.isArray() ? result.getArrayValue().size() : 1;
+        }
+        if (node instanceof MapNode || node instanceof FilterNode) {
+            return arraySize(node.child(0));
+        }
+        if (node instanceof MergeNode) {
+            long size = 0;
+            for (int i = 0; i < node.childCount(); i++) {
+                size = add(size, arraySize(node.child(i)));
+            }
+            return size;
+        }
+        return defaultArraySize;
+    }
+
+    /**
+     * Adds the names given as constants to 'missing' or 'missing_some'.
+     */
+    private void addNamedVariables(Node node) {
+        if (node instanceof ConstantNode) {
+            Result result = ((ConstantNode) node).result();
+            if (result.isString()) {
+                variables.add(result.getStringValue());
+            } else if (result.isArray()) {
+                result.getArrayValue().forEach(item -> {
+                    if (item.isJsonPrimitive() && item.getAsJsonPrimitive().isString()) {
+                        variables.add(item.getAsString());
+                    }
+                });
+            }
+            return;
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            addNamedVariables(node.child(i));
+        }
+    }
+
+    private static String label(Node node) {
+        if (node instanceof VarNode) {
+            String name = ((VarNode) node).name();
+            return name.isEmpty() ? "var \"\"" : "var " + name;
+        }
+        if (node instanceof CustomNode) {
+            return ((CustomNode) node).name();
+        }
+        if (node instanceof ConstantNode) {
+            StringBuilder builder = new StringBuilder();
+            EvaluationPipeline.toJson(((ConstantNode) node).result(), builder);
+            return builder.toString();
+        }
+        String operator = OPERATORS.get(node.getClass());
+        return operator != null ? operator : node.getClass().getSimpleName();
+    }
+
+    private static long add(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static long multiply(long a, long b) {
+        if (a != 0 && b > Long.MAX_VALUE / a) {
+            return Long.MAX_VALUE;
+        }
+        return a * b;
+    }
+
+}
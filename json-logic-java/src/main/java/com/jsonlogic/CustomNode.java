@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Map;
+
+/**
+ * An occurrence of a custom operator in a rule.
+ *
+ * @author Richard
+ */
+class CustomNode extends Node {
+
+    private final String name;
+    private final CustomOperator operator;
+    private final boolean pure;
+    private final int cost;
+    private Node[] operands;
+
+    CustomNode(String name, CustomOperator operator, boolean pure, int cost, Node[] operands) {
+        this.name = name;
+        this.operator = operator;
+        this.pure = pure;
+        this.cost = cost;
+        this.operands = operands;
+    }
+
+    String name() {
+        return name;
+    }
+
+    boolean isPure() {
+        return pure;
+    }
+
+    int cost() {
+        return cost;
+    }
+
+    @Override
+    Result eval(Map<String, Result> data) throws EvaluationException {
+        Result[] values = new Result[operands.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = operands[i].eval(data);
+        }
+        Result result = operator.apply(values);
+        return result != null ? result : new Result(null);
+    }
+
+    @Override
+    boolean isConstant() {
+        if (!pure) {
+            return false;
+        }
+        for (Node operand : operands) {
+            if (!operand.isConstant()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    void reduce() throws EvaluationException {
+        for (int i = 0; i < operands.length; i++) {
+            Node operand = operands[i];
+            if (!operand.isConstant()) {
+                operand.reduce();
+            } else if (!(operand instanceof ConstantNode)) {
+                operands[i] = new ConstantNode(operand.eval(null));
+            }
+        }
+    }
+
+    @Override
+    void treeToString(StringBuilder builder) {
+        builder.append("{\"").append(name).append("\":[");
+        for (int i = 0; i < operands.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            operands[i].treeToString(builder);
+        }
+        builder.append("]}");
+    }
+
+    @Override
+    int childCount() {
+        return operands.length;
+    }
+
+    @Override
+    Node child(int index) {
+        return operands[index];
+    }
+
+    @Override
+    void setChild(int index, Node child) {
+        operands[index] = child;
+    }
+
+    @Override
+    void detach() {
+        operands = operands.clone();
+    }
+
+    @Override
+    long shallowBytes() {
+        return Footprint.object(4, 5) + Footprint.array(operands.length, Footprint.REFERENCE);
+    }
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+/**
+ * An operator added to the language through an OperatorRegistry. Its
+ * operands are evaluated first, in the order they are written, and their
+ * values passed to apply().
+ *
+ * @author Richard
+ */
+public interface CustomOperator {
+
+    /**
+     * @param operands the values of the operands; the array belongs to the
+     * operator, which may keep or change it
+     * @return the value of the operation; null is taken as a null value
+     */
+    Result apply(Result[] operands) throws EvaluationException;
+
+}
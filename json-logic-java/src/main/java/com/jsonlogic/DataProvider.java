@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A DataProvider supplies the values of variables that are not present in the
+ * data given to JsonLogicTree.evaluateAsync, for example values that have to
+ * be looked up in a remote service.
+ *
+ * @author Richard
+ */
+public interface DataProvider {
+
+    /**
+     * Fetches a batch of variables. All of the variables an evaluation reaches
+     * before it has to wait are requested together, and a variable is never
+     * requested twice for the same evaluation.
+     *
+     * The returned future should be completed without blocking the calling
+     * thread; the evaluation resumes on the thread that completes it.
+     *
+     * @param names the names of the variables, in 'var' notation
+     * @return a future of the values that were found, keyed by name. Names
+     * left out of the map are treated as missing from the data.
+     */
+    CompletableFuture<Map<String, Result>> fetch(Set<String> names);
+
+}
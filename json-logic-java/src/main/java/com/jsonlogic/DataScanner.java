@@ -0,0 +1,342 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads a data record straight from its UTF-8 bytes into the same flattened
+ * map that JsonLogicTree.convertData produces, without a Reader or any token
+ * objects in between. Anything after the closing brace other than whitespace,
+ * and control characters inside strings that are not escaped, are errors.
+ *
+ * A scanner keeps a little state between records and must only be used by
+ * one thread at a time.
+ *
+ * @author Richard
+ */
+final class DataScanner {
+
+    private byte[] in;
+    private int pos;
+    private int end;
+    private char[] chars = new char[64];
+
+    Map<String, Result> scan(byte[] data) throws ParseException {
+        return scan(data, 0, data == null ? 0 : data.length);
+    }
+
+    Map<String, Result> scan(byte[] data, int offset, int length) throws ParseException {
+        Map<String, Result> temp = new HashMap<>();
+        if (data == null || length == 0) {
+            return temp;
+        }
+        in = data;
+        pos = offset;
+        end = offset + length;
+        try {
+            expect('{');
+            if (peek() != '}') {
+                do {
+                    String name = readName();
+                    readValue(name, temp);
+                } while (next(','));
+            }
+            expect('}');
+            while (pos < end) {
+                byte b = in[pos];
+                if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                    throw error("Unexpected data after the record");
+                }
+                pos++;
+            }
+        } finally {
+            in = null;
+        }
+        return temp;
+    }
+
+    private void readValue(String name, Map<String, Result> temp) throws ParseException {
+        switch (peek()) {
+            case 'n':
+                literal("null");
+                temp.put(name, new Result(null));
+                return;
+            case 't':
+                literal("true");
+                temp.put(name, new Result(true));
+                return;
+            case 'f':
+                literal("false");
+                temp.put(name, new Result(false));
+                return;
+            case '"':
+                temp.put(name, new Result(readString()));
+                return;
+            case '{':
+                pos++;
+                if (peek() != '}') {
+                    do {
+                        String subName = readName();
+                        readValue(name + "." + subName, temp);
+                    } while (next(','));
+                }
+                expect('}');
+                return;
+            case '[':
+                pos++;
+                LinkedHashMap<String, Result> lolo = new LinkedHashMap<>();
+                int counter = 0;
+                if (peek() != ']') {
+                    do {
+                        readValue(name + ".$" + counter, lolo);
+                        counter++;
+                    } while (next(','));
+                }
+                expect(']');
+                temp.put(name, JsonLogicTree.arrayResult(name, counter, lolo));
+                return;
+            default:
+                temp.put(name, new Result(readNumber()));
+        }
+    }
+
+    private String readName() throws ParseException {
+        if (peek() != '"') {
+            throw error("Expected a name");
+        }
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Reads a number as JSON writes it: an optional minus, an integer part
+     * without leading zeros, then optionally a fraction and an exponent.
+     */
+    private double readNumber() throws ParseException {
+        int start = pos;
+        if (pos < end && in[pos] == '-') {
+            pos++;
+        }
+        if (pos < end && in[pos] == '0') {
+            pos++;
+        } else if (digits() == 0) {
+            if (start == pos) {
+                throw error("Expected a value");
+            }
+            throw error("Malformed number");
+        }
+        if (pos < end && in[pos] == '.') {
+            pos++;
+            if (digits() == 0) {
+                throw error("Malformed number");
+            }
+        }
+        if (pos < end && (in[pos] == 'e' || in[pos] == 'E')) {
+            pos++;
+            if (pos < end && (in[pos] == '+' || in[pos] == '-')) {
+                pos++;
+            }
+            if (digits() == 0) {
+                throw error("Malformed number");
+            }
+        }
+        if (pos < end && (isDigit(in[pos]) || in[pos] == '.' || in[pos] == '+' || in[pos] == '-')) {
+            throw error("Malformed number");
+        }
+        return Double.parseDouble(new String(in, start, pos - start, StandardCharsets.US_ASCII));
+    }
+
+    private int digits() {
+        int start = pos;
+        while (pos < end && isDigit(in[pos])) {
+            pos++;
+        }
+        return pos - start;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private String readString() throws ParseException {
+        int start = ++pos;
+        // fast path: no escapes, decode the bytes in one go
+        while (pos < end) {
+            byte b = in[pos];
+            if (b == '"') {
+                return new String(in, start, pos++ - start, StandardCharsets.UTF_8);
+            }
+            if (b == '\\') {
+                break;
+            }
+            if (b >= 0 && b < 0x20) {
+                throw error("Unescaped control character in string");
+            }
+            pos++;
+        }
+        if (pos >= end) {
+            throw error("Unterminated string");
+        }
+
+        String prefix = new String(in, start, pos - start, StandardCharsets.UTF_8);
+        int length = 0;
+        while (true) {
+            if (pos >= end) {
+                throw error("Unterminated string");
+            }
+            int b = in[pos++] & 0xff;
+            if (b == '"') {
+                return prefix + new String(chars, 0, length);
+            }
+            if (b < 0x20) {
+                pos--;
+                throw error("Unescaped control character in string");
+            }
+            if (length + 2 > chars.length) {
+                char[] grown = new char[chars.length * 2];
+                System.arraycopy(chars, 0, grown, 0, length);
+                chars = grown;
+            }
+            if (b == '\\') {
+                chars[length++] = readEscape();
+            } else if (b < 0x80) {
+                chars[length++] = (char) b;
+            } else {
+                int codePoint = readMultiByte(b);
+                length += Character.toChars(codePoint, chars, length);
+            }
+        }
+    }
+
+    private char readEscape() throws ParseException {
+        if (pos >= end) {
+            throw error("Unterminated escape sequence");
+        }
+        byte b = in[pos++];
+        switch (b) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) b;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                if (pos + 4 > end) {
+                    throw error("Unterminated escape sequence");
+                }
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(in[pos++], 16);
+                    if (digit < 0) {
+                        throw error("Malformed escape sequence");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw error("Malformed escape sequence");
+        }
+    }
+
+    private int readMultiByte(int first) throws ParseException {
+        int extra;
+        int codePoint;
+        if ((first & 0xe0) == 0xc0) {
+            extra = 1;
+            codePoint = first & 0x1f;
+        } else if ((first & 0xf0) == 0xe0) {
+            extra = 2;
+            codePoint = first & 0x0f;
+        } else if ((first & 0xf8) == 0xf0) {
+            extra = 3;
+            codePoint = first & 0x07;
+        } else {
+            throw error("Malformed UTF-8");
+        }
+        if (pos + extra > end) {
+            throw error("Malformed UTF-8");
+        }
+        for (int i = 0; i < extra; i++) {
+            int b = in[pos++] & 0xff;
+            if ((b & 0xc0) != 0x80) {
+                throw error("Malformed UTF-8");
+            }
+            codePoint = (codePoint << 6) | (b & 0x3f);
+        }
+        return codePoint;
+    }
+
+    private void literal(String expected) throws ParseException {
+        int length = expected.length();
+        if (pos + length > end) {
+            throw error("Expected " + expected);
+        }
+        for (int i = 0; i < length; i++) {
+            if (in[pos + i] != expected.charAt(i)) {
+                throw error("Expected " + expected);
+            }
+        }
+        pos += length;
+    }
+
+    /**
+     * Skips whitespace and returns the next byte without consuming it.
+     */
+    private int peek() throws ParseException {
+        while (pos < end) {
+            byte b = in[pos];
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                pos++;
+            } else {
+                return b;
+            }
+        }
+        throw error("Unexpected end of data");
+    }
+
+    private boolean next(char c) throws ParseException {
+        if (peek() == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) throws ParseException {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private ParseException error(String message) {
+        return new ParseException(message + " at offset " + pos);
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The data the element expression of all, some, none, map, filter and
+ * reduce is evaluated with, once for each element. The expression is the
+ * node parsed with the rule, so it is built once, with the rule's operators,
+ * and is reduced like any other operand.
+ *
+ * @author Richard
+ */
+final class ElementData {
+
+    private static final Gson GSON = new Gson();
+    private static final Pattern NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+    private ElementData() {
+    }
+
+    /**
+     * Tells whether the expression reads the variable, counting the
+     * expressions of nested operations and branches not parsed yet.
+     */
+    static boolean reads(Node expression, String name) {
+        if (expression instanceof VarNode) {
+            return ((VarNode) expression).name().equals(name);
+        }
+        if (expression instanceof LazyNode) {
+            String text = ((LazyNode) expression).unparsedText();
+            if (text != null) {
+                return text.contains("{\"var\":\"" + name + "\"}");
+            }
+        }
+        for (int i = 0; i < expression.childCount(); i++) {
+            if (reads(expression.child(i), name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The element as the variable "". An array written in the rule holds
+     * its numbers and booleans as strings, so a string that reads as one is
+     * taken for it, as it was when the element was written into the
+     * expression's text.
+     */
+    static Map<String, Result> element(JsonElement element) throws ParseException {
+        Map<String, Result> data = new HashMap<>(2);
+        if (element.isJsonNull()) {
+            data.put("", new Result(null));
+        } else if (element.isJsonPrimitive()) {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isNumber()) {
+                data.put("", new Result(primitive.getAsDouble()));
+            } else if (primitive.isBoolean()) {
+                data.put("", new Result(primitive.getAsBoolean()));
+            } else {
+                data.put("", literal(primitive.getAsString()));
+            }
+        } else {
+            return JsonLogicTree.convertData(GSON, "{\"\":" + element + "}");
+        }
+        return data;
+    }
+
+    private static Result literal(String value) {
+        if (NUMBER.matcher(value).matches()) {
+            return new Result(Double.parseDouble(value));
+        }
+        if (value.equals("true") || value.equals("false")) {
+            return new Result(Boolean.parseBoolean(value));
+        }
+        return new Result(value);
+    }
+
+    /**
+     * The fields of an object element as variables.
+     */
+    static Map<String, Result> fields(JsonElement element) throws ParseException {
+        return JsonLogicTree.convertData(GSON, element.toString());
+    }
+
+}
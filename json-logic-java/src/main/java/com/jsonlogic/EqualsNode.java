@@ -71,14 +71,14 @@ class EqualsNode extends BinaryNode {
 
         if(leftResult.isDouble()&&rightResult.isString())
         {
-            Double temp=new Double(rightResult.getStringValue());
+            Double temp=Double.valueOf(rightResult.getStringValue());
 
             return new Result(leftResult.getDoubleValue().equals(temp));
         }
 
         if(rightResult.isDouble()&&leftResult.isString())
         {
-            Double temp=new Double(leftResult.getStringValue());
+            Double temp=Double.valueOf(leftResult.getStringValue());
 
             return new Result(rightResult.getDoubleValue().equals(temp));
         }
@@ -92,5 +92,59 @@ class EqualsNode extends BinaryNode {
     boolean isConstant() {
         return left.isConstant() && right.isConstant();
     }
-    
+
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        Column leftColumn = left.evalColumn(batch, selection);
+        Column rightColumn = right.evalColumn(batch, selection);
+        int rows = batch.rows();
+        long[] bits = Column.compare(ColumnKernels.EQ, leftColumn, rightColumn, rows);
+        if (bits == null) {
+            bits = equalStrings(leftColumn, rightColumn, rows);
+        }
+        if (bits == null) {
+            return super.evalColumn(batch, selection);
+        }
+        return new Column.Booleans(bits);
+    }
+
+    /**
+     * Compares the dictionary codes of a string column with a constant, or
+     * with another string column that shares the same dictionary, without
+     * looking at the strings of each row.
+     */
+    private static long[] equalStrings(Column leftColumn, Column rightColumn, int rows) {
+        if (!(leftColumn instanceof Column.Strings)) {
+            Column swap = leftColumn;
+            leftColumn = rightColumn;
+            rightColumn = swap;
+        }
+        if (!(leftColumn instanceof Column.Strings)) {
+            return null;
+        }
+        Column.Strings strings = (Column.Strings) leftColumn;
+        long[] bits = new long[Column.words(rows)];
+        Result constant = rightColumn.constant();
+        if (constant != null && constant.isNull()) {
+            ColumnKernels.equal(strings.codes(), -1, bits, rows);
+            return bits;
+        }
+        if (constant != null && constant.isString()) {
+            String[] dictionary = strings.dictionary();
+            for (int code = 0; code < dictionary.length; code++) {
+                if (dictionary[code].equals(constant.getStringValue())) {
+                    ColumnKernels.equal(strings.codes(), code, bits, rows);
+                    break;
+                }
+            }
+            return bits;
+        }
+        if (rightColumn instanceof Column.Strings
+                && ((Column.Strings) rightColumn).dictionary() == strings.dictionary()) {
+            ColumnKernels.equal(strings.codes(), ((Column.Strings) rightColumn).codes(), bits, rows);
+            return bits;
+        }
+        return null;
+    }
+
 }
@@ -20,9 +20,15 @@ package com.jsonlogic;
  * @author Richard
  */
 public class EvaluationException extends Exception {
-    
+
+    private static final long serialVersionUID = 1L;
+
     public EvaluationException(String message) {
         super(message);
     }
+
+    public EvaluationException(String message, Throwable cause) {
+        super(message, cause);
+    }
     
 }
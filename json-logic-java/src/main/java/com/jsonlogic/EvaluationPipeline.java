@@ -0,0 +1,290 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.JsonArray;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * EvaluationPipeline splits the evaluation of a stream of data records into
+ * three stages, each running on its own thread:
+ *
+ * 1. scanning the UTF-8 bytes of a record into data,
+ * 2. applying the rules to the data,
+ * 3. serializing the result to UTF-8 JSON and handing it to the Sink.
+ *
+ * The stages are connected by bounded lock-free queues, so the scanning of a
+ * record overlaps with the evaluation of the one before it. A stage with
+ * nothing to do parks until the stage before it hands it a record. Results reach the
+ * Sink in submission order. submit() must always be called from the same
+ * thread.
+ *
+ * A Sink that throws stops the pipeline: the records after the one it failed
+ * on are not delivered, submit() refuses further records, and close() reports
+ * the failure together with the number of records that were not delivered.
+ *
+ * @author Richard
+ */
+public class EvaluationPipeline implements AutoCloseable {
+
+    /**
+     * Receives the output of the pipeline, always on the serialization
+     * thread.
+     */
+    public interface Sink {
+
+        /**
+         * @param sequence the position of the record, counting from zero
+         * @param json the result as UTF-8 encoded JSON
+         */
+        void accept(long sequence, byte[] json);
+
+        /**
+         * @param sequence the position of the record, counting from zero
+         * @param ex why the record could not be scanned or evaluated
+         */
+        void failed(long sequence, Exception ex);
+    }
+
+    private static final Object END = new Object();
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final JsonLogicTree tree;
+    private final Sink sink;
+    private final SpscQueue<Object> scanQueue;
+    private final SpscQueue<Object> evaluateQueue;
+    private final SpscQueue<Object> serializeQueue;
+    private final Thread[] threads;
+    private volatile Throwable failure;
+    private volatile long undelivered;
+    private boolean closed;
+
+    public EvaluationPipeline(JsonLogicTree tree, Sink sink) {
+        this(tree, sink, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param tree the rules to apply to every record
+     * @param sink receives the results
+     * @param capacity the number of records each queue between two stages
+     * can hold
+     */
+    public EvaluationPipeline(JsonLogicTree tree, Sink sink, int capacity) {
+        this.tree = tree;
+        this.sink = sink;
+        scanQueue = new SpscQueue<>(capacity);
+        evaluateQueue = new SpscQueue<>(capacity);
+        serializeQueue = new SpscQueue<>(capacity);
+        threads = new Thread[]{
+            new Thread(this::scan, "jsonlogic-scan"),
+            new Thread(this::evaluate, "jsonlogic-evaluate"),
+            new Thread(this::serialize, "jsonlogic-serialize")
+        };
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Queues a record, waiting while the first stage is full.
+     *
+     * @param data UTF-8 encoded JSON
+     * @throws IllegalStateException if the pipeline is closed, or stopped
+     * because the Sink failed
+     */
+    public void submit(byte[] data) {
+        if (closed) {
+            throw new IllegalStateException("EvaluationPipeline is closed");
+        }
+        Throwable ex = failure;
+        if (ex != null) {
+            throw new IllegalStateException("EvaluationPipeline stopped", ex);
+        }
+        scanQueue.put(data);
+    }
+
+    public void submit(String data) {
+        submit(data == null ? new byte[0] : data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Waits until every submitted record has reached the Sink and stops the
+     * stage threads. An interrupt does not cut the wait short; the thread's
+     * interrupt status is set again once the stages have stopped.
+     *
+     * @throws IllegalStateException if the Sink failed
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        scanQueue.put(END);
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        Throwable ex = failure;
+        if (ex != null) {
+            throw new IllegalStateException("EvaluationPipeline stopped, "
+                    + undelivered + " records after the failed one were not delivered", ex);
+        }
+    }
+
+    private void scan() {
+        DataScanner scanner = new DataScanner();
+        run(scanQueue, evaluateQueue, item -> {
+            try {
+                return scanner.scan((byte[]) item);
+            } catch (ParseException ex) {
+                return ex;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void evaluate() {
+        run(evaluateQueue, serializeQueue, item -> {
+            if (item instanceof Exception) {
+                return item;
+            }
+            try {
+                return tree.evaluate((Map<String, Result>) item);
+            } catch (EvaluationException | RuntimeException ex) {
+                return ex;
+            }
+        });
+    }
+
+    private void serialize() {
+        StringBuilder builder = new StringBuilder();
+        long[] sequence = new long[1];
+        run(serializeQueue, null, item -> {
+            long current = sequence[0]++;
+            try {
+                if (item instanceof Exception) {
+                    sink.failed(current, (Exception) item);
+                } else {
+                    builder.setLength(0);
+                    toJson((Result) item, builder);
+                    sink.accept(current, builder.toString().getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (RuntimeException | Error ex) {
+                throw new IllegalStateException("Sink failed on record " + current, ex);
+            }
+            return null;
+        });
+    }
+
+    private interface Step {
+
+        Object apply(Object item);
+    }
+
+    private void run(SpscQueue<Object> in, SpscQueue<Object> out, Step step) {
+        try {
+            while (true) {
+                Object item = in.take();
+                if (item == END) {
+                    if (out != null) {
+                        out.put(END);
+                    }
+                    return;
+                }
+                Object result = step.apply(item);
+                if (out != null) {
+                    out.put(result);
+                }
+            }
+        } catch (Throwable ex) {
+            // a failing Sink stops the pipeline, but the other stages must
+            // still be able to drain and exit
+            failure = ex;
+            long dropped = 0;
+            while (in.take() != END) {
+                dropped++;
+            }
+            if (out == null) {
+                undelivered = dropped;
+            }
+            if (out != null) {
+                out.put(END);
+            }
+        }
+    }
+
+    static void toJson(Result result, StringBuilder builder) {
+        if (result == null || result.isNull()) {
+            builder.append("null");
+        } else if (result.isBoolean()) {
+            builder.append(result.getBooleanValue());
+        } else if (result.isDouble()) {
+            double value = result.getDoubleValue();
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                builder.append("null");
+            } else {
+                builder.append(result.getStringValue());
+            }
+        } else if (result.isArray()) {
+            JsonArray array = result.getArrayValue();
+            builder.append(array.toString());
+        } else {
+            String value = result.getStringValue();
+            builder.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        builder.append("\\\"");
+                        break;
+                    case '\\':
+                        builder.append("\\\\");
+                        break;
+                    case '\n':
+                        builder.append("\\n");
+                        break;
+                    case '\r':
+                        builder.append("\\r");
+                        break;
+                    case '\t':
+                        builder.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            builder.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            builder.append(c);
+                        }
+                }
+            }
+            builder.append('"');
+        }
+    }
+
+}
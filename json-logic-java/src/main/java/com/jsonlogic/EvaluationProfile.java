@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The per-node counters of a profiled JsonLogicTree, as a tree of
+ * NodeProfiles shaped like the rule.
+ *
+ * @author Richard
+ */
+public class EvaluationProfile {
+
+    private final NodeProfile root;
+
+    EvaluationProfile(NodeProfile root) {
+        this.root = root;
+    }
+
+    public NodeProfile getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns every node, parents before their operands.
+     */
+    public List<NodeProfile> getNodes() {
+        List<NodeProfile> nodes = new ArrayList<>();
+        addNodes(root, nodes);
+        return Collections.unmodifiableList(nodes);
+    }
+
+    private static void addNodes(NodeProfile node, List<NodeProfile> nodes) {
+        nodes.add(node);
+        for (NodeProfile child : node.getChildren()) {
+            addNodes(child, nodes);
+        }
+    }
+
+    /**
+     * Returns the profile as a JSON document with one nested object per
+     * node.
+     */
+    public String toJson() {
+        return new GsonBuilder().setPrettyPrinting().create().toJson(toJson(root));
+    }
+
+    private static JsonObject toJson(NodeProfile node) {
+        JsonObject object = new JsonObject();
+        object.addProperty("path", node.getPath());
+        object.addProperty("rule", node.getRule());
+        object.addProperty("invocations", node.getInvocations());
+        object.addProperty("totalNanos", node.getTotalNanos());
+        object.addProperty("selfNanos", node.getSelfNanos());
+        if (!Double.isNaN(node.getShortCircuitRate())) {
+            object.addProperty("shortCircuitRate", node.getShortCircuitRate());
+        }
+        long[] branchCounts = node.getBranchCounts();
+        if (branchCounts.length > 0) {
+            JsonArray branches = new JsonArray();
+            for (long count : branchCounts) {
+                branches.add(count);
+            }
+            object.add("branchCounts", branches);
+        }
+        if (!node.getChildren().isEmpty()) {
+            JsonArray children = new JsonArray();
+            for (NodeProfile child : node.getChildren()) {
+                children.add(toJson(child));
+            }
+            object.add("children", children);
+        }
+        return object;
+    }
+
+}
@@ -30,25 +30,29 @@ class FilterNode extends BinaryNode {
     }
 
     @Override
-    Result eval(Map<String, Result> data) throws EvaluationException{
+    Result eval(Map<String, Result> data) throws EvaluationException {
+        Object event = JfrEvents.beginOperator();
+        try {
+            return evalElements(data, event);
+        } finally {
+            JfrEvents.commitOperator(event, "filter", this);
+        }
+    }
+
+    private Result evalElements(Map<String, Result> data, Object event) throws EvaluationException{
         Result leftResult = left.eval(data);
+        if (leftResult.isArray())
+            JfrEvents.operatorInput(event, leftResult.getArrayValue().size());
 
         if (!leftResult.isArray())
             throw new EvaluationException("");
 
-        StringBuilder sb=new StringBuilder();
-
-        right.treeToString(sb);
-
-        
         JsonArray results=new JsonArray();
 
         for(int i=0;i<leftResult.getArrayValue().size();i++)
         {
-            //String afterReplace=sb.toString().replace("{\"var\":\"\"}",leftResult.getArrayValue().get(i).getAsDouble()+"");
-
             try {
-                Result r=new JsonLogic().apply(sb.toString(),leftResult.getArrayValue().get(i).toString());
+                Result r=right.eval(ElementData.fields(leftResult.getArrayValue().get(i)));
 
                 if(r.getBooleanValue())
                     results.add(leftResult.getArrayValue().get(i));
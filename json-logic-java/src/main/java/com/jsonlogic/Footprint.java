@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates of the heap taken by the objects a tree is made of, for a 64 bit
+ * JVM with compressed references: 12 byte object headers, 4 byte references
+ * and objects aligned to 8 bytes. Strings are counted the way the running JVM
+ * stores them: two bytes per character on Java 8, and on later versions one
+ * byte per character when every character is Latin-1, unless compact strings
+ * are turned off.
+ *
+ * The figures are estimates meant for sizing caches, not exact measurements;
+ * objects shared between trees, such as the constants true and false, are
+ * counted in every tree that uses them.
+ *
+ * @author Richard
+ */
+final class Footprint {
+
+    static final int HEADER = 12;
+    static final int REFERENCE = 4;
+    static final int ARRAY_HEADER = 16;
+
+    private Footprint() {
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * An object holding references and primitive fields, excluding what the
+     * references point to.
+     */
+    static long object(int references, int primitiveBytes) {
+        return align(HEADER + references * REFERENCE + primitiveBytes);
+    }
+
+    static long array(int length, int elementBytes) {
+        return align(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    static long string(String value) {
+        if (value == null) {
+            return 0;
+        }
+        if (!CompactStrings.ENABLED) {
+            // value and hash
+            return object(1, 4) + array(value.length(), 2);
+        }
+        int charBytes = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xff) {
+                charBytes = 2;
+                break;
+            }
+        }
+        // value, hash, coder and hashIsZero
+        return object(1, 6) + array(value.length(), charBytes);
+    }
+
+    /**
+     * Strings keep their characters in a byte[] with a coder from Java 9 on,
+     * and in a char[] before that. -XX:-CompactStrings makes every string
+     * two bytes per character again. Looking that up starts the management
+     * classes, so it waits for the first string to be weighed.
+     */
+    private static final class CompactStrings {
+
+        static final boolean ENABLED = compactStrings();
+
+        private static boolean compactStrings() {
+            try {
+                String.class.getDeclaredField("coder");
+            } catch (NoSuchFieldException ex) {
+                return false;
+            }
+            try {
+                return !ManagementFactory.getRuntimeMXBean().getInputArguments().contains("-XX:-CompactStrings");
+            } catch (RuntimeException | LinkageError ex) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * A list of nodes, excluding the nodes.
+     */
+    static long list(List<?> list) {
+        if (list instanceof LinkedList) {
+            return object(2, 8) + list.size() * object(3, 0);
+        }
+        return object(1, 8) + array(list.size(), REFERENCE);
+    }
+
+    static long result(Result result) {
+        if (result == null) {
+            return 0;
+        }
+        return object(1, 0) + value(result.getCastedValue());
+    }
+
+    private static long value(Object value) {
+        if (value == null || value instanceof Boolean) {
+            // Boolean.TRUE and Boolean.FALSE are shared
+            return 0;
+        }
+        if (value instanceof String) {
+            return string((String) value);
+        }
+        if (value instanceof JsonElement) {
+            return json((JsonElement) value);
+        }
+        return object(0, 8);
+    }
+
+    static long json(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return 0;
+        }
+        if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            long bytes = object(1, 0) + object(1, 8) + array(array.size(), REFERENCE);
+            for (JsonElement item : array) {
+                bytes += json(item);
+            }
+            return bytes;
+        }
+        if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            // the LinkedTreeMap and its header node, then one node per entry
+            long bytes = object(1, 0) + object(5, 12) + object(6, 8);
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                bytes += object(6, 8) + string(entry.getKey()) + json(entry.getValue());
+            }
+            return bytes;
+        }
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return object(1, 0);
+        }
+        if (primitive.isString()) {
+            return object(1, 0) + string(primitive.getAsString());
+        }
+        return object(1, 0) + object(1, 8);
+    }
+
+}
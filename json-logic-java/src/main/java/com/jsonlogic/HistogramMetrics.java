@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A JsonLogicMetrics that keeps latency histograms and counters in memory,
+ * for a reporter to read at its own pace. Recording never blocks: every
+ * counter is a LongAdder.
+ *
+ * @author Richard
+ */
+public class HistogramMetrics implements JsonLogicMetrics {
+
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+    private final LatencyHistogram evaluationLatency = new LatencyHistogram();
+    private final LatencyHistogram dataConversionLatency = new LatencyHistogram();
+    private final ConcurrentHashMap<Class<?>, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder cacheEvictions = new LongAdder();
+
+    @Override
+    public void recordParse(long nanos) {
+        parseLatency.record(nanos);
+    }
+
+    @Override
+    public void recordEvaluation(long nanos) {
+        evaluationLatency.record(nanos);
+    }
+
+    @Override
+    public void recordDataConversion(long nanos) {
+        dataConversionLatency.record(nanos);
+    }
+
+    @Override
+    public void recordError(Exception ex) {
+        errors.computeIfAbsent(ex.getClass(), type -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    @Override
+    public void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    @Override
+    public void recordCacheEviction() {
+        cacheEvictions.increment();
+    }
+
+    public LatencyHistogram getParseLatency() {
+        return parseLatency;
+    }
+
+    public LatencyHistogram getEvaluationLatency() {
+        return evaluationLatency;
+    }
+
+    public LatencyHistogram getDataConversionLatency() {
+        return dataConversionLatency;
+    }
+
+    /**
+     * @return the number of errors by exception class name
+     */
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<Class<?>, LongAdder> entry : errors.entrySet()) {
+            counts.put(entry.getKey().getName(), entry.getValue().sum());
+        }
+        return counts;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public long getCacheEvictions() {
+        return cacheEvictions.sum();
+    }
+
+}
@@ -25,7 +25,7 @@ import java.util.Map;
  */
 class IfNode extends Node {
 
-    private final List<Node> nodes;
+    private List<Node> nodes;
 
     IfNode(Node conditionNode, Node trueNode, Node falseNode) {
         nodes = new LinkedList<>();
@@ -58,6 +58,31 @@ class IfNode extends Node {
         return false;
     }
 
+    @Override
+    int childCount() {
+        return nodes.size();
+    }
+
+    @Override
+    long shallowBytes() {
+        return Footprint.object(1, 0) + Footprint.list(nodes);
+    }
+
+    @Override
+    Node child(int index) {
+        return nodes.get(index);
+    }
+
+    @Override
+    void setChild(int index, Node child) {
+        nodes.set(index, child);
+    }
+
+    @Override
+    void detach() {
+        nodes = new LinkedList<>(nodes);
+    }
+
     @Override
     void treeToString(StringBuilder builder) {
         builder.append("if (");
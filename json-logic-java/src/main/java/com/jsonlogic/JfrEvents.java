@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Map;
+
+/**
+ * Emits JDK Flight Recorder events for parsing, data conversion, evaluation
+ * and slow operators. Java 8 has no public JFR API, so in this version every
+ * method does nothing; the multi-release jar replaces the class on Java 11
+ * and later.
+ *
+ * Every begin method returns null when its event is not being recorded, and
+ * every other method does nothing when given null, so a JVM that is not
+ * recording pays for a single check.
+ *
+ * @author Richard
+ */
+final class JfrEvents {
+
+    private JfrEvents() {
+    }
+
+    static Object beginParse() {
+        return null;
+    }
+
+    static void commitParse(Object event, int ruleLength, Node node, long fingerprint) {
+    }
+
+    static Object beginDataConversion() {
+        return null;
+    }
+
+    static void commitDataConversion(Object event, String data, Map<String, Result> converted) {
+    }
+
+    static Object beginEvaluation() {
+        return null;
+    }
+
+    static void commitEvaluation(Object event, JsonLogicTree tree, Map<String, Result> data) {
+    }
+
+    static Object beginOperator() {
+        return null;
+    }
+
+    /**
+     * @param elements the size of the array the operator works through
+     */
+    static void operatorInput(Object event, int elements) {
+    }
+
+    static void commitOperator(Object event, String operator, Node node) {
+    }
+
+}
@@ -16,10 +16,19 @@
 package com.jsonlogic;
 
 import com.google.gson.Gson;
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonToken;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * JsonLogic is used to parse and evaluate 'JsonLogic' expressions.
@@ -33,10 +42,90 @@ public class JsonLogic {
     static final ConstantNode TRUE_NODE = new ConstantNode(TRUE_RESULT);
     static final ConstantNode FALSE_NODE = new ConstantNode(FALSE_RESULT);
 
+    /**
+     * A length from which parse(String, int) leaves branches unparsed that
+     * suits most rules.
+     */
+    public static final int LAZY_MINIMUM_LENGTH = 256;
+
     private final Gson gson;
+    private final JsonLogicMetrics metrics;
+    private final RuleCache cache;
+    private final OperatorTable operators;
 
     public JsonLogic() {
+        this(null, 0);
+    }
+
+    /**
+     * @param operators the custom operators the rules may use, in addition
+     * to the built-in ones
+     */
+    public JsonLogic(OperatorRegistry operators) {
+        this(null, 0, 0, operators);
+    }
+
+    /**
+     * @param metrics receives the timings and errors of parsing and of
+     * evaluating the trees parsed by this instance, or null
+     * @param cacheSize how many parsed rules apply() keeps for reuse, 0 to
+     * parse the rule on every call
+     */
+    public JsonLogic(JsonLogicMetrics metrics, int cacheSize) {
+        this(metrics, cacheSize, 0);
+    }
+
+    /**
+     * @param metrics receives the timings and errors of parsing and of
+     * evaluating the trees parsed by this instance, or null
+     * @param cacheSize how many parsed rules apply() keeps for reuse, 0 for
+     * no limit on the number
+     * @param cacheBytes the estimated heap the rules kept by apply() may
+     * take, 0 for no limit on the size; the least recently used rules are
+     * evicted first. With both limits 0 the rule is parsed on every call.
+     * @see JsonLogicTree#estimateRetainedBytes()
+     */
+    public JsonLogic(JsonLogicMetrics metrics, int cacheSize, long cacheBytes) {
+        this(metrics, cacheSize, cacheBytes, null);
+    }
+
+    /**
+     * @param metrics receives the timings and errors of parsing and of
+     * evaluating the trees parsed by this instance, or null
+     * @param cacheSize how many parsed rules apply() keeps for reuse, 0 for
+     * no limit on the number
+     * @param cacheBytes the estimated heap the rules kept by apply() may
+     * take, 0 for no limit on the size
+     * @param operators the custom operators the rules may use, or null for
+     * only the built-in ones
+     * @see #JsonLogic(JsonLogicMetrics, int, long)
+     */
+    public JsonLogic(JsonLogicMetrics metrics, int cacheSize, long cacheBytes, OperatorRegistry operators) {
         gson = new Gson();
+        this.metrics = metrics;
+        cache = cacheSize > 0 || cacheBytes > 0 ? new RuleCache(cacheSize, cacheBytes, metrics) : null;
+        this.operators = operators != null ? operators.table() : OperatorTable.BUILT_IN;
+    }
+
+    /**
+     * Installs the sink that receives the output of 'log' operations,
+     * replacing any previous one. With no sink, 'log' only passes its value
+     * through.
+     *
+     * @param sink the sink, or null to remove it
+     */
+    public static void setTraceSink(TraceSink sink) {
+        Tracing.install(sink, false);
+    }
+
+    /**
+     * Installs the sink that receives the output of 'log' operations and,
+     * if traceEvaluations is true, a trace of every evaluation of every tree.
+     *
+     * @param sink the sink, or null to remove it
+     */
+    public static void setTraceSink(TraceSink sink, boolean traceEvaluations) {
+        Tracing.install(sink, traceEvaluations);
     }
 
     /**
@@ -48,7 +137,8 @@ public class JsonLogic {
      * @throws ParseException
      */
     public Result apply(String rule, String data) throws ParseException, EvaluationException {
-        return parse(rule).evaluate(data);
+        JsonLogicTree tree = cache == null ? parse(rule) : cache.get(rule, this::parse);
+        return tree.evaluate(data);
     }
 
     /**
@@ -59,933 +149,194 @@ public class JsonLogic {
      * @throws ParseException
      */
     public JsonLogicTree parse(String rule) throws ParseException {
-        return new JsonLogicTree(parse(gson.newJsonReader(new StringReader(rule))), gson);
-    }
-
-    private Node parse(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            switch (token) {
-                case NULL:
-                    jsonReader.nextNull();
-                    tree = new ConstantNode(new Result(null));
-                    break;
-                case BEGIN_OBJECT:
-                    jsonReader.beginObject();
-                    String operation = jsonReader.nextName();
-                    switch (operation) {
-                        case "==":
-                            tree = parseEquals(jsonReader);
-                            break;
-                        case "===":
-                            tree = parseStrictEquals(jsonReader);
-                            break;
-                        case "!=":
-                            tree = parseNotEquals(jsonReader);
-                            break;
-                        case "!==":
-                            tree = parseStrictNotEquals(jsonReader);
-                            break;
-                        case ">":
-                            tree = parseGreaterThan(jsonReader);
-                            break;
-                        case ">=":
-                            tree = parseGreaterThanEquals(jsonReader);
-                            break;
-                        case "<":
-                            tree = parseLessThan(jsonReader);
-                            break;
-                        case "<=":
-                            tree = parseLessThanEquals(jsonReader);
-                            break;
-                        case "and":
-                            tree = parseAnd(jsonReader);
-                            break;
-                        case "or":
-                            tree = parseOr(jsonReader);
-                            break;
-                        case "!":
-                            tree = parseNot(jsonReader);
-                            break;
-                        case "if":
-                            tree = parseIf(jsonReader);
-                            break;
-                        case "max":
-                            tree = parseMax(jsonReader);
-                            break;
-                        case "min":
-                            tree = parseMin(jsonReader);
-                            break;
-                        case "+":
-                            tree = parseAddition(jsonReader);
-                            break;
-                        case "*":
-                            tree = parseMultiplication(jsonReader);
-                            break;
-                        case "-":
-                            tree = parseSubtraction(jsonReader);
-                            break;
-                        case "/":
-                            tree = parseDivision(jsonReader);
-                            break;
-                        case "%":
-                            tree = parseModulo(jsonReader);
-                            break;
-                        case "var":
-                            tree = parseVar(jsonReader);
-                            break;
-                        case "missing":
-                            tree = parseMissing(jsonReader);
-                            break;
-                        case "missing_some":
-                            tree = parseMissingSome(jsonReader);
-                            break;
-                        case "merge":
-                            tree = parseMerge(jsonReader);
-                            break;
-                        case "cat":
-                            tree = parseCat(jsonReader);
-                            break;
-                        case "in":
-                            tree = parseIn(jsonReader);
-                            break;
-                        case "all":
-                            tree = parseAll(jsonReader);
-                            break;
-                        case "some":
-                            tree = parseSome(jsonReader);
-                            break;
-                        case "map":
-                            tree = parseMap(jsonReader);
-                            break;
-                        case "filter":
-                            tree = parseFilter(jsonReader);
-                            break;
-                        case "reduce":
-                            tree = parseReduce(jsonReader);
-                            break;
-                        case "none":
-                            tree = parseNone(jsonReader);
-                            break;
-                        case "substr":
-                            tree = parseSubstr(jsonReader);
-                            break;
-                        case "log":
-                            tree = parseLog(jsonReader);
-                            break;
-                        default:
-                            throw new ParseException("Unknown operation '" + operation + "'");
-                    }
-                    jsonReader.endObject();
-                    break;
-                case NUMBER:
-                    tree = new ConstantNode(new Result(jsonReader.nextLong()));
-                    break;
-                case STRING:
-                    tree = new ConstantNode(new Result(jsonReader.nextString()));
-                    break;
-                case BOOLEAN:
-                    if (jsonReader.nextBoolean()) {
-                        tree = TRUE_NODE;
-                    } else {
-                        tree = FALSE_NODE;
-                    }
-                    break;
-                case BEGIN_ARRAY:
-                    jsonReader.beginArray();
-                    tree = parseArrayNode(jsonReader);
-                    jsonReader.endArray();
-
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-    
-    private Node parseEquals(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new EqualsNode(parse(jsonReader), parse(jsonReader));
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-
-    private Node parseStrictEquals(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new StrictEqualsNode(parse(jsonReader), parse(jsonReader));
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-
-    private Node parseStrictNotEquals(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new StrictNotEqualsNode(parse(jsonReader), parse(jsonReader));
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-
-    private Node parseNotEquals(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new NotEqualsNode(parse(jsonReader), parse(jsonReader));
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-
-    private Node parseGreaterThan(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new GreaterThanNode(parse(jsonReader), parse(jsonReader));
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-
-    private Node parseGreaterThanEquals(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new GreaterThanEqualsNode(parse(jsonReader), parse(jsonReader));
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-
-    private Node parseLessThan(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-
-                Node node1=parse(jsonReader);
-                Node node2=parse(jsonReader);
-
-                tree = new LessThanNode(node1, node2);
-                try {
-                    jsonReader.endArray();
-                }catch (IllegalStateException e){
-                    Node node3=parse(jsonReader);
-
-                    jsonReader.endArray();
-
-                    tree=new BetweenNode(node1,node2,node3);
-                }
-
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-
-    private Node parseLessThanEquals(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-
-                Node node1=parse(jsonReader);
-                Node node2=parse(jsonReader);
-
-                tree = new LessThanEqualsNode(node1, node2);
-                try {
-                    jsonReader.endArray();
-                }catch (IllegalStateException e){
-                    Node node3=parse(jsonReader);
-
-                    jsonReader.endArray();
-
-                    tree=new BetweenEqualsLeftNode(node1,node2,node3);
-                }
-
-
-
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-
-    private Node parseAnd(JsonReader jsonReader) throws ParseException {
-        AndNode andNode = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        jsonReader.beginArray();
-                        andNode = new AndNode(parse(jsonReader), parse(jsonReader));
-                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                            andNode.add(parse(jsonReader));
-                        }
-                        jsonReader.endArray();
-                        break;
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return andNode;
-    }
-
-    private Node parseOr(JsonReader jsonReader) throws ParseException {
-        OrNode orNode = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        jsonReader.beginArray();
-                        orNode = new OrNode(parse(jsonReader), parse(jsonReader));
-                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                            orNode.add(parse(jsonReader));
-                        }
-                        jsonReader.endArray();
-                        break;
-                    default:
-                        throw new ParseException("Expecting an array of two boolean expressions");
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return orNode;
-    }
-
-    private Node parseNot(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        jsonReader.beginArray();
-                        tree = new NotNode(parse(jsonReader));
-                        jsonReader.endArray();
-                        break;
-                    case BOOLEAN:
-                        tree = new NotNode(parse(jsonReader));
-                        break;
-                    default:
-                        throw new ParseException("Expecting a boolean or an array of one boolean");
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-
-    private Node parseIf(JsonReader jsonReader) throws ParseException {
-        IfNode ifNode = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                ifNode = new IfNode(parse(jsonReader), parse(jsonReader), parse(jsonReader));
-                JsonToken a=jsonReader.peek();
-                while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                    ifNode.addConditionNode(parse(jsonReader), parse(jsonReader));
-                }
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return ifNode;
-    }
-
-    private Node parseMax(JsonReader jsonReader) throws ParseException {
-        MaxNode maxNode = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        jsonReader.beginArray();
-                        maxNode = new MaxNode(parse(jsonReader), parse(jsonReader));
-                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                            maxNode.add(parse(jsonReader));
-                        }
-                        jsonReader.endArray();
-                        break;
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return maxNode;
-    }
-
-    private Node parseMin(JsonReader jsonReader) throws ParseException {
-        MinNode node = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        jsonReader.beginArray();
-                        node = new MinNode(parse(jsonReader), parse(jsonReader));
-                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                            node.add(parse(jsonReader));
-                        }
-                        jsonReader.endArray();
-                        break;
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return node;
-    }
-
-    private Node parseAddition(JsonReader jsonReader) throws ParseException {
-
-        try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        AdditionNode additionNode=null;
-                        jsonReader.beginArray();
-                        additionNode = new AdditionNode(parse(jsonReader), parse(jsonReader));
-                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                            additionNode.add(parse(jsonReader));
-                        }
-                        jsonReader.endArray();
-                        return additionNode;
-                    case STRING:
-                        return new AdditionCastingOverloadNode(parse(jsonReader));
-
-//                        StringBuilder builder = new StringBuilder();
-//                        node.treeToString(builder);
-//                        System.out.println("Before: " + builder.toString());
-//                        //Result result = node.eval(data);
-//                        System.out.println("After: " + builder.toString());
-
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return null;
-    }
-
-
-    private Node parseMultiplication(JsonReader jsonReader) throws ParseException {
-
-        try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        jsonReader.beginArray();
-                        MultiplicationNode multiplicationNode = new MultiplicationNode(parse(jsonReader), parse(jsonReader));
-                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                            multiplicationNode.add(parse(jsonReader));
-                        }
-                        jsonReader.endArray();
-                        return multiplicationNode;
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return null;
-    }
-
-
-    private Node parseSubtraction(JsonReader jsonReader) throws ParseException {
-
-        try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        jsonReader.beginArray();
-
-                        Node node1=parse(jsonReader);
-                        Node node2=null;
-
-                        try {
-                            node2=parse(jsonReader);
-
-                        }catch (Exception ex){
-                            ex.printStackTrace();
-                        }
-
-                        Node tree = null;
-                        if(node2!=null)
-                            tree= new SubtractionNode(node1, node2);
-                        else
-                            tree= new SubtractionNegatingOverloadNode(node1);
-
-                        jsonReader.endArray();
-                        return tree;
-
-
-//                        SubtractionNode subtractionNode=null;
-//                        jsonReader.beginArray();
-//                        subtractionNode = new SubtractionNode(parse(jsonReader), parse(jsonReader));
-//                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-//                            subtractionNode.add(parse(jsonReader));
-//                        }
-//                        jsonReader.endArray();
-//                        return subtractionNode;
-                    case STRING:
-                        return new AdditionCastingOverloadNode(parse(jsonReader));
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return null;
-    }
-
-    private Node parseDivision(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new DivisionNode(parse(jsonReader), parse(jsonReader));
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-
-    private Node parseModulo(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new ModuloNode(parse(jsonReader), parse(jsonReader));
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
-    }
-
-
-
-    private Node parseVar(JsonReader jsonReader) throws ParseException {
-        Node node = null;
-        try {
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                String name = jsonReader.nextString();
-                token = jsonReader.peek();
-                if (null != token) {
-                    switch (token) {
-                        case END_ARRAY:
-                            node = new VarNode(name);
-                            break;
-                        case NUMBER:
-                            node = new VarNode(name, new Result(jsonReader.nextLong()));
-                            break;
-                        case STRING:
-                            node = new VarNode(name, new Result(jsonReader.nextString()));
-                            break;
-                        case BOOLEAN:
-                            if (jsonReader.nextBoolean()) {
-                                node = new VarNode(name, TRUE_RESULT);
-                            } else {
-                                node = new VarNode(name, FALSE_RESULT);
-                            }
-                            break;
-                        default:
-                            break;
-                    }
-                }
-                jsonReader.endArray();
-            } else if (token == JsonToken.STRING) {
-                String name = jsonReader.nextString();
-                node = new VarNode(name);
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return node;
-    }
-
-    private Node parseMissing(JsonReader jsonReader) throws ParseException {
-
-        try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        MissingNode missingNode=null;
-                        jsonReader.beginArray();
-                        missingNode = new MissingNode(parse(jsonReader), parse(jsonReader));
-                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                            missingNode.add(parse(jsonReader));
-                        }
-                        jsonReader.endArray();
-                        return missingNode;
-                    case BEGIN_OBJECT:
-                        missingNode =
-                                new MissingNode();
-
-                        missingNode.add(parse(jsonReader));
-                        return missingNode;
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return null;
-    }
-
-    private Node parseMissingSome(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new MissingSomeNode(parse(jsonReader), parse(jsonReader));
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return tree;
+        char[] chars = rule.toCharArray();
+        return parse(chars, 0, chars.length);
     }
 
-    private Node parseMerge(JsonReader jsonReader) throws ParseException {
-
-        MergeNode mergeNode=new MergeNode();
-
-        try {
-            jsonReader.beginArray();
-
-            while (jsonReader.hasNext())
-            {
-                JsonToken token = jsonReader.peek();
-                if (null != token)
-                {
-                    switch (token) {
-                        case NUMBER:
-                            mergeNode.add(new ConstantNode(new Result(jsonReader.nextDouble())));
-                            break;
-                        case STRING:
-                            mergeNode.add(new ConstantNode(new Result(jsonReader.nextString())));
-                            break;
-                        case BEGIN_ARRAY:
-                            unwind(mergeNode, jsonReader);
-                            break;
-                        case BEGIN_OBJECT:
-                            mergeNode.add(parse(jsonReader));
-                            break;
-                    }
-                }
-            }
-
-            jsonReader.endArray();
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
+    /**
+     * Parses the rules, keeping the branches of 'if' and the operands of 'or'
+     * after the first that take at least lazyMinimumLength characters as
+     * slices of the rule, which are only parsed when an evaluation first
+     * reaches them. Rules whose bulk is rarely taken parse faster; the tree
+     * holds on to the characters of the rule until every such branch is
+     * parsed.
+     * <p>
+     * A malformed branch is only found when it is reached, and fails that
+     * evaluation with an EvaluationException. Printing the tree, taking its
+     * fingerprint, estimating its size and writing it parse nothing.
+     *
+     * @param lazyMinimumLength the length in characters from which a branch
+     * is left unparsed, such as LAZY_MINIMUM_LENGTH, or 0 to parse the whole
+     * rule as parse(String) does
+     */
+    public JsonLogicTree parse(String rule, int lazyMinimumLength) throws ParseException {
+        if (lazyMinimumLength < 0) {
+            throw new IllegalArgumentException("lazyMinimumLength must not be negative");
         }
-
-        return mergeNode;
+        char[] chars = rule.toCharArray();
+        return parse(chars, null, 0, chars.length, lazyMinimumLength);
     }
 
-    private void unwind(MergeNode mergeNode, JsonReader reader) {
-
-        try {
-
-            reader.beginArray();
-
-            while(reader.hasNext()) {
-
-                JsonToken peeked = reader.peek();
-
-                if (reader.peek() == JsonToken.NUMBER)
-                    mergeNode.add(new ConstantNode(new Result(reader.nextDouble())));
-                else if (reader.peek() == JsonToken.STRING)
-                    mergeNode.add(new ConstantNode(new Result(reader.nextString())));
-                else if (reader.peek() == JsonToken.BOOLEAN)
-                    mergeNode.add(new ConstantNode(new Result(reader.nextBoolean())));
-                else if (reader.peek() == JsonToken.BEGIN_ARRAY)
-                    unwind(mergeNode, reader);
-            }
-
-            reader.endArray();
-        }catch (Exception e){
-            e.printStackTrace();
-        }
-
+    /**
+     * Parses the rules held in part of a char array, which is not kept.
+     *
+     * @param rule characters containing a JsonLogic expression
+     * @param offset the index of the first character of the expression
+     * @param length the number of characters of the expression
+     * @throws ParseException
+     */
+    public JsonLogicTree parse(char[] rule, int offset, int length) throws ParseException {
+        return parse(rule, null, offset, length, 0);
     }
 
-    private Node parseArrayNode(JsonReader jsonReader) throws ParseException {
-
-        ArrayNode arrayNode=new ArrayNode();
-        try {
-            while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                arrayNode.add(parse(jsonReader));
-            }
-            return arrayNode;
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
+    /**
+     * Parses the rules from UTF-8 bytes, such as a rule read from a file or
+     * a message, without decoding them to a String first. The position in a
+     * ParseException counts bytes rather than characters.
+     *
+     * @param rule UTF-8 bytes containing a JsonLogic expression
+     * @throws ParseException
+     */
+    public JsonLogicTree parse(byte[] rule) throws ParseException {
+        return parse(null, rule, 0, rule.length, 0);
     }
 
-
-    private Node parseCat(JsonReader jsonReader) throws ParseException {
-
-        try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        CatNode node=null;
-                        jsonReader.beginArray();
-                        node = new CatNode();
-                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                            node.add(parse(jsonReader));
-                        }
-                        jsonReader.endArray();
-                        return node;
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return null;
+    /**
+     * Parses and reduces many rules in parallel on the common ForkJoinPool.
+     *
+     * @see #parseAll(List, Executor)
+     */
+    public LoadedRules parseAll(List<String> rules) {
+        return parseAll(rules, null);
     }
 
-    private Node parseIn(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
+    /**
+     * Parses and reduces many rules in parallel, such as every rule of a
+     * service at startup, and indexes them by fingerprint. A rule that fails
+     * does not stop the others: its exception is reported under its index.
+     * Null and blank rules are skipped.
+     *
+     * @param rules Strings containing JsonLogic expressions
+     * @param executor the executor to run on, or null for the common pool;
+     * a ForkJoinPool is split with work-stealing
+     */
+    public LoadedRules parseAll(List<String> rules, Executor executor) {
+        List<Object> outcomes;
         try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new InNode(parse(jsonReader), parse(jsonReader));
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
+            outcomes = ParallelBatch.run(rules, executor, this::load);
+        } catch (ParseException | EvaluationException ex) {
+            // load() reports every failure as its outcome
+            throw new IllegalStateException(ex);
         }
-        return tree;
+        return new LoadedRules(outcomes);
     }
 
-    private Node parseAll(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new AllNode(parse(jsonReader), parse(jsonReader));
-
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
+    /**
+     * Reads a UTF-8 file of one rule per line and parses and reduces them in
+     * parallel as the file is read, without holding every line at once. The
+     * index of a rule in the outcome is its line number less one.
+     *
+     * @see #parseAll(List, Executor)
+     */
+    public LoadedRules parseAll(Path file) throws IOException {
+        List<Object> outcomes;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            outcomes = ParallelBatch.run(reader.lines().iterator(), null, this::load);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } catch (ParseException | EvaluationException ex) {
+            // load() reports every failure as its outcome
+            throw new IllegalStateException(ex);
         }
-        return tree;
+        return new LoadedRules(outcomes);
     }
 
-    private Node parseSome(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new SomeNode(parse(jsonReader), parse(jsonReader));
-
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
+    private Object load(String rule) {
+        if (rule == null || rule.trim().isEmpty()) {
+            return null;
         }
-        return tree;
-    }
-
-    private Node parseMap(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
         try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new MapNode(parse(jsonReader), parse(jsonReader));
-
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
+            JsonLogicTree tree = parse(rule);
+            tree.reduce();
+            return tree;
+        } catch (ParseException | EvaluationException | RuntimeException ex) {
+            return ex;
         }
-        return tree;
     }
 
-    private Node parseFilter(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
-        try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new FilterNode(parse(jsonReader), parse(jsonReader));
-
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
+    /**
+     * Loads a tree written by JsonLogicTree.write() from the buffer's
+     * position, leaving the position after it, so a buffer holding several
+     * trees is read by calling this until nothing remains. The buffer may be
+     * a memory-mapped file; the tree keeps nothing of it.
+     *
+     * @throws ParseException if the bytes are not a tree of a supported
+     * version, are cut short, or use a custom operator this instance does not
+     * have
+     */
+    public JsonLogicTree read(ByteBuffer buffer) throws ParseException {
+        Object event = JfrEvents.beginParse();
+        int position = buffer.position();
+        if (metrics == null) {
+            JsonLogicTree tree = TreeFormat.read(buffer, operators, gson, null);
+            JfrEvents.commitParse(event, buffer.position() - position, tree.root(), tree.getFingerprint());
+            return tree;
+        }
+        long start = System.nanoTime();
+        JsonLogicTree tree;
+        try {
+            tree = TreeFormat.read(buffer, operators, gson, metrics);
+        } catch (ParseException | RuntimeException ex) {
+            metrics.recordError(ex);
+            throw ex;
+        }
+        metrics.recordParse(System.nanoTime() - start);
+        JfrEvents.commitParse(event, buffer.position() - position, tree.root(), tree.getFingerprint());
         return tree;
     }
 
-    private Node parseReduce(JsonReader jsonReader) throws ParseException {
-        try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        jsonReader.beginArray();
-                        ReduceNode reduceNode = new ReduceNode(parse(jsonReader), parse(jsonReader));
-                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                            reduceNode.add(parse(jsonReader));
-                        }
-                        jsonReader.endArray();
-                        return reduceNode;
-                }
+    /**
+     * Maps the file into memory and loads every tree written to it, in
+     * order.
+     *
+     * @see #read(ByteBuffer)
+     */
+    public List<JsonLogicTree> readAll(Path file) throws IOException, ParseException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            List<JsonLogicTree> trees = new ArrayList<>();
+            while (buffer.hasRemaining()) {
+                trees.add(read(buffer));
             }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
+            return trees;
         }
-        return null;
     }
 
-    /*
-    * try {
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        jsonReader.beginArray();
-                        MultiplicationNode multiplicationNode = new MultiplicationNode(parse(jsonReader), parse(jsonReader));
-                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                            multiplicationNode.add(parse(jsonReader));
-                        }
-                        jsonReader.endArray();
-                        return multiplicationNode;
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
+    private JsonLogicTree parse(char[] chars, byte[] bytes, int offset, int length, int lazy) throws ParseException {
+        Object event = JfrEvents.beginParse();
+        if (metrics == null) {
+            Node node = chars != null ? RuleParser.parse(operators, chars, offset, length, lazy) : RuleParser.parse(operators, bytes, offset, length);
+            long fingerprint = fingerprint(chars, bytes, offset, length);
+            JfrEvents.commitParse(event, length, node, fingerprint);
+            return new JsonLogicTree(node, fingerprint, gson, null);
         }
-        return null;
-    *
-    * */
-
-    private Node parseNone(JsonReader jsonReader) throws ParseException {
-        Node tree = null;
+        long start = System.nanoTime();
+        Node node;
+        long fingerprint;
         try {
-
-            JsonToken token = jsonReader.peek();
-            if (token == JsonToken.BEGIN_ARRAY) {
-                jsonReader.beginArray();
-                tree = new NoneNode(parse(jsonReader), parse(jsonReader));
-
-                jsonReader.endArray();
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
+            node = chars != null ? RuleParser.parse(operators, chars, offset, length, lazy) : RuleParser.parse(operators, bytes, offset, length);
+            fingerprint = fingerprint(chars, bytes, offset, length);
+        } catch (ParseException | RuntimeException ex) {
+            metrics.recordError(ex);
+            throw ex;
         }
-        return tree;
+        metrics.recordParse(System.nanoTime() - start);
+        JfrEvents.commitParse(event, length, node, fingerprint);
+        return new JsonLogicTree(node, fingerprint, gson, metrics);
     }
 
-    private Node parseSubstr(JsonReader jsonReader) throws ParseException {
-        SubstrNode node=new SubstrNode();
-        try {
-
-            JsonToken token = jsonReader.peek();
-            if (null != token) {
-                switch (token) {
-                    case BEGIN_ARRAY:
-                        jsonReader.beginArray();
-                        while (jsonReader.peek() != JsonToken.END_ARRAY) {
-                            node.add(parse(jsonReader));
-                        }
-                        jsonReader.endArray();
-                        return node;
-                }
-            }
-        } catch (IOException ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
-        return node;
-    }
-
-
-    private Node parseLog(JsonReader jsonReader) throws ParseException {
-        try {
-            return new LogNode(parse(jsonReader));
-       } catch (Exception ex) {
-            throw new ParseException(ex.getMessage(), ex);
-        }
+    private static long fingerprint(char[] chars, byte[] bytes, int offset, int length) {
+        return chars != null ? JsonLogicTree.fingerprint(chars, offset, length) : JsonLogicTree.fingerprint(bytes, offset, length);
     }
 
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+/**
+ * Receives measurements from a JsonLogic instance and the trees it parses.
+ * Every method has an empty default so an implementation only overrides what
+ * it reports. The methods are called on the parsing and evaluating threads,
+ * so they must be cheap, thread-safe and must not throw.
+ *
+ * @author Richard
+ * @see HistogramMetrics
+ */
+public interface JsonLogicMetrics {
+
+    /**
+     * @param nanos the time JsonLogic.parse took for one rule
+     */
+    default void recordParse(long nanos) {
+    }
+
+    /**
+     * @param nanos the time one JsonLogicTree evaluation took, not counting
+     * the conversion of the data
+     */
+    default void recordEvaluation(long nanos) {
+    }
+
+    /**
+     * Called instead of recordEvaluation(long) by the trees, for reporters
+     * that break the timings down by rule.
+     *
+     * @param tree the tree that was evaluated
+     * @param nanos the time the evaluation took, not counting the conversion
+     * of the data
+     */
+    default void recordEvaluation(JsonLogicTree tree, long nanos) {
+        recordEvaluation(nanos);
+    }
+
+    /**
+     * @param nanos the time taken to convert one JSON data record
+     */
+    default void recordDataConversion(long nanos) {
+    }
+
+    /**
+     * @param ex an exception thrown by parsing, data conversion or evaluation
+     */
+    default void recordError(Exception ex) {
+    }
+
+    /**
+     * A rule was found in the cache of parsed trees.
+     */
+    default void recordCacheHit() {
+    }
+
+    /**
+     * A rule was not found in the cache of parsed trees and was parsed.
+     */
+    default void recordCacheMiss() {
+    }
+
+    /**
+     * A parsed tree was dropped from the cache to make room.
+     */
+    default void recordCacheEviction() {
+    }
+
+    /**
+     * A parsed tree was added to the cache.
+     *
+     * @param bytes the estimated size of the tree when it was added
+     */
+    default void recordCacheLoad(JsonLogicTree tree, long bytes) {
+    }
+
+    /**
+     * Called instead of recordCacheEviction() by the cache, with the tree
+     * that was dropped.
+     *
+     * @param bytes the size recordCacheLoad was given for the tree
+     */
+    default void recordCacheEviction(JsonLogicTree tree, long bytes) {
+        recordCacheEviction();
+    }
+
+}
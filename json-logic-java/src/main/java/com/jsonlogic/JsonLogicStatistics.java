@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * HistogramMetrics that can be registered as a JMX MXBean, adding the number
+ * of cached trees and their estimated size and the slowest rules. Nothing is
+ * registered until register() is called. Attributes are read from the same
+ * LongAdders and histograms the parsing and evaluating threads write to, so
+ * reading them never holds those threads up.
+ *
+ *     JsonLogicStatistics statistics = new JsonLogicStatistics();
+ *     JsonLogic jsonLogic = new JsonLogic(statistics, 10000);
+ *     statistics.register("rules");
+ *
+ * @author Richard
+ */
+public class JsonLogicStatistics extends HistogramMetrics implements JsonLogicStatisticsMXBean {
+
+    private static final int SLOWEST_RULES = 10;
+    private static final long RATE_INTERVAL = 1_000_000_000L;
+
+    private final LongAdder cachedTrees = new LongAdder();
+    private final LongAdder cachedBytes = new LongAdder();
+    private final SlowestRules slowestRules = new SlowestRules(SLOWEST_RULES);
+    private final AtomicReference<RateSample> rate = new AtomicReference<>(new RateSample(System.nanoTime(), 0, 0));
+    private ObjectName registered;
+
+    private static final class RateSample {
+
+        final long time;
+        final long count;
+        final double perSecond;
+
+        RateSample(long time, long count, double perSecond) {
+            this.time = time;
+            this.count = count;
+            this.perSecond = perSecond;
+        }
+    }
+
+    /**
+     * Registers this with the platform MBeanServer as
+     * com.jsonlogic:type=JsonLogic,name=&lt;name&gt;.
+     *
+     * @return the name it was registered under
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("com.jsonlogic:type=JsonLogic,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        registered = objectName;
+        return objectName;
+    }
+
+    public synchronized void unregister() throws JMException {
+        if (registered != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.unregisterMBean(registered);
+            registered = null;
+        }
+    }
+
+    @Override
+    public void recordEvaluation(JsonLogicTree tree, long nanos) {
+        recordEvaluation(nanos);
+        slowestRules.record(tree, nanos);
+    }
+
+    @Override
+    public void recordCacheLoad(JsonLogicTree tree, long bytes) {
+        cachedTrees.increment();
+        cachedBytes.add(bytes);
+    }
+
+    @Override
+    public void recordCacheEviction(JsonLogicTree tree, long bytes) {
+        recordCacheEviction();
+        cachedTrees.decrement();
+        cachedBytes.add(-bytes);
+    }
+
+    @Override
+    public long getParsedTrees() {
+        return getParseLatency().getCount();
+    }
+
+    @Override
+    public long getCachedTrees() {
+        return cachedTrees.sum();
+    }
+
+    @Override
+    public long getEvaluations() {
+        return getEvaluationLatency().getCount();
+    }
+
+    @Override
+    public double getEvaluationsPerSecond() {
+        while (true) {
+            RateSample previous = rate.get();
+            long now = System.nanoTime();
+            if (now - previous.time < RATE_INTERVAL) {
+                return previous.perSecond;
+            }
+            long count = getEvaluations();
+            double perSecond = (count - previous.count) * 1e9 / (now - previous.time);
+            if (rate.compareAndSet(previous, new RateSample(now, count, perSecond))) {
+                return perSecond;
+            }
+        }
+    }
+
+    @Override
+    public double getMeanEvaluationNanos() {
+        return getEvaluationLatency().getMean();
+    }
+
+    @Override
+    public long getP99EvaluationNanos() {
+        return getEvaluationLatency().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getMaxEvaluationNanos() {
+        return getEvaluationLatency().getMax();
+    }
+
+    @Override
+    public long getErrors() {
+        long errors = 0;
+        for (long count : getErrorCounts().values()) {
+            errors += count;
+        }
+        return errors;
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        long hits = getCacheHits();
+        long lookups = hits + getCacheMisses();
+        return lookups == 0 ? Double.NaN : (double) hits / lookups;
+    }
+
+    @Override
+    public long getEstimatedRetainedBytes() {
+        return cachedBytes.sum();
+    }
+
+    @Override
+    public List<RuleLatency> getSlowestRules() {
+        return slowestRules.getSlowest();
+    }
+
+    @Override
+    public void resetSlowestRules() {
+        slowestRules.clear();
+    }
+
+}
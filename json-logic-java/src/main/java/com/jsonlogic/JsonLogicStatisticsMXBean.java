@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The management interface of JsonLogicStatistics, as JConsole and JMX
+ * exporters see it.
+ *
+ * @author Richard
+ */
+public interface JsonLogicStatisticsMXBean {
+
+    /**
+     * The number of rules parsed.
+     */
+    long getParsedTrees();
+
+    /**
+     * The number of trees held by the cache of parsed rules.
+     */
+    long getCachedTrees();
+
+    long getEvaluations();
+
+    /**
+     * The evaluations per second since the previous reading of this
+     * attribute, measured over at least one second.
+     */
+    double getEvaluationsPerSecond();
+
+    double getMeanEvaluationNanos();
+
+    long getP99EvaluationNanos();
+
+    long getMaxEvaluationNanos();
+
+    long getErrors();
+
+    /**
+     * @return the number of errors by exception class name
+     */
+    Map<String, Long> getErrorCounts();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getCacheEvictions();
+
+    /**
+     * The fraction of lookups that found the rule in the cache, or NaN
+     * before the first lookup.
+     */
+    double getCacheHitRatio();
+
+    /**
+     * An estimate of the heap held by the cached trees.
+     *
+     * @see JsonLogicTree#estimateRetainedBytes()
+     */
+    long getEstimatedRetainedBytes();
+
+    /**
+     * The rules with the slowest single evaluation, slowest first. The
+     * trees are kept until they drop out of the table or it is reset, and
+     * their text is written on every read.
+     */
+    List<RuleLatency> getSlowestRules();
+
+    /**
+     * Forgets the slowest rules seen so far.
+     */
+    void resetSlowestRules();
+}
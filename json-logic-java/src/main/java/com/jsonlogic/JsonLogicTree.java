@@ -21,8 +21,12 @@ import com.google.gson.JsonObject;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 
 /**
@@ -32,12 +36,21 @@ import java.util.regex.Matcher;
  */
 public class JsonLogicTree {
 
-    private Node node;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private volatile Node node;
     private final Gson gson;
+    private final JsonLogicMetrics metrics;
+    private Node unprofiled;
+    private final long fingerprint;
+    private volatile SlowEvaluationRecorder recorder;
 
-    JsonLogicTree(Node node, Gson gson) {
+    JsonLogicTree(Node node, long fingerprint, Gson gson, JsonLogicMetrics metrics) {
         this.node = node;
+        this.fingerprint = fingerprint;
         this.gson = gson;
+        this.metrics = metrics;
     }
 
     /**
@@ -48,16 +61,271 @@ public class JsonLogicTree {
      * @return
      */
     public Result evaluate(String data) throws ParseException, EvaluationException {
-        return node.eval(convertData(data));
+        if (metrics == null) {
+            return evaluate(convertData(gson, data), data);
+        }
+        long start = System.nanoTime();
+        Map<String, Result> converted;
+        try {
+            converted = convertData(gson, data);
+        } catch (ParseException | RuntimeException ex) {
+            metrics.recordError(ex);
+            throw ex;
+        }
+        metrics.recordDataConversion(System.nanoTime() - start);
+        return evaluate(converted, data);
+    }
+
+    /**
+     * Evaluates every data record of the list in parallel on the common
+     * ForkJoinPool.
+     *
+     * @param data Strings containing JSON
+     * @return the results, in the same order as the data
+     */
+    public List<Result> evaluateAll(List<String> data) throws ParseException, EvaluationException {
+        return evaluateAll(data, null);
+    }
+
+    /**
+     * Evaluates every data record of the list in parallel on the given
+     * executor. A ForkJoinPool is split with work-stealing, any other executor
+     * is fed chunks that shrink as the batch drains. The first failing record
+     * aborts the batch and its exception is rethrown.
+     *
+     * @param data Strings containing JSON
+     * @param executor the executor to run on, or null for the common pool
+     * @return the results, in the same order as the data
+     */
+    public List<Result> evaluateAll(List<String> data, Executor executor) throws ParseException, EvaluationException {
+        return ParallelBatch.run(data, executor, this::evaluate);
+    }
+
+    /**
+     * Evaluates every data record produced by the iterator in parallel on the
+     * common ForkJoinPool. The iterator is only ever read by the calling
+     * thread.
+     *
+     * @param data an iterator over Strings containing JSON
+     * @return the results, in the same order as the data
+     */
+    public List<Result> evaluateAll(Iterator<String> data) throws ParseException, EvaluationException {
+        return evaluateAll(data, null);
+    }
+
+    /**
+     * Evaluates every data record produced by the iterator in parallel on the
+     * given executor. The iterator is only ever read by the calling thread.
+     *
+     * @param data an iterator over Strings containing JSON
+     * @param executor the executor to run on, or null for the common pool
+     * @return the results, in the same order as the data
+     */
+    public List<Result> evaluateAll(Iterator<String> data, Executor executor) throws ParseException, EvaluationException {
+        return ParallelBatch.run(data, executor, this::evaluate);
+    }
+
+    /**
+     * Applies the value of data to the rules without blocking on variables
+     * that have to be fetched. Variables missing from data are requested from
+     * the provider, in one batch for all the variables the evaluation reached,
+     * and the whole rule is applied again once the values arrive. No thread is
+     * held while waiting, so a large number of evaluations can be in flight at
+     * once.
+     *
+     * Until it has been fetched, a variable reads as null. A branch chosen on
+     * that null may not be the one the fetched value leads to, so variables
+     * of a branch that the final result does not depend on can be fetched
+     * too. A variable is never fetched twice in one evaluation.
+     *
+     * Metrics, flight recorder events, traces and the slow evaluation
+     * recorder see one evaluation, the pass that produced the result, timed
+     * as the sum of all passes without the waits. Likewise only that pass
+     * writes the values of 'log' operations; custom operators with side
+     * effects run again in every pass.
+     *
+     * @param data A String containing JSON
+     * @param provider supplies the variables that are not present in data
+     * @return a future of the result
+     */
+    public CompletableFuture<Result> evaluateAsync(String data, DataProvider provider) {
+        return evaluateAsync(data, provider, null);
+    }
+
+    /**
+     * Like evaluateAsync(String, DataProvider), but every pass that follows a
+     * fetch runs on the given executor instead of the thread that completed
+     * the provider's future.
+     *
+     * @param data A String containing JSON
+     * @param provider supplies the variables that are not present in data
+     * @param executor runs the passes that follow a fetch, or null
+     * @return a future of the result
+     */
+    public CompletableFuture<Result> evaluateAsync(String data, DataProvider provider, Executor executor) {
+        long start = System.nanoTime();
+        Map<String, Result> converted;
+        try {
+            converted = convertData(gson, data);
+        } catch (ParseException | RuntimeException ex) {
+            if (metrics != null) {
+                metrics.recordError(ex);
+            }
+            CompletableFuture<Result> future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+            return future;
+        }
+        if (metrics != null) {
+            metrics.recordDataConversion(System.nanoTime() - start);
+        }
+        return evaluateAsync(new ProvidedData(converted), data, provider, executor, 0);
+    }
+
+    /**
+     * @param nanos the time taken by the passes before this one
+     */
+    private CompletableFuture<Result> evaluateAsync(ProvidedData data, String json, DataProvider provider, Executor executor, long nanos) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        Object event = JfrEvents.beginEvaluation();
+        long start = System.nanoTime();
+        Result result = null;
+        Exception failure = null;
+        data.beginPass();
+        try {
+            result = node.eval(data);
+        } catch (EvaluationException | RuntimeException ex) {
+            failure = ex;
+        } finally {
+            data.endPass();
+        }
+        long elapsed = nanos + System.nanoTime() - start;
+
+        Set<String> names = data.takeRequested();
+        boolean last = names.isEmpty() || provider == null;
+        data.flushLog(last);
+        if (last) {
+            if (failure != null) {
+                if (metrics != null) {
+                    metrics.recordError(failure);
+                }
+                future.completeExceptionally(failure);
+            } else {
+                evaluated(event, data, json, result, elapsed);
+                future.complete(result);
+            }
+            return future;
+        }
+
+        // a result reached with missing values is discarded, the pass is
+        // repeated once the values have been fetched
+        CompletableFuture<Map<String, Result>> fetch;
+        try {
+            fetch = provider.fetch(names);
+        } catch (RuntimeException ex) {
+            if (metrics != null) {
+                metrics.recordError(ex);
+            }
+            future.completeExceptionally(ex);
+            return future;
+        }
+        if (metrics != null) {
+            fetch = fetch.whenComplete((values, ex) -> {
+                if (ex != null) {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof Exception) {
+                        metrics.recordError((Exception) cause);
+                    }
+                }
+            });
+        }
+        if (executor == null) {
+            return fetch.thenCompose(values -> {
+                data.supply(names, values);
+                return evaluateAsync(data, json, provider, null, elapsed);
+            });
+        }
+        return fetch.thenComposeAsync(values -> {
+            data.supply(names, values);
+            return evaluateAsync(data, json, provider, executor, elapsed);
+        }, executor);
+    }
+
+    Result evaluate(Map<String, Result> data) throws EvaluationException {
+        return evaluate(data, null);
     }
 
-    private Map<String, Result> convertData(String data) throws ParseException {
+    /**
+     * @param json the JSON data was converted from, if known
+     */
+    private Result evaluate(Map<String, Result> data, String json) throws EvaluationException {
+        Object event = JfrEvents.beginEvaluation();
+        TraceSink tracer = Tracing.evaluationSink();
+        SlowEvaluationRecorder recorder = this.recorder;
+        if (metrics == null && tracer == null && recorder == null) {
+            Result result = node.eval(data);
+            JfrEvents.commitEvaluation(event, this, data);
+            return result;
+        }
+        long start = System.nanoTime();
+        Result result;
+        try {
+            result = node.eval(data);
+        } catch (EvaluationException | RuntimeException ex) {
+            if (metrics != null) {
+                metrics.recordError(ex);
+            }
+            throw ex;
+        }
+        evaluated(event, data, json, result, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Reports an evaluation that succeeded to everything watching the tree.
+     */
+    private void evaluated(Object event, Map<String, Result> data, String json, Result result, long nanos) {
+        if (metrics != null) {
+            metrics.recordEvaluation(this, nanos);
+        }
+        TraceSink tracer = Tracing.evaluationSink();
+        if (tracer != null && tracer.sample()) {
+            tracer.evaluation(getFingerprint(), result, nanos);
+        }
+        SlowEvaluationRecorder recorder = this.recorder;
+        if (recorder != null) {
+            recorder.record(this, data, json, nanos);
+        }
+        JfrEvents.commitEvaluation(event, this, data);
+    }
+
+    /**
+     * Evaluates every row of a batch at once. Comparisons, arithmetic and
+     * logic over numeric and boolean columns run as loops over whole columns;
+     * everything else is evaluated one row at a time.
+     *
+     * @return the result of each row, in row order
+     */
+    public Result[] evaluateColumns(ColumnBatch batch) throws EvaluationException {
+        return node.evalColumn(batch, null).toResults(batch.rows());
+    }
+
+    /**
+     * Evaluates every row of a batch at once and returns the rows whose
+     * result is truthy.
+     */
+    public BitSet select(ColumnBatch batch) throws EvaluationException {
+        int rows = batch.rows();
+        return BitSet.valueOf(node.evalColumn(batch, null).truthy(rows, null));
+    }
+
+    static Map<String, Result> convertData(Gson gson, String data) throws ParseException {
         Map<String, Result> temp = new HashMap<>();
         /////////////////Map<String, Result> temp = new TreeMap<>();
         if (data == null || data.isEmpty()) {
             return temp;
         }
 
+        Object event = JfrEvents.beginDataConversion();
         try {
             JsonReader jsonReader = gson.newJsonReader(new StringReader(data));
             jsonReader.beginObject();
@@ -72,10 +340,11 @@ public class JsonLogicTree {
         } catch (IOException ex) {
             throw new ParseException(ex.getMessage(), ex);
         }
+        JfrEvents.commitDataConversion(event, data, temp);
         return temp;
     }
 
-    private void readValue(String name, JsonReader jsonReader, Map<String, Result> temp) throws IOException {
+    private static void readValue(String name, JsonReader jsonReader, Map<String, Result> temp) throws IOException {
         JsonToken token = jsonReader.peek();
         switch (token) {
             case NULL:
@@ -104,7 +373,7 @@ public class JsonLogicTree {
             case BEGIN_ARRAY:
                 jsonReader.beginArray();
 
-                LinkedHashMap<String,Result> lolo=new LinkedHashMap();
+                LinkedHashMap<String,Result> lolo=new LinkedHashMap<>();
                 int counter=0;
                 token = jsonReader.peek();
 
@@ -114,87 +383,261 @@ public class JsonLogicTree {
                     token = jsonReader.peek();
                 }
 
-                boolean isJSONObject=true;
+                jsonReader.endArray();
+                temp.put(name, arrayResult(name, counter, lolo));
+                return;
+        }
+    }
 
-                for(Map.Entry<String,Result> entry:lolo.entrySet())
-                    if (entry.getKey().equals(name + ".$0")) {
-                        isJSONObject=false;
-                        break;
-                    }
+    /**
+     * Builds the value of an array from its elements, which were read into
+     * lolo under the names name.$0, name.$1, ...
+     */
+    static Result arrayResult(String name, int counter, LinkedHashMap<String, Result> lolo) {
+        boolean isJSONObject=true;
 
-                if(isJSONObject){
-                    JsonArray doomed=new JsonArray();
+        for(Map.Entry<String,Result> entry:lolo.entrySet())
+            if (entry.getKey().equals(name + ".$0")) {
+                isJSONObject=false;
+                break;
+            }
 
-                    for(int i=0;i<counter;i++)
-                    {
-                        JsonObject jj=new JsonObject();
-                        for(Map.Entry<String,Result> entry:lolo.entrySet())
-                        {
-                            if(entry.getKey().startsWith(name+".$"+i))
-                            {
-                                String regName = name.replaceAll("\\$", Matcher.quoteReplacement("\\$"));
-
-                                String fieldName=entry.getKey().replaceAll("^"+regName+"\\.\\$"+i+"\\.","");
-
-                                if(entry.getValue().isString())
-                                    jj.addProperty(fieldName,entry.getValue().getStringValue());
-                                else if(entry.getValue().isDouble())
-                                    jj.addProperty(fieldName,entry.getValue().getDoubleValue());
-                                else if(entry.getValue().isBoolean())
-                                    jj.addProperty(fieldName,entry.getValue().getBooleanValue());
-                                else if(entry.getValue().isNull())
-                                    jj.add(fieldName,null);
-                                else if(entry.getValue().isArray())
-                                    jj.add(fieldName,entry.getValue().getArrayValue());
-                            }
-                        }
-
-                        doomed.add(jj);
-                    }
+        if(isJSONObject){
+            JsonArray doomed=new JsonArray();
 
-                    jsonReader.endArray();
-                    temp.put(name,new Result(doomed));
-                    return;
+            for(int i=0;i<counter;i++)
+            {
+                JsonObject jj=new JsonObject();
+                for(Map.Entry<String,Result> entry:lolo.entrySet())
+                {
+                    if(entry.getKey().startsWith(name+".$"+i))
+                    {
+                        String regName = name.replaceAll("\\$", Matcher.quoteReplacement("\\$"));
 
-                }else {
-                    JsonArray doomed=new JsonArray();
+                        String fieldName=entry.getKey().replaceAll("^"+regName+"\\.\\$"+i+"\\.","");
 
-                    for(Map.Entry<String,Result> entry:lolo.entrySet())
-                    {
                         if(entry.getValue().isString())
-                            doomed.add(entry.getValue().getStringValue());
+                            jj.addProperty(fieldName,entry.getValue().getStringValue());
                         else if(entry.getValue().isDouble())
-                            doomed.add(entry.getValue().getDoubleValue());
+                            jj.addProperty(fieldName,entry.getValue().getDoubleValue());
                         else if(entry.getValue().isBoolean())
-                            doomed.add(entry.getValue().getBooleanValue());
-                     
+                            jj.addProperty(fieldName,entry.getValue().getBooleanValue());
+                        else if(entry.getValue().isNull())
+                            jj.add(fieldName,null);
                         else if(entry.getValue().isArray())
-                            doomed.add(entry.getValue().getArrayValue());
+                            jj.add(fieldName,entry.getValue().getArrayValue());
                     }
-
-                    jsonReader.endArray();
-                    temp.put(name,new Result(doomed));
-                    return;
                 }
 
+                doomed.add(jj);
+            }
+
+            return new Result(doomed);
+
+        }else {
+            JsonArray doomed=new JsonArray();
+
+            for(Map.Entry<String,Result> entry:lolo.entrySet())
+            {
+                if(entry.getValue().isString())
+                    doomed.add(entry.getValue().getStringValue());
+                else if(entry.getValue().isDouble())
+                    doomed.add(entry.getValue().getDoubleValue());
+                else if(entry.getValue().isBoolean())
+                    doomed.add(entry.getValue().getBooleanValue());
+             
+                else if(entry.getValue().isArray())
+                    doomed.add(entry.getValue().getArrayValue());
+            }
 
+            return new Result(doomed);
         }
     }
 
     /**
      * This method tries to reduces the complexity of the tree by pruning
      * sub-trees that produce a constant value regardless of the variable data.
+     * The fingerprint stays that of the rule as it was parsed.
      */
-    public void reduce() throws EvaluationException {
+    public synchronized void reduce() throws EvaluationException {
+        if (unprofiled != null) {
+            unprofiled = reduce(unprofiled);
+        }
+        node = reduce(node);
+    }
+
+    private static Node reduce(Node node) throws EvaluationException {
         if (node.isConstant()) {
-            node = new ConstantNode(node.eval(new HashMap<>()));
-        } else {
-            node.reduce();
+            return new ConstantNode(node.eval(new HashMap<>()));
         }
+        node.reduce();
+        return node;
     }
 
     /**
-     * Produces the human readable text equivalent of the rules.
+     * Estimates the cost of evaluating the tree, assuming every array the
+     * rule iterates over has 100 elements.
+     *
+     * @see #estimateCost(int, Map)
+     */
+    public CostEstimate estimateCost() {
+        return estimateCost(CostModel.DEFAULT_ARRAY_SIZE, Collections.emptyMap());
+    }
+
+    /**
+     * Estimates the cost of evaluating the tree from the rule alone, and
+     * gives the plan the estimate is made of. CostEstimate.explain() writes
+     * it out for people to read.
+     *
+     * @param defaultArraySize the number of elements assumed for an array
+     * the rule iterates over when nothing better is known
+     * @param arraySizeHints the number of elements expected in the arrays
+     * held by some variables, by variable name
+     */
+    public CostEstimate estimateCost(int defaultArraySize, Map<String, Integer> arraySizeHints) {
+        return CostModel.estimate(root(), defaultArraySize, arraySizeHints);
+    }
+
+    /**
+     * Estimates the heap held by the tree: its nodes, their lists of
+     * operands and their constants, including strings and arrays. The figure
+     * assumes a 64 bit JVM with compressed references and is meant for
+     * sizing caches rather than as an exact measurement.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateRetainedBytes() {
+        // the tree itself
+        return Footprint.object(5, 8)
+                + estimateRetainedBytes(root(), Collections.newSetFromMap(new IdentityHashMap<char[], Boolean>()));
+    }
+
+    private static long estimateRetainedBytes(Node node, Set<char[]> sources) {
+        long bytes = node.shallowBytes();
+        if (node instanceof LazyNode) {
+            // the unparsed branches of a rule share its characters
+            char[] source = ((LazyNode) node).source();
+            if (source != null && sources.add(source)) {
+                bytes += Footprint.array(source.length, 2);
+            }
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            bytes += estimateRetainedBytes(node.child(i), sources);
+        }
+        return bytes;
+    }
+
+    /**
+     * Turns adaptive ordering of the operands of 'and' and 'or' on or off.
+     * When it is on, each of them counts how often its operands decide the
+     * result and evaluates the cheap, usually deciding ones first, adjusting
+     * the order as the data changes. The last operand of an 'or' keeps its
+     * place, and an 'and' or 'or' with a 'log' among its operands keeps the
+     * written order. So does the first operand that might fail, such as a
+     * comparison that converts its operands to numbers, and every operand
+     * written after it.
+     *
+     * Results and failures are those of the written order.
+     */
+    public synchronized void setAdaptiveOrdering(boolean enabled) {
+        setAdaptiveOrdering(node, enabled);
+        if (unprofiled != null) {
+            setAdaptiveOrdering(unprofiled, enabled);
+        }
+    }
+
+    private static void setAdaptiveOrdering(Node node, boolean enabled) {
+        if (node instanceof AndNode) {
+            ((AndNode) node).setAdaptive(enabled);
+        } else if (node instanceof OrNode) {
+            ((OrNode) node).setAdaptive(enabled);
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            setAdaptiveOrdering(node.child(i), enabled);
+        }
+    }
+
+    /**
+     * Makes every evaluation of this tree that passes through evaluate()
+     * known to the recorder, which keeps the slow ones and a sample of the
+     * rest. Several trees can share a recorder.
+     *
+     * @param recorder the recorder, or null to stop recording
+     */
+    public void setSlowEvaluationRecorder(SlowEvaluationRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Returns the nodes evaluations go through, which are an instrumented
+     * copy of the tree's nodes while it is being profiled.
+     */
+    Node live() {
+        return node;
+    }
+
+    /**
+     * Returns the tree's nodes, never the instrumented copy used while
+     * profiling.
+     */
+    synchronized Node root() {
+        return unprofiled != null ? unprofiled : node;
+    }
+
+    /**
+     * Starts counting, for every node of the tree, how often it is evaluated
+     * and how long it takes. Evaluations go through an instrumented copy of
+     * the tree until stopProfiling() is called; the tree itself is never
+     * instrumented, so it runs at full speed again once profiling stops.
+     */
+    public synchronized void startProfiling() {
+        if (unprofiled == null) {
+            unprofiled = node;
+            node = ProfilingNode.instrument(unprofiled);
+        }
+    }
+
+    /**
+     * Returns the counters gathered so far, or null if the tree is not being
+     * profiled. Profiling carries on.
+     */
+    public synchronized EvaluationProfile getProfile() {
+        if (unprofiled == null || !(node instanceof ProfilingNode)) {
+            return null;
+        }
+        return new EvaluationProfile(((ProfilingNode) node).snapshot(""));
+    }
+
+    /**
+     * Stops profiling and returns the counters gathered, or null if the tree
+     * was not being profiled.
+     */
+    public synchronized EvaluationProfile stopProfiling() {
+        EvaluationProfile profile = getProfile();
+        if (unprofiled != null) {
+            node = unprofiled;
+            unprofiled = null;
+        }
+        return profile;
+    }
+
+    /**
+     * Writes the tree in a binary form, which JsonLogic.read() loads
+     * without parsing any JSON. Trees can be written one after another
+     * to the same stream. Reduce the tree first to keep it reduced. The
+     * branches a lazy parse has not parsed yet are written as text, and
+     * read back unparsed.
+     *
+     * @throws IOException if the stream fails, or a custom operator folded
+     * a constant of a type the format cannot hold
+     */
+    public void write(OutputStream out) throws IOException {
+        TreeFormat.write(root(), fingerprint, out);
+    }
+
+    /**
+     * Produces the human readable text equivalent of the rules. Branches
+     * a lazy parse has not parsed yet are given as they are written.
      *
      * @return
      */
@@ -204,4 +647,98 @@ public class JsonLogicTree {
         return builder.toString();
     }
 
+    /**
+     * Returns a 64 bit hash of the rule as written, less the whitespace
+     * between its tokens, that identifies the rule in flight recordings and
+     * reports however its JSON is laid out. It is taken when the rule is
+     * parsed and kept in the binary form, so a rule keeps it whether it is
+     * reduced or not, parsed lazily or not, or read back.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * The 64 bit FNV-1a hash of the characters of text.
+     */
+    static long fingerprint(CharSequence text) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * The fingerprint of a rule held in chars: the 64 bit FNV-1a hash of
+     * its UTF-8 bytes, skipping whitespace outside strings.
+     */
+    static long fingerprint(char[] rule, int offset, int length) {
+        long hash = FNV_OFFSET_BASIS;
+        boolean string = false;
+        boolean escaped = false;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            char c = rule[i];
+            if (string) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    string = false;
+                }
+            } else if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                continue;
+            } else if (c == '"') {
+                string = true;
+            }
+            if (c < 0x80) {
+                hash = (hash ^ c) * FNV_PRIME;
+            } else if (c < 0x800) {
+                hash = (hash ^ (0xc0 | c >> 6)) * FNV_PRIME;
+                hash = (hash ^ (0x80 | c & 0x3f)) * FNV_PRIME;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(rule[i + 1])) {
+                int codePoint = Character.toCodePoint(c, rule[++i]);
+                hash = (hash ^ (0xf0 | codePoint >> 18)) * FNV_PRIME;
+                hash = (hash ^ (0x80 | codePoint >> 12 & 0x3f)) * FNV_PRIME;
+                hash = (hash ^ (0x80 | codePoint >> 6 & 0x3f)) * FNV_PRIME;
+                hash = (hash ^ (0x80 | codePoint & 0x3f)) * FNV_PRIME;
+            } else {
+                hash = (hash ^ (0xe0 | c >> 12)) * FNV_PRIME;
+                hash = (hash ^ (0x80 | c >> 6 & 0x3f)) * FNV_PRIME;
+                hash = (hash ^ (0x80 | c & 0x3f)) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The fingerprint of a rule held in UTF-8 bytes, the same as that of
+     * its characters.
+     */
+    static long fingerprint(byte[] rule, int offset, int length) {
+        long hash = FNV_OFFSET_BASIS;
+        boolean string = false;
+        boolean escaped = false;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = rule[i];
+            if (string) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    string = false;
+                }
+            } else if (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                continue;
+            } else if (b == '"') {
+                string = true;
+            }
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+/**
+ * Chooses the kernels used by columnar evaluation. This is the Java 8
+ * version, which always uses the scalar loops; the multi-release jar
+ * replaces it on newer JDKs.
+ *
+ * @author Richard
+ */
+final class KernelSupport {
+
+    private KernelSupport() {
+    }
+
+    static ScalarKernels load() {
+        return new ScalarKernels();
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values, typically nanoseconds, with buckets
+ * whose width grows with the value so that every value is kept to within
+ * 1/64, about 1.6%, of its size: values below 128 are exact, and every
+ * power of two above that is split into 64 buckets. The counters are
+ * LongAdders created the first time their bucket is used, so many threads
+ * can record at once without contending and unused ranges take no memory.
+ *
+ * @author Richard
+ */
+public class LatencyHistogram {
+
+    private static final int PRECISION = 7;
+    private static final int EXACT = 1 << PRECISION;
+    private static final int HALF = EXACT >> 1;
+    private static final int BUCKETS = EXACT + (63 - PRECISION) * HALF;
+
+    private final AtomicReferenceArray<LongAdder> counts = new AtomicReferenceArray<>(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int index = index(value);
+        LongAdder count = counts.get(index);
+        if (count == null) {
+            counts.compareAndSet(index, null, new LongAdder());
+            count = counts.get(index);
+        }
+        count.increment();
+        total.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall, rounded up to the end of its bucket.
+     *
+     * @param percentile between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            LongAdder bucket = counts.get(i);
+            if (bucket != null) {
+                count += bucket.sum();
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            LongAdder bucket = counts.get(i);
+            if (bucket != null) {
+                seen += bucket.sum();
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), getMax());
+                }
+            }
+        }
+        return getMax();
+    }
+
+    static int index(long value) {
+        if (value < EXACT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (PRECISION - 1);
+        return EXACT + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    static long highestValue(int index) {
+        if (index < EXACT) {
+            return index;
+        }
+        int shift = (index - EXACT) / HALF + 1;
+        long lowest = (long) ((index - EXACT) % HALF + HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Map;
+
+/**
+ * A branch of a lazily parsed rule that has not been reached yet, held as
+ * the range of the rule's characters it was written in. The first
+ * evaluation to reach it parses it, again lazily, and publishes the nodes
+ * through a volatile field with double-checked locking, so concurrent
+ * evaluations parse it once and all see the complete nodes. The characters
+ * are released once the branch is parsed.
+ *
+ * Until then the branch has no children, is never constant and counts as
+ * impure for adaptive ordering, as nothing is known of what it holds.
+ * Printing it gives the characters it was written with, and writing it
+ * stores them, so neither parses it.
+ *
+ * @author Richard
+ */
+final class LazyNode extends Node {
+
+    private final OperatorTable operators;
+    private final int offset;
+    private final int length;
+    private final int minimumLength;
+    private char[] source;
+    private volatile Node node;
+
+    LazyNode(OperatorTable operators, char[] source, int offset, int length, int minimumLength) {
+        this.operators = operators;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.minimumLength = minimumLength;
+    }
+
+    boolean isParsed() {
+        return node != null;
+    }
+
+    int minimumLength() {
+        return minimumLength;
+    }
+
+    /**
+     * @return the characters of the whole rule the branch is a slice of, or
+     * null once it is parsed
+     */
+    synchronized char[] source() {
+        return source;
+    }
+
+    /**
+     * @return the text of the branch as written, or null once it is parsed
+     */
+    synchronized String unparsedText() {
+        return source != null ? new String(source, offset, length) : null;
+    }
+
+    /**
+     * Returns the nodes of the branch, parsing it if it has not been yet.
+     *
+     * @throws ParseException if the branch is malformed, which lazy parsing
+     * only finds out now
+     */
+    Node parsed() throws ParseException {
+        Node parsed = node;
+        if (parsed == null) {
+            synchronized (this) {
+                parsed = node;
+                if (parsed == null) {
+                    parsed = RuleParser.parseBranch(operators, source, offset, length, minimumLength);
+                    node = parsed;
+                    source = null;
+                }
+            }
+        }
+        return parsed;
+    }
+
+    private Node reached() throws EvaluationException {
+        try {
+            return parsed();
+        } catch (ParseException ex) {
+            throw new EvaluationException("Malformed branch of a lazily parsed rule: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    Result eval(Map<String, Result> data) throws EvaluationException {
+        return reached().eval(data);
+    }
+
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        return reached().evalColumn(batch, selection);
+    }
+
+    @Override
+    boolean isConstant() {
+        Node parsed = node;
+        return parsed != null && parsed.isConstant();
+    }
+
+    @Override
+    void reduce() throws EvaluationException {
+        Node parsed = node;
+        if (parsed != null && !parsed.isConstant()) {
+            parsed.reduce();
+        }
+    }
+
+    @Override
+    void treeToString(StringBuilder builder) {
+        Node parsed = node;
+        if (parsed == null) {
+            synchronized (this) {
+                parsed = node;
+                if (parsed == null) {
+                    builder.append(source, offset, length);
+                    return;
+                }
+            }
+        }
+        parsed.treeToString(builder);
+    }
+
+    @Override
+    int childCount() {
+        return node != null ? 1 : 0;
+    }
+
+    @Override
+    Node child(int index) {
+        if (index != 0 || node == null) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return node;
+    }
+
+    @Override
+    void setChild(int index, Node child) {
+        if (index != 0 || node == null) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        node = child;
+    }
+
+    /**
+     * Counts the node alone; the characters it holds on to while it is not
+     * parsed are shared with the other branches of the rule, and counted
+     * once by JsonLogicTree.estimateRetainedBytes().
+     */
+    @Override
+    long shallowBytes() {
+        return Footprint.object(3, 12);
+    }
+
+}
@@ -35,4 +35,9 @@ class LessThanEqualsNode extends BinaryNode {
         return new Result(leftResult.getDoubleValue() <= rightResult.getDoubleValue());
     }
 
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        return compareColumns(batch, selection, ColumnKernels.LE);
+    }
+
 }
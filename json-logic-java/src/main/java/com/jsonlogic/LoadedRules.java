@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The outcome of JsonLogic.parseAll(): a reduced tree for every rule that
+ * parsed, and the exception of every rule that did not, both by the rule's
+ * index in the input. Blank rules have neither.
+ *
+ * @author Richard
+ */
+public class LoadedRules {
+
+    private final List<JsonLogicTree> trees;
+    private final SortedMap<Integer, Exception> errors = new TreeMap<>();
+    private final Map<Long, JsonLogicTree> fingerprints = new HashMap<>();
+
+    LoadedRules(List<Object> outcomes) {
+        JsonLogicTree[] loaded = new JsonLogicTree[outcomes.size()];
+        for (int i = 0; i < loaded.length; i++) {
+            Object outcome = outcomes.get(i);
+            if (outcome instanceof JsonLogicTree) {
+                loaded[i] = (JsonLogicTree) outcome;
+                fingerprints.putIfAbsent(loaded[i].getFingerprint(), loaded[i]);
+            } else if (outcome instanceof Exception) {
+                errors.put(i, (Exception) outcome);
+            }
+        }
+        trees = Collections.unmodifiableList(Arrays.asList(loaded));
+    }
+
+    /**
+     * @return the number of rules in the input, including those that
+     * failed
+     */
+    public int size() {
+        return trees.size();
+    }
+
+    /**
+     * @return the tree of the rule at index, or null if it failed or was
+     * blank
+     */
+    public JsonLogicTree getTree(int index) {
+        return trees.get(index);
+    }
+
+    /**
+     * @return the trees in the order of the input, with null for the rules
+     * that failed or were blank
+     */
+    public List<JsonLogicTree> getTrees() {
+        return trees;
+    }
+
+    /**
+     * Finds a rule by the fingerprint that flight recordings, slow
+     * evaluation captures and optimization profiles identify it with. Of
+     * identical rules, the first is returned.
+     *
+     * @return the tree, or null if no rule has the fingerprint
+     */
+    public JsonLogicTree getTreeByFingerprint(long fingerprint) {
+        return fingerprints.get(fingerprint);
+    }
+
+    /**
+     * @return the ParseException, or the EvaluationException of reducing
+     * it, of each rule that failed, by index
+     */
+    public SortedMap<Integer, Exception> getErrors() {
+        return Collections.unmodifiableSortedMap(errors);
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+}
@@ -29,16 +29,55 @@ class LogNode extends Node {
         this.node = node;
     }
 
+    /**
+     * Hands the expression and its value to the installed TraceSink; without
+     * one, nothing is formatted. During an asynchronous evaluation they are
+     * held by the pass until it is known not to be repeated.
+     */
     @Override
     Result eval(Map<String, Result> data) throws EvaluationException {
-        StringBuilder builder = new StringBuilder();
-        node.treeToString(builder);
-        System.out.println("Before: " + builder.toString());
         Result result = node.eval(data);
-        System.out.println("After: " + builder.toString());
+        if (Tracing.logSink() != null) {
+            ProvidedData pass = ProvidedData.currentPass();
+            if (pass != null) {
+                pass.log(node, result);
+            } else {
+                write(node, result);
+            }
+        }
         return result;
     }
 
+    static void write(Node node, Result result) {
+        TraceSink sink = Tracing.logSink();
+        if (sink != null && sink.sample()) {
+            StringBuilder builder = new StringBuilder();
+            node.treeToString(builder);
+            sink.log(builder.toString(), result);
+        }
+    }
+
+    @Override
+    int childCount() {
+        return 1;
+    }
+
+    @Override
+    Node child(int index) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return node;
+    }
+
+    @Override
+    void setChild(int index, Node child) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        node = child;
+    }
+
     @Override
     boolean isConstant() {
         return node.isConstant();
@@ -46,7 +85,9 @@ class LogNode extends Node {
 
     @Override
     void reduce() throws EvaluationException {
-        if (!(node instanceof ConstantNode)) {
+        if (!node.isConstant()) {
+            node.reduce();
+        } else if (!(node instanceof ConstantNode)) {
             node = new ConstantNode(node.eval(null));
         }
     }
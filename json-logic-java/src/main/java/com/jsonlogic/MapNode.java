@@ -30,31 +30,40 @@ class MapNode extends BinaryNode {
     }
 
     @Override
-    Result eval(Map<String, Result> data) throws EvaluationException{
+    Result eval(Map<String, Result> data) throws EvaluationException {
+        Object event = JfrEvents.beginOperator();
+        try {
+            return evalElements(data, event);
+        } finally {
+            JfrEvents.commitOperator(event, "map", this);
+        }
+    }
+
+    private Result evalElements(Map<String, Result> data, Object event) throws EvaluationException{
         Result leftResult = left.eval(data);
+        if (leftResult.isArray())
+            JfrEvents.operatorInput(event, leftResult.getArrayValue().size());
 
         if (!leftResult.isArray())
             throw new EvaluationException("");
 
-        StringBuilder sb=new StringBuilder();
-
-        right.treeToString(sb);
-
-        if(sb.toString().contains("{\"var\":\"\"}"))
+        if(ElementData.reads(right, ""))
         {
             JsonArray results=new JsonArray();
 
             for(int i=0;i<leftResult.getArrayValue().size();i++)
             {
-                String afterReplace=sb.toString().replace("{\"var\":\"\"}",leftResult.getArrayValue().get(i).getAsDouble()+"");
-
                 try {
-                    Result r=new JsonLogic().apply(afterReplace,"");
-
-                    if(!r.isDouble())
-                        throw new EvaluationException("no double value on map result");
-
-                    results.add(r.getDoubleValue());
+                    Result r=right.eval(ElementData.element(leftResult.getArrayValue().get(i)));
+
+                    if(r.isDouble())
+                        results.add(r.getDoubleValue());
+                    else if(r.isString())
+                        results.add(r.getStringValue());
+                    else if(r.isBoolean())
+                        results.add(r.getBooleanValue());
+                    else
+                        throw new EvaluationException("no double, string or boolean value on map result");
 
                 }catch (Exception ex){
                     ex.printStackTrace();
@@ -41,5 +41,10 @@ class ModuloNode extends BinaryNode {
     boolean isConstant() {
         return left.isConstant() && right.isConstant();
     }
-    
+
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        return arithmeticColumns(batch, selection, ColumnKernels.MOD);
+    }
+
 }
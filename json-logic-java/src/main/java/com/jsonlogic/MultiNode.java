@@ -58,6 +58,31 @@ public abstract class MultiNode extends Node {
         }
     }
 
+    @Override
+    int childCount() {
+        return nodes.size();
+    }
+
+    @Override
+    long shallowBytes() {
+        return Footprint.object(2, 0) + Footprint.list(nodes);
+    }
+
+    @Override
+    Node child(int index) {
+        return nodes.get(index);
+    }
+
+    @Override
+    void setChild(int index, Node child) {
+        nodes.set(index, child);
+    }
+
+    @Override
+    void detach() {
+        nodes = new ArrayList<>(nodes);
+    }
+
 //    @Override
 //    void treeToString(StringBuilder builder) {
 //        builder.append("(");
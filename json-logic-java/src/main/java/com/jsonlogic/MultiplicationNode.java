@@ -45,5 +45,18 @@ class MultiplicationNode extends MultiNode {
         return new Result(res);
     }
 
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        int rows = batch.rows();
+        Column total = new Column.Constant(new Result(Double.valueOf(1)));
+        for (Node node : nodes) {
+            double[] values = Column.arithmetic(ColumnKernels.MUL, total, node.evalColumn(batch, selection), rows);
+            if (values == null) {
+                return super.evalColumn(batch, selection);
+            }
+            total = new Column.Doubles(values);
+        }
+        return total;
+    }
 
 }
@@ -21,7 +21,7 @@ import java.util.Map;
  *
  * @author Richard
  */
-public abstract class Node {
+public abstract class Node implements Cloneable {
 
     abstract Result eval(Map<String, Result> data) throws EvaluationException;
     
@@ -39,4 +39,70 @@ public abstract class Node {
 
     abstract void treeToString(StringBuilder builder);
 
+    /**
+     * The operands of this node, in the order they are written in the rule.
+     */
+    int childCount() {
+        return 0;
+    }
+
+    Node child(int index) {
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+    }
+
+    void setChild(int index, Node child) {
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+    }
+
+    /**
+     * An estimate of the heap taken by this node, not counting its operands.
+     * The default suits a node holding a single reference.
+     */
+    long shallowBytes() {
+        return Footprint.object(1, 0);
+    }
+
+    /**
+     * Returns a deep copy of this node that shares nothing mutable with it.
+     */
+    Node copy() {
+        Node copy;
+        try {
+            copy = (Node) clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new AssertionError(ex);
+        }
+        copy.detach();
+        for (int i = 0; i < copy.childCount(); i++) {
+            copy.setChild(i, copy.child(i).copy());
+        }
+        return copy;
+    }
+
+    /**
+     * Called on a fresh shallow copy made by copy(), so that it can give
+     * itself its own instances of any mutable state it holds, such as a list
+     * of children.
+     */
+    void detach() {
+    }
+
+    /**
+     * Evaluates this node for every row of a batch. Only the rows in selection
+     * (every row when it is null) have to be correct. By default the selected
+     * rows are evaluated one at a time; nodes that can work on whole columns
+     * of numbers and booleans override this.
+     */
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        int rows = batch.rows();
+        Result[] results = new Result[rows];
+        ColumnBatch.RowView row = batch.rowView();
+        for (int i = 0; i < rows; i++) {
+            if (selection == null || Column.isSet(selection, i)) {
+                results[i] = eval(row.at(i));
+            }
+        }
+        return new Column.Results(results);
+    }
+
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The profile of one node of a profiled JsonLogicTree.
+ *
+ * @author Richard
+ */
+public class NodeProfile {
+
+    private final String path;
+    private final String rule;
+    private final long invocations;
+    private final long totalNanos;
+    private final long selfNanos;
+    private final double shortCircuitRate;
+    private final long[] branchCounts;
+    private final List<NodeProfile> children;
+
+    NodeProfile(String path, String rule, long invocations, long totalNanos, long selfNanos,
+            double shortCircuitRate, long[] branchCounts, List<NodeProfile> children) {
+        this.path = path;
+        this.rule = rule;
+        this.invocations = invocations;
+        this.totalNanos = totalNanos;
+        this.selfNanos = selfNanos;
+        this.shortCircuitRate = shortCircuitRate;
+        this.branchCounts = branchCounts;
+        this.children = Collections.unmodifiableList(children);
+    }
+
+    /**
+     * The position of the node in the rule as operand indexes from the root:
+     * "" is the root and "/1/0" is the first operand of the root's second
+     * operand.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * The node and its operands as JsonLogicTree.treeToString() writes them.
+     */
+    public String getRule() {
+        return rule;
+    }
+
+    public long getInvocations() {
+        return invocations;
+    }
+
+    /**
+     * The time spent in the node, including its operands.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * The time spent in the node itself, excluding its operands.
+     */
+    public long getSelfNanos() {
+        return selfNanos;
+    }
+
+    /**
+     * For 'and' and 'or', the fraction of evaluations that stopped before
+     * the last operand; NaN for other nodes or if the node never ran.
+     */
+    public double getShortCircuitRate() {
+        return shortCircuitRate;
+    }
+
+    /**
+     * For 'if', how many times each branch was taken, in the order they are
+     * written with the else branch last; empty for other nodes.
+     */
+    public long[] getBranchCounts() {
+        return branchCounts.clone();
+    }
+
+    public List<NodeProfile> getChildren() {
+        return children;
+    }
+
+}
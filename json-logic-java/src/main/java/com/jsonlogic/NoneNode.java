@@ -30,25 +30,30 @@ class NoneNode extends BinaryNode {
     }
 
     @Override
-    Result eval(Map<String, Result> data) throws EvaluationException{
+    Result eval(Map<String, Result> data) throws EvaluationException {
+        Object event = JfrEvents.beginOperator();
+        try {
+            return evalElements(data, event);
+        } finally {
+            JfrEvents.commitOperator(event, "none", this);
+        }
+    }
+
+    private Result evalElements(Map<String, Result> data, Object event) throws EvaluationException{
         Result leftResult = left.eval(data);
+        if (leftResult.isArray())
+            JfrEvents.operatorInput(event, leftResult.getArrayValue().size());
 
         if (!leftResult.isArray())
             throw new EvaluationException("");
 
-        StringBuilder sb=new StringBuilder();
-
-        right.treeToString(sb);
-
-        if(sb.toString().contains("{\"var\":\"\"}"))
+        if(ElementData.reads(right, ""))
         {
             for(int i=0;i<leftResult.getArrayValue().size();i++)
             {
-                String afterReplace=sb.toString().replace("{\"var\":\"\"}",leftResult.getArrayValue().get(i).getAsString());
-
                 try {
 
-                    Result r=new JsonLogic().apply(afterReplace,"");
+                    Result r=right.eval(ElementData.element(leftResult.getArrayValue().get(i)));
 
                     if(r.getBooleanValue())
                         return new Result(false);
@@ -68,7 +73,7 @@ class NoneNode extends BinaryNode {
                 try {
                     JsonObject jojo=leftResult.getArrayValue().get(i).getAsJsonObject();
 
-                    Result r=new JsonLogic().apply(sb.toString(),jojo.toString());
+                    Result r=right.eval(ElementData.fields(jojo));
 
                     if(r.getBooleanValue())
                         return new Result(false);
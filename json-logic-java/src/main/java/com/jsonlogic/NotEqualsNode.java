@@ -51,14 +51,14 @@ class NotEqualsNode extends BinaryNode {
 
         if(leftResult.isDouble()&&rightResult.isString())
         {
-            Double temp=new Double(rightResult.getStringValue());
+            Double temp=Double.valueOf(rightResult.getStringValue());
 
             return new Result(!leftResult.getDoubleValue().equals(temp));
         }
 
         if(rightResult.isDouble()&&leftResult.isString())
         {
-            Double temp=new Double(leftResult.getStringValue());
+            Double temp=Double.valueOf(leftResult.getStringValue());
 
             return new Result(!rightResult.getDoubleValue().equals(temp));
         }
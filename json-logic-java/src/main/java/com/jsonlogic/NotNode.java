@@ -38,6 +38,27 @@ class NotNode extends Node {
         return null;
     }
 
+    @Override
+    int childCount() {
+        return 1;
+    }
+
+    @Override
+    Node child(int index) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return node;
+    }
+
+    @Override
+    void setChild(int index, Node child) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        node = child;
+    }
+
     @Override
     boolean isConstant() {
         return node.isConstant();
@@ -45,11 +66,25 @@ class NotNode extends Node {
 
     @Override
     void reduce() throws EvaluationException {
-        if (!(node instanceof ConstantNode)) {
+        if (!node.isConstant()) {
+            node.reduce();
+        } else if (!(node instanceof ConstantNode)) {
             node = new ConstantNode(node.eval(null));
         }
     }
 
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        int rows = batch.rows();
+        long[] bits = Column.booleans(node.evalColumn(batch, selection), rows);
+        if (bits == null) {
+            return super.evalColumn(batch, selection);
+        }
+        long[] inverted = new long[bits.length];
+        ColumnKernels.andNot(Column.all(rows), bits, inverted);
+        return new Column.Booleans(inverted);
+    }
+
     @Override
     void treeToString(StringBuilder builder) {
         builder.append("not (");
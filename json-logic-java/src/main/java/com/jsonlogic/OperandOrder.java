@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The order in which an 'and' or an 'or' evaluates its operands when
+ * adaptive ordering is on, and the counters it is worked out from.
+ *
+ * Operands are ranked by their static cost divided by the observed
+ * probability that they decide the result (false for 'and', true for 'or'),
+ * so cheap operands that usually decide come first. Every INTERVAL
+ * evaluations the order is worked out again and published as a new array;
+ * the array in use is never changed. The counters are then halved, so the
+ * order follows the data as it changes.
+ *
+ * The counters are plain fields updated without synchronization: an update
+ * lost to a race only blurs the statistics, and keeping them cheap matters
+ * more on this path than keeping them exact.
+ *
+ * @author Richard
+ */
+final class OperandOrder {
+
+    static final int INTERVAL = 1024;
+
+    private final double[] costs;
+    private final int movable;
+    private final long[] evaluations;
+    private final long[] decisions;
+    private int ticks;
+    private volatile int[] permutation;
+
+    /**
+     * @param costs the static cost of each operand
+     * @param pinned how many operands at the end must keep their place
+     */
+    OperandOrder(double[] costs, int pinned) {
+        this.costs = costs;
+        movable = Math.max(0, costs.length - pinned);
+        evaluations = new long[costs.length];
+        decisions = new long[costs.length];
+        permutation = identity(costs.length);
+        reorder();
+    }
+
+    /**
+     * Creates the order for the operands, or returns null if they must keep
+     * the order they are written in because evaluating one of them has an
+     * effect beyond its value, as 'log' does.
+     *
+     * An operand that can fail keeps its place, and so do the operands
+     * written after it: moving an operand ahead of it could decide the
+     * result before the failure the written order reports.
+     */
+    static OperandOrder of(List<Node> operands, int pinned) {
+        double[] costs = new double[operands.size()];
+        int safe = -1;
+        for (int i = 0; i < costs.length; i++) {
+            Node operand = operands.get(i);
+            if (!isPure(operand)) {
+                return null;
+            }
+            if (safe < 0 && canFail(operand)) {
+                safe = i;
+            }
+            costs[i] = CostModel.estimate(operand, CostModel.DEFAULT_ARRAY_SIZE, Collections.emptyMap()).getEvaluations();
+        }
+        if (safe >= 0) {
+            pinned = Math.max(pinned, costs.length - safe);
+        }
+        if (costs.length - pinned < 2) {
+            return null;
+        }
+        return new OperandOrder(costs, pinned);
+    }
+
+    private static boolean isPure(Node node) {
+        if (node instanceof LogNode || node instanceof CustomNode && !((CustomNode) node).isPure()
+                || node instanceof LazyNode && !((LazyNode) node).isParsed()) {
+            return false;
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            if (!isPure(node.child(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether evaluating the node, or taking the truth of its value, might
+     * throw. Only nodes known to accept any operand are taken as safe.
+     */
+    private static boolean canFail(Node node) {
+        if (!(node instanceof VarNode || node instanceof ConstantNode || node instanceof ArrayNode
+                || node instanceof StrictEqualsNode || node instanceof StrictNotEqualsNode
+                || node instanceof AndNode || node instanceof OrNode || node instanceof IfNode)) {
+            return true;
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            if (canFail(node.child(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The indexes of the operands in the order to evaluate them. The array
+     * must not be changed.
+     */
+    int[] permutation() {
+        return permutation;
+    }
+
+    /**
+     * Counts one evaluation of an operand.
+     *
+     * @param decided whether the operand decided the result
+     */
+    void evaluated(int operand, boolean decided) {
+        evaluations[operand]++;
+        if (decided) {
+            decisions[operand]++;
+        }
+    }
+
+    /**
+     * Counts one evaluation of the node, working out the order again every
+     * INTERVAL of them.
+     */
+    void tick() {
+        if ((++ticks & (INTERVAL - 1)) == 0) {
+            reorder();
+            for (int i = 0; i < costs.length; i++) {
+                evaluations[i] >>= 1;
+                decisions[i] >>= 1;
+            }
+        }
+    }
+
+    int size() {
+        return costs.length;
+    }
+
+    long[] evaluations() {
+        return evaluations.clone();
+    }
+
+    long[] decisions() {
+        return decisions.clone();
+    }
+
+    /**
+     * Adds counts gathered earlier, by another tree or another process, and
+     * works out the order from them straight away.
+     */
+    void seed(long[] evaluations, long[] decisions) {
+        for (int i = 0; i < costs.length; i++) {
+            this.evaluations[i] += evaluations[i];
+            this.decisions[i] += decisions[i];
+        }
+        reorder();
+    }
+
+    private void reorder() {
+        int n = costs.length;
+        double[] rank = new double[n];
+        for (int i = 0; i < n; i++) {
+            // Laplace smoothing keeps an operand that was never seen to
+            // decide from looking infinitely expensive
+            double decisive = (decisions[i] + 1.0) / (evaluations[i] + 2.0);
+            rank[i] = costs[i] / decisive;
+        }
+        // a stable insertion sort: there are only a handful of operands
+        int[] next = identity(n);
+        for (int i = 1; i < movable; i++) {
+            int operand = next[i];
+            int j = i - 1;
+            while (j >= 0 && rank[next[j]] > rank[operand]) {
+                next[j + 1] = next[j];
+                j--;
+            }
+            next[j + 1] = operand;
+        }
+        if (!Arrays.equals(next, permutation)) {
+            permutation = next;
+        }
+    }
+
+    private static int[] identity(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+}
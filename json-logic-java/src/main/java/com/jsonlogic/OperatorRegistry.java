@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Custom operators for a JsonLogic instance, each with a name, a factory and
+ * metadata describing it to the optimizations:
+ * <ul>
+ * <li>a pure operator always gives the same value for the same operands and
+ * has no other effect, so reduce() folds it when its operands are constant;
+ * an impure one is always evaluated, in the order it is written. Either may
+ * fail, so adaptive ordering never moves an operand ahead of one</li>
+ * <li>the cost is the price of one evaluation relative to a built-in
+ * operator, which costs 1, as used by cost estimates</li>
+ * </ul>
+ * The registry is read when a JsonLogic is created; operators registered
+ * afterwards only reach JsonLogic instances created later.
+ *
+ * <pre>
+ * OperatorRegistry operators = new OperatorRegistry()
+ *         .register("starts_with", operands -&gt; new Result(operands[0].getStringValue()
+ *                 .startsWith(operands[1].getStringValue())), true, 2);
+ * JsonLogic jsonLogic = new JsonLogic(operators);
+ * </pre>
+ *
+ * Custom operators may also be used inside the element expression of all,
+ * some, none, map, filter and reduce, which is parsed once with the rule
+ * like any other operand.
+ *
+ * @author Richard
+ */
+public class OperatorRegistry {
+
+    /**
+     * Creates the operator for one occurrence in a rule, so that it can
+     * check its operands and keep state of its own.
+     */
+    public interface Factory {
+
+        /**
+         * @param operands the number of operands written in the rule
+         * @throws ParseException if the operator does not take that many
+         */
+        CustomOperator create(int operands) throws ParseException;
+    }
+
+    static final class Definition {
+
+        final String name;
+        final Factory factory;
+        final boolean pure;
+        final int cost;
+
+        Definition(String name, Factory factory, boolean pure, int cost) {
+            this.name = name;
+            this.factory = factory;
+            this.pure = pure;
+            this.cost = cost;
+        }
+    }
+
+    private final Map<String, Definition> definitions = new LinkedHashMap<>();
+
+    /**
+     * Registers an operator whose single instance serves every occurrence.
+     *
+     * @see #registerFactory(String, Factory, boolean, int)
+     */
+    public OperatorRegistry register(String name, CustomOperator operator, boolean pure, int cost) {
+        if (operator == null) {
+            throw new NullPointerException("operator");
+        }
+        return registerFactory(name, operands -> operator, pure, cost);
+    }
+
+    /**
+     * @param name the name the operator is written with; it must not be the
+     * name of a built-in operator or contain quotes, backslashes or control
+     * characters
+     * @param factory called once for each occurrence of the operator when a
+     * rule is parsed
+     * @param pure whether the value depends on nothing but the operands
+     * @param cost the cost of one evaluation, at least 1
+     * @throws IllegalArgumentException if the name is taken or invalid, or
+     * the cost is below 1
+     */
+    public synchronized OperatorRegistry registerFactory(String name, Factory factory, boolean pure, int cost) {
+        if (factory == null) {
+            throw new NullPointerException("factory");
+        }
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("the name must not be empty");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                throw new IllegalArgumentException("invalid character in operator name " + name);
+            }
+        }
+        if (OperatorTable.BUILT_IN.code(name) != OperatorTable.UNKNOWN) {
+            throw new IllegalArgumentException(name + " is a built-in operator");
+        }
+        if (definitions.containsKey(name)) {
+            throw new IllegalArgumentException(name + " is already registered");
+        }
+        if (cost < 1) {
+            throw new IllegalArgumentException("cost must be at least 1");
+        }
+        definitions.put(name, new Definition(name, factory, pure, cost));
+        return this;
+    }
+
+    public synchronized Set<String> names() {
+        return Collections.unmodifiableSet(new LinkedHashMap<>(definitions).keySet());
+    }
+
+    /**
+     * Builds the lookup table of the built-in operators and the operators
+     * registered so far.
+     */
+    synchronized OperatorTable table() {
+        List<Definition> custom = new ArrayList<>(definitions.values());
+        return new OperatorTable(custom.toArray(new Definition[0]));
+    }
+
+}
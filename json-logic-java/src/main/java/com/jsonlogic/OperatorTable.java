@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+/**
+ * Maps operator names to codes with a perfect hash: the seed of the hash is
+ * chosen when the table is built so that no two names share a slot, and a
+ * lookup is one hash over the characters of the name, which the parser
+ * works out as it reads them, and one comparison. Built-in operators have
+ * the codes of RuleParser; custom operators follow them in the order they
+ * were registered.
+ *
+ * @author Richard
+ */
+final class OperatorTable {
+
+    static final int UNKNOWN = -1;
+
+    static final OperatorTable BUILT_IN = new OperatorTable(new OperatorRegistry.Definition[0]);
+
+    private final OperatorRegistry.Definition[] custom;
+    private final String[] names;
+    private final int[] codes;
+    private final int seed;
+    private final int mask;
+
+    OperatorTable(OperatorRegistry.Definition[] custom) {
+        this.custom = custom;
+        int builtIn = RuleParser.OPERATORS.length;
+        String[] all = new String[builtIn + custom.length];
+        System.arraycopy(RuleParser.OPERATORS, 0, all, 0, builtIn);
+        for (int i = 0; i < custom.length; i++) {
+            all[builtIn + i] = custom[i].name;
+        }
+
+        // a quarter full, so that a collision free seed turns up quickly
+        int size = Integer.highestOneBit(all.length * 4 - 1) << 1;
+        int candidate = 0;
+        String[] slots;
+        while (true) {
+            candidate++;
+            if (candidate > 1000) {
+                size <<= 1;
+                candidate = 1;
+            }
+            slots = place(all, candidate, size - 1);
+            if (slots != null) {
+                break;
+            }
+        }
+        seed = candidate;
+        mask = size - 1;
+        names = slots;
+        codes = new int[size];
+        for (int i = 0; i < size; i++) {
+            codes[i] = UNKNOWN;
+        }
+        for (int code = 0; code < all.length; code++) {
+            codes[slot(hash(seed, all[code]), mask)] = code;
+        }
+    }
+
+    private static String[] place(String[] all, int seed, int mask) {
+        String[] slots = new String[mask + 1];
+        for (String name : all) {
+            int slot = slot(hash(seed, name), mask);
+            if (slots[slot] != null) {
+                return null;
+            }
+            slots[slot] = name;
+        }
+        return slots;
+    }
+
+    private static int hash(int seed, String name) {
+        int hash = seed;
+        for (int i = 0; i < name.length(); i++) {
+            hash = mix(hash, name.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * One step of the hash, for the next character of a name.
+     */
+    static int mix(int hash, int c) {
+        return (hash ^ c) * 0x01000193;
+    }
+
+    private static int slot(int hash, int mask) {
+        return (hash ^ hash >>> 15) & mask;
+    }
+
+    /**
+     * The initial value of the hash.
+     */
+    int seed() {
+        return seed;
+    }
+
+    /**
+     * @return the slot the name with this hash would be in
+     */
+    int slot(int hash) {
+        return slot(hash, mask);
+    }
+
+    /**
+     * @return the name in the slot, or null if it is empty
+     */
+    String name(int slot) {
+        return names[slot];
+    }
+
+    int code(int slot) {
+        return codes[slot];
+    }
+
+    int code(String name) {
+        int slot = slot(hash(seed, name));
+        return name.equals(names[slot]) ? codes[slot] : UNKNOWN;
+    }
+
+    /**
+     * @return the definition of a custom operator's code
+     */
+    OperatorRegistry.Definition custom(int code) {
+        return custom[code - RuleParser.OPERATORS.length];
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What adaptive ordering has learnt about a set of rules, kept so that a new
+ * process can start from it instead of learning it all again. For every 'and'
+ * and 'or' of every rule captured it holds how often each operand was
+ * evaluated and how often it decided the result.
+ *
+ * Rules are matched by JsonLogicTree.getFingerprint(), which is that of the
+ * rule as parsed, and nodes by their path, as in NodeProfile, so a profile
+ * only applies to the same rules, reduced or not as they were when it was
+ * captured; the counts of a node whose operands no longer match are ignored.
+ *
+ *     // before shutting down
+ *     OptimizationProfile profile = new OptimizationProfile();
+ *     trees.forEach(profile::capture);
+ *     profile.write(writer);
+ *
+ *     // at startup
+ *     OptimizationProfile profile = OptimizationProfile.read(reader);
+ *     trees.forEach(profile::apply);
+ *
+ * @author Richard
+ */
+public class OptimizationProfile {
+
+    private static final int VERSION = 1;
+
+    /**
+     * Counts by rule fingerprint, then by node path.
+     */
+    private final Map<Long, Map<String, long[][]>> rules = new HashMap<>();
+
+    /**
+     * Records the counts of the tree's 'and' and 'or' nodes, replacing any
+     * recorded before for the same rule. A tree without adaptive ordering
+     * has nothing to record.
+     */
+    public synchronized void capture(JsonLogicTree tree) {
+        Map<String, long[][]> nodes = new TreeMap<>();
+        capture(tree.live(), "", nodes);
+        if (!nodes.isEmpty()) {
+            rules.put(tree.getFingerprint(), nodes);
+        }
+    }
+
+    private static void capture(Node node, String path, Map<String, long[][]> nodes) {
+        if (node instanceof ProfilingNode) {
+            capture(((ProfilingNode) node).unwrap(), path, nodes);
+            return;
+        }
+        OperandOrder order = order(node);
+        if (order != null) {
+            nodes.put(path, new long[][]{order.evaluations(), order.decisions()});
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            capture(node.child(i), path + "/" + i, nodes);
+        }
+    }
+
+    /**
+     * Turns adaptive ordering on for the tree and starts it from the counts
+     * recorded for the same rule, if there are any.
+     *
+     * @return whether counts were found for the rule
+     */
+    public synchronized boolean apply(JsonLogicTree tree) {
+        tree.setAdaptiveOrdering(true);
+        Map<String, long[][]> nodes = rules.get(tree.getFingerprint());
+        if (nodes == null) {
+            return false;
+        }
+        Node root = tree.root();
+        apply(root, "", nodes);
+        if (tree.live() != root) {
+            apply(tree.live(), "", nodes);
+        }
+        return true;
+    }
+
+    private static void apply(Node node, String path, Map<String, long[][]> nodes) {
+        if (node instanceof ProfilingNode) {
+            apply(((ProfilingNode) node).unwrap(), path, nodes);
+            return;
+        }
+        OperandOrder order = order(node);
+        long[][] counts = nodes.get(path);
+        if (order != null && counts != null
+                && counts[0].length == order.size() && counts[1].length == order.size()) {
+            order.seed(counts[0], counts[1]);
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            apply(node.child(i), path + "/" + i, nodes);
+        }
+    }
+
+    private static OperandOrder order(Node node) {
+        if (node instanceof AndNode) {
+            return ((AndNode) node).order();
+        }
+        if (node instanceof OrNode) {
+            return ((OrNode) node).order();
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of rules the profile holds counts for
+     */
+    public synchronized int size() {
+        return rules.size();
+    }
+
+    /**
+     * Writes the profile as JSON.
+     */
+    public synchronized void write(Writer writer) throws IOException {
+        JsonObject document = new JsonObject();
+        document.addProperty("version", VERSION);
+        JsonObject rulesObject = new JsonObject();
+        for (Map.Entry<Long, Map<String, long[][]>> rule : rules.entrySet()) {
+            JsonObject nodesObject = new JsonObject();
+            for (Map.Entry<String, long[][]> node : rule.getValue().entrySet()) {
+                JsonObject counts = new JsonObject();
+                counts.add("evaluations", toJson(node.getValue()[0]));
+                counts.add("decisions", toJson(node.getValue()[1]));
+                nodesObject.add(node.getKey(), counts);
+            }
+            rulesObject.add(Long.toHexString(rule.getKey()), nodesObject);
+        }
+        document.add("rules", rulesObject);
+        new GsonBuilder().setPrettyPrinting().create().toJson(document, writer);
+        writer.flush();
+    }
+
+    /**
+     * Reads a profile written by write().
+     *
+     * @throws ParseException if the text is not such a profile
+     */
+    public static OptimizationProfile read(Reader reader) throws IOException, ParseException {
+        JsonElement parsed;
+        try {
+            parsed = new JsonParser().parse(reader);
+        } catch (JsonIOException ex) {
+            throw ex.getCause() instanceof IOException ? (IOException) ex.getCause() : new IOException(ex);
+        } catch (JsonParseException ex) {
+            throw new ParseException("not an optimization profile", ex);
+        }
+        JsonObject document = object(parsed, "profile");
+        JsonElement version = document.get("version");
+        if (version == null || !version.isJsonPrimitive() || !version.getAsJsonPrimitive().isNumber()
+                || version.getAsInt() != VERSION) {
+            throw new ParseException("unsupported profile version " + version);
+        }
+        OptimizationProfile profile = new OptimizationProfile();
+        for (Map.Entry<String, JsonElement> rule : object(document.get("rules"), "rules").entrySet()) {
+            Map<String, long[][]> nodes = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> node : object(rule.getValue(), rule.getKey()).entrySet()) {
+                JsonObject counts = object(node.getValue(), node.getKey());
+                long[] evaluations = counts(counts.get("evaluations"), node.getKey());
+                long[] decisions = counts(counts.get("decisions"), node.getKey());
+                nodes.put(node.getKey(), new long[][]{evaluations, decisions});
+            }
+            try {
+                profile.rules.put(Long.parseUnsignedLong(rule.getKey(), 16), nodes);
+            } catch (NumberFormatException ex) {
+                throw new ParseException("bad rule fingerprint " + rule.getKey(), ex);
+            }
+        }
+        return profile;
+    }
+
+    private static JsonObject object(JsonElement element, String name) throws ParseException {
+        if (element == null || !element.isJsonObject()) {
+            throw new ParseException(name + " should be an object");
+        }
+        return element.getAsJsonObject();
+    }
+
+    private static long[] counts(JsonElement element, String name) throws ParseException {
+        if (element == null || !element.isJsonArray()) {
+            throw new ParseException("the counts of " + name + " should be an array");
+        }
+        JsonArray array = element.getAsJsonArray();
+        long[] values = new long[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            JsonElement value = array.get(i);
+            if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+                throw new ParseException("the counts of " + name + " should be numbers");
+            }
+            values[i] = value.getAsLong();
+        }
+        return values;
+    }
+
+    private static JsonArray toJson(long[] values) {
+        JsonArray array = new JsonArray();
+        for (long value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+
+}
@@ -23,12 +23,71 @@ import java.util.Map;
  */
 class OrNode extends MultiNode {
 
+    private volatile OperandOrder order;
+
     OrNode(Node left, Node right) {
         super(left, right, " || ");
     }
 
+    /**
+     * Turns adaptive ordering of the operands on or off. The last operand
+     * always stays last, as its value is the result when no operand is true.
+     */
+    void setAdaptive(boolean adaptive) {
+        order = adaptive ? OperandOrder.of(nodes, 1) : null;
+    }
+
+    /**
+     * @return the adaptive order, or null when the operands are evaluated
+     * in the written order
+     */
+    OperandOrder order() {
+        return order;
+    }
+
+    @Override
+    void detach() {
+        super.detach();
+        if (order != null) {
+            order = OperandOrder.of(nodes, 1);
+        }
+    }
+
     @Override
     Result eval(Map<String, Result> data) throws EvaluationException {
+        OperandOrder order = this.order;
+        if (order != null) {
+            return evalReordered(order, data);
+        }
+        return evalInOrder(data);
+    }
+
+    /**
+     * Evaluates the operands in the adaptive order. The value is the same as
+     * in the written order, and so is a failure: OperandOrder only moves
+     * operands that cannot fail, ahead of the first one that can. Should one
+     * fail all the same, the operands are evaluated again in the written
+     * order, which decides.
+     */
+    private Result evalReordered(OperandOrder order, Map<String, Result> data) throws EvaluationException {
+        order.tick();
+        Result result = null;
+        try {
+            for (int index : order.permutation()) {
+                result = nodes.get(index).eval(data);
+                boolean decided = result.isBoolean() && result.getBooleanValue();
+                order.evaluated(index, decided);
+                if (decided) {
+                    return result;
+                }
+            }
+        } catch (EvaluationException | RuntimeException ex) {
+            return evalInOrder(data);
+        }
+        return result;
+    }
+
+    private Result evalInOrder(Map<String, Result> data) throws EvaluationException {
         Result result = null;
         for (Node node : nodes) {
             result = node.eval(data);
@@ -39,4 +98,38 @@ class OrNode extends MultiNode {
         return result;
     }
 
+    /**
+     * Each operand is only evaluated for the rows that have not yet met a
+     * true; the rows that never do take the value of the last operand.
+     */
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        int rows = batch.rows();
+        long[] live = selection == null ? Column.all(rows) : selection.clone();
+        long[] done = new long[Column.words(rows)];
+        long[] decided = new long[done.length];
+        Column last = null;
+        for (Node node : nodes) {
+            if (Column.isEmpty(live)) {
+                return new Column.Booleans(done);
+            }
+            last = node.evalColumn(batch, live);
+            ColumnKernels.and(last.booleanTrue(rows, live), live, decided);
+            ColumnKernels.or(done, decided, done);
+            ColumnKernels.andNot(live, decided, live);
+        }
+        if (Column.booleans(last, rows) != null) {
+            return new Column.Booleans(done);
+        }
+        Result[] results = new Result[rows];
+        for (int i = 0; i < rows; i++) {
+            if (Column.isSet(done, i)) {
+                results[i] = JsonLogic.TRUE_RESULT;
+            } else if (Column.isSet(live, i)) {
+                results[i] = last.get(i);
+            }
+        }
+        return new Column.Results(results);
+    }
+
 }
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a task over every item of a batch in parallel and returns the results
+ * in input order.
+ *
+ * Lists are split with fork/join when the executor is a ForkJoinPool, so idle
+ * workers steal chunks from busy ones. Any other executor is fed by a shared
+ * cursor that hands out shrinking chunks (guided self-scheduling); the
+ * calling thread claims chunks too, and only waits for chunks other threads
+ * have claimed, never for a task still queued behind it, so a batch started
+ * from a task of a saturated or single-thread executor still finishes.
+ * Iterators are drained on the calling thread in growing chunks, each
+ * shared out the same way and let go as soon as it has been evaluated. Work
+ * an executor rejects is done on the calling thread.
+ *
+ * @author Richard
+ */
+final class ParallelBatch {
+
+    /**
+     * Smallest number of items worth handing to another thread.
+     */
+    private static final int MIN_CHUNK = 16;
+
+    /**
+     * Largest number of items read from an iterator into a single chunk.
+     */
+    private static final int MAX_ITERATOR_CHUNK = 16384;
+
+    interface Task<T, R> {
+
+        R apply(T item) throws ParseException, EvaluationException;
+    }
+
+    private ParallelBatch() {
+    }
+
+    static <T, R> List<R> run(List<? extends T> items, Executor executor, Task<T, R> task) throws ParseException, EvaluationException {
+        if (items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Batch<T, R> batch = new Batch<>(items, task);
+        run(batch, executor != null ? executor : ForkJoinPool.commonPool());
+        batch.rethrow();
+        return batch.results();
+    }
+
+    static <T, R> List<R> run(Iterator<? extends T> items, Executor executor, Task<T, R> task) throws ParseException, EvaluationException {
+        if (executor == null) {
+            executor = ForkJoinPool.commonPool();
+        }
+        List<R> results = new ArrayList<>();
+        int chunkSize = MIN_CHUNK * 16;
+        while (items.hasNext()) {
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && items.hasNext()) {
+                chunk.add(items.next());
+            }
+            Batch<T, R> batch = new Batch<>(chunk, task);
+            run(batch, executor);
+            batch.rethrow();
+            results.addAll(batch.results());
+            chunkSize = Math.min(chunkSize * 2, MAX_ITERATOR_CHUNK);
+        }
+        return results;
+    }
+
+    private static <T, R> void run(Batch<T, R> batch, Executor executor) {
+        int size = batch.items.size();
+        if (executor instanceof ForkJoinPool) {
+            int parallelism = ((ForkJoinPool) executor).getParallelism();
+            int threshold = Math.max(MIN_CHUNK, size / (parallelism * 8));
+            ((ForkJoinPool) executor).invoke(new Split<>(batch, 0, size, threshold));
+        } else {
+            runGuided(batch, executor);
+        }
+    }
+
+    private static <T, R> void runGuided(Batch<T, R> batch, Executor executor) {
+        int size = batch.items.size();
+        int workers = Math.min(threads(executor), (size + MIN_CHUNK - 1) / MIN_CHUNK);
+        AtomicInteger cursor = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        Runnable worker = () -> {
+            int start;
+            while ((start = cursor.get()) < size) {
+                // after a failure the rest is claimed at once, and skipped
+                boolean failed = batch.failure.get() != null;
+                int chunk = failed ? size - start : Math.max(MIN_CHUNK, (size - start) / (workers * 2));
+                int end = Math.min(size, start + chunk);
+                if (cursor.compareAndSet(start, end)) {
+                    if (!failed) {
+                        batch.compute(start, end);
+                    }
+                    if (finished.addAndGet(end - start) == size) {
+                        done.countDown();
+                    }
+                }
+            }
+        };
+        for (int i = 1; i < workers; i++) {
+            try {
+                // a worker that only runs once everything is claimed just returns
+                executor.execute(worker);
+            } catch (RejectedExecutionException ex) {
+                // the calling thread picks up the share of the missing worker
+                break;
+            }
+        }
+        // the calling thread works too, so a saturated executor cannot stall the batch
+        worker.run();
+        await(done);
+    }
+
+    /**
+     * The number of threads, counting the caller, worth sharing a batch
+     * between on the executor. A thread pool with fewer threads than there
+     * are processors gets no more workers than it has threads.
+     */
+    private static int threads(Executor executor) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (executor instanceof ThreadPoolExecutor) {
+            threads = Math.min(threads, ((ThreadPoolExecutor) executor).getMaximumPoolSize() + 1);
+        }
+        return Math.max(1, threads);
+    }
+
+    private static void await(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Batch<T, R> {
+
+        private final List<? extends T> items;
+        private final Task<T, R> task;
+        private final Object[] results;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Batch(List<? extends T> items, Task<T, R> task) {
+            this.items = items;
+            this.task = task;
+            this.results = new Object[items.size()];
+        }
+
+        void compute(int from, int to) {
+            try {
+                for (int i = from; i < to && failure.get() == null; i++) {
+                    results[i] = task.apply(items.get(i));
+                }
+            } catch (Throwable ex) {
+                failure.compareAndSet(null, ex);
+            }
+        }
+
+        void rethrow() throws ParseException, EvaluationException {
+            Throwable ex = failure.get();
+            if (ex == null) {
+                return;
+            }
+            if (ex instanceof ParseException) {
+                throw (ParseException) ex;
+            }
+            if (ex instanceof EvaluationException) {
+                throw (EvaluationException) ex;
+            }
+            if (ex instanceof RuntimeException) {
+                throw (RuntimeException) ex;
+            }
+            throw (Error) ex;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<R> results() {
+            return (List<R>) Arrays.asList(results);
+        }
+    }
+
+    private static final class Split<T, R> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Batch<T, R> batch;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        Split(Batch<T, R> batch, int from, int to, int threshold) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            int lo = from;
+            int hi = to;
+            List<Split<T, R>> forked = null;
+            // keep splitting while the range is large and the local queue is
+            // not already holding work nobody has stolen yet
+            while (hi - lo > threshold && getSurplusQueuedTaskCount() <= 3) {
+                int mid = (lo + hi) >>> 1;
+                Split<T, R> right = new Split<>(batch, mid, hi, threshold);
+                right.fork();
+                if (forked == null) {
+                    forked = new ArrayList<>();
+                }
+                forked.add(right);
+                hi = mid;
+            }
+            batch.compute(lo, hi);
+            if (forked != null) {
+                for (int i = forked.size() - 1; i >= 0; i--) {
+                    forked.get(i).join();
+                }
+            }
+        }
+    }
+
+}
@@ -20,7 +20,9 @@ package com.jsonlogic;
  * @author Richard
  */
 public class ParseException extends Exception {
-    
+
+    private static final long serialVersionUID = 1L;
+
     public ParseException(String message) {
         super(message);
     }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One node of the plan of a CostEstimate.
+ *
+ * @author Richard
+ */
+public class PlanNode {
+
+    private final String operator;
+    private final long evaluations;
+    private final long iterations;
+    private final List<PlanNode> children;
+
+    PlanNode(String operator, long evaluations, long iterations, List<PlanNode> children) {
+        this.operator = operator;
+        this.evaluations = evaluations;
+        this.iterations = iterations;
+        this.children = Collections.unmodifiableList(children);
+    }
+
+    /**
+     * The operator as it is written in rules, "var name" for a variable or
+     * the value of a constant.
+     */
+    public String getOperator() {
+        return operator;
+    }
+
+    /**
+     * How many times the node is evaluated, at most, for one evaluation of
+     * the tree.
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * For all, some, none, map, filter and reduce, the number of array
+     * elements the node goes through, at most, for one evaluation of the
+     * tree; 0 for every other node.
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    public List<PlanNode> getChildren() {
+        return children;
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps a node to count its evaluations and the time they take. A profiled
+ * tree is a copy of the original with every node wrapped, so the original
+ * tree pays nothing for profiling. The counters are LongAdders, so threads
+ * evaluating the same profiled tree do not contend on them.
+ *
+ * The times include the cost of reading the clock around every node, which
+ * dominates for cheap nodes such as constants and variables; compare them
+ * with each other rather than with unprofiled timings.
+ *
+ * @author Richard
+ */
+final class ProfilingNode extends Node {
+
+    private Node node;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    private ProfilingNode(Node node) {
+        this.node = node;
+    }
+
+    /**
+     * Returns a profiled copy of node and all the nodes below it.
+     */
+    static ProfilingNode instrument(Node node) {
+        return wrap(node.copy());
+    }
+
+    private static ProfilingNode wrap(Node node) {
+        for (int i = 0; i < node.childCount(); i++) {
+            node.setChild(i, wrap(node.child(i)));
+        }
+        return new ProfilingNode(node);
+    }
+
+    Node unwrap() {
+        return node;
+    }
+
+    @Override
+    Result eval(Map<String, Result> data) throws EvaluationException {
+        long start = System.nanoTime();
+        try {
+            return node.eval(data);
+        } finally {
+            nanos.add(System.nanoTime() - start);
+            invocations.increment();
+        }
+    }
+
+    /**
+     * A whole batch counts as a single invocation.
+     */
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        long start = System.nanoTime();
+        try {
+            return node.evalColumn(batch, selection);
+        } finally {
+            nanos.add(System.nanoTime() - start);
+            invocations.increment();
+        }
+    }
+
+    @Override
+    boolean isConstant() {
+        return node.isConstant();
+    }
+
+    @Override
+    void reduce() throws EvaluationException {
+        node.reduce();
+    }
+
+    @Override
+    void treeToString(StringBuilder builder) {
+        node.treeToString(builder);
+    }
+
+    @Override
+    int childCount() {
+        return 1;
+    }
+
+    @Override
+    Node child(int index) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return node;
+    }
+
+    @Override
+    void setChild(int index, Node child) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        node = child;
+    }
+
+    /**
+     * Reads the counters of this node and of the nodes below it. The counters
+     * keep running while they are read, so the figures of different nodes
+     * may be a few evaluations apart.
+     */
+    NodeProfile snapshot(String path) {
+        List<NodeProfile> children = new ArrayList<>();
+        for (int i = 0; i < node.childCount(); i++) {
+            Node child = node.child(i);
+            // a child replaced by reduce() is no longer profiled
+            if (child instanceof ProfilingNode) {
+                children.add(((ProfilingNode) child).snapshot(path + "/" + i));
+            }
+        }
+        long count = invocations.sum();
+        long total = nanos.sum();
+        long self = total;
+        for (NodeProfile child : children) {
+            self -= child.getTotalNanos();
+        }
+
+        double shortCircuitRate = Double.NaN;
+        if ((node instanceof AndNode || node instanceof OrNode)
+                && count > 0 && children.size() == node.childCount()) {
+            // an evaluation that never reached the last operand stopped early
+            long reachedLast = children.get(children.size() - 1).getInvocations();
+            shortCircuitRate = (double) (count - reachedLast) / count;
+        }
+
+        long[] branches = new long[0];
+        if (node instanceof IfNode && children.size() == node.childCount()) {
+            // the operands are condition, branch, condition, branch, ..., else
+            branches = new long[children.size() / 2 + 1];
+            for (int i = 0; i < branches.length; i++) {
+                branches[i] = children.get(Math.min(2 * i + 1, children.size() - 1)).getInvocations();
+            }
+        }
+
+        StringBuilder rule = new StringBuilder();
+        node.treeToString(rule);
+        return new NodeProfile(path, rule.toString(), count, total, Math.max(0, self),
+                shortCircuitRate, branches, children);
+    }
+
+}
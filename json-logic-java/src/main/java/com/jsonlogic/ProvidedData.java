@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The data of an asynchronous evaluation. VarNode reports the variables it
+ * cannot find here so that they can be fetched from a DataProvider in one
+ * batch once the current pass over the tree is finished.
+ *
+ * A pass that requested variables is repeated after the fetch, so LogNode
+ * hands its values to the pass running on its thread instead of the
+ * TraceSink; they are written only if the pass turns out to be the last.
+ *
+ * @author Richard
+ */
+class ProvidedData extends HashMap<String, Result> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<ProvidedData> PASS = new ThreadLocal<>();
+
+    private Set<String> requested = new HashSet<>();
+    private final Set<String> fetched = new HashSet<>();
+    private final transient List<Node> logged = new ArrayList<>();
+    private final transient List<Result> loggedValues = new ArrayList<>();
+
+    ProvidedData(Map<String, Result> data) {
+        super(data);
+    }
+
+    /**
+     * Called by VarNode for a variable that is not present.
+     */
+    Result missing(String name) {
+        if (!fetched.contains(name)) {
+            requested.add(name);
+        }
+        return new Result(null);
+    }
+
+    /**
+     * Returns the variables requested since the last call and clears them.
+     */
+    Set<String> takeRequested() {
+        Set<String> names = requested;
+        requested = new HashSet<>();
+        return names;
+    }
+
+    /**
+     * Returns the data whose pass is running on this thread, or null.
+     */
+    static ProvidedData currentPass() {
+        return PASS.get();
+    }
+
+    void beginPass() {
+        PASS.set(this);
+    }
+
+    /**
+     * Called by LogNode during a pass.
+     */
+    void log(Node expression, Result value) {
+        logged.add(expression);
+        loggedValues.add(value);
+    }
+
+    void endPass() {
+        PASS.remove();
+    }
+
+    /**
+     * Writes the values logged by the pass if it is the last one, and
+     * forgets them if it will be repeated.
+     */
+    void flushLog(boolean last) {
+        if (last) {
+            for (int i = 0; i < logged.size(); i++) {
+                LogNode.write(logged.get(i), loggedValues.get(i));
+            }
+        }
+        logged.clear();
+        loggedValues.clear();
+    }
+
+    void supply(Set<String> names, Map<String, Result> values) {
+        fetched.addAll(names);
+        if (values != null) {
+            for (String name : names) {
+                Result value = values.get(name);
+                if (value != null) {
+                    put(name, value);
+                }
+            }
+        }
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package com.jsonlogic;
 
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -28,20 +29,29 @@ class ReduceNode extends MultiNode {
     }
 
     @Override
-    Result eval(Map<String, Result> data) throws EvaluationException{
+    Result eval(Map<String, Result> data) throws EvaluationException {
+        Object event = JfrEvents.beginOperator();
+        try {
+            return evalElements(data, event);
+        } finally {
+            JfrEvents.commitOperator(event, "reduce", this);
+        }
+    }
+
+    private Result evalElements(Map<String, Result> data, Object event) throws EvaluationException{
 
         if(nodes.size()<2||nodes.size()>3)
             throw new EvaluationException("too many or too few elements in reduce");
         Result leftResult = nodes.get(0).eval(data);
+        if (leftResult.isArray())
+            JfrEvents.operatorInput(event, leftResult.getArrayValue().size());
 
         if (!leftResult.isArray())
             throw new EvaluationException("");
 
-        StringBuilder sb=new StringBuilder();
-
-        nodes.get(1).treeToString(sb);
+        Node expression=nodes.get(1);
 
-        if(!sb.toString().contains("{\"var\":\"accumulator\"}"))
+        if(!ElementData.reads(expression, "accumulator"))
             throw new EvaluationException("reduce operation missing accumulator");
 
         Double accumulator=0.0;
@@ -54,20 +64,14 @@ class ReduceNode extends MultiNode {
 
         for(int i=0;i<leftResult.getArrayValue().size();i++)
         {
-            String afterReplace;
-            if(sb.toString().contains("{\"var\":\"current\"}")){
-                afterReplace=sb.toString()
-                    .replace("{\"var\":\"current\"}",leftResult.getArrayValue().get(i).getAsDouble()+"")
-                    .replace("{\"var\":\"accumulator\"}",accumulator+"")
-                    ;
-            }else{
-                afterReplace=sb.toString()
-                    .replace("{\"var\":\"accumulator\"}",accumulator+"")
-                    ;
+            Map<String, Result> element=new HashMap<>(4);
+            if(ElementData.reads(expression, "current")){
+                element.put("current", new Result(leftResult.getArrayValue().get(i).getAsDouble()));
             }
+            element.put("accumulator", new Result(accumulator));
 
             try {
-                Result r=new JsonLogic().apply(afterReplace,"");
+                Result r=expression.eval(element);
 
                 if(!r.isDouble())
                     throw new EvaluationException("no double value on map result");
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of parsed trees keyed by the rule text, evicting the least
+ * recently used. The cache is split into segments by the hash of the rule,
+ * each with its own lock, so threads looking up different rules rarely wait
+ * on each other.
+ *
+ * The capacity is a number of trees, a number of bytes as estimated by
+ * JsonLogicTree.estimateRetainedBytes(), or both. Each segment holds its
+ * share of the number of trees. The bytes are a single budget for the whole
+ * cache: while it is exceeded, the segments give up their least recently
+ * used tree in turn, so any tree that fits the budget can be cached. A tree
+ * is weighed once, when it enters the cache.
+ *
+ * @author Richard
+ */
+final class RuleCache {
+
+    interface Loader {
+
+        JsonLogicTree load(String rule) throws ParseException;
+    }
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long maximumBytes;
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicInteger nextVictim = new AtomicInteger();
+    private final JsonLogicMetrics metrics;
+
+    /**
+     * @param maximumSize the number of trees to keep, 0 for no limit
+     * @param maximumBytes the estimated bytes the trees may take, 0 for no
+     * limit
+     * @param metrics receives the hits, misses and evictions, or null
+     */
+    RuleCache(int maximumSize, long maximumBytes, JsonLogicMetrics metrics) {
+        this.metrics = metrics;
+        this.maximumBytes = maximumBytes > 0 ? maximumBytes : Long.MAX_VALUE;
+        int perSegment = maximumSize > 0 ? Math.max(1, (maximumSize + SEGMENTS - 1) / SEGMENTS) : Integer.MAX_VALUE;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Returns the tree of the rule, parsing it with the loader if it is not
+     * cached. The loader runs outside the segment's lock, so two threads
+     * missing on the same rule may both parse it; the first tree to reach the
+     * cache is kept and returned to both.
+     */
+    JsonLogicTree get(String rule, Loader loader) throws ParseException {
+        Segment segment = segmentFor(rule);
+        Weighed entry;
+        synchronized (segment) {
+            entry = segment.get(rule);
+        }
+        if (entry != null) {
+            if (metrics != null) {
+                metrics.recordCacheHit();
+            }
+            return entry.tree;
+        }
+        if (metrics != null) {
+            metrics.recordCacheMiss();
+        }
+        JsonLogicTree tree = loader.load(rule);
+        entry = new Weighed(tree, tree.estimateRetainedBytes());
+        List<Weighed> evicted;
+        synchronized (segment) {
+            Weighed loaded = segment.get(rule);
+            if (loaded != null) {
+                return loaded.tree;
+            }
+            if (entry.bytes > maximumBytes) {
+                // heavier than the whole budget, evicted as soon as it is added
+                evicted = new ArrayList<>(1);
+                evicted.add(entry);
+            } else {
+                segment.put(rule, entry);
+                evicted = segment.trim();
+                long added = entry.bytes;
+                for (Weighed dropped : evicted) {
+                    added -= dropped.bytes;
+                }
+                bytes.addAndGet(added);
+            }
+        }
+        trimBytes(entry, evicted);
+        if (metrics != null) {
+            metrics.recordCacheLoad(tree, entry.bytes);
+            for (Weighed dropped : evicted) {
+                metrics.recordCacheEviction(dropped.tree, dropped.bytes);
+            }
+        }
+        return tree;
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the estimated bytes taken by the cached trees
+     */
+    long bytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Takes the least recently used tree of one segment after the other
+     * until the cache is within its byte budget, sparing the tree just
+     * added. Only one segment is locked at a time.
+     */
+    private void trimBytes(Weighed added, List<Weighed> evicted) {
+        int empty = 0;
+        while (bytes.get() > maximumBytes && empty < SEGMENTS) {
+            Segment segment = segments[nextVictim.getAndIncrement() & (SEGMENTS - 1)];
+            Weighed eldest;
+            synchronized (segment) {
+                eldest = segment.removeEldest(added);
+            }
+            if (eldest == null) {
+                empty++;
+            } else {
+                empty = 0;
+                bytes.addAndGet(-eldest.bytes);
+                evicted.add(eldest);
+            }
+        }
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            List<Weighed> dropped;
+            synchronized (segment) {
+                dropped = new ArrayList<>(segment.values());
+                segment.clear();
+            }
+            for (Weighed entry : dropped) {
+                bytes.addAndGet(-entry.bytes);
+            }
+            if (metrics != null) {
+                for (Weighed entry : dropped) {
+                    metrics.recordCacheEviction(entry.tree, entry.bytes);
+                }
+            }
+        }
+    }
+
+    private Segment segmentFor(String rule) {
+        int h = rule.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    private static final class Weighed {
+
+        final JsonLogicTree tree;
+        final long bytes;
+
+        Weighed(JsonLogicTree tree, long bytes) {
+            this.tree = tree;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<String, Weighed> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        /**
+         * Evicts the least recently used trees until the segment holds no
+         * more than its share of the number of trees.
+         */
+        List<Weighed> trim() {
+            List<Weighed> evicted = new ArrayList<>(1);
+            while (size() > capacity) {
+                evicted.add(removeEldest(null));
+            }
+            return evicted;
+        }
+
+        /**
+         * @return the least recently used tree, or null if the segment is
+         * empty or that tree is spared
+         */
+        Weighed removeEldest(Weighed spared) {
+            Iterator<Weighed> it = values().iterator();
+            if (!it.hasNext()) {
+                return null;
+            }
+            Weighed eldest = it.next();
+            if (eldest == spared) {
+                return null;
+            }
+            it.remove();
+            return eldest;
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The slowest evaluation seen for one rule.
+ *
+ * @author Richard
+ */
+public class RuleLatency {
+
+    private final long fingerprint;
+    private final String rule;
+    private final long maxNanos;
+
+    @ConstructorProperties({"fingerprint", "rule", "maxNanos"})
+    public RuleLatency(long fingerprint, String rule, long maxNanos) {
+        this.fingerprint = fingerprint;
+        this.rule = rule;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * @see JsonLogicTree#getFingerprint()
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * The rule as JsonLogicTree.treeToString() writes it.
+     */
+    public String getRule() {
+        return rule;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+}
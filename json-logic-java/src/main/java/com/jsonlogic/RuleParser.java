@@ -0,0 +1,923 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Parses a rule straight from its characters or its UTF-8 bytes into a tree
+ * of nodes in one pass. Operator names are matched where they lie in the
+ * input, without making a String of them, and the only objects created are
+ * the nodes and the strings and results they hold. Malformed rules are
+ * reported with a ParseException giving the position of the problem.
+ *
+ * @author Richard
+ */
+final class RuleParser {
+
+    private static final int EQUALS = 0;
+    private static final int STRICT_EQUALS = 1;
+    private static final int NOT_EQUALS = 2;
+    private static final int STRICT_NOT_EQUALS = 3;
+    private static final int GREATER_THAN = 4;
+    private static final int GREATER_THAN_EQUALS = 5;
+    private static final int LESS_THAN = 6;
+    private static final int LESS_THAN_EQUALS = 7;
+    private static final int AND = 8;
+    private static final int OR = 9;
+    private static final int NOT = 10;
+    private static final int IF = 11;
+    private static final int MAX = 12;
+    private static final int MIN = 13;
+    private static final int ADDITION = 14;
+    private static final int MULTIPLICATION = 15;
+    private static final int SUBTRACTION = 16;
+    private static final int DIVISION = 17;
+    private static final int MODULO = 18;
+    private static final int VAR = 19;
+    private static final int MISSING = 20;
+    private static final int MISSING_SOME = 21;
+    private static final int MERGE = 22;
+    private static final int CAT = 23;
+    private static final int IN = 24;
+    private static final int ALL = 25;
+    private static final int SOME = 26;
+    private static final int MAP = 27;
+    private static final int FILTER = 28;
+    private static final int REDUCE = 29;
+    private static final int NONE = 30;
+    private static final int SUBSTR = 31;
+    private static final int LOG = 32;
+    private static final int UNKNOWN = OperatorTable.UNKNOWN;
+
+    /**
+     * The built-in operator names, indexed by their codes.
+     */
+    static final String[] OPERATORS = {"==", "===", "!=", "!==", ">", ">=", "<", "<=", "and", "or",
+        "!", "if", "max", "min", "+", "*", "-", "/", "%", "var", "missing", "missing_some", "merge", "cat",
+        "in", "all", "some", "map", "filter", "reduce", "none", "substr", "log"};
+
+    private static final Result NULL_RESULT = new Result(null);
+
+    private final OperatorTable operators;
+    private final int lazy;
+    private final char[] chars;
+    private final byte[] bytes;
+    private final int origin;
+    private final int end;
+    private int pos;
+
+    private RuleParser(OperatorTable operators, int lazy, char[] chars, byte[] bytes, int origin, int offset,
+            int length) {
+        this.operators = operators;
+        this.lazy = lazy;
+        this.chars = chars;
+        this.bytes = bytes;
+        this.origin = origin;
+        this.end = offset + length;
+        this.pos = offset;
+    }
+
+    static Node parse(OperatorTable operators, char[] rule, int offset, int length) throws ParseException {
+        return parse(operators, rule, offset, length, 0);
+    }
+
+    /**
+     * @param lazy the length from which the branches of 'if' and the
+     * operands of 'or' after the first are kept as LazyNodes over the rule,
+     * 0 to parse every branch at once; the rule must then not change while
+     * the tree is in use
+     */
+    static Node parse(OperatorTable operators, char[] rule, int offset, int length, int lazy) throws ParseException {
+        checkBounds(rule.length, offset, length);
+        return new RuleParser(operators, lazy, rule, null, offset, offset, length).rule();
+    }
+
+    /**
+     * Parses a branch left by a lazy parse of a rule that starts at index 0
+     * of the array, giving the positions of errors within the whole rule.
+     */
+    static Node parseBranch(OperatorTable operators, char[] rule, int offset, int length, int lazy)
+            throws ParseException {
+        checkBounds(rule.length, offset, length);
+        return new RuleParser(operators, lazy, rule, null, 0, offset, length).rule();
+    }
+
+    static Node parse(OperatorTable operators, byte[] rule, int offset, int length) throws ParseException {
+        checkBounds(rule.length, offset, length);
+        return new RuleParser(operators, 0, null, rule, offset, offset, length).rule();
+    }
+
+    private static void checkBounds(int size, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > size - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + size);
+        }
+    }
+
+    private Node rule() throws ParseException {
+        Node node = value();
+        if (peek() != -1) {
+            throw error("Unexpected characters after the rule");
+        }
+        return node;
+    }
+
+    private Node value() throws ParseException {
+        switch (peek()) {
+            case '{':
+                pos++;
+                return operation();
+            case '[':
+                pos++;
+                ArrayNode array = new ArrayNode();
+                if (!empty()) {
+                    do {
+                        array.add(value());
+                    } while (next());
+                }
+                return array;
+            case '"':
+                return new ConstantNode(new Result(string()));
+            case 't':
+                literal("true");
+                return JsonLogic.TRUE_NODE;
+            case 'f':
+                literal("false");
+                return JsonLogic.FALSE_NODE;
+            case 'n':
+                literal("null");
+                return new ConstantNode(new Result(null));
+            case '-':
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+                return new ConstantNode(new Result(number()));
+            case -1:
+                throw error("Unexpected end of the rule");
+            default:
+                throw error("Unexpected character '" + (char) at(pos) + "'");
+        }
+    }
+
+    /**
+     * Parses an operation after its opening brace, up to and including the
+     * closing brace.
+     */
+    private Node operation() throws ParseException {
+        if (peek() != '"') {
+            throw error("Expecting an operation");
+        }
+        int start = pos + 1;
+        int operator = operator();
+        int length = pos - start - 1;
+        expect(':');
+        Node node;
+        switch (operator) {
+            case AND: {
+                open();
+                AndNode and = new AndNode(value(), second());
+                while (next()) {
+                    and.add(value());
+                }
+                node = and;
+                break;
+            }
+            case OR: {
+                open();
+                OrNode or = new OrNode(value(), secondBranch());
+                while (next()) {
+                    or.add(branch());
+                }
+                node = or;
+                break;
+            }
+            case MAX: {
+                open();
+                MaxNode max = new MaxNode(value(), second());
+                while (next()) {
+                    max.add(value());
+                }
+                node = max;
+                break;
+            }
+            case MIN: {
+                open();
+                MinNode min = new MinNode(value(), second());
+                while (next()) {
+                    min.add(value());
+                }
+                node = min;
+                break;
+            }
+            case MULTIPLICATION: {
+                open();
+                MultiplicationNode multiplication = new MultiplicationNode(value(), second());
+                while (next()) {
+                    multiplication.add(value());
+                }
+                node = multiplication;
+                break;
+            }
+            case REDUCE: {
+                open();
+                ReduceNode reduce = new ReduceNode(value(), second());
+                while (next()) {
+                    reduce.add(value());
+                }
+                node = reduce;
+                break;
+            }
+            case ADDITION:
+                if (peek() == '"') {
+                    node = new AdditionCastingOverloadNode(value());
+                    break;
+                }
+                open();
+                AdditionNode addition = new AdditionNode(value(), second());
+                while (next()) {
+                    addition.add(value());
+                }
+                node = addition;
+                break;
+            case SUBTRACTION:
+                if (peek() == '"') {
+                    node = new AdditionCastingOverloadNode(value());
+                    break;
+                }
+                open();
+                Node minuend = value();
+                if (next()) {
+                    node = new SubtractionNode(minuend, value());
+                    expect(']');
+                } else {
+                    node = new SubtractionNegatingOverloadNode(minuend);
+                }
+                break;
+            case LESS_THAN:
+            case LESS_THAN_EQUALS: {
+                open();
+                Node first = value();
+                Node second = second();
+                if (next()) {
+                    Node third = value();
+                    expect(']');
+                    node = operator == LESS_THAN ? new BetweenNode(first, second, third)
+                            : new BetweenEqualsLeftNode(first, second, third);
+                } else {
+                    node = operator == LESS_THAN ? new LessThanNode(first, second)
+                            : new LessThanEqualsNode(first, second);
+                }
+                break;
+            }
+            case NOT:
+                if (peek() == '[') {
+                    pos++;
+                    node = new NotNode(value());
+                    expect(']');
+                } else if (peek() == 't' || peek() == 'f') {
+                    node = new NotNode(value());
+                } else {
+                    throw error("Expecting a boolean or an array of one boolean");
+                }
+                break;
+            case IF:
+                node = condition();
+                break;
+            case VAR:
+                node = var();
+                break;
+            case MISSING:
+                node = missing();
+                break;
+            case MERGE: {
+                open();
+                MergeNode merge = new MergeNode();
+                if (!empty()) {
+                    do {
+                        merge(merge);
+                    } while (next());
+                }
+                node = merge;
+                break;
+            }
+            case CAT: {
+                open();
+                CatNode cat = new CatNode();
+                if (!empty()) {
+                    do {
+                        cat.add(value());
+                    } while (next());
+                }
+                node = cat;
+                break;
+            }
+            case SUBSTR: {
+                open();
+                SubstrNode substr = new SubstrNode();
+                if (!empty()) {
+                    do {
+                        substr.add(value());
+                    } while (next());
+                }
+                node = substr;
+                break;
+            }
+            case LOG:
+                node = new LogNode(value());
+                break;
+            case UNKNOWN:
+                throw error("Unknown operation '" + text(start, length) + "'");
+            default: {
+                if (operator >= OPERATORS.length) {
+                    node = custom(operators.custom(operator));
+                    break;
+                }
+                open();
+                Node left = value();
+                Node right = second();
+                expect(']');
+                node = binary(operator, left, right);
+                break;
+            }
+        }
+        expect('}');
+        return node;
+    }
+
+    private Node binary(int operator, Node left, Node right) {
+        switch (operator) {
+            case EQUALS:
+                return new EqualsNode(left, right);
+            case STRICT_EQUALS:
+                return new StrictEqualsNode(left, right);
+            case NOT_EQUALS:
+                return new NotEqualsNode(left, right);
+            case STRICT_NOT_EQUALS:
+                return new StrictNotEqualsNode(left, right);
+            case GREATER_THAN:
+                return new GreaterThanNode(left, right);
+            case GREATER_THAN_EQUALS:
+                return new GreaterThanEqualsNode(left, right);
+            case DIVISION:
+                return new DivisionNode(left, right);
+            case MODULO:
+                return new ModuloNode(left, right);
+            case MISSING_SOME:
+                return new MissingSomeNode(left, right);
+            case IN:
+                return new InNode(left, right);
+            case ALL:
+                return new AllNode(left, right);
+            case SOME:
+                return new SomeNode(left, right);
+            case MAP:
+                return new MapNode(left, right);
+            case FILTER:
+                return new FilterNode(left, right);
+            default:
+                return new NoneNode(left, right);
+        }
+    }
+
+    /**
+     * 'if' with a missing else branch, or with no operands at all, gives
+     * null where it has no branch to take.
+     */
+    private Node condition() throws ParseException {
+        open();
+        if (empty()) {
+            return new IfNode(nullNode(), nullNode(), nullNode());
+        }
+        Node condition = value();
+        if (!next()) {
+            return new IfNode(condition, nullNode(), nullNode());
+        }
+        Node then = branch();
+        if (!next()) {
+            return new IfNode(condition, then, nullNode());
+        }
+        IfNode node = new IfNode(condition, then, branch());
+        while (next()) {
+            Node nextCondition = branch();
+            if (next()) {
+                node.addConditionNode(nextCondition, branch());
+            } else {
+                node.addConditionNode(nextCondition, nullNode());
+                return node;
+            }
+        }
+        return node;
+    }
+
+    private Node var() throws ParseException {
+        if (peek() != '[') {
+            return new VarNode(name());
+        }
+        pos++;
+        String name = name();
+        if (!next()) {
+            return new VarNode(name);
+        }
+        Result defaultResult;
+        switch (peek()) {
+            case 't':
+                literal("true");
+                defaultResult = JsonLogic.TRUE_RESULT;
+                break;
+            case 'f':
+                literal("false");
+                defaultResult = JsonLogic.FALSE_RESULT;
+                break;
+            case 'n':
+                literal("null");
+                defaultResult = NULL_RESULT;
+                break;
+            case '"':
+                defaultResult = new Result(string());
+                break;
+            default:
+                if (peek() != '-' && (peek() < '0' || peek() > '9')) {
+                    throw error("Expecting a number, string, boolean or null default");
+                }
+                defaultResult = new Result(number());
+                break;
+        }
+        expect(']');
+        return new VarNode(name, defaultResult);
+    }
+
+    /**
+     * The name of a variable is a string, or a number such as an index into
+     * an array, which is named by the number as it is written.
+     */
+    private String name() throws ParseException {
+        int c = peek();
+        if (c == '"') {
+            return string();
+        }
+        if (c != '-' && (c < '0' || c > '9')) {
+            throw error("Expecting the name of a variable");
+        }
+        int start = pos;
+        number();
+        return text(start, pos - start);
+    }
+
+    /**
+     * Two or more names are held the way they always have been, so that the
+     * tree, and with it the text of the rule, does not change.
+     */
+    private Node missing() throws ParseException {
+        MissingNode missing;
+        if (peek() == '{') {
+            missing = new MissingNode();
+            missing.add(value());
+            return missing;
+        }
+        open();
+        if (empty()) {
+            return new MissingNode();
+        }
+        Node first = value();
+        if (!next()) {
+            missing = new MissingNode();
+            missing.add(first);
+            return missing;
+        }
+        missing = new MissingNode(first, value());
+        while (next()) {
+            missing.add(value());
+        }
+        return missing;
+    }
+
+    /**
+     * Arrays written into 'merge' are flattened while parsing.
+     */
+    private void merge(MergeNode merge) throws ParseException {
+        if (peek() != '[') {
+            merge.add(value());
+            return;
+        }
+        pos++;
+        if (!empty()) {
+            do {
+                merge(merge);
+            } while (next());
+        }
+    }
+
+    /**
+     * A custom operator takes an array of operands, or a single operand
+     * written without one.
+     */
+    private Node custom(OperatorRegistry.Definition definition) throws ParseException {
+        Node[] operands;
+        if (peek() == '[') {
+            pos++;
+            ArrayList<Node> list = new ArrayList<>();
+            if (!empty()) {
+                do {
+                    list.add(value());
+                } while (next());
+            }
+            operands = list.toArray(new Node[list.size()]);
+        } else {
+            operands = new Node[]{value()};
+        }
+        CustomOperator operator = definition.factory.create(operands.length);
+        if (operator == null) {
+            throw error("No operator created for '" + definition.name + "'");
+        }
+        return new CustomNode(definition.name, operator, definition.pure, definition.cost, operands);
+    }
+
+    private static Node nullNode() {
+        return new ConstantNode(new Result(null));
+    }
+
+    /**
+     * Reads a quoted operator name and identifies it by the perfect hash of
+     * the operator table, hashing the characters as they are scanned, and
+     * leaves pos after the closing quote.
+     */
+    private int operator() throws ParseException {
+        int start = ++pos;
+        int hash = operators.seed();
+        while (pos < end) {
+            int c = at(pos);
+            if (c == '"') {
+                break;
+            }
+            if (c == '\\' || (c >= 0x80 && bytes != null)) {
+                // escaped names and multi-byte characters are unusual enough
+                // to take the slow path
+                pos = start - 1;
+                return operators.code(string());
+            }
+            hash = OperatorTable.mix(hash, c);
+            pos++;
+        }
+        if (pos >= end) {
+            throw error("Unterminated string");
+        }
+        int length = pos - start;
+        pos++;
+        int slot = operators.slot(hash);
+        String name = operators.name(slot);
+        if (name == null || name.length() != length || !matches(start, name)) {
+            return UNKNOWN;
+        }
+        return operators.code(slot);
+    }
+
+    private boolean matches(int start, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (at(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String string() throws ParseException {
+        int start = ++pos;
+        while (pos < end) {
+            int c = at(pos);
+            if (c == '"') {
+                String value = text(start, pos - start);
+                pos++;
+                return value;
+            }
+            if (c == '\\') {
+                return escapedString(start);
+            }
+            if (c < 0x20) {
+                throw error("Control character in string");
+            }
+            pos++;
+        }
+        throw error("Unterminated string");
+    }
+
+    private String escapedString(int start) throws ParseException {
+        StringBuilder builder = new StringBuilder(pos - start + 16);
+        builder.append(text(start, pos - start));
+        while (pos < end) {
+            int c = at(pos);
+            if (c == '"') {
+                pos++;
+                return builder.toString();
+            }
+            if (c < 0x20) {
+                throw error("Control character in string");
+            }
+            if (c != '\\') {
+                int run = pos;
+                while (pos < end && at(pos) != '"' && at(pos) != '\\' && at(pos) >= 0x20) {
+                    pos++;
+                }
+                builder.append(text(run, pos - run));
+                continue;
+            }
+            if (++pos >= end) {
+                break;
+            }
+            switch (at(pos++)) {
+                case '"':
+                    builder.append('"');
+                    break;
+                case '\\':
+                    builder.append('\\');
+                    break;
+                case '/':
+                    builder.append('/');
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    builder.append(unicode());
+                    break;
+                default:
+                    pos--;
+                    throw error("Invalid escape sequence");
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private char unicode() throws ParseException {
+        if (pos + 4 > end) {
+            throw error("Unterminated escape sequence");
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(at(pos++), 16);
+            if (digit < 0) {
+                pos--;
+                throw error("Invalid escape sequence");
+            }
+            value = value << 4 | digit;
+        }
+        return (char) value;
+    }
+
+    /**
+     * Reads a JSON number. Integers of up to 18 digits are accumulated
+     * directly; anything else goes through Double.parseDouble.
+     */
+    private double number() throws ParseException {
+        int start = pos;
+        boolean negative = at(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        int digits = pos;
+        long value = 0;
+        while (pos < end && at(pos) >= '0' && at(pos) <= '9') {
+            value = value * 10 + (at(pos) - '0');
+            pos++;
+        }
+        int count = pos - digits;
+        if (count == 0 || (count > 1 && at(digits) == '0')) {
+            throw error("Invalid number");
+        }
+        boolean integer = true;
+        if (pos < end && at(pos) == '.') {
+            integer = false;
+            pos++;
+            int fraction = pos;
+            while (pos < end && at(pos) >= '0' && at(pos) <= '9') {
+                pos++;
+            }
+            if (pos == fraction) {
+                throw error("Invalid number");
+            }
+        }
+        if (pos < end && (at(pos) == 'e' || at(pos) == 'E')) {
+            integer = false;
+            pos++;
+            if (pos < end && (at(pos) == '+' || at(pos) == '-')) {
+                pos++;
+            }
+            int exponent = pos;
+            while (pos < end && at(pos) >= '0' && at(pos) <= '9') {
+                pos++;
+            }
+            if (pos == exponent) {
+                throw error("Invalid number");
+            }
+        }
+        if (integer && count <= 18) {
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(text(start, pos - start));
+    }
+
+    private void literal(String word) throws ParseException {
+        if (end - pos < word.length() || !matches(pos, word)) {
+            throw error("Expecting '" + word + "'");
+        }
+        pos += word.length();
+    }
+
+    /**
+     * Consumes the opening bracket of an operand list.
+     */
+    private void open() throws ParseException {
+        if (peek() != '[') {
+            throw error("Expecting an array of operands");
+        }
+        pos++;
+    }
+
+    /**
+     * Consumes the separator before a required operand and parses it.
+     */
+    private Node second() throws ParseException {
+        if (peek() != ',') {
+            throw error("Expecting another operand");
+        }
+        pos++;
+        return value();
+    }
+
+    private Node secondBranch() throws ParseException {
+        if (peek() != ',') {
+            throw error("Expecting another operand");
+        }
+        pos++;
+        return branch();
+    }
+
+    /**
+     * Parses an operand that evaluation may never reach. When parsing
+     * lazily, an operand written in at least the given number of characters
+     * is only scanned for its end, and kept as a LazyNode over them.
+     */
+    private Node branch() throws ParseException {
+        if (lazy == 0 || chars == null) {
+            return value();
+        }
+        peek();
+        int start = pos;
+        skip();
+        if (pos - start < lazy) {
+            pos = start;
+            return value();
+        }
+        return new LazyNode(operators, chars, start, pos - start, lazy);
+    }
+
+    /**
+     * Moves pos to the end of the value starting there, matching brackets
+     * and braces and stepping over strings, without checking anything else;
+     * the rest is checked when the value is parsed.
+     */
+    private void skip() throws ParseException {
+        int depth = 0;
+        while (pos < end) {
+            switch (at(pos)) {
+                case '"':
+                    pos++;
+                    while (pos < end && at(pos) != '"') {
+                        pos += at(pos) == '\\' ? 2 : 1;
+                    }
+                    if (pos >= end) {
+                        throw error("Unterminated string");
+                    }
+                    pos++;
+                    if (depth == 0) {
+                        return;
+                    }
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    pos++;
+                    break;
+                case '}':
+                case ']':
+                    if (depth == 0) {
+                        return;
+                    }
+                    pos++;
+                    if (--depth == 0) {
+                        return;
+                    }
+                    break;
+                case ',':
+                    if (depth == 0) {
+                        return;
+                    }
+                    pos++;
+                    break;
+                default:
+                    pos++;
+                    break;
+            }
+        }
+        if (depth > 0) {
+            throw error("Unexpected end of the rule");
+        }
+    }
+
+    /**
+     * Consumes the closing bracket of an array that has just been opened if
+     * the array is empty.
+     */
+    private boolean empty() {
+        if (peek() == ']') {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * After an element of an array, consumes the comma before another
+     * element and returns true, or the closing bracket and returns false.
+     */
+    private boolean next() throws ParseException {
+        int c = peek();
+        if (c == ',') {
+            pos++;
+            return true;
+        }
+        if (c == ']') {
+            pos++;
+            return false;
+        }
+        throw error("Expecting ',' or ']'");
+    }
+
+    private void expect(char c) throws ParseException {
+        if (peek() != c) {
+            throw error("Expecting '" + c + "'");
+        }
+        pos++;
+    }
+
+    /**
+     * Skips whitespace and returns the next character without consuming it,
+     * or -1 at the end of the rule.
+     */
+    private int peek() {
+        while (pos < end) {
+            int c = at(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private int at(int index) {
+        return chars != null ? chars[index] : bytes[index] & 0xff;
+    }
+
+    private String text(int start, int length) {
+        return chars != null ? new String(chars, start, length)
+                : new String(bytes, start, length, StandardCharsets.UTF_8);
+    }
+
+    private ParseException error(String message) {
+        return new ParseException(message + " at position " + (Math.min(pos, end) - origin));
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.Gson;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * RuleSet is a named collection of JsonLogicTrees that are evaluated together
+ * against the same data. Each data record is converted once and shared by
+ * every rule in the set.
+ *
+ * @author Richard
+ */
+public class RuleSet {
+
+    private final Map<String, JsonLogicTree> trees = new LinkedHashMap<>();
+    private final Map<String, Long> weights = new HashMap<>();
+    private final Gson gson;
+    private final long maximumBytes;
+    private long bytes;
+
+    public RuleSet() {
+        this(0);
+    }
+
+    /**
+     * @param maximumBytes the estimated heap the trees of the set may take,
+     * 0 for no limit
+     * @see JsonLogicTree#estimateRetainedBytes()
+     */
+    public RuleSet(long maximumBytes) {
+        gson = new Gson();
+        this.maximumBytes = maximumBytes;
+    }
+
+    /**
+     * Adds a tree to the set, replacing any tree already held under the name.
+     *
+     * @param name the name the results of the tree are reported under
+     * @param tree the tree
+     * @throws IllegalStateException if the set would grow beyond its byte
+     * budget; the set is then left as it was
+     */
+    public void add(String name, JsonLogicTree tree) {
+        long weight = tree.estimateRetainedBytes();
+        Long replaced = weights.get(name);
+        long total = bytes + weight - (replaced == null ? 0 : replaced);
+        if (maximumBytes > 0 && total > maximumBytes) {
+            throw new IllegalStateException("adding " + name + " would take the rule set to " + total
+                    + " bytes, over its budget of " + maximumBytes);
+        }
+        trees.put(name, tree);
+        weights.put(name, weight);
+        bytes = total;
+    }
+
+    public JsonLogicTree get(String name) {
+        return trees.get(name);
+    }
+
+    public JsonLogicTree remove(String name) {
+        Long weight = weights.remove(name);
+        if (weight != null) {
+            bytes -= weight;
+        }
+        return trees.remove(name);
+    }
+
+    /**
+     * @return the estimated heap taken by the trees of the set, as they
+     * were weighed when added
+     */
+    public long getEstimatedRetainedBytes() {
+        return bytes;
+    }
+
+    public Set<String> names() {
+        return Collections.unmodifiableSet(trees.keySet());
+    }
+
+    public int size() {
+        return trees.size();
+    }
+
+    /**
+     * Applies the value of data to every tree of the set.
+     *
+     * @param data A String containing JSON
+     * @return the result of each tree keyed by its name, in insertion order
+     */
+    public Map<String, Result> evaluate(String data) throws ParseException, EvaluationException {
+        Map<String, Result> converted = JsonLogicTree.convertData(gson, data);
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonLogicTree> entry : trees.entrySet()) {
+            results.put(entry.getKey(), entry.getValue().evaluate(converted));
+        }
+        return results;
+    }
+
+    /**
+     * Evaluates every data record of the list in parallel on the common
+     * ForkJoinPool.
+     *
+     * @param data Strings containing JSON
+     * @return the results of each record, in the same order as the data
+     */
+    public List<Map<String, Result>> evaluateAll(List<String> data) throws ParseException, EvaluationException {
+        return evaluateAll(data, null);
+    }
+
+    /**
+     * Evaluates every data record of the list in parallel on the given
+     * executor.
+     *
+     * @param data Strings containing JSON
+     * @param executor the executor to run on, or null for the common pool
+     * @return the results of each record, in the same order as the data
+     * @see JsonLogicTree#evaluateAll(List, Executor)
+     */
+    public List<Map<String, Result>> evaluateAll(List<String> data, Executor executor) throws ParseException, EvaluationException {
+        return ParallelBatch.run(data, executor, this::evaluate);
+    }
+
+    /**
+     * Evaluates every data record produced by the iterator in parallel on the
+     * common ForkJoinPool.
+     *
+     * @param data an iterator over Strings containing JSON
+     * @return the results of each record, in the same order as the data
+     */
+    public List<Map<String, Result>> evaluateAll(Iterator<String> data) throws ParseException, EvaluationException {
+        return evaluateAll(data, null);
+    }
+
+    /**
+     * Evaluates every data record produced by the iterator in parallel on the
+     * given executor. The iterator is only ever read by the calling thread.
+     *
+     * @param data an iterator over Strings containing JSON
+     * @param executor the executor to run on, or null for the common pool
+     * @return the results of each record, in the same order as the data
+     */
+    public List<Map<String, Result>> evaluateAll(Iterator<String> data, Executor executor) throws ParseException, EvaluationException {
+        return ParallelBatch.run(data, executor, this::evaluate);
+    }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+/**
+ * The plain Java loops behind ColumnKernels, used on every JDK. Each method
+ * processes the rows from index from up to, but not including, index to.
+ *
+ * @author Richard
+ */
+class ScalarKernels {
+
+    void compare(int op, double[] a, double[] b, long[] out, int from, int to) {
+        switch (op) {
+            case ColumnKernels.LT:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a[i] < b[i] ? 1L : 0L) << i;
+                }
+                return;
+            case ColumnKernels.LE:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a[i] <= b[i] ? 1L : 0L) << i;
+                }
+                return;
+            case ColumnKernels.GT:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a[i] > b[i] ? 1L : 0L) << i;
+                }
+                return;
+            case ColumnKernels.GE:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a[i] >= b[i] ? 1L : 0L) << i;
+                }
+                return;
+            default:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (Double.doubleToLongBits(a[i]) == Double.doubleToLongBits(b[i]) ? 1L : 0L) << i;
+                }
+        }
+    }
+
+    void compare(int op, double[] a, double b, long[] out, int from, int to) {
+        switch (op) {
+            case ColumnKernels.LT:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a[i] < b ? 1L : 0L) << i;
+                }
+                return;
+            case ColumnKernels.LE:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a[i] <= b ? 1L : 0L) << i;
+                }
+                return;
+            case ColumnKernels.GT:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a[i] > b ? 1L : 0L) << i;
+                }
+                return;
+            case ColumnKernels.GE:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a[i] >= b ? 1L : 0L) << i;
+                }
+                return;
+            default:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (Double.doubleToLongBits(a[i]) == Double.doubleToLongBits(b) ? 1L : 0L) << i;
+                }
+        }
+    }
+
+    void compare(int op, double a, double[] b, long[] out, int from, int to) {
+        switch (op) {
+            case ColumnKernels.LT:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a < b[i] ? 1L : 0L) << i;
+                }
+                return;
+            case ColumnKernels.LE:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a <= b[i] ? 1L : 0L) << i;
+                }
+                return;
+            case ColumnKernels.GT:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a > b[i] ? 1L : 0L) << i;
+                }
+                return;
+            case ColumnKernels.GE:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (a >= b[i] ? 1L : 0L) << i;
+                }
+                return;
+            default:
+                for (int i = from; i < to; i++) {
+                    out[i >> 6] |= (Double.doubleToLongBits(a) == Double.doubleToLongBits(b[i]) ? 1L : 0L) << i;
+                }
+        }
+    }
+
+    void arithmetic(int op, double[] a, double[] b, double[] out, int from, int to) {
+        switch (op) {
+            case ColumnKernels.ADD:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] + b[i];
+                }
+                return;
+            case ColumnKernels.SUB:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] - b[i];
+                }
+                return;
+            case ColumnKernels.MUL:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] * b[i];
+                }
+                return;
+            case ColumnKernels.DIV:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] / b[i];
+                }
+                return;
+            default:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] % b[i];
+                }
+        }
+    }
+
+    void arithmetic(int op, double[] a, double b, double[] out, int from, int to) {
+        switch (op) {
+            case ColumnKernels.ADD:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] + b;
+                }
+                return;
+            case ColumnKernels.SUB:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] - b;
+                }
+                return;
+            case ColumnKernels.MUL:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] * b;
+                }
+                return;
+            case ColumnKernels.DIV:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] / b;
+                }
+                return;
+            default:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] % b;
+                }
+        }
+    }
+
+    void arithmetic(int op, double a, double[] b, double[] out, int from, int to) {
+        switch (op) {
+            case ColumnKernels.ADD:
+                for (int i = from; i < to; i++) {
+                    out[i] = a + b[i];
+                }
+                return;
+            case ColumnKernels.SUB:
+                for (int i = from; i < to; i++) {
+                    out[i] = a - b[i];
+                }
+                return;
+            case ColumnKernels.MUL:
+                for (int i = from; i < to; i++) {
+                    out[i] = a * b[i];
+                }
+                return;
+            case ColumnKernels.DIV:
+                for (int i = from; i < to; i++) {
+                    out[i] = a / b[i];
+                }
+                return;
+            default:
+                for (int i = from; i < to; i++) {
+                    out[i] = a % b[i];
+                }
+        }
+    }
+
+    void notZero(double[] a, long[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i >> 6] |= (a[i] != 0 ? 1L : 0L) << i;
+        }
+    }
+
+    void equal(int[] codes, int code, long[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i >> 6] |= (codes[i] == code ? 1L : 0L) << i;
+        }
+    }
+
+    void equal(int[] a, int[] b, long[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i >> 6] |= (a[i] == b[i] ? 1L : 0L) << i;
+        }
+    }
+
+    void and(long[] a, long[] b, long[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = a[i] & b[i];
+        }
+    }
+
+    void or(long[] a, long[] b, long[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = a[i] | b[i];
+        }
+    }
+
+    void andNot(long[] a, long[] b, long[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = a[i] & ~b[i];
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recent evaluations that took at least a threshold, plus a
+ * random sample of one in N of all the others, in a fixed size ring. Each
+ * captured evaluation holds the rule and a copy of its data, so it can be
+ * replayed offline or profiled node by node with CapturedEvaluation.getProfile().
+ *
+ * Recording is lock-free: threads claim slots of the ring with a single
+ * atomic increment and the oldest captures are overwritten.
+ *
+ * @author Richard
+ */
+public class SlowEvaluationRecorder {
+
+    private final long thresholdNanos;
+    private final int sampleEvery;
+    private final AtomicReferenceArray<CapturedEvaluation> ring;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param thresholdNanos evaluations taking at least this long are always
+     * captured
+     * @param sampleEvery one in this many of the other evaluations is
+     * captured, 0 to capture none of them
+     * @param capacity the number of captured evaluations kept
+     */
+    public SlowEvaluationRecorder(long thresholdNanos, int sampleEvery, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.thresholdNanos = thresholdNanos;
+        this.sampleEvery = sampleEvery;
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    void record(JsonLogicTree tree, Map<String, Result> data, String json, long nanos) {
+        boolean slow = nanos >= thresholdNanos;
+        if (!slow && (sampleEvery <= 0 || ThreadLocalRandom.current().nextInt(sampleEvery) != 0)) {
+            return;
+        }
+        long seq = sequence.getAndIncrement();
+        ring.set((int) (seq % ring.length()), new CapturedEvaluation(seq, tree.root(), tree.getFingerprint(),
+                new HashMap<>(data), json, nanos, !slow));
+    }
+
+    /**
+     * Returns the evaluations currently in the ring, oldest first.
+     */
+    public List<CapturedEvaluation> getCaptured() {
+        List<CapturedEvaluation> captured = new ArrayList<>(ring.length());
+        for (int i = 0; i < ring.length(); i++) {
+            CapturedEvaluation evaluation = ring.get(i);
+            if (evaluation != null) {
+                captured.add(evaluation);
+            }
+        }
+        captured.sort(Comparator.comparingLong(CapturedEvaluation::getSequence));
+        return captured;
+    }
+
+    public void clear() {
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, null);
+        }
+    }
+
+}
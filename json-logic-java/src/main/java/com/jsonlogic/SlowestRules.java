@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the rules with the slowest single evaluations, at most one entry per
+ * rule. Slots are replaced with compare-and-set; an evaluation that is not
+ * slower than the fastest of a full table costs one volatile read. Nothing
+ * on the evaluation path takes a lock, and the text of a rule is only
+ * written when the table is read.
+ *
+ * Two threads inserting the same rule at once can leave it in two slots;
+ * getSlowest() merges them. The floor is raised with compare-and-set and
+ * clear() replaces it, so a floor computed from slots that clear() has
+ * since emptied cannot outlive it.
+ *
+ * @author Richard
+ */
+final class SlowestRules {
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final AtomicReference<Floor> floor = new AtomicReference<>(new Floor(0));
+
+    SlowestRules(int size) {
+        slots = new AtomicReferenceArray<>(size);
+    }
+
+    void record(JsonLogicTree tree, long nanos) {
+        if (nanos <= floor.get().nanos) {
+            return;
+        }
+        long fingerprint = tree.getFingerprint();
+        while (true) {
+            int victim = -1;
+            Slot current = null;
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < slots.length(); i++) {
+                Slot slot = slots.get(i);
+                if (slot == null) {
+                    if (victim < 0 || current != null) {
+                        victim = i;
+                        current = null;
+                        min = -1;
+                    }
+                } else if (slot.fingerprint == fingerprint) {
+                    victim = i;
+                    current = slot;
+                    min = slot.nanos;
+                    break;
+                } else if (slot.nanos < min) {
+                    victim = i;
+                    current = slot;
+                    min = slot.nanos;
+                }
+            }
+            if (nanos <= min) {
+                return;
+            }
+            if (slots.compareAndSet(victim, current, new Slot(fingerprint, tree, nanos))) {
+                raiseFloor();
+                return;
+            }
+        }
+    }
+
+    private void raiseFloor() {
+        while (true) {
+            Floor before = floor.get();
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < slots.length(); i++) {
+                Slot slot = slots.get(i);
+                if (slot == null) {
+                    return;
+                }
+                min = Math.min(min, slot.nanos);
+            }
+            if (min <= before.nanos || floor.compareAndSet(before, new Floor(min))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the rules, slowest first
+     */
+    List<RuleLatency> getSlowest() {
+        Map<Long, Slot> byRule = new HashMap<>();
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot != null) {
+                byRule.merge(slot.fingerprint, slot, (a, b) -> a.nanos >= b.nanos ? a : b);
+            }
+        }
+        List<RuleLatency> slowest = new ArrayList<>(byRule.size());
+        for (Slot slot : byRule.values()) {
+            slowest.add(new RuleLatency(slot.fingerprint, slot.tree.treeToString(), slot.nanos));
+        }
+        slowest.sort(Comparator.comparingLong(RuleLatency::getMaxNanos).reversed());
+        return slowest;
+    }
+
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+        floor.set(new Floor(0));
+    }
+
+    private static final class Slot {
+
+        final long fingerprint;
+        final JsonLogicTree tree;
+        final long nanos;
+
+        Slot(long fingerprint, JsonLogicTree tree, long nanos) {
+            this.fingerprint = fingerprint;
+            this.tree = tree;
+            this.nanos = nanos;
+        }
+    }
+
+    private static final class Floor {
+
+        final long nanos;
+
+        Floor(long nanos) {
+            this.nanos = nanos;
+        }
+    }
+
+}
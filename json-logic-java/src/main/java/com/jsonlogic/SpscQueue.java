@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free queue for exactly one producer thread and one consumer
+ * thread. The producer and the consumer each cache the other side's index so
+ * that the shared counters are only read when the queue looks full or empty.
+ *
+ * put() and take() spin and yield for a while, then park until the other
+ * side unparks them, so an idle side costs nothing. The counters are written
+ * with a full fence so that a side about to park and the side moving the
+ * other counter cannot both miss each other.
+ *
+ * @author Richard
+ */
+final class SpscQueue<E> {
+
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+
+    private final AtomicLong head = new PaddedAtomicLong();
+    private long cachedTail;
+
+    private final AtomicLong tail = new PaddedAtomicLong();
+    private long cachedHead;
+
+    private volatile Thread parkedProducer;
+    private volatile Thread parkedConsumer;
+
+    SpscQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        buffer = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Called by the producer only.
+     *
+     * @return false if the queue is full
+     */
+    boolean offer(E element) {
+        long t = tail.get();
+        if (t - cachedHead > mask) {
+            cachedHead = head.get();
+            if (t - cachedHead > mask) {
+                return false;
+            }
+        }
+        buffer.lazySet((int) t & mask, element);
+        tail.set(t + 1);
+        Thread consumer = parkedConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Called by the producer only. Waits while the queue is full.
+     */
+    void put(E element) {
+        int idle = 0;
+        while (!offer(element)) {
+            if (idle < SPINS + YIELDS) {
+                idle = idle(idle);
+                continue;
+            }
+            parkedProducer = Thread.currentThread();
+            if (offer(element)) {
+                parkedProducer = null;
+                return;
+            }
+            LockSupport.park(this);
+            parkedProducer = null;
+        }
+    }
+
+    /**
+     * Called by the consumer only.
+     *
+     * @return null if the queue is empty
+     */
+    E poll() {
+        long h = head.get();
+        if (h >= cachedTail) {
+            cachedTail = tail.get();
+            if (h >= cachedTail) {
+                return null;
+            }
+        }
+        int index = (int) h & mask;
+        E element = buffer.get(index);
+        buffer.lazySet(index, null);
+        head.set(h + 1);
+        Thread producer = parkedProducer;
+        if (producer != null) {
+            LockSupport.unpark(producer);
+        }
+        return element;
+    }
+
+    /**
+     * Called by the consumer only. Waits while the queue is empty.
+     */
+    E take() {
+        int idle = 0;
+        E element;
+        while ((element = poll()) == null) {
+            if (idle < SPINS + YIELDS) {
+                idle = idle(idle);
+                continue;
+            }
+            parkedConsumer = Thread.currentThread();
+            element = poll();
+            if (element != null) {
+                parkedConsumer = null;
+                return element;
+            }
+            LockSupport.park(this);
+            parkedConsumer = null;
+        }
+        return element;
+    }
+
+    private static int idle(int idle) {
+        if (idle >= SPINS) {
+            Thread.yield();
+        }
+        return idle + 1;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class PaddedAtomicLong extends AtomicLong {
+
+        private static final long serialVersionUID = 1L;
+
+        // keeps the producer and consumer counters on separate cache lines
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+}
@@ -45,5 +45,29 @@ class StrictEqualsNode extends BinaryNode {
     boolean isConstant() {
         return left.isConstant() && right.isConstant();
     }
-    
+
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        Column leftColumn = left.evalColumn(batch, selection);
+        Column rightColumn = right.evalColumn(batch, selection);
+        int rows = batch.rows();
+        long[] bits = Column.compare(ColumnKernels.EQ, leftColumn, rightColumn, rows);
+        if (bits != null) {
+            return new Column.Booleans(bits);
+        }
+        long[] leftBits = Column.booleans(leftColumn, rows);
+        long[] rightBits = Column.booleans(rightColumn, rows);
+        if (leftBits == null || rightBits == null) {
+            return super.evalColumn(batch, selection);
+        }
+        // equal booleans are the rows where both bits are set or both are clear
+        long[] both = new long[leftBits.length];
+        long[] neither = new long[leftBits.length];
+        ColumnKernels.and(leftBits, rightBits, both);
+        ColumnKernels.or(leftBits, rightBits, neither);
+        ColumnKernels.andNot(Column.all(rows), neither, neither);
+        ColumnKernels.or(both, neither, both);
+        return new Column.Booleans(both);
+    }
+
 }
@@ -40,6 +40,27 @@ class SubtractionNegatingOverloadNode extends Node {
         return tryNegate(node,data);
     }
 
+    @Override
+    int childCount() {
+        return 1;
+    }
+
+    @Override
+    Node child(int index) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return node;
+    }
+
+    @Override
+    void setChild(int index, Node child) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        node = child;
+    }
+
     @Override
     boolean isConstant() {
         return node.isConstant();
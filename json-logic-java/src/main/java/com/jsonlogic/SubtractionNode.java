@@ -38,4 +38,9 @@ class SubtractionNode extends BinaryNode {
         return null;
     }
 
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) throws EvaluationException {
+        return arithmeticColumns(batch, selection, ColumnKernels.SUB);
+    }
+
 }
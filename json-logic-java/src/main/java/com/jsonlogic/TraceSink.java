@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+/**
+ * Receives the output of 'log' operations and, when enabled, a trace of
+ * every evaluation. A sink is installed with JsonLogic.setTraceSink(); with
+ * none installed nothing is formatted at all. The methods are called on the
+ * evaluating threads, so a sink that does I/O should be wrapped in an
+ * AsyncTraceSink.
+ *
+ * @author Richard
+ */
+public interface TraceSink {
+
+    /**
+     * Receives the value of a 'log' operation.
+     *
+     * @param expression the logged expression, as treeToString() writes it
+     * @param result its value
+     */
+    void log(String expression, Result result);
+
+    /**
+     * Receives one evaluation of a tree, if evaluation tracing was turned on
+     * when the sink was installed.
+     *
+     * @param fingerprint JsonLogicTree.getFingerprint() of the tree
+     * @param result the result of the evaluation
+     * @param nanos how long the evaluation took
+     */
+    default void evaluation(long fingerprint, Result result, long nanos) {
+    }
+
+    /**
+     * Called before anything is formatted for a record. Returning false
+     * drops the record at almost no cost.
+     */
+    default boolean sample() {
+        return true;
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+/**
+ * Holds the installed TraceSink. The fields are read on every 'log'
+ * operation and every evaluation, so uninstalled tracing costs one read.
+ *
+ * @author Richard
+ */
+final class Tracing {
+
+    private static volatile TraceSink logSink;
+    private static volatile TraceSink evaluationSink;
+
+    private Tracing() {
+    }
+
+    static void install(TraceSink sink, boolean traceEvaluations) {
+        logSink = sink;
+        evaluationSink = traceEvaluations ? sink : null;
+    }
+
+    static TraceSink logSink() {
+        return logSink;
+    }
+
+    static TraceSink evaluationSink() {
+        return evaluationSink;
+    }
+
+}
@@ -0,0 +1,737 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The binary form of a tree, which loads without parsing any JSON. A tree is
+ * written as
+ * <pre>
+ * int     magic number, "JLTB"
+ * byte    format version
+ * varint  length of the rest of the tree
+ * long    fingerprint of the rule
+ * varint  number of constants, then the constants
+ * varint  number of variable slots, then their names
+ * nodes   in pre-order: the opcode, then
+ *           a constant for a constant,
+ *           a slot and a constant for the default of a var,
+ *           the constant naming it for a custom operator,
+ *           the number of operands for operators that take any number,
+ *           the constant holding the text and the minimum length for a
+ *           branch a lazy parse has not parsed yet,
+ *         followed by the operands
+ * </pre>
+ * Integers are big-endian and varints are unsigned LEB128. Constants and
+ * slots are referred to by their index. A constant is a tag followed by its
+ * value: integral doubles as zigzag varints, other doubles in 8 bytes,
+ * strings as their UTF-8 length and bytes, arrays and objects as their size
+ * and elements.
+ * <p>
+ * Opcodes and tags are never renumbered; new ones are added at the end, and
+ * VERSION is raised when the layout changes. Trees can be written one after
+ * the other into the same file.
+ *
+ * @author Richard
+ */
+final class TreeFormat {
+
+    static final int MAGIC = 0x4A4C5442;
+    static final int VERSION = 2;
+
+    private static final int CONSTANT = 0;
+    private static final int VAR = 1;
+    private static final int EQUALS = 2;
+    private static final int STRICT_EQUALS = 3;
+    private static final int NOT_EQUALS = 4;
+    private static final int STRICT_NOT_EQUALS = 5;
+    private static final int GREATER_THAN = 6;
+    private static final int GREATER_THAN_EQUALS = 7;
+    private static final int LESS_THAN = 8;
+    private static final int LESS_THAN_EQUALS = 9;
+    private static final int BETWEEN = 10;
+    private static final int BETWEEN_EQUALS_LEFT = 11;
+    private static final int AND = 12;
+    private static final int OR = 13;
+    private static final int NOT = 14;
+    private static final int IF = 15;
+    private static final int MAX = 16;
+    private static final int MIN = 17;
+    private static final int ADDITION = 18;
+    private static final int ADDITION_CASTING = 19;
+    private static final int MULTIPLICATION = 20;
+    private static final int SUBTRACTION = 21;
+    private static final int SUBTRACTION_NEGATING = 22;
+    private static final int DIVISION = 23;
+    private static final int MODULO = 24;
+    private static final int MISSING = 25;
+    private static final int MISSING_PAIR = 26;
+    private static final int MISSING_SOME = 27;
+    private static final int MERGE = 28;
+    private static final int CAT = 29;
+    private static final int IN = 30;
+    private static final int ARRAY = 31;
+    private static final int ALL = 32;
+    private static final int SOME = 33;
+    private static final int NONE = 34;
+    private static final int MAP = 35;
+    private static final int FILTER = 36;
+    private static final int REDUCE = 37;
+    private static final int SUBSTR = 38;
+    private static final int LOG = 39;
+    private static final int CUSTOM = 40;
+    private static final int LAZY = 41;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_FALSE = 1;
+    private static final int TAG_TRUE = 2;
+    private static final int TAG_INTEGER = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_STRING = 5;
+    private static final int TAG_ARRAY = 6;
+    private static final int TAG_OBJECT = 7;
+    private static final int TAG_LONG = 8;
+    private static final int TAG_DECIMAL = 9;
+
+    private static final Map<Class<?>, Integer> OPCODES = new HashMap<>();
+
+    static {
+        OPCODES.put(ConstantNode.class, CONSTANT);
+        OPCODES.put(VarNode.class, VAR);
+        OPCODES.put(EqualsNode.class, EQUALS);
+        OPCODES.put(StrictEqualsNode.class, STRICT_EQUALS);
+        OPCODES.put(NotEqualsNode.class, NOT_EQUALS);
+        OPCODES.put(StrictNotEqualsNode.class, STRICT_NOT_EQUALS);
+        OPCODES.put(GreaterThanNode.class, GREATER_THAN);
+        OPCODES.put(GreaterThanEqualsNode.class, GREATER_THAN_EQUALS);
+        OPCODES.put(LessThanNode.class, LESS_THAN);
+        OPCODES.put(LessThanEqualsNode.class, LESS_THAN_EQUALS);
+        OPCODES.put(BetweenNode.class, BETWEEN);
+        OPCODES.put(BetweenEqualsLeftNode.class, BETWEEN_EQUALS_LEFT);
+        OPCODES.put(AndNode.class, AND);
+        OPCODES.put(OrNode.class, OR);
+        OPCODES.put(NotNode.class, NOT);
+        OPCODES.put(IfNode.class, IF);
+        OPCODES.put(MaxNode.class, MAX);
+        OPCODES.put(MinNode.class, MIN);
+        OPCODES.put(AdditionNode.class, ADDITION);
+        OPCODES.put(AdditionCastingOverloadNode.class, ADDITION_CASTING);
+        OPCODES.put(MultiplicationNode.class, MULTIPLICATION);
+        OPCODES.put(SubtractionNode.class, SUBTRACTION);
+        OPCODES.put(SubtractionNegatingOverloadNode.class, SUBTRACTION_NEGATING);
+        OPCODES.put(DivisionNode.class, DIVISION);
+        OPCODES.put(ModuloNode.class, MODULO);
+        OPCODES.put(MissingNode.class, MISSING);
+        OPCODES.put(MissingSomeNode.class, MISSING_SOME);
+        OPCODES.put(MergeNode.class, MERGE);
+        OPCODES.put(CatNode.class, CAT);
+        OPCODES.put(InNode.class, IN);
+        OPCODES.put(ArrayNode.class, ARRAY);
+        OPCODES.put(AllNode.class, ALL);
+        OPCODES.put(SomeNode.class, SOME);
+        OPCODES.put(NoneNode.class, NONE);
+        OPCODES.put(MapNode.class, MAP);
+        OPCODES.put(FilterNode.class, FILTER);
+        OPCODES.put(ReduceNode.class, REDUCE);
+        OPCODES.put(SubstrNode.class, SUBSTR);
+        OPCODES.put(LogNode.class, LOG);
+        OPCODES.put(CustomNode.class, CUSTOM);
+    }
+
+    private TreeFormat() {
+    }
+
+    static void write(Node root, long fingerprint, OutputStream out) throws IOException {
+        Writer writer = new Writer();
+        writer.node(root);
+        ByteArrayOutputStream body = new ByteArrayOutputStream(
+                24 + writer.constants.size() + writer.nodes.size());
+        new DataOutputStream(body).writeLong(fingerprint);
+        varint(body, writer.constantCount);
+        writer.constants.writeTo(body);
+        varint(body, writer.variables.size());
+        for (String name : writer.variables.keySet()) {
+            string(body, name);
+        }
+        writer.nodes.writeTo(body);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(10);
+        DataOutputStream data = new DataOutputStream(header);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        varint(header, body.size());
+        header.writeTo(out);
+        body.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Reads the tree at the buffer's position and moves the position past
+     * it. Nothing of the buffer is kept by the nodes.
+     */
+    static JsonLogicTree read(ByteBuffer buffer, OperatorTable operators, Gson gson, JsonLogicMetrics metrics)
+            throws ParseException {
+        ByteBuffer in = buffer.duplicate();
+        try {
+            if (in.remaining() < 6 || in.getInt() != MAGIC) {
+                throw new ParseException("Not a binary JsonLogic tree");
+            }
+            int version = in.get() & 0xff;
+            if (version != VERSION) {
+                throw new ParseException("Unsupported binary tree version " + version);
+            }
+            int length = new Reader(in, operators).count();
+            ByteBuffer body = in.slice();
+            ((Buffer) body).limit(length);
+            Reader reader = new Reader(body, operators);
+            Node node = reader.tree();
+            ((Buffer) buffer).position(in.position() + length);
+            return new JsonLogicTree(node, reader.fingerprint, gson, metrics);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+            throw new ParseException("Truncated binary tree", ex);
+        }
+    }
+
+    private static final class Writer {
+
+        final ByteArrayOutputStream constants = new ByteArrayOutputStream();
+        final ByteArrayOutputStream nodes = new ByteArrayOutputStream();
+        final Map<Object, Integer> constantIndexes = new HashMap<>();
+        final Map<String, Integer> variables = new LinkedHashMap<>();
+        int constantCount;
+
+        void node(Node node) throws IOException {
+            if (node instanceof LazyNode) {
+                LazyNode lazy = (LazyNode) node;
+                String text = lazy.unparsedText();
+                if (text == null) {
+                    node(lazy.child(0));
+                    return;
+                }
+                nodes.write(LAZY);
+                varint(nodes, constant(text));
+                varint(nodes, lazy.minimumLength());
+                return;
+            }
+            Integer opcode = OPCODES.get(node.getClass());
+            if (opcode == null) {
+                throw new NotSerializableException(node.getClass().getName());
+            }
+            switch (opcode) {
+                case CONSTANT:
+                    nodes.write(CONSTANT);
+                    varint(nodes, constant(((ConstantNode) node).result().getCastedValue()));
+                    return;
+                case VAR: {
+                    VarNode var = (VarNode) node;
+                    nodes.write(VAR);
+                    varint(nodes, variable(var.name()));
+                    varint(nodes, constant(var.defaultResult().getCastedValue()));
+                    return;
+                }
+                case CUSTOM:
+                    nodes.write(CUSTOM);
+                    varint(nodes, constant(((CustomNode) node).name()));
+                    varint(nodes, node.childCount());
+                    break;
+                case MISSING:
+                    // the two constructors give different text
+                    opcode = " missing ".equals(((MultiNode) node).operator) ? MISSING_PAIR : MISSING;
+                    nodes.write(opcode);
+                    varint(nodes, node.childCount());
+                    break;
+                default:
+                    nodes.write(opcode);
+                    if (isVariadic(opcode)) {
+                        varint(nodes, node.childCount());
+                    }
+                    break;
+            }
+            for (int i = 0; i < node.childCount(); i++) {
+                node(node.child(i));
+            }
+        }
+
+        /**
+         * Scalars are pooled; arrays and objects are mutable, so each
+         * occurrence gets a constant of its own.
+         */
+        int constant(Object value) throws IOException {
+            boolean pooled = !(value instanceof JsonArray || value instanceof JsonObject);
+            if (pooled) {
+                Integer index = constantIndexes.get(value);
+                if (index != null) {
+                    return index;
+                }
+            }
+            value(constants, value);
+            if (pooled) {
+                constantIndexes.put(value, constantCount);
+            }
+            return constantCount++;
+        }
+
+        int variable(String name) {
+            Integer slot = variables.get(name);
+            if (slot == null) {
+                slot = variables.size();
+                variables.put(name, slot);
+            }
+            return slot;
+        }
+    }
+
+    private static boolean isVariadic(int opcode) {
+        switch (opcode) {
+            case AND:
+            case OR:
+            case IF:
+            case MAX:
+            case MIN:
+            case ADDITION:
+            case MULTIPLICATION:
+            case MISSING:
+            case MISSING_PAIR:
+            case MERGE:
+            case CAT:
+            case ARRAY:
+            case REDUCE:
+            case SUBSTR:
+            case CUSTOM:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void value(ByteArrayOutputStream out, Object value) throws IOException {
+        if (value instanceof JsonPrimitive) {
+            JsonPrimitive primitive = (JsonPrimitive) value;
+            value = primitive.isBoolean() ? (Object) primitive.getAsBoolean()
+                    : primitive.isString() ? primitive.getAsString() : primitive.getAsNumber();
+        }
+        if (value == null || value instanceof JsonNull) {
+            out.write(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            long integral = (long) number;
+            if (integral == number && Math.abs(integral) < 1L << 53
+                    && (integral != 0 || Double.doubleToRawLongBits(number) == 0)) {
+                out.write(TAG_INTEGER);
+                varlong(out, integral << 1 ^ integral >> 63);
+            } else {
+                out.write(TAG_DOUBLE);
+                long bits = Double.doubleToRawLongBits(number);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) (bits >>> shift));
+                }
+            }
+        } else if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            long integral = ((Number) value).longValue();
+            out.write(TAG_LONG);
+            varlong(out, integral << 1 ^ integral >> 63);
+        } else if (value instanceof Number) {
+            out.write(TAG_DECIMAL);
+            string(out, value.toString());
+        } else if (value instanceof String) {
+            out.write(TAG_STRING);
+            string(out, (String) value);
+        } else if (value instanceof JsonArray) {
+            JsonArray array = (JsonArray) value;
+            out.write(TAG_ARRAY);
+            varint(out, array.size());
+            for (JsonElement element : array) {
+                value(out, element);
+            }
+        } else if (value instanceof JsonObject) {
+            JsonObject object = (JsonObject) value;
+            out.write(TAG_OBJECT);
+            varint(out, object.size());
+            for (Map.Entry<String, JsonElement> member : object.entrySet()) {
+                string(out, member.getKey());
+                value(out, member.getValue());
+            }
+        } else {
+            throw new NotSerializableException("constant of type " + value.getClass().getName());
+        }
+    }
+
+    private static void varint(ByteArrayOutputStream out, int value) {
+        varlong(out, value & 0xffffffffL);
+    }
+
+    private static void varlong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void string(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        varint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static final class Reader {
+
+        private final ByteBuffer in;
+        private final OperatorTable operators;
+        private long fingerprint;
+        private Result[] constants;
+        private String[] variables;
+
+        Reader(ByteBuffer in, OperatorTable operators) {
+            this.in = in;
+            this.operators = operators;
+        }
+
+        Node tree() throws ParseException {
+            fingerprint = in.getLong();
+            constants = new Result[count()];
+            for (int i = 0; i < constants.length; i++) {
+                Object value = value();
+                constants[i] = value instanceof Boolean
+                        ? (Boolean) value ? JsonLogic.TRUE_RESULT : JsonLogic.FALSE_RESULT
+                        : new Result(value);
+            }
+            variables = new String[count()];
+            for (int i = 0; i < variables.length; i++) {
+                variables[i] = string();
+            }
+            Node node = node();
+            if (in.hasRemaining()) {
+                throw new ParseException("Unexpected bytes after the binary tree");
+            }
+            return node;
+        }
+
+        private Node node() throws ParseException {
+            int opcode = in.get() & 0xff;
+            switch (opcode) {
+                case CONSTANT: {
+                    Result result = constant();
+                    return result == JsonLogic.TRUE_RESULT ? JsonLogic.TRUE_NODE
+                            : result == JsonLogic.FALSE_RESULT ? JsonLogic.FALSE_NODE
+                            : new ConstantNode(result);
+                }
+                case VAR:
+                    return new VarNode(variable(), constant());
+                case EQUALS:
+                    return new EqualsNode(node(), node());
+                case STRICT_EQUALS:
+                    return new StrictEqualsNode(node(), node());
+                case NOT_EQUALS:
+                    return new NotEqualsNode(node(), node());
+                case STRICT_NOT_EQUALS:
+                    return new StrictNotEqualsNode(node(), node());
+                case GREATER_THAN:
+                    return new GreaterThanNode(node(), node());
+                case GREATER_THAN_EQUALS:
+                    return new GreaterThanEqualsNode(node(), node());
+                case LESS_THAN:
+                    return new LessThanNode(node(), node());
+                case LESS_THAN_EQUALS:
+                    return new LessThanEqualsNode(node(), node());
+                case BETWEEN:
+                    return new BetweenNode(node(), node(), node());
+                case BETWEEN_EQUALS_LEFT:
+                    return new BetweenEqualsLeftNode(node(), node(), node());
+                case AND: {
+                    int count = count(2);
+                    return rest(new AndNode(node(), node()), count - 2);
+                }
+                case OR: {
+                    int count = count(2);
+                    return rest(new OrNode(node(), node()), count - 2);
+                }
+                case NOT:
+                    return new NotNode(node());
+                case IF: {
+                    int count = count(3);
+                    if (count % 2 == 0) {
+                        throw new ParseException("Malformed binary tree: 'if' with " + count + " operands");
+                    }
+                    IfNode node = new IfNode(node(), node(), node());
+                    for (int i = 3; i < count; i += 2) {
+                        node.addConditionNode(node(), node());
+                    }
+                    return node;
+                }
+                case MAX: {
+                    int count = count(2);
+                    return rest(new MaxNode(node(), node()), count - 2);
+                }
+                case MIN: {
+                    int count = count(2);
+                    return rest(new MinNode(node(), node()), count - 2);
+                }
+                case ADDITION: {
+                    int count = count(2);
+                    return rest(new AdditionNode(node(), node()), count - 2);
+                }
+                case ADDITION_CASTING:
+                    return new AdditionCastingOverloadNode(node());
+                case MULTIPLICATION: {
+                    int count = count(2);
+                    return rest(new MultiplicationNode(node(), node()), count - 2);
+                }
+                case SUBTRACTION:
+                    return new SubtractionNode(node(), node());
+                case SUBTRACTION_NEGATING:
+                    return new SubtractionNegatingOverloadNode(node());
+                case DIVISION:
+                    return new DivisionNode(node(), node());
+                case MODULO:
+                    return new ModuloNode(node(), node());
+                case MISSING:
+                    return rest(new MissingNode(), count(0));
+                case MISSING_PAIR: {
+                    int count = count(2);
+                    return rest(new MissingNode(node(), node()), count - 2);
+                }
+                case MISSING_SOME:
+                    return new MissingSomeNode(node(), node());
+                case MERGE:
+                    return rest(new MergeNode(), count(0));
+                case CAT:
+                    return rest(new CatNode(), count(0));
+                case IN:
+                    return new InNode(node(), node());
+                case ARRAY:
+                    return rest(new ArrayNode(), count(0));
+                case ALL:
+                    return new AllNode(node(), node());
+                case SOME:
+                    return new SomeNode(node(), node());
+                case NONE:
+                    return new NoneNode(node(), node());
+                case MAP:
+                    return new MapNode(node(), node());
+                case FILTER:
+                    return new FilterNode(node(), node());
+                case REDUCE: {
+                    int count = count(2);
+                    return rest(new ReduceNode(node(), node()), count - 2);
+                }
+                case SUBSTR:
+                    return rest(new SubstrNode(), count(0));
+                case LOG:
+                    return new LogNode(node());
+                case CUSTOM:
+                    return custom();
+                case LAZY:
+                    return lazy();
+                default:
+                    throw new ParseException("Malformed binary tree: unknown opcode " + opcode);
+            }
+        }
+
+        private Node custom() throws ParseException {
+            Result name = constant();
+            if (!name.isString()) {
+                throw new ParseException("Malformed binary tree: custom operator without a name");
+            }
+            int code = operators.code(name.getStringValue());
+            if (code < RuleParser.OPERATORS.length) {
+                throw new ParseException("Unknown operation '" + name.getStringValue() + "'");
+            }
+            OperatorRegistry.Definition definition = operators.custom(code);
+            Node[] operands = new Node[count(0)];
+            for (int i = 0; i < operands.length; i++) {
+                operands[i] = node();
+            }
+            CustomOperator operator = definition.factory.create(operands.length);
+            if (operator == null) {
+                throw new ParseException("No operator created for '" + definition.name + "'");
+            }
+            return new CustomNode(definition.name, operator, definition.pure, definition.cost, operands);
+        }
+
+        private Node lazy() throws ParseException {
+            Result text = constant();
+            long minimumLength = varlong();
+            if (!text.isString() || minimumLength < 1 || minimumLength > Integer.MAX_VALUE) {
+                throw new ParseException("Malformed binary tree: unparsed branch without its text");
+            }
+            char[] chars = text.getStringValue().toCharArray();
+            return new LazyNode(operators, chars, 0, chars.length, (int) minimumLength);
+        }
+
+        private MultiNode rest(MultiNode node, int count) throws ParseException {
+            for (int i = 0; i < count; i++) {
+                node.add(node());
+            }
+            return node;
+        }
+
+        private Result constant() throws ParseException {
+            long index = varlong();
+            if (index < 0 || index >= constants.length) {
+                throw new ParseException("Malformed binary tree: constant " + index + " out of range");
+            }
+            return constants[(int) index];
+        }
+
+        private String variable() throws ParseException {
+            long slot = varlong();
+            if (slot < 0 || slot >= variables.length) {
+                throw new ParseException("Malformed binary tree: variable slot " + slot + " out of range");
+            }
+            return variables[(int) slot];
+        }
+
+        private Object value() throws ParseException {
+            int tag = in.get() & 0xff;
+            switch (tag) {
+                case TAG_NULL:
+                    return null;
+                case TAG_FALSE:
+                    return Boolean.FALSE;
+                case TAG_TRUE:
+                    return Boolean.TRUE;
+                case TAG_INTEGER: {
+                    long zigzag = varlong();
+                    return (double) (zigzag >>> 1 ^ -(zigzag & 1));
+                }
+                case TAG_DOUBLE:
+                    return in.getDouble();
+                case TAG_STRING:
+                    return string();
+                case TAG_ARRAY: {
+                    int size = count();
+                    JsonArray array = new JsonArray();
+                    for (int i = 0; i < size; i++) {
+                        array.add(element(value()));
+                    }
+                    return array;
+                }
+                case TAG_OBJECT: {
+                    int size = count();
+                    JsonObject object = new JsonObject();
+                    for (int i = 0; i < size; i++) {
+                        String key = string();
+                        object.add(key, element(value()));
+                    }
+                    return object;
+                }
+                case TAG_LONG: {
+                    long zigzag = varlong();
+                    return zigzag >>> 1 ^ -(zigzag & 1);
+                }
+                case TAG_DECIMAL:
+                    try {
+                        return new BigDecimal(string());
+                    } catch (NumberFormatException ex) {
+                        throw new ParseException("Malformed binary tree: bad number", ex);
+                    }
+                default:
+                    throw new ParseException("Malformed binary tree: unknown constant tag " + tag);
+            }
+        }
+
+        private static JsonElement element(Object value) {
+            if (value == null) {
+                return JsonNull.INSTANCE;
+            }
+            if (value instanceof JsonElement) {
+                return (JsonElement) value;
+            }
+            if (value instanceof Boolean) {
+                return new JsonPrimitive((Boolean) value);
+            }
+            if (value instanceof Number) {
+                return new JsonPrimitive((Number) value);
+            }
+            return new JsonPrimitive((String) value);
+        }
+
+        private String string() throws ParseException {
+            int length = count();
+            String value;
+            if (in.hasArray()) {
+                value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+                ((Buffer) in).position(in.position() + length);
+            } else {
+                byte[] bytes = new byte[length];
+                in.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return value;
+        }
+
+        /**
+         * Reads a count or an index, which can be no more than the bytes
+         * left, so that a corrupt one fails at once rather than allocating.
+         * A varlong of ten bytes can come out negative.
+         */
+        private int count() throws ParseException {
+            long value = varlong();
+            if (value < 0) {
+                throw new ParseException("Malformed binary tree: negative count " + value);
+            }
+            if (value > in.remaining()) {
+                throw new ParseException("Truncated binary tree");
+            }
+            return (int) value;
+        }
+
+        private int count(int minimum) throws ParseException {
+            int count = count();
+            if (count < minimum) {
+                throw new ParseException("Malformed binary tree: " + count + " operands, expecting at least "
+                        + minimum);
+            }
+            return count;
+        }
+
+        private long varlong() throws ParseException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.get();
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new ParseException("Malformed binary tree: varint too long");
+        }
+    }
+
+}
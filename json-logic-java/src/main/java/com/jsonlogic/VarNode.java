@@ -35,11 +35,22 @@ class VarNode extends Node {
         this.defaultResult = defaultResult;
     }
 
+    String name() {
+        return name;
+    }
+
+    Result defaultResult() {
+        return defaultResult;
+    }
+
     @Override
     Result eval(Map<String, Result> data) {
         
-        if(!data.containsKey(name))
+        if(!data.containsKey(name)) {
+            if (data instanceof ProvidedData)
+                return ((ProvidedData) data).missing(name);
             return new Result(null);
+        }
         
         if (data == null || data.isEmpty() ) {
             return defaultResult;
@@ -52,6 +63,19 @@ class VarNode extends Node {
         return false;
     }
 
+    @Override
+    long shallowBytes() {
+        return Footprint.object(2, 0) + Footprint.string(name) + Footprint.result(defaultResult);
+    }
+
+    @Override
+    Column evalColumn(ColumnBatch batch, long[] selection) {
+        Column column = batch.column(name);
+        if (column == null)
+            return new Column.Constant(new Result(null));
+        return column;
+    }
+
     @Override
     void treeToString(StringBuilder builder) {
         builder.append("{\"var\":");
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Map;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Emits JDK Flight Recorder events for parsing, data conversion, evaluation
+ * and slow operators. Every begin method returns null when its event is not
+ * being recorded, and every other method does nothing when given null, so a
+ * JVM that is not recording pays for a single check. Nothing is recorded on
+ * a runtime image without the jdk.jfr module.
+ *
+ * Evaluations, conversions and operators are only committed when they take
+ * longer than the threshold of their event, 1 ms unless the recording's
+ * settings say otherwise. Operator events are only emitted by the operators
+ * that work through arrays: all, some, none, map, filter and reduce.
+ *
+ * @author Richard
+ */
+final class JfrEvents {
+
+    private static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    private JfrEvents() {
+    }
+
+    static Object beginParse() {
+        if (!AVAILABLE || !Probes.PARSE.isEnabled()) {
+            return null;
+        }
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitParse(Object event, int ruleLength, Node node, long fingerprint) {
+        if (event == null) {
+            return;
+        }
+        ParseEvent parse = (ParseEvent) event;
+        parse.end();
+        if (parse.shouldCommit()) {
+            parse.fingerprint = fingerprint;
+            parse.ruleLength = ruleLength;
+            parse.nodes = countNodes(node);
+            parse.commit();
+        }
+    }
+
+    static Object beginDataConversion() {
+        if (!AVAILABLE || !Probes.DATA_CONVERSION.isEnabled()) {
+            return null;
+        }
+        DataConversionEvent event = new DataConversionEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitDataConversion(Object event, String data, Map<String, Result> converted) {
+        if (event == null) {
+            return;
+        }
+        DataConversionEvent conversion = (DataConversionEvent) event;
+        conversion.end();
+        if (conversion.shouldCommit()) {
+            conversion.dataLength = data == null ? 0 : data.length();
+            conversion.variables = converted.size();
+            conversion.commit();
+        }
+    }
+
+    static Object beginEvaluation() {
+        if (!AVAILABLE || !Probes.EVALUATION.isEnabled()) {
+            return null;
+        }
+        EvaluationEvent event = new EvaluationEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitEvaluation(Object event, JsonLogicTree tree, Map<String, Result> data) {
+        if (event == null) {
+            return;
+        }
+        EvaluationEvent evaluation = (EvaluationEvent) event;
+        evaluation.end();
+        if (evaluation.shouldCommit()) {
+            evaluation.fingerprint = tree.getFingerprint();
+            evaluation.variables = data == null ? 0 : data.size();
+            evaluation.commit();
+        }
+    }
+
+    static Object beginOperator() {
+        if (!AVAILABLE || !Probes.OPERATOR.isEnabled()) {
+            return null;
+        }
+        OperatorEvent event = new OperatorEvent();
+        event.begin();
+        return event;
+    }
+
+    static void operatorInput(Object event, int elements) {
+        if (event != null) {
+            ((OperatorEvent) event).elements = elements;
+        }
+    }
+
+    static void commitOperator(Object event, String operator, Node node) {
+        if (event == null) {
+            return;
+        }
+        OperatorEvent evaluation = (OperatorEvent) event;
+        evaluation.end();
+        if (evaluation.shouldCommit()) {
+            StringBuilder builder = new StringBuilder();
+            node.treeToString(builder);
+            evaluation.operator = operator;
+            evaluation.expression = builder.toString();
+            evaluation.fingerprint = JsonLogicTree.fingerprint(builder);
+            evaluation.commit();
+        }
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        for (int i = 0; i < node.childCount(); i++) {
+            count += countNodes(node.child(i));
+        }
+        return count;
+    }
+
+    /**
+     * Instances used only to ask whether an event type is being recorded;
+     * loaded only once jdk.jfr is known to be present.
+     */
+    private static final class Probes {
+
+        static final ParseEvent PARSE = new ParseEvent();
+        static final DataConversionEvent DATA_CONVERSION = new DataConversionEvent();
+        static final EvaluationEvent EVALUATION = new EvaluationEvent();
+        static final OperatorEvent OPERATOR = new OperatorEvent();
+    }
+
+    @Name("com.jsonlogic.Parse")
+    @Label("Rule Parse")
+    @Category("JsonLogic")
+    @Description("A rule parsed into a JsonLogicTree")
+    @StackTrace(false)
+    static final class ParseEvent extends Event {
+
+        @Label("Rule Fingerprint")
+        long fingerprint;
+
+        @Label("Rule Length")
+        @Description("The length of the rule in characters")
+        int ruleLength;
+
+        @Label("Nodes")
+        int nodes;
+    }
+
+    @Name("com.jsonlogic.DataConversion")
+    @Label("Data Conversion")
+    @Category("JsonLogic")
+    @Description("A JSON data record converted into variables")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static final class DataConversionEvent extends Event {
+
+        @Label("Data Length")
+        @Description("The length of the data in characters")
+        int dataLength;
+
+        @Label("Variables")
+        int variables;
+    }
+
+    @Name("com.jsonlogic.Evaluation")
+    @Label("Rule Evaluation")
+    @Category("JsonLogic")
+    @Description("A JsonLogicTree applied to one data record")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static final class EvaluationEvent extends Event {
+
+        @Label("Rule Fingerprint")
+        long fingerprint;
+
+        @Label("Variables")
+        int variables;
+    }
+
+    @Name("com.jsonlogic.Operator")
+    @Label("Slow Operator")
+    @Category("JsonLogic")
+    @Description("An operator that works through an array, such as map or filter")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static final class OperatorEvent extends Event {
+
+        @Label("Operator")
+        String operator;
+
+        @Label("Expression")
+        String expression;
+
+        @Label("Expression Fingerprint")
+        long fingerprint;
+
+        @Label("Elements")
+        int elements;
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+/**
+ * Chooses the kernels used by columnar evaluation. On JDK 17 and later the
+ * Vector API kernels are used when the jdk.incubator.vector module has been
+ * added to the JVM (--add-modules jdk.incubator.vector) and the system
+ * property jsonlogic.vector is not set to false; otherwise the scalar loops
+ * are used, as on Java 8.
+ *
+ * @author Richard
+ */
+final class KernelSupport {
+
+    private KernelSupport() {
+    }
+
+    static ScalarKernels load() {
+        if (!Boolean.parseBoolean(System.getProperty("jsonlogic.vector", "true"))
+                || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return new ScalarKernels();
+        }
+        try {
+            return VectorKernels.create();
+        } catch (LinkageError ex) {
+            return new ScalarKernels();
+        }
+    }
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels using the Vector API, so that comparisons, arithmetic and the
+ * combination of bitmaps run on as many rows at once as the CPU's widest
+ * vector registers hold. A comparison packs the lane masks of 64 rows into
+ * one bitmap word. Equality and modulo have no lanewise equivalent with the
+ * exact semantics of the row by row nodes and stay scalar, as do the rows
+ * after the last full vector. Comparisons expect from to be a multiple of 64,
+ * which it is as ColumnKernels always starts at row 0.
+ *
+ * Every operator is written out as a constant in its own loop, as the JIT
+ * only compiles a Vector API call to SIMD instructions when its operator is
+ * a constant.
+ *
+ * @author Richard
+ */
+final class VectorKernels extends ScalarKernels {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final int LANES = DOUBLES.length();
+
+    private VectorKernels() {
+    }
+
+    /**
+     * @return the vector kernels, or the scalar ones if the CPU has no
+     * vector registers of at least two doubles
+     */
+    static ScalarKernels create() {
+        return LANES >= 2 && 64 % LANES == 0 ? new VectorKernels() : new ScalarKernels();
+    }
+
+    @Override
+    void compare(int op, double[] a, double[] b, long[] out, int from, int to) {
+        int end = from + ((to - from) & ~63);
+        switch (op) {
+            case ColumnKernels.LT:
+                for (int word = from; word < end; word += 64) {
+                    long bits = 0;
+                    for (int i = 0; i < 64; i += LANES) {
+                        DoubleVector va = DoubleVector.fromArray(DOUBLES, a, word + i);
+                        DoubleVector vb = DoubleVector.fromArray(DOUBLES, b, word + i);
+                        bits |= va.compare(VectorOperators.LT, vb).toLong() << i;
+                    }
+                    out[word >> 6] |= bits;
+                }
+                break;
+            case ColumnKernels.LE:
+                for (int word = from; word < end; word += 64) {
+                    long bits = 0;
+                    for (int i = 0; i < 64; i += LANES) {
+                        DoubleVector va = DoubleVector.fromArray(DOUBLES, a, word + i);
+                        DoubleVector vb = DoubleVector.fromArray(DOUBLES, b, word + i);
+                        bits |= va.compare(VectorOperators.LE, vb).toLong() << i;
+                    }
+                    out[word >> 6] |= bits;
+                }
+                break;
+            case ColumnKernels.GT:
+                for (int word = from; word < end; word += 64) {
+                    long bits = 0;
+                    for (int i = 0; i < 64; i += LANES) {
+                        DoubleVector va = DoubleVector.fromArray(DOUBLES, a, word + i);
+                        DoubleVector vb = DoubleVector.fromArray(DOUBLES, b, word + i);
+                        bits |= va.compare(VectorOperators.GT, vb).toLong() << i;
+                    }
+                    out[word >> 6] |= bits;
+                }
+                break;
+            case ColumnKernels.GE:
+                for (int word = from; word < end; word += 64) {
+                    long bits = 0;
+                    for (int i = 0; i < 64; i += LANES) {
+                        DoubleVector va = DoubleVector.fromArray(DOUBLES, a, word + i);
+                        DoubleVector vb = DoubleVector.fromArray(DOUBLES, b, word + i);
+                        bits |= va.compare(VectorOperators.GE, vb).toLong() << i;
+                    }
+                    out[word >> 6] |= bits;
+                }
+                break;
+            default:
+                end = from;
+        }
+        super.compare(op, a, b, out, end, to);
+    }
+
+    @Override
+    void compare(int op, double[] a, double b, long[] out, int from, int to) {
+        int end = from + ((to - from) & ~63);
+        switch (op) {
+            case ColumnKernels.LT:
+                for (int word = from; word < end; word += 64) {
+                    long bits = 0;
+                    for (int i = 0; i < 64; i += LANES) {
+                        DoubleVector va = DoubleVector.fromArray(DOUBLES, a, word + i);
+                        bits |= va.compare(VectorOperators.LT, b).toLong() << i;
+                    }
+                    out[word >> 6] |= bits;
+                }
+                break;
+            case ColumnKernels.LE:
+                for (int word = from; word < end; word += 64) {
+                    long bits = 0;
+                    for (int i = 0; i < 64; i += LANES) {
+                        DoubleVector va = DoubleVector.fromArray(DOUBLES, a, word + i);
+                        bits |= va.compare(VectorOperators.LE, b).toLong() << i;
+                    }
+                    out[word >> 6] |= bits;
+                }
+                break;
+            case ColumnKernels.GT:
+                for (int word = from; word < end; word += 64) {
+                    long bits = 0;
+                    for (int i = 0; i < 64; i += LANES) {
+                        DoubleVector va = DoubleVector.fromArray(DOUBLES, a, word + i);
+                        bits |= va.compare(VectorOperators.GT, b).toLong() << i;
+                    }
+                    out[word >> 6] |= bits;
+                }
+                break;
+            case ColumnKernels.GE:
+                for (int word = from; word < end; word += 64) {
+                    long bits = 0;
+                    for (int i = 0; i < 64; i += LANES) {
+                        DoubleVector va = DoubleVector.fromArray(DOUBLES, a, word + i);
+                        bits |= va.compare(VectorOperators.GE, b).toLong() << i;
+                    }
+                    out[word >> 6] |= bits;
+                }
+                break;
+            default:
+                end = from;
+        }
+        super.compare(op, a, b, out, end, to);
+    }
+
+    @Override
+    void compare(int op, double a, double[] b, long[] out, int from, int to) {
+        // a < b[i] is b[i] > a, and so on
+        switch (op) {
+            case ColumnKernels.LT:
+                compare(ColumnKernels.GT, b, a, out, from, to);
+                return;
+            case ColumnKernels.LE:
+                compare(ColumnKernels.GE, b, a, out, from, to);
+                return;
+            case ColumnKernels.GT:
+                compare(ColumnKernels.LT, b, a, out, from, to);
+                return;
+            case ColumnKernels.GE:
+                compare(ColumnKernels.LE, b, a, out, from, to);
+                return;
+            default:
+                super.compare(op, a, b, out, from, to);
+        }
+    }
+
+    @Override
+    void arithmetic(int op, double[] a, double[] b, double[] out, int from, int to) {
+        int end = from + DOUBLES.loopBound(to - from);
+        switch (op) {
+            case ColumnKernels.ADD:
+                for (int i = from; i < end; i += LANES) {
+                    DoubleVector.fromArray(DOUBLES, a, i).add(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+                }
+                break;
+            case ColumnKernels.SUB:
+                for (int i = from; i < end; i += LANES) {
+                    DoubleVector.fromArray(DOUBLES, a, i).sub(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+                }
+                break;
+            case ColumnKernels.MUL:
+                for (int i = from; i < end; i += LANES) {
+                    DoubleVector.fromArray(DOUBLES, a, i).mul(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+                }
+                break;
+            case ColumnKernels.DIV:
+                for (int i = from; i < end; i += LANES) {
+                    DoubleVector.fromArray(DOUBLES, a, i).div(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+                }
+                break;
+            default:
+                end = from;
+        }
+        super.arithmetic(op, a, b, out, end, to);
+    }
+
+    @Override
+    void arithmetic(int op, double[] a, double b, double[] out, int from, int to) {
+        int end = from + DOUBLES.loopBound(to - from);
+        switch (op) {
+            case ColumnKernels.ADD:
+                for (int i = from; i < end; i += LANES) {
+                    DoubleVector.fromArray(DOUBLES, a, i).add(b).intoArray(out, i);
+                }
+                break;
+            case ColumnKernels.SUB:
+                for (int i = from; i < end; i += LANES) {
+                    DoubleVector.fromArray(DOUBLES, a, i).sub(b).intoArray(out, i);
+                }
+                break;
+            case ColumnKernels.MUL:
+                for (int i = from; i < end; i += LANES) {
+                    DoubleVector.fromArray(DOUBLES, a, i).mul(b).intoArray(out, i);
+                }
+                break;
+            case ColumnKernels.DIV:
+                for (int i = from; i < end; i += LANES) {
+                    DoubleVector.fromArray(DOUBLES, a, i).div(b).intoArray(out, i);
+                }
+                break;
+            default:
+                end = from;
+        }
+        super.arithmetic(op, a, b, out, end, to);
+    }
+
+    @Override
+    void arithmetic(int op, double a, double[] b, double[] out, int from, int to) {
+        int end = from + DOUBLES.loopBound(to - from);
+        DoubleVector va = DoubleVector.broadcast(DOUBLES, a);
+        switch (op) {
+            case ColumnKernels.ADD:
+                for (int i = from; i < end; i += LANES) {
+                    va.add(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+                }
+                break;
+            case ColumnKernels.SUB:
+                for (int i = from; i < end; i += LANES) {
+                    va.sub(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+                }
+                break;
+            case ColumnKernels.MUL:
+                for (int i = from; i < end; i += LANES) {
+                    va.mul(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+                }
+                break;
+            case ColumnKernels.DIV:
+                for (int i = from; i < end; i += LANES) {
+                    va.div(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+                }
+                break;
+            default:
+                end = from;
+        }
+        super.arithmetic(op, a, b, out, end, to);
+    }
+
+    @Override
+    void and(long[] a, long[] b, long[] out) {
+        int end = LONGS.loopBound(out.length);
+        for (int i = 0; i < end; i += LONGS.length()) {
+            LongVector.fromArray(LONGS, a, i).and(LongVector.fromArray(LONGS, b, i)).intoArray(out, i);
+        }
+        for (int i = end; i < out.length; i++) {
+            out[i] = a[i] & b[i];
+        }
+    }
+
+    @Override
+    void or(long[] a, long[] b, long[] out) {
+        int end = LONGS.loopBound(out.length);
+        for (int i = 0; i < end; i += LONGS.length()) {
+            LongVector.fromArray(LONGS, a, i).or(LongVector.fromArray(LONGS, b, i)).intoArray(out, i);
+        }
+        for (int i = end; i < out.length; i++) {
+            out[i] = a[i] | b[i];
+        }
+    }
+
+    @Override
+    void andNot(long[] a, long[] b, long[] out) {
+        int end = LONGS.loopBound(out.length);
+        for (int i = 0; i < end; i += LONGS.length()) {
+            LongVector.fromArray(LONGS, a, i)
+                    .lanewise(VectorOperators.AND_NOT, LongVector.fromArray(LONGS, b, i))
+                    .intoArray(out, i);
+        }
+        for (int i = end; i < out.length; i++) {
+            out[i] = a[i] & ~b[i];
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JsonLogicProcessor evaluates a stream of data records and publishes the
+ * results to a single subscriber, in order.
+ *
+ * Demand is passed upstream: the processor never requests more records than
+ * its buffer can hold, and only requests more as the subscriber consumes
+ * results. A burst from the publisher therefore waits upstream instead of
+ * piling up in memory. A record that fails to evaluate cancels the upstream
+ * subscription and is signalled to the subscriber through onError.
+ *
+ * Requires Java 9 or later.
+ *
+ * @param <R> the type of the published results
+ * @author Richard
+ */
+public final class JsonLogicProcessor<R> implements Flow.Processor<String, R> {
+
+    private final ParallelBatch.Task<String, R> evaluator;
+    private final int bufferSize;
+    private final int limit;
+
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super R> downstream;
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile Throwable badRequest;
+    private volatile boolean cancelled;
+    private boolean terminated;
+    private int consumed;
+
+    private JsonLogicProcessor(ParallelBatch.Task<String, R> evaluator, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.evaluator = evaluator;
+        this.bufferSize = bufferSize;
+        this.limit = bufferSize - (bufferSize >> 2);
+    }
+
+    /**
+     * Creates a processor that evaluates a tree, buffering up to
+     * Flow.defaultBufferSize() records.
+     */
+    public static JsonLogicProcessor<Result> of(JsonLogicTree tree) {
+        return of(tree, Flow.defaultBufferSize());
+    }
+
+    /**
+     * Creates a processor that evaluates a tree.
+     *
+     * @param tree the tree to apply to every record
+     * @param bufferSize the most records requested but not yet published
+     */
+    public static JsonLogicProcessor<Result> of(JsonLogicTree tree, int bufferSize) {
+        Objects.requireNonNull(tree);
+        return new JsonLogicProcessor<>(tree::evaluate, bufferSize);
+    }
+
+    /**
+     * Creates a processor that evaluates every tree of a rule set, buffering
+     * up to Flow.defaultBufferSize() records.
+     */
+    public static JsonLogicProcessor<Map<String, Result>> of(RuleSet rules) {
+        return of(rules, Flow.defaultBufferSize());
+    }
+
+    /**
+     * Creates a processor that evaluates every tree of a rule set.
+     *
+     * @param rules the rules to apply to every record
+     * @param bufferSize the most records requested but not yet published
+     */
+    public static JsonLogicProcessor<Map<String, Result>> of(RuleSet rules, int bufferSize) {
+        Objects.requireNonNull(rules);
+        return new JsonLogicProcessor<>(rules::evaluate, bufferSize);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super R> subscriber) {
+        Objects.requireNonNull(subscriber);
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("JsonLogicProcessor allows only a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Downstream());
+        downstream = subscriber;
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription);
+        if (upstream != null || cancelled) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        subscription.request(bufferSize);
+    }
+
+    @Override
+    public void onNext(String item) {
+        Objects.requireNonNull(item);
+        if (done || cancelled) {
+            return;
+        }
+        if (queued.incrementAndGet() > bufferSize) {
+            upstream.cancel();
+            onError(new IllegalStateException("Publisher sent more records than were requested"));
+            return;
+        }
+        queue.offer(item);
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Objects.requireNonNull(throwable);
+        if (done) {
+            return;
+        }
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Flow.Subscriber<? super R> subscriber = downstream;
+            if (subscriber != null && !terminated && badRequest != null) {
+                terminated = true;
+                cancel();
+                queue.clear();
+                subscriber.onError(badRequest);
+            } else if (subscriber != null && !terminated) {
+                long demand = requested.get();
+                long emitted = 0;
+                while (!cancelled) {
+                    boolean finished = done;
+                    if (emitted == demand) {
+                        if (finished && queue.isEmpty()) {
+                            terminate(subscriber);
+                        }
+                        break;
+                    }
+                    String item = queue.poll();
+                    if (item == null) {
+                        if (finished) {
+                            terminate(subscriber);
+                        }
+                        break;
+                    }
+                    queued.decrementAndGet();
+
+                    R result;
+                    try {
+                        result = evaluator.apply(item);
+                    } catch (Exception ex) {
+                        cancel();
+                        terminated = true;
+                        subscriber.onError(ex);
+                        break;
+                    }
+                    subscriber.onNext(result);
+                    emitted++;
+
+                    if (++consumed == limit) {
+                        consumed = 0;
+                        upstream.request(limit);
+                    }
+                }
+                if (cancelled) {
+                    queue.clear();
+                } else if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void terminate(Flow.Subscriber<? super R> subscriber) {
+        terminated = true;
+        Throwable ex = error;
+        if (ex != null) {
+            subscriber.onError(ex);
+        } else {
+            subscriber.onComplete();
+        }
+    }
+
+    private void cancel() {
+        cancelled = true;
+        Flow.Subscription subscription = upstream;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private final class Downstream implements Flow.Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("request must be positive");
+                drain();
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n;
+                if (next < 0) {
+                    next = Long.MAX_VALUE;
+                }
+            } while (!requested.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            JsonLogicProcessor.this.cancel();
+            drain();
+        }
+    }
+
+}
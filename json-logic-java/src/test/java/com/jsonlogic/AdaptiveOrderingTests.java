@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Arrays;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the order adaptive ordering picks for the operands of 'and' and
+ * 'or', and that it never changes a result or a failure.
+ *
+ * @author Richard
+ */
+public class AdaptiveOrderingTests {
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void CheapestFirst() {
+        OperandOrder order = new OperandOrder(new double[]{5, 1, 3, 2}, 0);
+        Assert.assertTrue(Arrays.equals(new int[]{1, 3, 2, 0}, order.permutation()));
+    }
+
+    @Test
+    public void PinnedOperandsKeepTheirPlace() {
+        OperandOrder order = new OperandOrder(new double[]{5, 1, 3, 2}, 1);
+        Assert.assertTrue(Arrays.equals(new int[]{1, 2, 0, 3}, order.permutation()));
+    }
+
+    @Test
+    public void TiesKeepTheWrittenOrder() {
+        OperandOrder order = new OperandOrder(new double[]{2, 1, 2, 1, 2}, 0);
+        Assert.assertTrue(Arrays.equals(new int[]{1, 3, 0, 2, 4}, order.permutation()));
+    }
+
+    @Test
+    public void DecidingOperandsMoveUp() {
+        OperandOrder order = new OperandOrder(new double[]{1, 1, 1}, 0);
+        order.seed(new long[]{1000, 1000, 1000}, new long[]{0, 0, 1000});
+        Assert.assertEquals(2, order.permutation()[0]);
+    }
+
+    @Test
+    public void SafeOperandsAreReordered() throws Exception {
+        JsonLogicTree tree = jsonLogic.parse("{\"and\":[{\"var\":\"a\"},{\"var\":\"b\"}]}");
+        tree.setAdaptiveOrdering(true);
+        for (int i = 0; i < 2 * OperandOrder.INTERVAL; i++) {
+            Assert.assertFalse(tree.evaluate("{\"a\":true,\"b\":false}").getBooleanValue());
+        }
+        OperandOrder order = ((AndNode) tree.root()).order();
+        Assert.assertTrue(Arrays.equals(new int[]{1, 0}, order.permutation()));
+    }
+
+    @Test
+    public void OperandsFromTheFirstThatCanFailArePinned() throws Exception {
+        JsonLogicTree tree = jsonLogic.parse("{\"and\":[{\"var\":\"a\"},{\"var\":\"b\"},"
+                + "{\">\":[{\"var\":\"c\"},1]},{\"var\":\"d\"}]}");
+        tree.setAdaptiveOrdering(true);
+        OperandOrder order = ((AndNode) tree.root()).order();
+        Assert.assertEquals(2, order.permutation()[2]);
+        Assert.assertEquals(3, order.permutation()[3]);
+
+        JsonLogicTree first = jsonLogic.parse("{\"or\":[{\">\":[{\"var\":\"c\"},1]},{\"var\":\"a\"},{\"var\":\"b\"}]}");
+        first.setAdaptiveOrdering(true);
+        Assert.assertNull(((OrNode) first.root()).order());
+    }
+
+    @Test
+    public void WrittenOrderFailureIsKept() throws Exception {
+        // '==' fails comparing true to 5, before 'b' is reached
+        String rule = "{\"and\":[{\"==\":[{\"var\":\"x\"},5]},{\"var\":\"b\"}]}";
+        JsonLogicTree tree = jsonLogic.parse(rule);
+        tree.setAdaptiveOrdering(true);
+        for (int i = 0; i < 4 * OperandOrder.INTERVAL; i++) {
+            Assert.assertFalse(tree.evaluate("{\"x\":5,\"b\":false}").getBooleanValue());
+        }
+        assertFails(jsonLogic.parse(rule), "{\"x\":true,\"b\":false}");
+        assertFails(tree, "{\"x\":true,\"b\":false}");
+    }
+
+    @Test
+    public void OrKeepsWrittenOrderFailure() throws Exception {
+        String rule = "{\"or\":[{\"var\":\"a\"},{\"==\":[{\"var\":\"x\"},5]},{\"var\":\"b\"},false]}";
+        JsonLogicTree tree = jsonLogic.parse(rule);
+        tree.setAdaptiveOrdering(true);
+        for (int i = 0; i < 4 * OperandOrder.INTERVAL; i++) {
+            Assert.assertTrue(tree.evaluate("{\"a\":false,\"x\":1,\"b\":true}").getBooleanValue());
+        }
+        assertFails(tree, "{\"a\":false,\"x\":true,\"b\":true}");
+    }
+
+    private static void assertFails(JsonLogicTree tree, String data) throws ParseException {
+        try {
+            tree.evaluate(data);
+            Assert.fail("evaluated " + data);
+        } catch (EvaluationException ex) {
+            // expected
+        }
+    }
+
+}
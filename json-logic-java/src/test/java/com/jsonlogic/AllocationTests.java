@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import junit.framework.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Measures the bytes allocated by each evaluation of the rules in
+ * AllocationBudgets.txt and fails if any exceeds its budget. Each line of
+ * the file holds a rule, its data, the budget for evaluating data that is
+ * already converted and the budget for evaluate(String), which includes the
+ * conversion, separated by tabs.
+ * <p>
+ * The build runs it with escape analysis off, so that whether an allocation
+ * is counted does not depend on what the JIT decided to inline. Run with -Dallocation.record=true to write the measured
+ * allocations, plus an eighth or at least 32 bytes of headroom for other
+ * JVMs, back to the file as the new budgets.
+ *
+ * @author Richard
+ */
+public class AllocationTests {
+
+    private static final String BUDGETS = "AllocationBudgets.txt";
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 2000;
+    private static final int ROUNDS = 5;
+
+    private final com.sun.management.ThreadMXBean threads = threadMXBean();
+    private final Gson gson = new Gson();
+    private int lineNumber = 0;
+    private String line;
+    private int passCount = 0;
+    private int failCount = 0;
+
+    public AllocationTests() {
+    }
+
+    @Test
+    public void AllocationTest() throws IOException, ParseException, EvaluationException {
+        Assume.assumeTrue("allocation counters are not supported by this JVM",
+                threads != null && threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        boolean record = Boolean.getBoolean("allocation.record");
+        JsonLogic jsonLogic = new JsonLogic();
+        Path path = Paths.get(BUDGETS);
+        List<String> recorded = new ArrayList<>();
+
+        for (String text : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            line = text.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                recorded.add(text);
+                continue;
+            }
+            String[] parts = line.split("\t");
+            if (parts.length != 4) {
+                printError("test format is illegal");
+                failCount++;
+                recorded.add(text);
+                continue;
+            }
+
+            JsonLogicTree tree = jsonLogic.parse(parts[0]);
+            String data = parts[1];
+            Map<String, Result> converted = JsonLogicTree.convertData(gson, data);
+
+            long evaluation = measure(() -> tree.evaluate(converted));
+            long conversion = measure(() -> tree.evaluate(data));
+            System.out.println(parts[0] + "  " + evaluation + " / " + conversion + " bytes");
+
+            if (record) {
+                recorded.add(parts[0] + "\t" + data + "\t" + budget(evaluation) + "\t" + budget(conversion));
+                continue;
+            }
+            boolean pass = check("evaluation", evaluation, Long.parseLong(parts[2]));
+            pass &= check("evaluate(String)", conversion, Long.parseLong(parts[3]));
+            if (pass) {
+                passCount++;
+            } else {
+                failCount++;
+            }
+        }
+
+        if (record) {
+            Files.write(path, recorded, StandardCharsets.UTF_8);
+            System.out.println("Recorded new budgets in " + BUDGETS);
+        } else if (failCount > 0) {
+            Assert.fail(failCount
+                    + " allocation budgets exceeded, "
+                    + passCount
+                    + " rules within budget.");
+        } else {
+            System.out.println("All "
+                    + passCount
+                    + " rules within their allocation budgets!");
+        }
+    }
+
+    private interface Evaluation {
+
+        Result run() throws ParseException, EvaluationException;
+    }
+
+    /**
+     * Returns the mean bytes allocated by one run, after enough runs for the
+     * JIT to compile the evaluation. The lowest of several rounds is taken so
+     * that a recompilation in the middle of a round does not count against
+     * the rule.
+     */
+    private long measure(Evaluation evaluation) throws ParseException, EvaluationException {
+        for (int i = 0; i < WARMUP; i++) {
+            evaluation.run();
+        }
+        long id = Thread.currentThread().getId();
+        long lowest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(id);
+            for (int i = 0; i < ITERATIONS; i++) {
+                evaluation.run();
+            }
+            long after = threads.getThreadAllocatedBytes(id);
+            lowest = Math.min(lowest, (after - before) / ITERATIONS);
+        }
+        return lowest;
+    }
+
+    private boolean check(String what, long measured, long budget) {
+        if (measured <= budget) {
+            return true;
+        }
+        printError(what
+                + " allocates "
+                + measured
+                + " bytes, budget is "
+                + budget);
+        return false;
+    }
+
+    private static long budget(long measured) {
+        return (measured + Math.max(measured / 8, 32) + 7) & ~7L;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    private void printError(String message) {
+        System.out.println("  Error on line "
+                + lineNumber
+                + " - "
+                + message);
+        System.out.println("    "
+                + line);
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks JsonLogicTree.evaluateAsync against a DataProvider that counts what
+ * it is asked for.
+ *
+ * @author Richard
+ */
+public class AsyncEvaluationTests {
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void MissingVariablesAreFetchedInOneBatch() throws Exception {
+        CountingProvider provider = new CountingProvider().with("b", 2.0).with("c", 3.0);
+        JsonLogicTree tree = jsonLogic.parse("{\"<\":[{\"var\":\"a\"},{\"var\":\"b\"},{\"var\":\"c\"}]}");
+        Result result = tree.evaluateAsync("{\"a\":1}", provider).get();
+        Assert.assertTrue(result.getBooleanValue());
+        Assert.assertEquals(Arrays.asList(set("b", "c")), provider.batches);
+    }
+
+    @Test
+    public void PresentVariablesAreNotFetched() throws Exception {
+        CountingProvider provider = new CountingProvider();
+        JsonLogicTree tree = jsonLogic.parse("{\"==\":[{\"var\":\"a\"},1]}");
+        Assert.assertTrue(tree.evaluateAsync("{\"a\":1}", provider).get().getBooleanValue());
+        Assert.assertTrue(provider.batches.isEmpty());
+    }
+
+    @Test
+    public void UnknownVariablesAreFetchedOnce() throws Exception {
+        CountingProvider provider = new CountingProvider();
+        JsonLogicTree tree = jsonLogic.parse("{\"var\":\"z\"}");
+        Assert.assertTrue(tree.evaluateAsync("{}", provider).get().isNull());
+        Assert.assertEquals(1, provider.batches.size());
+    }
+
+    @Test
+    public void ShortCircuitFetchesInRounds() throws Exception {
+        // y is only reached once x is known to be true
+        CountingProvider provider = new CountingProvider().with("x", true).with("y", true);
+        JsonLogicTree tree = jsonLogic.parse("{\"and\":[{\"var\":\"x\"},{\"var\":\"y\"}]}");
+        Assert.assertTrue(tree.evaluateAsync("{}", provider).get().getBooleanValue());
+        Assert.assertEquals(Arrays.asList(set("x"), set("y")), provider.batches);
+    }
+
+    @Test
+    public void NullPlaceholderCanFetchUntakenBranch() throws Exception {
+        // c reads as null until it is fetched, so the else branch is taken
+        // on the first pass and its variable is fetched along with c
+        CountingProvider provider = new CountingProvider().with("c", true).with("t", "then").with("e", "else");
+        JsonLogicTree tree = jsonLogic.parse("{\"if\":[{\"var\":\"c\"},{\"var\":\"t\"},{\"var\":\"e\"}]}");
+        Assert.assertEquals("then", tree.evaluateAsync("{}", provider).get().getStringValue());
+        Assert.assertEquals(Arrays.asList(set("c", "e"), set("t")), provider.batches);
+    }
+
+    @Test
+    public void PassesRunOnTheExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountingProvider provider = new CountingProvider().with("b", 2.0);
+            JsonLogicTree tree = jsonLogic.parse("{\"+\":[{\"var\":\"a\"},{\"var\":\"b\"}]}");
+            Assert.assertEquals(3.0, tree.evaluateAsync("{\"a\":1}", provider, executor).get().getDoubleValue());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void ProviderFailureFailsTheFuture() throws Exception {
+        DataProvider provider = names -> {
+            CompletableFuture<Map<String, Result>> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("unavailable"));
+            return future;
+        };
+        CountingMetrics metrics = new CountingMetrics();
+        JsonLogicTree tree = new JsonLogic(metrics, 0).parse("{\"var\":\"a\"}");
+        try {
+            tree.evaluateAsync("{}", provider).get();
+            Assert.fail("the provider's failure was not reported");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertEquals(1, metrics.errors.get());
+        Assert.assertEquals(0, metrics.evaluations.get());
+    }
+
+    @Test
+    public void MalformedDataFailsTheFuture() throws Exception {
+        JsonLogicTree tree = jsonLogic.parse("{\"var\":\"a\"}");
+        try {
+            tree.evaluateAsync("{\"a\":", new CountingProvider()).get();
+            Assert.fail("the malformed data was not reported");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof ParseException);
+        }
+    }
+
+    @Test
+    public void OneEvaluationIsReported() throws Exception {
+        CountingMetrics metrics = new CountingMetrics();
+        SlowEvaluationRecorder recorder = new SlowEvaluationRecorder(0, 0, 4);
+        CountingProvider provider = new CountingProvider().with("x", true).with("y", true);
+        JsonLogicTree tree = new JsonLogic(metrics, 0).parse("{\"and\":[{\"var\":\"x\"},{\"var\":\"y\"}]}");
+        tree.setSlowEvaluationRecorder(recorder);
+        Assert.assertTrue(tree.evaluateAsync("{}", provider).get().getBooleanValue());
+        Assert.assertEquals(1, metrics.conversions.get());
+        Assert.assertEquals(1, metrics.evaluations.get());
+        Assert.assertEquals(0, metrics.errors.get());
+        List<CapturedEvaluation> captured = recorder.getCaptured();
+        Assert.assertEquals(1, captured.size());
+        Assert.assertTrue(captured.get(0).getVariables().get("y").getBooleanValue());
+    }
+
+    @Test
+    public void LogIsWrittenByTheLastPassOnly() throws Exception {
+        // the first pass reaches the log with b still null
+        List<Result> logged = new ArrayList<>();
+        JsonLogic.setTraceSink((expression, result) -> logged.add(result));
+        try {
+            CountingProvider provider = new CountingProvider().with("b", 2.0);
+            JsonLogicTree tree = jsonLogic.parse("{\"+\":[{\"var\":\"a\"},{\"log\":{\"var\":\"b\"}}]}");
+            Assert.assertEquals(3.0, tree.evaluateAsync("{\"a\":1}", provider).get().getDoubleValue());
+            Assert.assertEquals(1, provider.batches.size());
+            Assert.assertEquals(1, logged.size());
+            Assert.assertEquals(2.0, logged.get(0).getDoubleValue());
+            // a synchronous evaluation on the same thread still writes at once
+            tree.evaluate("{\"a\":1,\"b\":1}");
+            Assert.assertEquals(2, logged.size());
+        } finally {
+            JsonLogic.setTraceSink(null);
+        }
+    }
+
+    private static Set<String> set(String... names) {
+        return new TreeSet<>(Arrays.asList(names));
+    }
+
+    private static final class CountingProvider implements DataProvider {
+
+        private final Map<String, Result> values = new HashMap<>();
+        final List<Set<String>> batches = new ArrayList<>();
+
+        CountingProvider with(String name, Object value) {
+            values.put(name, new Result(value));
+            return this;
+        }
+
+        @Override
+        public synchronized CompletableFuture<Map<String, Result>> fetch(Set<String> names) {
+            batches.add(new TreeSet<>(names));
+            Map<String, Result> found = new HashMap<>();
+            for (String name : new HashSet<>(names)) {
+                if (values.containsKey(name)) {
+                    found.put(name, values.get(name));
+                }
+            }
+            // completed later, on another thread, like a remote lookup
+            return CompletableFuture.supplyAsync(() -> found);
+        }
+    }
+
+    private static final class CountingMetrics implements JsonLogicMetrics {
+
+        final AtomicInteger conversions = new AtomicInteger();
+        final AtomicInteger evaluations = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+
+        @Override
+        public void recordDataConversion(long nanos) {
+            conversions.incrementAndGet();
+        }
+
+        @Override
+        public void recordEvaluation(long nanos) {
+            evaluations.incrementAndGet();
+        }
+
+        @Override
+        public void recordError(Exception ex) {
+            errors.incrementAndGet();
+        }
+    }
+
+}
@@ -16,9 +16,13 @@
 package com.jsonlogic;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import junit.framework.Assert;
 import org.junit.Test;
 
@@ -113,11 +117,33 @@ public class BulkTests {
                 return;
             }
 
+            // the rule in the middle of other characters
+            char[] chars = ("[x" + rule + "x]").toCharArray();
+            result = jsonLogic.parse(chars, 2, rule.length()).evaluate(data);
+            if (!checkResult(expectedResult, result)) {
+                return;
+            }
+
+            result = jsonLogic.parse(rule.getBytes(StandardCharsets.UTF_8)).evaluate(data);
+            if (!checkResult(expectedResult, result)) {
+                return;
+            }
+
+            result = writeAndRead(jsonLogic, tree).evaluate(data);
+            if (!checkResult(expectedResult, result)) {
+                return;
+            }
+
             tree.reduce();
             result = tree.evaluate(data);
             if (!checkResult(expectedResult, result)) {
                 return;
             }
+
+            result = writeAndRead(jsonLogic, tree).evaluate(data);
+            if (!checkResult(expectedResult, result)) {
+                return;
+            }
         } catch (Exception e) {
             e.printStackTrace();
             System.out.println(data);
@@ -130,6 +156,16 @@ public class BulkTests {
         passCount++;
     }
 
+    private static JsonLogicTree writeAndRead(JsonLogic jsonLogic, JsonLogicTree tree) throws IOException, ParseException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.write(out);
+        JsonLogicTree read = jsonLogic.read(ByteBuffer.wrap(out.toByteArray()));
+        if (!tree.treeToString().equals(read.treeToString())) {
+            throw new IOException("read back as " + read.treeToString());
+        }
+        return read;
+    }
+
     private boolean checkResult(String expectedResult, Result result) {
         if (result == null) {
             printError("result is null");
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the counts of CostEstimate and the plan EXPLAIN writes out.
+ *
+ * @author Richard
+ */
+public class CostEstimateTests {
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void EveryOperandIsCounted() throws Exception {
+        CostEstimate cost = jsonLogic.parse("{\"and\":[{\"var\":\"a\"},{\">\":[{\"var\":\"b.c\"},1]}]}").estimateCost();
+        Assert.assertEquals(5, cost.getNodeCount());
+        Assert.assertEquals(3, cost.getDepth());
+        Assert.assertEquals(5, cost.getEvaluations());
+        Assert.assertEquals(0, cost.getIterations());
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("a", "b.c")), cost.getVariables());
+        Assert.assertEquals("nodes=5 depth=3 evaluations=5 iterations=0 variables=[a, b.c]\n"
+                + "and  (evaluations=1)\n"
+                + "  var a  (evaluations=1)\n"
+                + "  >  (evaluations=1)\n"
+                + "    var b.c  (evaluations=1)\n"
+                + "    1  (evaluations=1)\n", cost.explain());
+    }
+
+    @Test
+    public void SingleConstant() throws Exception {
+        CostEstimate cost = jsonLogic.parse("1").estimateCost();
+        Assert.assertEquals(1, cost.getNodeCount());
+        Assert.assertEquals(1, cost.getDepth());
+        Assert.assertEquals(1, cost.getEvaluations());
+        Assert.assertTrue(cost.getVariables().isEmpty());
+        Assert.assertEquals("1", cost.getPlan().getOperator());
+    }
+
+    @Test
+    public void NestedIterationsMultiply() throws Exception {
+        CostEstimate cost = jsonLogic.parse("{\"some\":[{\"var\":\"xs\"},{\"all\":[{\"var\":\"ys\"},"
+                + "{\"==\":[{\"var\":\"\"},{\"var\":\"z\"}]}]}]}")
+                .estimateCost(10, Collections.singletonMap("xs", 3));
+        // some: 3 elements; all: 10 elements for each of them
+        Assert.assertEquals(33, cost.getIterations());
+        Assert.assertEquals(1 + 1 + 3 + 3 + 30 + 30 + 30, cost.getEvaluations());
+        // variables inside an element expression refer to the element
+        Assert.assertEquals(Collections.singleton("xs"), cost.getVariables());
+
+        PlanNode some = cost.getPlan();
+        Assert.assertEquals("some", some.getOperator());
+        Assert.assertEquals(3, some.getIterations());
+        PlanNode all = some.getChildren().get(1);
+        Assert.assertEquals(3, all.getEvaluations());
+        Assert.assertEquals(30, all.getIterations());
+        Assert.assertEquals("var \"\"", all.getChildren().get(1).getChildren().get(0).getOperator());
+    }
+
+    @Test
+    public void ArraySizesAreTakenFromTheRule() throws Exception {
+        Assert.assertEquals(2, jsonLogic.parse("{\"map\":[[1,2],{\"*\":[{\"var\":\"\"},2]}]}")
+                .estimateCost().getIterations());
+        // merge flattens its array operands: 3 from the hint, then 1 and 2
+        Assert.assertEquals(5, jsonLogic.parse("{\"filter\":[{\"merge\":[{\"var\":\"xs\"},[1,2]]},true]}")
+                .estimateCost(10, Collections.singletonMap("xs", 3)).getIterations());
+        Assert.assertEquals(100, jsonLogic.parse("{\"none\":[{\"var\":\"xs\"},true]}")
+                .estimateCost().getIterations());
+    }
+
+    @Test
+    public void MissingNamesVariables() throws Exception {
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("a", "b")),
+                jsonLogic.parse("{\"missing_some\":[1,[\"a\",\"b\"]]}").estimateCost().getVariables());
+        Assert.assertEquals(Collections.singleton("c"),
+                jsonLogic.parse("{\"missing\":[\"c\"]}").estimateCost().getVariables());
+    }
+
+    @Test
+    public void CustomOperatorsCountTheirCost() throws Exception {
+        JsonLogic custom = new JsonLogic(new OperatorRegistry()
+                .register("slow", operands -> new Result(true), true, 50));
+        CostEstimate cost = custom.parse("{\"slow\":[{\"var\":\"a\"}]}").estimateCost();
+        Assert.assertEquals(51, cost.getEvaluations());
+        Assert.assertEquals("slow", cost.getPlan().getOperator());
+    }
+
+    @Test
+    public void CountsSaturate() throws Exception {
+        String rule = "{\"var\":\"\"}";
+        for (int i = 0; i < 12; i++) {
+            rule = "{\"map\":[{\"var\":\"xs\"}," + rule + "]}";
+        }
+        CostEstimate cost = jsonLogic.parse(rule).estimateCost(1_000_000, Collections.emptyMap());
+        Assert.assertEquals(Long.MAX_VALUE, cost.getEvaluations());
+        Assert.assertEquals(Long.MAX_VALUE, cost.getIterations());
+    }
+
+}
@@ -0,0 +1,703 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Generates random rules and data records, evaluates them with
+ * the plain interpreter and with every optimized mode of JsonLogicTree, and
+ * fails with the smallest rule and record it can shrink the case to when a
+ * mode disagrees with the interpreter. The reproducer is printed as a line
+ * of BulkTests.txt, with the interpreter's result as the expected one.
+ * <p>
+ * Results are compared by type and value, and failures by the class and
+ * message of the exception. A mode that evaluates the records as one batch
+ * may fail as a whole, with the failure of any one of them; a streaming mode
+ * may stop at the first failing record. The rules use two custom operators,
+ * one pure and one not, besides the built-in ones.
+ * <p>
+ * The build runs a few hundred cases from a fixed seed. For a long local
+ * run, set -Dfuzz.cases (or -Dfuzz.minutes) and -Dfuzz.seed, for example
+ * mvn test -Dtest=DifferentialTests -Dfuzz.minutes=120 -Dfuzz.seed=7
+ *
+ * @author Richard
+ */
+public class DifferentialTests {
+
+    /**
+     * The records of each case: more than 64, so that the row masks of the
+     * columnar mode take two longs, and a prime, so that no vector lane
+     * count divides it and the kernels run their tail loops.
+     */
+    private static final int ROWS = 67;
+    private static final int DEPTH = 4;
+    private static final String[] NUMBERS = {"n0", "n1", "n2", "n3"};
+    private static final String[] BOOLEANS = {"b0", "b1"};
+    private static final String[] STRINGS = {"s0", "s1"};
+    private static final String[] WORDS = {"", "a", "b", "ab", "ba", "abc"};
+
+    final Gson gson = new Gson();
+    private final AtomicLong taps = new AtomicLong();
+    final JsonLogic jsonLogic = new JsonLogic(new OperatorRegistry()
+            .register("twice", operands -> new Result(operands[0].getDoubleValue() * 2), true, 2)
+            .register("tap", operands -> {
+                taps.incrementAndGet();
+                return new Result(operands[0].getBooleanValue());
+            }, false, 1));
+    private List<Mode> modes;
+    private long records;
+    private long failures;
+
+    /**
+     * The modes compared with the interpreter.
+     */
+    List<Mode> modes() {
+        return Arrays.asList(
+            new Mode("reduced") {
+                @Override
+                String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                    JsonLogicTree tree = jsonLogic.parse(rule);
+                    tree.reduce();
+                    return evaluateEach(tree, records);
+                }
+            },
+            new Mode("serialized") {
+                @Override
+                String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                    JsonLogicTree tree = jsonLogic.parse(rule);
+                    tree.reduce();
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    tree.write(out);
+                    return evaluateEach(jsonLogic.read(ByteBuffer.wrap(out.toByteArray())), records);
+                }
+            },
+            new Mode("lazy") {
+                @Override
+                String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                    // every branch that can be left unparsed is
+                    return evaluateEach(jsonLogic.parse(rule, 1), records);
+                }
+            },
+            new Mode("lazy, serialized") {
+                @Override
+                String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                    // the unparsed branches are written as text
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    jsonLogic.parse(rule, 1).write(out);
+                    return evaluateEach(jsonLogic.read(ByteBuffer.wrap(out.toByteArray())), records);
+                }
+            },
+            new Mode("adaptive") {
+                @Override
+                String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                    JsonLogicTree tree = jsonLogic.parse(rule);
+                    tree.setAdaptiveOrdering(true);
+                    // enough evaluations for the operands to be reordered twice
+                    for (int pass = 0; pass < 2048 / records.size() + 1; pass++) {
+                        evaluateEach(tree, records);
+                    }
+                    return evaluateEach(tree, records);
+                }
+            },
+            new Mode("profiled") {
+                @Override
+                String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                    JsonLogicTree tree = jsonLogic.parse(rule);
+                    tree.startProfiling();
+                    return evaluateEach(tree, records);
+                }
+            },
+            new Mode("columnar") {
+                @Override
+                String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                    JsonLogicTree tree = jsonLogic.parse(rule);
+                    Result[] results = tree.evaluateColumns(columns(records));
+                    String[] outcomes = new String[results.length];
+                    for (int i = 0; i < results.length; i++) {
+                        outcomes[i] = outcome(results[i]);
+                    }
+                    return outcomes;
+                }
+            },
+            new Mode("parallel") {
+                @Override
+                String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                    JsonLogicTree tree = jsonLogic.parse(rule);
+                    List<String> data = new ArrayList<>();
+                    for (Map<String, Object> record : records) {
+                        data.add(gson.toJson(record));
+                    }
+                    List<Result> results = tree.evaluateAll(data);
+                    String[] outcomes = new String[results.size()];
+                    for (int i = 0; i < outcomes.length; i++) {
+                        outcomes[i] = outcome(results.get(i));
+                    }
+                    return outcomes;
+                }
+            },
+            new Mode("async") {
+                @Override
+                String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                    JsonLogicTree tree = jsonLogic.parse(rule);
+                    String[] outcomes = new String[records.size()];
+                    for (int i = 0; i < outcomes.length; i++) {
+                        Map<String, Object> record = records.get(i);
+                        // every other field is left out and fetched, on another thread
+                        Map<String, Object> present = new LinkedHashMap<>();
+                        int field = 0;
+                        for (Map.Entry<String, Object> entry : record.entrySet()) {
+                            if (field++ % 2 == 0) {
+                                present.put(entry.getKey(), entry.getValue());
+                            }
+                        }
+                        DataProvider provider = names -> CompletableFuture.supplyAsync(() -> {
+                            Map<String, Result> values = new HashMap<>();
+                            for (String name : names) {
+                                if (record.containsKey(name)) {
+                                    values.put(name, result(record.get(name)));
+                                }
+                            }
+                            return values;
+                        });
+                        try {
+                            outcomes[i] = outcome(tree.evaluateAsync(gson.toJson(present), provider).get(1, TimeUnit.MINUTES));
+                        } catch (ExecutionException ex) {
+                            outcomes[i] = failure(ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex);
+                        }
+                    }
+                    return outcomes;
+                }
+            },
+            new Mode("pipeline") {
+                @Override
+                String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                    String[] outcomes = new String[records.size()];
+                    EvaluationPipeline.Sink sink = new EvaluationPipeline.Sink() {
+                        @Override
+                        public void accept(long sequence, byte[] json) {
+                            outcomes[(int) sequence] = outcome(new JsonParser().parse(new String(json, StandardCharsets.UTF_8)));
+                        }
+
+                        @Override
+                        public void failed(long sequence, Exception ex) {
+                            outcomes[(int) sequence] = failure(ex);
+                        }
+                    };
+                    // a small capacity, so that the stages wait for each other
+                    try (EvaluationPipeline pipeline = new EvaluationPipeline(jsonLogic.parse(rule), sink, 8)) {
+                        for (Map<String, Object> record : records) {
+                            pipeline.submit(gson.toJson(record));
+                        }
+                    }
+                    return outcomes;
+                }
+            });
+    }
+
+    @Test
+    public void DifferentialTest() throws Exception {
+        long seed = Long.getLong("fuzz.seed", 20170101L);
+        long cases = Long.getLong("fuzz.cases", 300L);
+        long minutes = Long.getLong("fuzz.minutes", 0L);
+        long deadline = minutes > 0 ? System.nanoTime() + minutes * 60000000000L : Long.MAX_VALUE;
+        Random random = new Random(seed);
+        modes = modes();
+
+        long count = 0;
+        while (minutes > 0 ? System.nanoTime() < deadline : count < cases) {
+            Expr rule = bool(random, DEPTH);
+            List<Map<String, Object>> records = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                records.add(record(random));
+            }
+            Mismatch mismatch = check(rule, records);
+            if (mismatch != null) {
+                mismatch = shrink(rule, records, mismatch);
+                Assert.fail("case " + count + " of seed " + seed + ": " + mismatch.mode.name
+                        + " returned " + mismatch.actual + "\n"
+                        + mismatch.rule + "\t" + gson.toJson(mismatch.records.get(0)) + "\t" + mismatch.expected);
+            }
+            count++;
+        }
+        System.out.println("All " + count + " cases of seed " + seed + " agree in every mode! ("
+                + failures + " of " + this.records + " records fail in the interpreter)");
+    }
+
+    /**
+     * A rule being generated, kept as a tree so that it can be shrunk.
+     */
+    private static final class Expr {
+
+        final char type;
+        final String operator;
+        final String leaf;
+        final List<Expr> operands;
+
+        Expr(char type, String leaf) {
+            this.type = type;
+            this.operator = null;
+            this.leaf = leaf;
+            this.operands = Collections.emptyList();
+        }
+
+        Expr(char type, String operator, Expr... operands) {
+            this(type, operator, Arrays.asList(operands));
+        }
+
+        Expr(char type, String operator, List<Expr> operands) {
+            this.type = type;
+            this.operator = operator;
+            this.leaf = null;
+            this.operands = operands;
+        }
+
+        void write(StringBuilder sb) {
+            if (leaf != null) {
+                sb.append(leaf);
+                return;
+            }
+            sb.append("{\"").append(operator).append("\":[");
+            for (int i = 0; i < operands.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                operands.get(i).write(sb);
+            }
+            sb.append("]}");
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            write(sb);
+            return sb.toString();
+        }
+    }
+
+    private static Expr var(char type, String name) {
+        return new Expr(type, "{\"var\":\"" + name + "\"}");
+    }
+
+    private static Expr number(Random random, int depth) {
+        int pick = depth <= 0 ? random.nextInt(2) : random.nextInt(10);
+        switch (pick) {
+            case 0:
+                return new Expr('n', Integer.toString(random.nextInt(11)));
+            case 1:
+                return var('n', NUMBERS[random.nextInt(NUMBERS.length)]);
+            case 2:
+                return new Expr('n', "+", operands(random, depth, 'n'));
+            case 3:
+                return new Expr('n', "*", operands(random, depth, 'n'));
+            case 4:
+                return new Expr('n', "-", number(random, depth - 1), number(random, depth - 1));
+            case 5:
+                return new Expr('n', random.nextBoolean() ? "min" : "max", operands(random, depth, 'n'));
+            case 6:
+                return new Expr('n', random.nextBoolean() ? "%" : "/", number(random, depth - 1),
+                        new Expr('n', Integer.toString(1 + random.nextInt(5))));
+            case 7:
+                return new Expr('n', "if", bool(random, depth - 1), number(random, depth - 1),
+                        number(random, depth - 1));
+            case 8:
+                return new Expr('n', "twice", number(random, depth - 1));
+            default:
+                return var('n', NUMBERS[random.nextInt(NUMBERS.length)]);
+        }
+    }
+
+    private static Expr string(Random random, int depth) {
+        int pick = depth <= 0 ? random.nextInt(2) : random.nextInt(5);
+        switch (pick) {
+            case 0:
+                return new Expr('s', "\"" + WORDS[random.nextInt(WORDS.length)] + "\"");
+            case 1:
+                return var('s', STRINGS[random.nextInt(STRINGS.length)]);
+            case 2:
+                return new Expr('s', "cat", string(random, depth - 1), string(random, depth - 1));
+            case 3:
+                return new Expr('s', "if", bool(random, depth - 1), string(random, depth - 1),
+                        string(random, depth - 1));
+            default:
+                return var('s', STRINGS[random.nextInt(STRINGS.length)]);
+        }
+    }
+
+    private static Expr bool(Random random, int depth) {
+        int pick = depth <= 0 ? random.nextInt(2) : random.nextInt(12);
+        switch (pick) {
+            case 0:
+                return var('b', BOOLEANS[random.nextInt(BOOLEANS.length)]);
+            case 1:
+                return new Expr('b', "{\"" + (random.nextBoolean() ? ">" : "<") + "\":[{\"var\":\""
+                        + NUMBERS[random.nextInt(NUMBERS.length)] + "\"}," + random.nextInt(11) + "]}");
+            case 2:
+            case 3: {
+                String[] comparisons = {"==", "!=", "===", "!==", "<", "<=", ">", ">="};
+                return new Expr('b', comparisons[random.nextInt(comparisons.length)],
+                        number(random, depth - 1), number(random, depth - 1));
+            }
+            case 4:
+                return new Expr('b', random.nextBoolean() ? "<" : "<=", number(random, depth - 1),
+                        var('n', NUMBERS[random.nextInt(NUMBERS.length)]), number(random, depth - 1));
+            case 5:
+                return new Expr('b', "and", operands(random, depth, 'b'));
+            case 6:
+                return new Expr('b', "or", operands(random, depth, 'b'));
+            case 7:
+                return new Expr('b', "!", bool(random, depth - 1));
+            case 8:
+                return new Expr('b', random.nextBoolean() ? "==" : "!=", string(random, depth - 1),
+                        string(random, depth - 1));
+            case 9:
+                return new Expr('b', "tap", bool(random, depth - 1));
+            case 10:
+                if (random.nextInt(3) == 0) {
+                    // fails when the number is neither 0 nor 1
+                    return new Expr('b', "==", bool(random, depth - 1), number(random, depth - 1));
+                }
+                return new Expr('b', "tap", bool(random, depth - 1));
+            default: {
+                Expr needle = string(random, depth - 1);
+                if (random.nextBoolean()) {
+                    return new Expr('b', "in", needle, string(random, depth - 1));
+                }
+                StringBuilder list = new StringBuilder("[");
+                for (int i = 0, n = 1 + random.nextInt(4); i < n; i++) {
+                    list.append(i > 0 ? "," : "").append('"').append(WORDS[random.nextInt(WORDS.length)]).append('"');
+                }
+                return new Expr('b', "in", needle, new Expr('a', list.append(']').toString()));
+            }
+        }
+    }
+
+    private static List<Expr> operands(Random random, int depth, char type) {
+        List<Expr> operands = new ArrayList<>();
+        for (int i = 0, n = 2 + random.nextInt(3); i < n; i++) {
+            operands.add(type == 'n' ? number(random, depth - 1) : bool(random, depth - 1));
+        }
+        return operands;
+    }
+
+    private static Map<String, Object> record(Random random) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        for (String name : NUMBERS) {
+            record.put(name, random.nextInt(16) - 5);
+        }
+        for (String name : BOOLEANS) {
+            record.put(name, random.nextBoolean());
+        }
+        for (String name : STRINGS) {
+            record.put(name, WORDS[random.nextInt(WORDS.length)]);
+        }
+        return record;
+    }
+
+    /**
+     * Builds the batch with the typed column of each field.
+     */
+    private static ColumnBatch columns(List<Map<String, Object>> records) {
+        int rows = records.size();
+        ColumnBatch batch = new ColumnBatch(rows);
+        for (String name : records.get(0).keySet()) {
+            Object first = records.get(0).get(name);
+            if (first instanceof Number) {
+                double[] values = new double[rows];
+                for (int i = 0; i < rows; i++) {
+                    values[i] = ((Number) records.get(i).get(name)).doubleValue();
+                }
+                batch.addDoubles(name, values);
+            } else if (first instanceof Boolean) {
+                boolean[] values = new boolean[rows];
+                for (int i = 0; i < rows; i++) {
+                    values[i] = (Boolean) records.get(i).get(name);
+                }
+                batch.addBooleans(name, values);
+            } else {
+                int[] codes = new int[rows];
+                for (int i = 0; i < rows; i++) {
+                    codes[i] = Arrays.asList(WORDS).indexOf(records.get(i).get(name));
+                }
+                batch.addStrings(name, codes, WORDS);
+            }
+        }
+        return batch;
+    }
+
+    abstract class Mode {
+
+        final String name;
+
+        Mode(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the outcome of each record, as outcome() writes it, or null
+         * for the records after one that failed if the mode stops there
+         * @throws Exception if the mode fails as a whole
+         */
+        abstract String[] run(String rule, List<Map<String, Object>> records) throws Exception;
+
+        String[] evaluateEach(JsonLogicTree tree, List<Map<String, Object>> records) {
+            String[] outcomes = new String[records.size()];
+            for (int i = 0; i < outcomes.length; i++) {
+                try {
+                    outcomes[i] = outcome(tree.evaluate(gson.toJson(records.get(i))));
+                } catch (Exception ex) {
+                    outcomes[i] = failure(ex);
+                }
+            }
+            return outcomes;
+        }
+    }
+
+    private static final class Mismatch {
+
+        final String rule;
+        final List<Map<String, Object>> records;
+        final Mode mode;
+        final int row;
+        final String expected;
+        final String actual;
+
+        Mismatch(String rule, List<Map<String, Object>> records, Mode mode, int row, String expected,
+                String actual) {
+            this.rule = rule;
+            this.records = records;
+            this.mode = mode;
+            this.row = row;
+            this.expected = expected;
+            this.actual = actual;
+        }
+    }
+
+    /**
+     * @return the first disagreement with the interpreter, or null
+     */
+    private Mismatch check(Expr rule, List<Map<String, Object>> records) {
+        String text = rule.toString();
+        String[] expected = new String[records.size()];
+        boolean anyFailure = false;
+        for (int i = 0; i < expected.length; i++) {
+            try {
+                expected[i] = outcome(jsonLogic.apply(text, gson.toJson(records.get(i))));
+            } catch (Exception ex) {
+                expected[i] = failure(ex);
+                anyFailure = true;
+                failures++;
+            }
+        }
+        this.records += expected.length;
+        for (Mode mode : modes) {
+            String[] actual;
+            try {
+                actual = mode.run(text, records);
+            } catch (Exception ex) {
+                // a batch fails as a whole with the failure of one of its records
+                String thrown = failure(ex);
+                if (!Arrays.asList(expected).contains(thrown)) {
+                    int row = anyFailure ? firstFailure(expected) : 0;
+                    return new Mismatch(text, records, mode, row, expected[row], thrown);
+                }
+                continue;
+            }
+            boolean stopped = false;
+            for (int i = 0; i < expected.length; i++) {
+                if (actual[i] == null && stopped) {
+                    continue;
+                }
+                if (!expected[i].equals(actual[i])) {
+                    return new Mismatch(text, records, mode, i, expected[i],
+                            actual[i] == null ? "nothing" : actual[i]);
+                }
+                stopped |= actual[i].startsWith("error ");
+            }
+        }
+        return null;
+    }
+
+    private static int firstFailure(String[] outcomes) {
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i].startsWith("error ")) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Reduces a failing case to the record that fails, then repeatedly
+     * replaces parts of the rule with smaller expressions of the same type
+     * for as long as the case keeps failing, and finally drops the fields of
+     * the record the failure does not depend on.
+     */
+    private Mismatch shrink(Expr rule, List<Map<String, Object>> records, Mismatch mismatch) {
+        List<Map<String, Object>> single = Collections.singletonList(records.get(mismatch.row));
+        Mismatch found = check(rule, single);
+        if (found != null) {
+            records = single;
+            mismatch = found;
+        }
+        boolean smaller = true;
+        while (smaller) {
+            smaller = false;
+            for (Expr candidate : candidates(rule)) {
+                found = check(candidate, records);
+                if (found != null) {
+                    rule = candidate;
+                    mismatch = found;
+                    smaller = true;
+                    break;
+                }
+            }
+        }
+        if (records.size() == 1) {
+            for (String name : new ArrayList<>(records.get(0).keySet())) {
+                Map<String, Object> record = new LinkedHashMap<>(records.get(0));
+                record.remove(name);
+                found = check(rule, Collections.singletonList(record));
+                if (found != null) {
+                    records = found.records;
+                    mismatch = found;
+                }
+            }
+        }
+        return mismatch;
+    }
+
+    /**
+     * Every rule that differs from expr by one simplification: a node
+     * replaced by one of its operands of the same type or by a constant, or
+     * an operand of a variadic node removed.
+     */
+    private static List<Expr> candidates(Expr expr) {
+        List<Expr> candidates = new ArrayList<>();
+        if (expr.operator == null) {
+            return candidates;
+        }
+        for (Expr operand : expr.operands) {
+            if (operand.type == expr.type) {
+                candidates.add(operand);
+            }
+        }
+        switch (expr.type) {
+            case 'n':
+                candidates.add(new Expr('n', "0"));
+                break;
+            case 's':
+                candidates.add(new Expr('s', "\"a\""));
+                break;
+            case 'b':
+                candidates.add(new Expr('b', "true"));
+                candidates.add(new Expr('b', "false"));
+                break;
+            default:
+                break;
+        }
+        boolean variadic = expr.operator.equals("and") || expr.operator.equals("or")
+                || expr.operator.equals("+") || expr.operator.equals("*")
+                || expr.operator.equals("min") || expr.operator.equals("max");
+        for (int i = 0; i < expr.operands.size(); i++) {
+            if (variadic && expr.operands.size() > 1) {
+                List<Expr> operands = new ArrayList<>(expr.operands);
+                operands.remove(i);
+                candidates.add(new Expr(expr.type, expr.operator, operands));
+            }
+            for (Expr replacement : candidates(expr.operands.get(i))) {
+                List<Expr> operands = new ArrayList<>(expr.operands);
+                operands.set(i, replacement);
+                candidates.add(new Expr(expr.type, expr.operator, operands));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Writes the type and the value of a result. A missing result and a null
+     * one both read as null, as they do in JSON, and so do zeros of either
+     * sign.
+     */
+    static String outcome(Result result) {
+        if (result == null || result.isNull()) {
+            return "null";
+        }
+        if (result.isBoolean()) {
+            return "boolean " + result.getBooleanValue();
+        }
+        if (result.isDouble()) {
+            return "number " + (result.getDoubleValue() + 0.0);
+        }
+        if (result.isString()) {
+            return "string " + result.getStringValue();
+        }
+        if (result.isArray()) {
+            return "array " + result.getArrayValue();
+        }
+        return "unknown " + result.getStringValue();
+    }
+
+    /**
+     * Writes the type and the value of a result written as JSON, the same
+     * way outcome(Result) does.
+     */
+    static String outcome(JsonElement json) {
+        if (json.isJsonNull()) {
+            return "null";
+        }
+        if (json.isJsonArray()) {
+            return "array " + json;
+        }
+        JsonPrimitive primitive = json.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return "boolean " + primitive.getAsBoolean();
+        }
+        if (primitive.isNumber()) {
+            return "number " + (primitive.getAsDouble() + 0.0);
+        }
+        return "string " + primitive.getAsString();
+    }
+
+    private static Result result(Object value) {
+        return new Result(value instanceof Number ? ((Number) value).doubleValue() : value);
+    }
+
+    static String failure(Throwable ex) {
+        return "error " + ex.getClass().getSimpleName() + ": " + ex.getMessage();
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks all, some, none and map over elements of each type, and that map
+ * keeps the numbers, strings and booleans its element expression gives.
+ *
+ * @author Richard
+ */
+public class ElementOperationsTests {
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void NumbersAreKept() throws Exception {
+        Assert.assertEquals("[2.0,4.0]", map("{\"map\":[[1,2],{\"*\":[{\"var\":\"\"},2]}]}"));
+    }
+
+    @Test
+    public void StringsAreKept() throws Exception {
+        Assert.assertEquals("[\"a!\",\"b!\"]", map("{\"map\":[[\"a\",\"b\"],{\"cat\":[{\"var\":\"\"},\"!\"]}]}"));
+        Assert.assertEquals("[\"x\",\"x\"]", map("{\"map\":[[1,2],{\"if\":[{\"var\":\"\"},\"x\",\"y\"]}]}"));
+    }
+
+    @Test
+    public void BooleansAreKept() throws Exception {
+        Assert.assertEquals("[false,true]", map("{\"map\":[[1,2],{\">\":[{\"var\":\"\"},1]}]}"));
+        Assert.assertEquals("[false,true]", map("{\"map\":[[true,false],{\"!\":[{\"var\":\"\"}]}]}"));
+    }
+
+    @Test
+    public void StringElementsAreStrings() throws Exception {
+        String data = "{\"xs\":[\"a\",\"b\"]}";
+        Assert.assertTrue(jsonLogic.apply("{\"some\":[{\"var\":\"xs\"},{\"==\":[{\"var\":\"\"},\"b\"]}]}", data).getBooleanValue());
+        Assert.assertFalse(jsonLogic.apply("{\"all\":[{\"var\":\"xs\"},{\"==\":[{\"var\":\"\"},\"b\"]}]}", data).getBooleanValue());
+        Assert.assertTrue(jsonLogic.apply("{\"none\":[{\"var\":\"xs\"},{\"==\":[{\"var\":\"\"},\"c\"]}]}", data).getBooleanValue());
+        Assert.assertEquals("[\"a!\",\"b!\"]", jsonLogic.apply("{\"map\":[{\"var\":\"xs\"},{\"cat\":[{\"var\":\"\"},\"!\"]}]}", data)
+                .getArrayValue().toString());
+    }
+
+    @Test
+    public void ElementsWrittenInTheRuleKeepTheirType() throws Exception {
+        Assert.assertTrue(jsonLogic.apply("{\"all\":[[1,2.5],{\">\":[{\"var\":\"\"},0]}]}", null).getBooleanValue());
+        Assert.assertTrue(jsonLogic.apply("{\"some\":[[false,true],{\"var\":\"\"}]}", null).getBooleanValue());
+        Assert.assertEquals(6.0, jsonLogic.apply("{\"reduce\":[[1,2,3],{\"+\":[{\"var\":\"current\"},"
+                + "{\"var\":\"accumulator\"}]},0]}", null).getDoubleValue());
+    }
+
+    private String map(String rule) throws Exception {
+        return jsonLogic.apply(rule, null).getArrayValue().toString();
+    }
+
+}
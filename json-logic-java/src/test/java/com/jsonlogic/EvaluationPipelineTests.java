@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import com.google.gson.Gson;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks EvaluationPipeline end to end, and that DataScanner reads records
+ * the way JsonLogicTree.convertData does.
+ *
+ * @author Richard
+ */
+public class EvaluationPipelineTests {
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void ResultsReachTheSinkInOrder() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        try (EvaluationPipeline pipeline = new EvaluationPipeline(jsonLogic.parse("{\"+\":[{\"var\":\"i\"},1]}"), sink, 16)) {
+            for (int i = 0; i < 1000; i++) {
+                pipeline.submit("{\"i\":" + i + "}");
+            }
+        }
+        Assert.assertEquals(1000, sink.results.size());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(String.valueOf(i + 1), sink.results.get(i));
+        }
+    }
+
+    @Test
+    public void FailedRecordsKeepTheirPlace() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        try (EvaluationPipeline pipeline = new EvaluationPipeline(jsonLogic.parse("{\"var\":\"s\"}"), sink)) {
+            pipeline.submit("{\"s\":\"a\\\"b\"}");
+            pipeline.submit("{\"s\":");
+            pipeline.submit("{\"s\":\"c\"}");
+        }
+        Assert.assertEquals("\"a\\\"b\"", sink.results.get(0));
+        Assert.assertEquals("failed: ParseException", sink.results.get(1));
+        Assert.assertEquals("\"c\"", sink.results.get(2));
+    }
+
+    @Test
+    public void FailingSinkIsReported() throws Exception {
+        EvaluationPipeline.Sink sink = new EvaluationPipeline.Sink() {
+            @Override
+            public void accept(long sequence, byte[] json) {
+                if (sequence == 3) {
+                    throw new IllegalArgumentException("sink is full");
+                }
+            }
+
+            @Override
+            public void failed(long sequence, Exception ex) {
+            }
+        };
+        EvaluationPipeline pipeline = new EvaluationPipeline(jsonLogic.parse("{\"var\":\"i\"}"), sink, 4);
+        boolean refused = false;
+        for (int i = 0; i < 1000 && !refused; i++) {
+            try {
+                pipeline.submit("{\"i\":" + i + "}");
+            } catch (IllegalStateException ex) {
+                refused = true;
+            }
+            if (i == 10) {
+                // give the stages time to reach the failing record
+                Thread.sleep(200);
+            }
+        }
+        Assert.assertTrue("records were accepted after the Sink failed", refused);
+        try {
+            pipeline.close();
+            Assert.fail("the Sink's failure was not reported");
+        } catch (IllegalStateException ex) {
+            Assert.assertTrue(ex.getMessage().contains("not delivered"));
+            Assert.assertTrue(ex.getCause().getMessage().contains("record 3"));
+            Assert.assertTrue(ex.getCause().getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void CloseKeepsTheInterrupt() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        EvaluationPipeline pipeline = new EvaluationPipeline(jsonLogic.parse("{\"var\":\"i\"}"), sink);
+        pipeline.submit("{\"i\":1}");
+        Thread.currentThread().interrupt();
+        pipeline.close();
+        Assert.assertTrue(Thread.interrupted());
+        Assert.assertEquals(1, sink.results.size());
+    }
+
+    @Test
+    public void IdleStagesPark() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        try (EvaluationPipeline pipeline = new EvaluationPipeline(jsonLogic.parse("{\"var\":\"i\"}"), sink)) {
+            pipeline.submit("{\"i\":1}");
+            // the stages spin and yield briefly before they park without a timeout
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (parkedStages() < 3) {
+                Assert.assertTrue("the stages did not park", System.nanoTime() < deadline);
+                Thread.sleep(10);
+            }
+            pipeline.submit("{\"i\":2}");
+        }
+        Assert.assertEquals(2, sink.results.size());
+    }
+
+    private static int parkedStages() {
+        int parked = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            String name = thread.getName();
+            boolean stage = name.equals("jsonlogic-scan") || name.equals("jsonlogic-evaluate") || name.equals("jsonlogic-serialize");
+            if (stage && thread.getState() == Thread.State.WAITING) {
+                parked++;
+            }
+        }
+        return parked;
+    }
+
+    @Test
+    public void ScannerMatchesConvertData() throws Exception {
+        String[] records = {
+            "{}",
+            " { \"a\" : 1 , \"b\" : -2.5e3 } \n",
+            "{\"s\":\"caf\u00e9 \\u00e9 \\n \\\" \\\\ \\/\"}",
+            "{\"n\":null,\"t\":true,\"f\":false}",
+            "{\"z\":0,\"m\":-0.25,\"e\":1E+2,\"g\":30e-1}",
+            "{\"o\":{\"p\":{\"q\":\"deep\"}},\"r\":4}",
+            "{\"xs\":[1,2,3],\"ys\":[\"a\",\"b\"]}",
+            "{\"objects\":[{\"x\":1},{\"x\":2,\"y\":\"z\"}]}",
+            "{\"emoji\":\"\ud83d\ude00\"}"
+        };
+        Gson gson = new Gson();
+        DataScanner scanner = new DataScanner();
+        for (String record : records) {
+            Map<String, Result> expected = JsonLogicTree.convertData(gson, record);
+            Map<String, Result> actual = scanner.scan(record.getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals(record, expected.keySet(), actual.keySet());
+            for (String name : expected.keySet()) {
+                Assert.assertEquals(record, expected.get(name).getStringValue(), actual.get(name).getStringValue());
+            }
+        }
+    }
+
+    @Test
+    public void ScannerRejectsMalformedRecords() throws Exception {
+        String[] records = {
+            "{\"a\":1} x",
+            "{\"a\":1}}",
+            "{\"a\":1}{}",
+            "{\"a\":\"line\nbreak\"}",
+            "{\"a\":\"tab\there\"}",
+            "{\"a\":\"\\n then \u0001\"}",
+            "{\"a\":1",
+            "{\"a\":tru}",
+            "{\"a\":\"\\x\"}",
+            "[1]",
+            "{\"a\":+1}",
+            "{\"a\":01}",
+            "{\"a\":1e}",
+            "{\"a\":-}",
+            "{\"a\":1.}",
+            "{\"a\":.5}",
+            "{\"a\":1e+}",
+            "{\"a\":1.5.2}",
+            "{\"a\":1-2}"
+        };
+        DataScanner scanner = new DataScanner();
+        for (String record : records) {
+            try {
+                scanner.scan(record.getBytes(StandardCharsets.UTF_8));
+                Assert.fail("accepted " + record);
+            } catch (ParseException ex) {
+                // expected
+            }
+        }
+    }
+
+    private static final class CollectingSink implements EvaluationPipeline.Sink {
+
+        final List<String> results = new ArrayList<>();
+
+        @Override
+        public void accept(long sequence, byte[] json) {
+            Assert.assertEquals(results.size(), sequence);
+            results.add(new String(json, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void failed(long sequence, Exception ex) {
+            Assert.assertEquals(results.size(), sequence);
+            results.add("failed: " + ex.getClass().getSimpleName());
+        }
+    }
+
+}
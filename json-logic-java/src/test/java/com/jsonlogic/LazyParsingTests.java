@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that a lazily parsed rule parses a branch only when an evaluation
+ * reaches it, once, and that nothing but evaluation makes it do so.
+ *
+ * @author Richard
+ */
+public class LazyParsingTests {
+
+    private static final String BRANCH = "{\"cat\":[\"the branch that is not taken\",{\"counted\":[\"!\"]}]}";
+    private static final String RULE = "{\"if\":[{\"var\":\"a\"},{\"var\":\"b\"}," + BRANCH + "]}";
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final JsonLogic jsonLogic = new JsonLogic(new OperatorRegistry()
+            .registerFactory("counted", operands -> {
+                created.incrementAndGet();
+                return values -> values[0];
+            }, true, 1));
+
+    @Test
+    public void UntakenBranchesAreNeverParsed() throws Exception {
+        JsonLogicTree tree = jsonLogic.parse(RULE, 1);
+        Assert.assertEquals(1.0, tree.evaluate("{\"a\":true,\"b\":1}").getDoubleValue());
+        tree.getFingerprint();
+        Assert.assertEquals("if ({\"var\":\"a\"}, {\"var\":\"b\"}, " + BRANCH + ")", tree.treeToString());
+        tree.estimateRetainedBytes();
+        tree.estimateCost();
+        tree.write(new ByteArrayOutputStream());
+        tree.reduce();
+        Assert.assertEquals(0, created.get());
+        Assert.assertEquals(1, lazyNodes(tree.root(), false).size());
+
+        Assert.assertEquals("the branch that is not taken!", tree.evaluate("{\"a\":false}").getStringValue());
+        Assert.assertEquals(1, created.get());
+        Assert.assertEquals(0, lazyNodes(tree.root(), false).size());
+    }
+
+    @Test
+    public void MalformedBranchesFailWhenReached() throws Exception {
+        JsonLogicTree tree = jsonLogic.parse("{\"if\":[{\"var\":\"a\"},1,{\"nope\":[1]}]}", 1);
+        Assert.assertEquals(1.0, tree.evaluate("{\"a\":true}").getDoubleValue());
+        for (int i = 0; i < 2; i++) {
+            try {
+                tree.evaluate("{\"a\":false}");
+                Assert.fail("the malformed branch was evaluated");
+            } catch (EvaluationException ex) {
+                // the position is in the whole rule
+                Assert.assertEquals("Malformed branch of a lazily parsed rule: Unknown operation 'nope' at position 29",
+                        ex.getMessage());
+                Assert.assertTrue(ex.getCause() instanceof ParseException);
+            }
+        }
+        Assert.assertEquals("if ({\"var\":\"a\"}, 1.0, {\"nope\":[1]})", tree.treeToString());
+    }
+
+    @Test
+    public void FingerprintsMatchAnEagerParse() throws Exception {
+        String rule = "{\"if\":[{\"var\":\"a\"},1, {\"cat\" : [\"x\", \"\\\" \u00e9\ud83d\ude00\"]}]}";
+        long eager = jsonLogic.parse(rule).getFingerprint();
+        JsonLogicTree tree = jsonLogic.parse(rule, 1);
+        Assert.assertEquals(2, lazyNodes(tree.root(), false).size());
+        Assert.assertEquals(eager, tree.getFingerprint());
+        tree.evaluate("{\"a\":false}");
+        Assert.assertEquals(1, lazyNodes(tree.root(), false).size());
+        Assert.assertEquals(eager, tree.getFingerprint());
+        Assert.assertEquals(eager, jsonLogic.parse(rule.getBytes(StandardCharsets.UTF_8)).getFingerprint());
+
+        // whitespace counts only inside strings
+        String laidOut = rule.replace(",", ",\n\t").replace("{", " { ");
+        Assert.assertEquals(eager, jsonLogic.parse(laidOut, 1).getFingerprint());
+        Assert.assertFalse(eager == jsonLogic.parse(rule.replace("\\\" ", "\\\"")).getFingerprint());
+    }
+
+    @Test
+    public void RuleCharactersAreCountedOnce() throws Exception {
+        StringBuilder rule = new StringBuilder("{\"or\":[{\"var\":\"x0\"}");
+        for (int i = 1; i < 50; i++) {
+            rule.append(",{\"==\":[{\"var\":\"x").append(i).append("\"},\"branch ").append(i).append("\"]}");
+        }
+        rule.append("]}");
+        JsonLogicTree tree = jsonLogic.parse(rule.toString(), 1);
+        Assert.assertEquals(49, lazyNodes(tree.root(), false).size());
+        long nodes = Footprint.object(5, 8) + shallowBytes(tree.root());
+        Assert.assertEquals(nodes + Footprint.array(rule.length(), 2), tree.estimateRetainedBytes());
+
+        // the characters are let go once every branch is parsed
+        Assert.assertFalse(tree.evaluate("{}").getBooleanValue());
+        Assert.assertEquals(0, lazyNodes(tree.root(), false).size());
+        Assert.assertEquals(Footprint.object(5, 8) + shallowBytes(tree.root()), tree.estimateRetainedBytes());
+    }
+
+    @Test
+    public void BranchesAreParsedOnceAcrossThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                JsonLogicTree tree = jsonLogic.parse(RULE, 1);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Result>> results = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return tree.evaluate("{\"a\":false}");
+                    }));
+                }
+                start.countDown();
+                for (Future<Result> result : results) {
+                    Assert.assertEquals("the branch that is not taken!", result.get().getStringValue());
+                }
+                Assert.assertEquals(round + 1, created.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void ZeroParsesEverything() throws Exception {
+        Assert.assertEquals(0, lazyNodes(jsonLogic.parse(RULE, 0).root(), true).size());
+        Assert.assertEquals(1, created.get());
+        try {
+            jsonLogic.parse(RULE, -1);
+            Assert.fail("accepted a negative length");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    private static List<LazyNode> lazyNodes(Node node, boolean parsedToo) {
+        List<LazyNode> found = new ArrayList<>();
+        collect(node, parsedToo, found);
+        return found;
+    }
+
+    private static void collect(Node node, boolean parsedToo, List<LazyNode> found) {
+        if (node instanceof LazyNode && (parsedToo || !((LazyNode) node).isParsed())) {
+            found.add((LazyNode) node);
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            collect(node.child(i), parsedToo, found);
+        }
+    }
+
+    private static long shallowBytes(Node node) {
+        long bytes = node.shallowBytes();
+        for (int i = 0; i < node.childCount(); i++) {
+            bytes += shallowBytes(node.child(i));
+        }
+        return bytes;
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that JsonLogic.parseAll() loads every rule of a list or a file
+ * under its index, reports failures without stopping, and indexes the trees
+ * by the fingerprint of the rule as it was parsed.
+ *
+ * @author Richard
+ */
+public class LoadedRulesTests {
+
+    private static final int RULES = 3000;
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void RulesKeepTheirIndex() throws Exception {
+        List<String> rules = rules(RULES);
+        assertLoaded(jsonLogic.parseAll(rules));
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertLoaded(jsonLogic.parseAll(rules, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void FilesAreReadByLine() throws Exception {
+        Path file = Files.createTempFile("jsonlogic", ".txt");
+        try {
+            Files.write(file, rules(RULES), StandardCharsets.UTF_8);
+            assertLoaded(jsonLogic.parseAll(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void MissingFilesAreReported() throws Exception {
+        jsonLogic.parseAll(Files.createTempDirectory("jsonlogic").resolve("missing.txt"));
+    }
+
+    @Test
+    public void FailuresAndBlankRulesAreKeptApart() throws Exception {
+        LoadedRules loaded = jsonLogic.parseAll(Arrays.asList(
+                "{\"var\":\"a\"}", "", null, "{\"==\":[1]}", "  ", "{\"/\":[1,0]}"));
+        Assert.assertEquals(6, loaded.size());
+        Assert.assertTrue(loaded.hasErrors());
+        Assert.assertEquals("[3]", loaded.getErrors().keySet().toString());
+        Assert.assertTrue(loaded.getErrors().get(3) instanceof ParseException);
+        Assert.assertNotNull(loaded.getTree(0));
+        Assert.assertNull(loaded.getTree(1));
+        Assert.assertNull(loaded.getTree(2));
+        Assert.assertNull(loaded.getTree(4));
+        Assert.assertNotNull(loaded.getTree(5));
+    }
+
+    @Test
+    public void FingerprintsAreOfTheParsedRule() throws Exception {
+        String rule = "{\"+\":[{\"var\":\"a\"},{\"*\":[2,3]}]}";
+        LoadedRules loaded = jsonLogic.parseAll(Arrays.asList(rule, rule, "{\"var\":\"a\"}"));
+        long parsed = jsonLogic.parse(rule).getFingerprint();
+        JsonLogicTree tree = loaded.getTreeByFingerprint(parsed);
+        Assert.assertSame(loaded.getTree(0), tree);
+        Assert.assertEquals(parsed, tree.getFingerprint());
+        // reduced, though found by the rule as written
+        Assert.assertEquals("{\"+\":[{\"var\":\"a\"},6.0]}", tree.treeToString());
+        Assert.assertSame(loaded.getTree(2), loaded.getTreeByFingerprint(jsonLogic.parse("{\"var\":\"a\"}").getFingerprint()));
+        Assert.assertNull(loaded.getTreeByFingerprint(parsed + 1));
+    }
+
+    private static List<String> rules(int count) {
+        List<String> rules = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rules.add(i % 100 == 7 ? "{\"<\":[" + i + "]}" : "{\"+\":[{\"var\":\"i\"}," + i + "]}");
+        }
+        return rules;
+    }
+
+    private static void assertLoaded(LoadedRules loaded) throws Exception {
+        Assert.assertEquals(RULES, loaded.size());
+        for (int i = 0; i < RULES; i++) {
+            if (i % 100 == 7) {
+                Assert.assertNull(loaded.getTree(i));
+                Assert.assertTrue(loaded.getErrors().get(i) instanceof ParseException);
+            } else {
+                Assert.assertEquals(i + 1.0, loaded.getTree(i).evaluate("{\"i\":1}").getDoubleValue());
+            }
+        }
+        Assert.assertEquals(RULES / 100, loaded.getErrors().size());
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the precision of LatencyHistogram and what HistogramMetrics is told
+ * by JsonLogic and its trees.
+ *
+ * @author Richard
+ */
+public class MetricsTests {
+
+    @Test
+    public void SmallValuesAreExact() {
+        for (long value = 0; value < 128; value++) {
+            Assert.assertEquals(value, LatencyHistogram.highestValue(LatencyHistogram.index(value)));
+        }
+    }
+
+    @Test
+    public void BucketsAreWithinOneSixtyFourth() {
+        Random random = new Random(33);
+        int previous = -1;
+        for (long value = 0; value < 1 << 20; value++) {
+            int index = LatencyHistogram.index(value);
+            Assert.assertTrue(index >= previous);
+            previous = index;
+            assertWithinPrecision(value);
+        }
+        for (int i = 0; i < 100000; i++) {
+            assertWithinPrecision((random.nextLong() >>> 1) >>> random.nextInt(63));
+        }
+        assertWithinPrecision(Long.MAX_VALUE);
+    }
+
+    private static void assertWithinPrecision(long value) {
+        long highest = LatencyHistogram.highestValue(LatencyHistogram.index(value));
+        Assert.assertTrue(value + " rounds down to " + highest, highest >= value);
+        Assert.assertTrue(value + " rounds up to " + highest, highest - value <= value / 64);
+    }
+
+    @Test
+    public void Percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+        Assert.assertEquals(10000, histogram.getCount());
+        Assert.assertEquals(10000, histogram.getMax());
+        Assert.assertEquals(5000.5, histogram.getMean(), 1e-9);
+        assertNear(5000, histogram.getValueAtPercentile(50));
+        assertNear(9900, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(10000, histogram.getValueAtPercentile(100));
+        Assert.assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        Assert.assertTrue(expected + " reported as " + actual, actual >= expected && actual - expected <= expected / 64);
+    }
+
+    @Test
+    public void EmptyAndNegative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(0.0, histogram.getMean());
+        histogram.record(-5);
+        Assert.assertEquals(1, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void ConcurrentRecording() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    histogram.record(i % 1000);
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        Assert.assertEquals(400000, histogram.getCount());
+        Assert.assertEquals(999, histogram.getMax());
+    }
+
+    @Test
+    public void HistogramMetricsSeesJsonLogic() throws Exception {
+        HistogramMetrics metrics = new HistogramMetrics();
+        JsonLogic jsonLogic = new JsonLogic(metrics, 10);
+        for (int i = 0; i < 5; i++) {
+            jsonLogic.apply("{\"var\":\"a\"}", "{\"a\":" + i + "}");
+        }
+        try {
+            jsonLogic.apply("{\"var\":\"a\"}", "{\"a\":");
+            Assert.fail("the malformed data was not reported");
+        } catch (ParseException ex) {
+            // expected
+        }
+        Assert.assertEquals(1, metrics.getParseLatency().getCount());
+        Assert.assertEquals(5, metrics.getEvaluationLatency().getCount());
+        Assert.assertEquals(5, metrics.getDataConversionLatency().getCount());
+        Assert.assertEquals(1, metrics.getCacheMisses());
+        Assert.assertEquals(5, metrics.getCacheHits());
+        Assert.assertEquals(Long.valueOf(1), metrics.getErrorCounts().get(ParseException.class.getName()));
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that custom operators are registered, looked up, checked and
+ * reduced as OperatorRegistry documents, including inside the element
+ * expressions of all, some, none, map, filter and reduce.
+ *
+ * @author Richard
+ */
+public class OperatorRegistryTests {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final OperatorRegistry registry = new OperatorRegistry()
+            .register("starts_with", operands -> new Result(operands[0].getStringValue()
+                    .startsWith(operands[1].getStringValue())), true, 2)
+            .register("twice", operands -> new Result(operands[0].getDoubleValue() * 2), true, 1)
+            .register("counted", operands -> {
+                calls.incrementAndGet();
+                return operands[0];
+            }, false, 1)
+            .registerFactory("pair", operands -> {
+                if (operands != 2) {
+                    throw new ParseException("pair takes 2 operands, not " + operands);
+                }
+                return values -> new Result(values[0].getStringValue() + values[1].getStringValue());
+            }, true, 1);
+    private final JsonLogic jsonLogic = new JsonLogic(registry);
+
+    @Test
+    public void CustomOperatorsAreEvaluated() throws Exception {
+        Assert.assertTrue(jsonLogic.apply("{\"starts_with\":[{\"var\":\"s\"},\"ab\"]}", "{\"s\":\"abc\"}").getBooleanValue());
+        Assert.assertEquals(6.0, jsonLogic.apply("{\"twice\":{\"+\":[1,2]}}", null).getDoubleValue());
+        Assert.assertEquals("ab", jsonLogic.apply("{\"pair\":[\"a\",\"b\"]}", null).getStringValue());
+        Assert.assertEquals("{\"twice\":[{\"var\":\"a\"}]}", jsonLogic.parse("{\"twice\":{\"var\":\"a\"}}").treeToString());
+    }
+
+    @Test
+    public void CustomOperatorsWorkOnElements() throws Exception {
+        Assert.assertEquals("[true,false]", jsonLogic.apply(
+                "{\"map\":[[\"ab\",\"cd\"],{\"starts_with\":[{\"var\":\"\"},\"a\"]}]}", null).getArrayValue().toString());
+        Assert.assertEquals("[2.0,4.0,6.0]", jsonLogic.apply(
+                "{\"map\":[{\"var\":\"xs\"},{\"twice\":{\"var\":\"\"}}]}", "{\"xs\":[1,2,3]}").getArrayValue().toString());
+        Assert.assertTrue(jsonLogic.apply("{\"all\":[[1,2],{\">\":[{\"twice\":{\"var\":\"\"}},1]}]}", null).getBooleanValue());
+        Assert.assertTrue(jsonLogic.apply("{\"some\":[[1,2],{\"==\":[{\"twice\":{\"var\":\"\"}},4]}]}", null).getBooleanValue());
+        Assert.assertTrue(jsonLogic.apply("{\"none\":[[1,2],{\"==\":[{\"twice\":{\"var\":\"\"}},3]}]}", null).getBooleanValue());
+        Assert.assertEquals(12.0, jsonLogic.apply("{\"reduce\":[[1,2,3],{\"+\":[{\"twice\":{\"var\":\"current\"}},"
+                + "{\"var\":\"accumulator\"}]},0]}", null).getDoubleValue());
+        Assert.assertEquals("[{\"x\":2.0}]", jsonLogic.apply("{\"filter\":[{\"var\":\"objects\"},"
+                + "{\"==\":[{\"twice\":{\"var\":\"x\"}},4]}]}", "{\"objects\":[{\"x\":1},{\"x\":2}]}").getArrayValue().toString());
+
+        // an impure operator runs for each element
+        Assert.assertEquals(6.0, jsonLogic.apply("{\"reduce\":[[1,2,3],{\"+\":[{\"counted\":{\"var\":\"current\"}},"
+                + "{\"var\":\"accumulator\"}]},0]}", null).getDoubleValue());
+        Assert.assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void ElementExpressionsAreBuiltOnce() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        JsonLogic counting = new JsonLogic(new OperatorRegistry()
+                .registerFactory("suffix", operands -> {
+                    created.incrementAndGet();
+                    return values -> new Result(values[0].getStringValue() + "!");
+                }, true, 1));
+        JsonLogicTree tree = counting.parse("{\"map\":[{\"var\":\"xs\"},{\"suffix\":{\"var\":\"\"}}]}");
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals("[\"a!\",\"b!\",\"c!\"]", tree.evaluate("{\"xs\":[\"a\",\"b\",\"c\"]}").getArrayValue().toString());
+        }
+        Assert.assertEquals(1, created.get());
+    }
+
+    @Test
+    public void NamesMustBeFree() {
+        for (String name : new String[]{"==", "var", "map", "twice", "", "a\"b", "a\\b", "a\nb"}) {
+            try {
+                registry.register(name, operands -> null, true, 1);
+                Assert.fail("registered " + name);
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+        try {
+            new OperatorRegistry().register("cheap", operands -> null, true, 0);
+            Assert.fail("registered a cost of 0");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        Assert.assertEquals("[starts_with, twice, counted, pair]", registry.names().toString());
+    }
+
+    @Test
+    public void LaterOperatorsReachLaterInstances() throws Exception {
+        registry.register("later", operands -> new Result(true), true, 1);
+        try {
+            jsonLogic.parse("{\"later\":[]}");
+            Assert.fail("the operator reached an earlier JsonLogic");
+        } catch (ParseException ex) {
+            Assert.assertEquals("Unknown operation 'later' at position 9", ex.getMessage());
+        }
+        Assert.assertTrue(new JsonLogic(registry).apply("{\"later\":[]}", null).getBooleanValue());
+        try {
+            new JsonLogic().parse("{\"twice\":1}");
+            Assert.fail("a plain JsonLogic knew a custom operator");
+        } catch (ParseException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void FactoriesCheckTheOperands() throws Exception {
+        for (String rule : new String[]{"{\"pair\":\"a\"}", "{\"pair\":[\"a\",\"b\",\"c\"]}", "{\"pair\":[]}"}) {
+            try {
+                jsonLogic.parse(rule);
+                Assert.fail("accepted " + rule);
+            } catch (ParseException ex) {
+                Assert.assertTrue(ex.getMessage(), ex.getMessage().startsWith("pair takes 2 operands"));
+            }
+        }
+    }
+
+    @Test
+    public void ReduceFoldsOnlyPureOperators() throws Exception {
+        JsonLogicTree pure = jsonLogic.parse("{\"+\":[{\"twice\":[3]},{\"var\":\"a\"}]}");
+        pure.reduce();
+        Assert.assertEquals("{\"+\":[6.0,{\"var\":\"a\"}]}", pure.treeToString());
+
+        JsonLogicTree impure = jsonLogic.parse("{\"+\":[{\"counted\":[3]},{\"var\":\"a\"}]}");
+        impure.reduce();
+        Assert.assertEquals("{\"+\":[{\"counted\":[3.0]},{\"var\":\"a\"}]}", impure.treeToString());
+        Assert.assertEquals(0, calls.get());
+        impure.evaluate("{\"a\":1}");
+        impure.evaluate("{\"a\":1}");
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void EveryNameHasItsOwnSlot() {
+        OperatorRegistry many = new OperatorRegistry();
+        for (int i = 0; i < 500; i++) {
+            many.register("op" + i, operands -> null, true, 1);
+        }
+        OperatorTable table = many.table();
+        for (int code = 0; code < RuleParser.OPERATORS.length; code++) {
+            Assert.assertEquals(code, table.code(RuleParser.OPERATORS[code]));
+        }
+        for (int i = 0; i < 500; i++) {
+            int code = table.code("op" + i);
+            Assert.assertEquals(RuleParser.OPERATORS.length + i, code);
+            Assert.assertEquals("op" + i, table.custom(code).name);
+            Assert.assertEquals(OperatorTable.UNKNOWN, table.code("op" + i + "x"));
+        }
+        Assert.assertEquals(OperatorTable.UNKNOWN, table.code("op"));
+        Assert.assertEquals(OperatorTable.UNKNOWN, table.code("op500"));
+        Assert.assertEquals(OperatorTable.UNKNOWN, OperatorTable.BUILT_IN.code("op0"));
+    }
+
+}
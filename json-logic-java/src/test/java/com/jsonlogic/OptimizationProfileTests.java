@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that an OptimizationProfile carries what adaptive ordering has
+ * learnt over to the same rule parsed again.
+ *
+ * @author Richard
+ */
+public class OptimizationProfileTests {
+
+    private static final String RULE = "{\"and\":[{\"var\":\"a\"},{\"==\":[1,1]},{\"var\":\"b\"}]}";
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void ReduceKeepsTheFingerprint() throws Exception {
+        JsonLogicTree tree = jsonLogic.parse(RULE);
+        long parsed = tree.getFingerprint();
+        String text = tree.treeToString();
+        tree.reduce();
+        Assert.assertFalse(text.equals(tree.treeToString()));
+        Assert.assertEquals(parsed, tree.getFingerprint());
+
+        // whether or not the fingerprint was asked for before reducing
+        JsonLogicTree other = jsonLogic.parse(RULE);
+        other.reduce();
+        Assert.assertEquals(parsed, other.getFingerprint());
+    }
+
+    @Test
+    public void ReducedRulesGetTheirCounts() throws Exception {
+        JsonLogicTree learnt = jsonLogic.parse(RULE);
+        learnt.reduce();
+        OptimizationProfile profile = new OptimizationProfile();
+        Assert.assertFalse(profile.apply(learnt));
+        for (int i = 0; i < 2 * OperandOrder.INTERVAL; i++) {
+            learnt.evaluate("{\"a\":true,\"b\":false}");
+        }
+        profile.capture(learnt);
+        Assert.assertEquals(1, profile.size());
+
+        StringWriter writer = new StringWriter();
+        profile.write(writer);
+        OptimizationProfile read = OptimizationProfile.read(new StringReader(writer.toString()));
+        Assert.assertEquals(1, read.size());
+
+        JsonLogicTree restarted = jsonLogic.parse(RULE);
+        restarted.reduce();
+        Assert.assertTrue(read.apply(restarted));
+        int[] expected = ((AndNode) learnt.root()).order().permutation();
+        int[] actual = ((AndNode) restarted.root()).order().permutation();
+        Assert.assertTrue(Arrays.toString(actual), Arrays.equals(expected, actual));
+        Assert.assertEquals(2, actual[0]);
+    }
+
+    @Test
+    public void OtherRulesAreLeftAlone() throws Exception {
+        JsonLogicTree learnt = jsonLogic.parse(RULE);
+        OptimizationProfile profile = new OptimizationProfile();
+        profile.apply(learnt);
+        learnt.evaluate("{\"a\":true,\"b\":false}");
+        profile.capture(learnt);
+        JsonLogicTree other = jsonLogic.parse("{\"and\":[{\"var\":\"b\"},{\"var\":\"a\"}]}");
+        Assert.assertFalse(profile.apply(other));
+        // applying still turns adaptive ordering on
+        Assert.assertNotNull(((AndNode) other.root()).order());
+    }
+
+    @Test
+    public void MalformedProfilesAreRejected() throws Exception {
+        String[] documents = {
+            "[]",
+            "{\"version\":2,\"rules\":{}}",
+            "{\"version\":1}",
+            "{\"version\":1,\"rules\":{\"xyz\":{}}}",
+            "{\"version\":1,\"rules\":{\"1f\":{\"\":{\"evaluations\":[\"a\"],\"decisions\":[1]}}}}",
+            "{\"version\":1,\"rules\":{\"1f\":{\"\":{\"decisions\":[1]}}}}",
+            "{"
+        };
+        for (String document : documents) {
+            try {
+                OptimizationProfile.read(new StringReader(document));
+                Assert.fail("read " + document);
+            } catch (ParseException ex) {
+                // expected
+            }
+        }
+    }
+
+}
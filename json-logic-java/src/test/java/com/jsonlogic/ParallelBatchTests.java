@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import junit.framework.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Checks that batches evaluated in parallel give the results of evaluating
+ * each record on its own, in input order, on every kind of executor.
+ *
+ * @author Richard
+ */
+public class ParallelBatchTests {
+
+    private static final int RECORDS = 5000;
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void ListOnCommonPool() throws Exception {
+        JsonLogicTree tree = jsonLogic.parse("{\"+\":[{\"var\":\"i\"},1]}");
+        assertInOrder(tree.evaluateAll(records(RECORDS)));
+    }
+
+    @Test
+    public void ListOnThreadPool() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            JsonLogicTree tree = jsonLogic.parse("{\"+\":[{\"var\":\"i\"},1]}");
+            assertInOrder(tree.evaluateAll(records(RECORDS), executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void ListOnBoundedExecutor() throws Exception {
+        // one thread and no queue: anything beyond a single worker is rejected
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+        try {
+            JsonLogicTree tree = jsonLogic.parse("{\"+\":[{\"var\":\"i\"},1]}");
+            for (int i = 0; i < 20; i++) {
+                assertInOrder(tree.evaluateAll(records(RECORDS), executor));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void IteratorOnCommonPool() throws Exception {
+        JsonLogicTree tree = jsonLogic.parse("{\"+\":[{\"var\":\"i\"},1]}");
+        assertInOrder(tree.evaluateAll(records(RECORDS).iterator()));
+    }
+
+    @Test
+    public void IteratorOnBoundedExecutor() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+        try {
+            JsonLogicTree tree = jsonLogic.parse("{\"+\":[{\"var\":\"i\"},1]}");
+            assertInOrder(tree.evaluateAll(records(RECORDS).iterator(), executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void IteratorReleasesEvaluatedChunks() throws Exception {
+        List<WeakReference<Object>> seen = new ArrayList<>();
+        Iterator<Object> items = new Iterator<Object>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < RECORDS;
+            }
+
+            @Override
+            public Object next() {
+                next++;
+                Object item = new byte[64];
+                seen.add(new WeakReference<>(item));
+                return item;
+            }
+        };
+        boolean[] released = new boolean[1];
+        // the calling thread runs every chunk, so the first one is done
+        // before the last one is read
+        List<Integer> results = ParallelBatch.run(items, Runnable::run, item -> {
+            if (seen.size() == RECORDS && !released[0]) {
+                for (int attempt = 0; attempt < 10 && seen.get(0).get() != null; attempt++) {
+                    System.gc();
+                }
+                released[0] = seen.get(0).get() == null;
+            }
+            return seen.size();
+        });
+        Assert.assertEquals(RECORDS, results.size());
+        Assert.assertTrue("the first chunk was still reachable", released[0]);
+    }
+
+    @Test(timeout = 60000)
+    public void BatchesFromTasksOfTheirOwnExecutor() throws Exception {
+        // the nested batch's workers queue behind the task that waits for it
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            JsonLogicTree tree = jsonLogic.parse("{\"+\":[{\"var\":\"i\"},1]}");
+            assertInOrder(executor.submit(() -> tree.evaluateAll(records(RECORDS), executor)).get());
+            assertInOrder(executor.submit(() -> tree.evaluateAll(records(RECORDS).iterator(), executor)).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void IteratorChunksAreShared() throws Exception {
+        // a chunk is shared between as many threads as there are processors
+        Assume.assumeTrue(Runtime.getRuntime().availableProcessors() > 1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // fewer items than the first chunk holds
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            List<Integer> items = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                items.add(i);
+            }
+            List<Integer> results = ParallelBatch.run(items.iterator(), executor, item -> {
+                threads.add(Thread.currentThread());
+                long until = System.nanoTime() + 1000000;
+                while (System.nanoTime() < until) {
+                    Thread.yield();
+                }
+                return item;
+            });
+            Assert.assertEquals(items, results);
+            Assert.assertTrue("one thread evaluated the chunk", threads.size() > 1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void FirstFailureIsRethrown() throws Exception {
+        JsonLogicTree tree = jsonLogic.parse("{\"+\":[{\"var\":\"i\"},1]}");
+        List<String> data = records(RECORDS);
+        data.set(RECORDS / 2, "{\"i\":");
+        try {
+            tree.evaluateAll(data);
+            Assert.fail("the malformed record was not reported");
+        } catch (ParseException ex) {
+            // expected
+        }
+        try {
+            tree.evaluateAll(data.iterator());
+            Assert.fail("the malformed record was not reported");
+        } catch (ParseException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void RuleSetInOrder() throws Exception {
+        RuleSet rules = new RuleSet();
+        rules.add("next", jsonLogic.parse("{\"+\":[{\"var\":\"i\"},1]}"));
+        rules.add("even", jsonLogic.parse("{\"==\":[{\"%\":[{\"var\":\"i\"},2]},0]}"));
+        List<Map<String, Result>> results = rules.evaluateAll(records(RECORDS));
+        Assert.assertEquals(RECORDS, results.size());
+        for (int i = 0; i < RECORDS; i++) {
+            Assert.assertEquals(i + 1.0, results.get(i).get("next").getDoubleValue());
+            Assert.assertEquals(i % 2 == 0, results.get(i).get("even").getBooleanValue());
+        }
+    }
+
+    private static List<String> records(int count) {
+        List<String> data = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            data.add("{\"i\":" + i + "}");
+        }
+        return data;
+    }
+
+    private static void assertInOrder(List<Result> results) {
+        Assert.assertEquals(RECORDS, results.size());
+        for (int i = 0; i < RECORDS; i++) {
+            Assert.assertEquals(i + 1.0, results.get(i).getDoubleValue());
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that parse(String), parse(char[], int, int) and parse(byte[])
+ * reject malformed rules with the same message and position, and read the
+ * same characters. BulkTests evaluates every rule of BulkTests.txt through
+ * all three.
+ *
+ * @author Richard
+ */
+public class ParserTests {
+
+    private static final String[][] MALFORMED = {
+        {"", "Unexpected end of the rule at position 0"},
+        {"   ", "Unexpected end of the rule at position 3"},
+        {"{", "Expecting an operation at position 1"},
+        {"{\"==\":[1,2]", "Expecting '}' at position 11"},
+        {"{\"==\":[1,2]} x", "Unexpected characters after the rule at position 13"},
+        {"{\"==\":[1]}", "Expecting another operand at position 8"},
+        {"{\"==\":[1,2,3]}", "Expecting ']' at position 10"},
+        {"{\"<\":[1]}", "Expecting another operand at position 7"},
+        {"{\"<\":[1,2,3,4]}", "Expecting ']' at position 11"},
+        {"{\"<=\":[1,2,3,4]}", "Expecting ']' at position 12"},
+        {"{\"nope\":[1]}", "Unknown operation 'nope' at position 8"},
+        {"{\"var\":}", "Expecting the name of a variable at position 7"},
+        {"{\"==\":[1,tru]}", "Expecting 'true' at position 9"},
+        {"{\"==\":[\"a\\x\"]}", "Invalid escape sequence at position 10"},
+        {"{\"==\":[\"abc", "Unterminated string at position 11"},
+        {"{\"==\":[01,2]}", "Invalid number at position 9"},
+        {"{\"==\":[-,2]}", "Invalid number at position 8"},
+        {"{\"!\":[]}", "Unexpected character ']' at position 6"},
+        {"{\"!\":[true,false]}", "Expecting ']' at position 10"},
+        {"{\"!\":5}", "Expecting a boolean or an array of one boolean at position 5"},
+        {"{\"if\":[true,1,2", "Expecting ',' or ']' at position 15"},
+        {"{\"merge\":5}", "Expecting an array of operands at position 9"}
+    };
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void ErrorsGiveThePosition() {
+        for (String[] malformed : MALFORMED) {
+            String rule = malformed[0];
+            String expected = malformed[1];
+            Assert.assertEquals(rule, expected, error(() -> jsonLogic.parse(rule)));
+            // positions count from the start of the rule, not of the array
+            char[] chars = ("{[" + rule + "]}").toCharArray();
+            Assert.assertEquals(rule, expected, error(() -> jsonLogic.parse(chars, 2, rule.length())));
+            byte[] bytes = rule.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(rule, expected, error(() -> jsonLogic.parse(bytes)));
+        }
+    }
+
+    @Test
+    public void BytePositionsCountBytes() {
+        String rule = "{\"cat\":[\"\u00e9\u65e5\",1,]}";
+        Assert.assertEquals("Unexpected character ']' at position 15", error(() -> jsonLogic.parse(rule)));
+        Assert.assertEquals("Unexpected character ']' at position 18",
+                error(() -> jsonLogic.parse(rule.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void StringsReadTheSame() throws Exception {
+        String rule = "{\"cat\":[\"\u00e9\u65e5\ud83d\ude00\",\"\\u00e9\\n\\\"\\/\"]}";
+        String expected = "\u00e9\u65e5\ud83d\ude00\u00e9\n\"/";
+        Assert.assertEquals(expected, jsonLogic.parse(rule).evaluate("{}").getStringValue());
+        Assert.assertEquals(expected, jsonLogic.parse(rule.getBytes(StandardCharsets.UTF_8)).evaluate("{}").getStringValue());
+        char[] chars = rule.toCharArray();
+        Assert.assertEquals(expected, jsonLogic.parse(chars, 0, chars.length).evaluate("{}").getStringValue());
+    }
+
+    @Test
+    public void TheArrayIsNotKept() throws Exception {
+        char[] chars = "{\"var\":\"a\"}".toCharArray();
+        JsonLogicTree tree = jsonLogic.parse(chars, 0, chars.length);
+        Arrays.fill(chars, ' ');
+        Assert.assertEquals(1.0, tree.evaluate("{\"a\":1}").getDoubleValue());
+        Assert.assertEquals("{\"var\":\"a\"}", tree.treeToString());
+    }
+
+    @Test
+    public void NumbersTakeEveryForm() throws Exception {
+        Assert.assertEquals(-12.5, jsonLogic.parse("{\"+\":[-1.25e1,0]}").evaluate("{}").getDoubleValue());
+        Assert.assertEquals(150.0, jsonLogic.parse("{\"+\":[1.5E+2,0]}").evaluate("{}").getDoubleValue());
+        Assert.assertEquals(0.015, jsonLogic.parse("{\"+\":[1.5e-2,0]}").evaluate("{}").getDoubleValue());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void RangeMustBeInTheArray() throws Exception {
+        jsonLogic.parse(new char[4], 2, 3);
+    }
+
+    private interface Parse {
+
+        JsonLogicTree run() throws ParseException;
+    }
+
+    private static String error(Parse parse) {
+        try {
+            parse.run();
+        } catch (ParseException ex) {
+            return ex.getMessage();
+        }
+        return "parsed";
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the byte budgets of RuleCache and RuleSet, which weigh trees with
+ * JsonLogicTree.estimateRetainedBytes().
+ *
+ * @author Richard
+ */
+public class RuleCacheTests {
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void CacheStaysWithinItsByteBudget() throws Exception {
+        long weight = jsonLogic.parse(rule(0)).estimateRetainedBytes();
+        RuleCache cache = new RuleCache(0, 3 * weight + weight / 2, null);
+        for (int i = 0; i < 10; i++) {
+            cache.get(rule(i), this::load);
+            Assert.assertTrue(cache.bytes() <= 3 * weight + weight / 2);
+        }
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(3 * weight, cache.bytes());
+        Assert.assertEquals(10, loads.get());
+
+        // the tree added last is never the one evicted
+        cache.get(rule(9), this::load);
+        Assert.assertEquals(10, loads.get());
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    public void BudgetIsSharedBySegments() throws Exception {
+        // one tree is more than a segment's share of the budget
+        long weight = jsonLogic.parse(rule(0)).estimateRetainedBytes();
+        RuleCache cache = new RuleCache(0, 2 * weight, null);
+        cache.get(rule(0), this::load);
+        cache.get(rule(1), this::load);
+        Assert.assertEquals(2, cache.size());
+        cache.get(rule(0), this::load);
+        cache.get(rule(1), this::load);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void TreesHeavierThanTheBudgetAreNotKept() throws Exception {
+        long weight = jsonLogic.parse(rule(0)).estimateRetainedBytes();
+        RuleCache cache = new RuleCache(0, weight - 1, null);
+        Assert.assertEquals(1.0, cache.get(rule(0), this::load).evaluate("{\"a\":1}").getDoubleValue());
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    public void RuleSetRefusesTreesOverItsBudget() throws Exception {
+        JsonLogicTree first = jsonLogic.parse(rule(0));
+        long weight = first.estimateRetainedBytes();
+        RuleSet rules = new RuleSet(2 * weight);
+        rules.add("first", first);
+        rules.add("second", jsonLogic.parse(rule(1)));
+        try {
+            rules.add("third", jsonLogic.parse(rule(2)));
+            Assert.fail("the rule set grew beyond its budget");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        Assert.assertEquals(2, rules.size());
+        Assert.assertNull(rules.get("third"));
+        Assert.assertEquals(2 * weight, rules.getEstimatedRetainedBytes());
+
+        // replacing a tree only counts the new one
+        rules.add("first", jsonLogic.parse(rule(3)));
+        Assert.assertEquals(2 * weight, rules.getEstimatedRetainedBytes());
+        rules.remove("second");
+        Assert.assertEquals(weight, rules.getEstimatedRetainedBytes());
+    }
+
+    private JsonLogicTree load(String rule) throws ParseException {
+        loads.incrementAndGet();
+        return jsonLogic.parse(rule);
+    }
+
+    /**
+     * Rules of the same shape and weight.
+     */
+    private static String rule(int i) {
+        return "{\"+\":[{\"var\":\"a\"}," + i + "]}";
+    }
+
+}
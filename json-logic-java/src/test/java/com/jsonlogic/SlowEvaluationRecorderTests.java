@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks which evaluations a SlowEvaluationRecorder keeps and what it keeps
+ * of them.
+ *
+ * @author Richard
+ */
+public class SlowEvaluationRecorderTests {
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void SlowEvaluationsAreKept() throws Exception {
+        // every evaluation takes at least 0 ns
+        SlowEvaluationRecorder recorder = new SlowEvaluationRecorder(0, 0, 8);
+        JsonLogicTree tree = jsonLogic.parse("{\"+\":[{\"var\":\"a\"},1]}");
+        tree.setSlowEvaluationRecorder(recorder);
+        tree.evaluate("{\"a\":41}");
+
+        List<CapturedEvaluation> captured = recorder.getCaptured();
+        Assert.assertEquals(1, captured.size());
+        CapturedEvaluation evaluation = captured.get(0);
+        Assert.assertFalse(evaluation.isSampled());
+        Assert.assertEquals(tree.getFingerprint(), evaluation.getFingerprint());
+        Assert.assertEquals(tree.treeToString(), evaluation.getRule());
+        Assert.assertEquals("{\"a\":41}", evaluation.getData());
+        Assert.assertEquals(41.0, evaluation.getVariables().get("a").getDoubleValue());
+        Assert.assertTrue(evaluation.getTimestamp() > 0);
+    }
+
+    @Test
+    public void FastEvaluationsAreOnlySampled() throws Exception {
+        SlowEvaluationRecorder never = new SlowEvaluationRecorder(Long.MAX_VALUE, 0, 8);
+        SlowEvaluationRecorder always = new SlowEvaluationRecorder(Long.MAX_VALUE, 1, 8);
+        JsonLogicTree first = jsonLogic.parse("{\"var\":\"a\"}");
+        JsonLogicTree second = jsonLogic.parse("{\"var\":\"a\"}");
+        first.setSlowEvaluationRecorder(never);
+        second.setSlowEvaluationRecorder(always);
+        for (int i = 0; i < 20; i++) {
+            first.evaluate("{\"a\":" + i + "}");
+            second.evaluate("{\"a\":" + i + "}");
+        }
+        Assert.assertTrue(never.getCaptured().isEmpty());
+
+        // the ring keeps the 8 most recent, oldest first
+        List<CapturedEvaluation> captured = always.getCaptured();
+        Assert.assertEquals(8, captured.size());
+        for (int i = 0; i < 8; i++) {
+            Assert.assertTrue(captured.get(i).isSampled());
+            Assert.assertEquals(12 + i, captured.get(i).getSequence());
+            Assert.assertEquals(12.0 + i, captured.get(i).getVariables().get("a").getDoubleValue());
+        }
+    }
+
+    @Test
+    public void CapturesAreDetachedFromTheData() throws Exception {
+        SlowEvaluationRecorder recorder = new SlowEvaluationRecorder(0, 0, 2);
+        JsonLogicTree tree = jsonLogic.parse("{\"var\":\"a\"}");
+        tree.setSlowEvaluationRecorder(recorder);
+        Map<String, Result> data = new HashMap<>();
+        data.put("a", new Result(1.0));
+        tree.evaluate(data);
+        data.put("a", new Result(2.0));
+        CapturedEvaluation evaluation = recorder.getCaptured().get(0);
+        Assert.assertNull(evaluation.getData());
+        Assert.assertEquals(1.0, evaluation.getVariables().get("a").getDoubleValue());
+    }
+
+    @Test
+    public void ReplayIsProfiled() throws Exception {
+        SlowEvaluationRecorder recorder = new SlowEvaluationRecorder(0, 0, 2);
+        JsonLogicTree tree = jsonLogic.parse("{\"and\":[{\"var\":\"a\"},{\"var\":\"b\"}]}");
+        tree.setSlowEvaluationRecorder(recorder);
+        tree.evaluate("{\"a\":false,\"b\":true}");
+        EvaluationProfile profile = recorder.getCaptured().get(0).getProfile();
+        Assert.assertEquals(1, profile.getRoot().getInvocations());
+        Assert.assertEquals(1, profile.getRoot().getChildren().get(0).getInvocations());
+        // 'and' stops at the first falsy operand
+        Assert.assertEquals(0, profile.getRoot().getChildren().get(1).getInvocations());
+        Assert.assertSame(profile, recorder.getCaptured().get(0).getProfile());
+    }
+
+    @Test
+    public void ClearEmptiesTheRing() throws Exception {
+        SlowEvaluationRecorder recorder = new SlowEvaluationRecorder(0, 0, 2);
+        JsonLogicTree tree = jsonLogic.parse("{\"var\":\"a\"}");
+        tree.setSlowEvaluationRecorder(recorder);
+        tree.evaluate("{\"a\":1}");
+        recorder.clear();
+        Assert.assertTrue(recorder.getCaptured().isEmpty());
+        tree.setSlowEvaluationRecorder(null);
+        tree.evaluate("{\"a\":1}");
+        Assert.assertTrue(recorder.getCaptured().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void CapacityMustBePositive() {
+        new SlowEvaluationRecorder(0, 0, 0);
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the slowest-rules table and the attributes JsonLogicStatistics
+ * publishes.
+ *
+ * @author Richard
+ */
+public class StatisticsTests {
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void SlowestAreKeptSlowestFirst() throws Exception {
+        SlowestRules slowest = new SlowestRules(3);
+        JsonLogicTree[] trees = new JsonLogicTree[5];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = jsonLogic.parse("{\"+\":[{\"var\":\"a\"}," + i + "]}");
+            slowest.record(trees[i], 100 * (i + 1));
+        }
+        List<RuleLatency> rules = slowest.getSlowest();
+        Assert.assertEquals(3, rules.size());
+        Assert.assertEquals(500, rules.get(0).getMaxNanos());
+        Assert.assertEquals(400, rules.get(1).getMaxNanos());
+        Assert.assertEquals(300, rules.get(2).getMaxNanos());
+        Assert.assertEquals(trees[4].getFingerprint(), rules.get(0).getFingerprint());
+        Assert.assertEquals(trees[4].treeToString(), rules.get(0).getRule());
+
+        // below the floor of a full table
+        slowest.record(trees[0], 250);
+        Assert.assertEquals(300, slowest.getSlowest().get(2).getMaxNanos());
+    }
+
+    @Test
+    public void OneEntryPerRule() throws Exception {
+        SlowestRules slowest = new SlowestRules(3);
+        JsonLogicTree tree = jsonLogic.parse("{\"var\":\"a\"}");
+        slowest.record(tree, 100);
+        slowest.record(tree, 300);
+        slowest.record(tree, 200);
+        List<RuleLatency> rules = slowest.getSlowest();
+        Assert.assertEquals(1, rules.size());
+        Assert.assertEquals(300, rules.get(0).getMaxNanos());
+    }
+
+    @Test
+    public void ClearResetsTheFloor() throws Exception {
+        SlowestRules slowest = new SlowestRules(2);
+        slowest.record(jsonLogic.parse("{\"var\":\"a\"}"), 1000);
+        slowest.record(jsonLogic.parse("{\"var\":\"b\"}"), 2000);
+        slowest.clear();
+        Assert.assertTrue(slowest.getSlowest().isEmpty());
+        slowest.record(jsonLogic.parse("{\"var\":\"c\"}"), 1);
+        Assert.assertEquals(1, slowest.getSlowest().size());
+    }
+
+    @Test
+    public void ClearWinsOverConcurrentRecords() throws Exception {
+        JsonLogicTree[] trees = new JsonLogicTree[8];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = jsonLogic.parse("{\"var\":\"v" + i + "\"}");
+        }
+        JsonLogicTree late = jsonLogic.parse("{\"var\":\"late\"}");
+        for (int round = 0; round < 200; round++) {
+            SlowestRules slowest = new SlowestRules(4);
+            AtomicBoolean stop = new AtomicBoolean();
+            CountDownLatch started = new CountDownLatch(1);
+            Thread recorder = new Thread(() -> {
+                started.countDown();
+                for (long n = 1_000_000; !stop.get(); n++) {
+                    slowest.record(trees[(int) (n % trees.length)], n);
+                }
+            });
+            recorder.start();
+            started.await();
+            Thread.yield();
+            stop.set(true);
+            recorder.join();
+            slowest.clear();
+            // nothing recorded since clear(), so any evaluation gets in
+            slowest.record(late, 1);
+            Assert.assertEquals("round " + round, 1, slowest.getSlowest().size());
+        }
+    }
+
+    @Test
+    public void StatisticsFollowJsonLogic() throws Exception {
+        JsonLogicStatistics statistics = new JsonLogicStatistics();
+        JsonLogic cached = new JsonLogic(statistics, 10);
+        cached.apply("{\"var\":\"a\"}", "{\"a\":1}");
+        cached.apply("{\"var\":\"a\"}", "{\"a\":2}");
+        cached.apply("{\"var\":\"b\"}", "{\"b\":3}");
+        try {
+            cached.apply("{\"var\":\"b\"}", "{\"b\":");
+            Assert.fail("the malformed data was not reported");
+        } catch (ParseException ex) {
+            // expected
+        }
+        Assert.assertEquals(2, statistics.getParsedTrees());
+        Assert.assertEquals(2, statistics.getCachedTrees());
+        Assert.assertEquals(3, statistics.getEvaluations());
+        Assert.assertEquals(1, statistics.getErrors());
+        Assert.assertEquals(0.5, statistics.getCacheHitRatio());
+        Assert.assertTrue(statistics.getEstimatedRetainedBytes() > 0);
+        Assert.assertTrue(statistics.getMaxEvaluationNanos() >= statistics.getP99EvaluationNanos());
+        Assert.assertEquals(2, statistics.getSlowestRules().size());
+        statistics.resetSlowestRules();
+        Assert.assertTrue(statistics.getSlowestRules().isEmpty());
+    }
+
+    @Test
+    public void NoLookupsHaveNoRatio() {
+        Assert.assertTrue(Double.isNaN(new JsonLogicStatistics().getCacheHitRatio()));
+    }
+
+    @Test
+    public void AttributesAreReadThroughJmx() throws Exception {
+        JsonLogicStatistics statistics = new JsonLogicStatistics();
+        JsonLogic registered = new JsonLogic(statistics, 10);
+        registered.apply("{\"var\":\"a\"}", "{\"a\":1}");
+        ObjectName name = statistics.register("StatisticsTests");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            Assert.assertEquals(1L, server.getAttribute(name, "Evaluations"));
+            Assert.assertEquals(1L, server.getAttribute(name, "CachedTrees"));
+            Assert.assertEquals(1, ((Object[]) server.getAttribute(name, "SlowestRules")).length);
+            server.invoke(name, "resetSlowestRules", null, null);
+            Assert.assertEquals(0, ((Object[]) server.getAttribute(name, "SlowestRules")).length);
+        } finally {
+            statistics.unregister();
+        }
+        Assert.assertFalse(server.isRegistered(name));
+    }
+
+}
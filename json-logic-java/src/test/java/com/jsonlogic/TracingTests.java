@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks what reaches an installed TraceSink, and that AsyncTraceSink
+ * delivers, limits and drops records as documented.
+ *
+ * @author Richard
+ */
+public class TracingTests {
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @After
+    public void uninstall() {
+        JsonLogic.setTraceSink(null);
+    }
+
+    @Test
+    public void LogReachesTheSink() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        JsonLogic.setTraceSink(sink);
+        Result result = jsonLogic.apply("{\"log\":{\"+\":[{\"var\":\"a\"},1]}}", "{\"a\":2}");
+        Assert.assertEquals(3.0, result.getDoubleValue());
+        Assert.assertEquals(1, sink.records.size());
+        Assert.assertTrue(sink.records.get(0).endsWith("=3"));
+
+        JsonLogic.setTraceSink(null);
+        jsonLogic.apply("{\"log\":1}", null);
+        Assert.assertEquals(1, sink.records.size());
+    }
+
+    @Test
+    public void UnsampledRecordsAreNotDelivered() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        sink.sampled = false;
+        JsonLogic.setTraceSink(sink, true);
+        jsonLogic.apply("{\"log\":1}", null);
+        Assert.assertTrue(sink.records.isEmpty());
+    }
+
+    @Test
+    public void EvaluationsAreTracedWhenAsked() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        JsonLogicTree tree = jsonLogic.parse("{\"var\":\"a\"}");
+        JsonLogic.setTraceSink(sink);
+        tree.evaluate("{\"a\":1}");
+        Assert.assertTrue(sink.records.isEmpty());
+
+        JsonLogic.setTraceSink(sink, true);
+        tree.evaluate("{\"a\":1}");
+        Assert.assertEquals(Collections.singletonList("evaluation " + tree.getFingerprint() + "=1"), sink.records);
+    }
+
+    @Test
+    public void AsyncSinkDeliversOnClose() throws Exception {
+        CollectingSink delegate = new CollectingSink();
+        AsyncTraceSink sink = new AsyncTraceSink(delegate);
+        for (int i = 0; i < 100; i++) {
+            sink.log("x", new Result((double) i));
+        }
+        sink.close();
+        Assert.assertEquals(100, delegate.records.size());
+        Assert.assertEquals("x=99", delegate.records.get(99));
+
+        sink.log("late", new Result(true));
+        Assert.assertFalse(sink.sample());
+        Assert.assertEquals(100, delegate.records.size());
+        Assert.assertEquals(1, sink.getDropped());
+    }
+
+    @Test
+    public void AsyncSinkSurvivesFailingDelegate() throws Exception {
+        CollectingSink delegate = new CollectingSink();
+        delegate.failOn = "bad";
+        AsyncTraceSink sink = new AsyncTraceSink(delegate);
+        sink.log("bad", new Result(null));
+        sink.log("good", new Result(null));
+        sink.close();
+        Assert.assertEquals(1, delegate.records.size());
+    }
+
+    @Test
+    public void AsyncSinkLimitsTheRate() throws Exception {
+        AsyncTraceSink sink = new AsyncTraceSink(new CollectingSink(), 16, 1, 10);
+        int kept = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (sink.sample()) {
+                kept++;
+            }
+        }
+        sink.close();
+        // a burst of a second's worth, and perhaps one more as time passes
+        Assert.assertTrue("kept " + kept, kept >= 10 && kept <= 12);
+        Assert.assertEquals(1000 - kept, sink.getDropped());
+    }
+
+    @Test
+    public void CloseKeepsTheInterrupt() throws Exception {
+        AsyncTraceSink sink = new AsyncTraceSink(new CollectingSink());
+        Thread.currentThread().interrupt();
+        sink.close();
+        Assert.assertTrue(Thread.interrupted());
+    }
+
+    private static final class CollectingSink implements TraceSink {
+
+        final List<String> records = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean sampled = true;
+        volatile String failOn;
+
+        @Override
+        public void log(String expression, Result result) {
+            if (expression.equals(failOn)) {
+                throw new IllegalStateException(expression);
+            }
+            records.add(expression + "=" + result.getStringValue());
+        }
+
+        @Override
+        public void evaluation(long fingerprint, Result result, long nanos) {
+            records.add("evaluation " + fingerprint + "=" + result.getStringValue());
+        }
+
+        @Override
+        public boolean sample() {
+            return sampled;
+        }
+    }
+
+}
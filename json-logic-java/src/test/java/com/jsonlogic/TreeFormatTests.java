@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that trees read back from their binary form as they were written,
+ * and that damaged or foreign input is refused with a ParseException.
+ * BulkTests writes and reads every rule of BulkTests.txt, before and after
+ * reduce().
+ *
+ * @author Richard
+ */
+public class TreeFormatTests {
+
+    private static final String[] RULES = {
+        "{\"-\":[3]}",
+        "{\"==\":[1e300,1.5]}",
+        "{\"+\":\"3.5\"}",
+        "{\"==\":[-9007199254740993,1]}",
+        "{\"cat\":[\"caf\u00e9 \ud83d\ude00\",{\"var\":[\"a.s\",\"none\"]}]}",
+        "{\"and\":[true,{\"!\":false},{\"==\":[null,{\"var\":\"n\"}]}]}",
+        "{\"in\":[{\"var\":\"x\"},[1,\"two\",[3],4.5]]}",
+        "{\"if\":[{\"var\":\"a\"},{\"var\":\"a\"},{\"var\":\"b\"},{\"var\":\"a\"},{\"missing_some\":[1,[\"a\",\"b\"]]}]}"
+    };
+
+    private final OperatorRegistry registry = new OperatorRegistry()
+            .register("twice", operands -> new Result(operands[0].getDoubleValue() * 2), true, 1);
+    private final JsonLogic jsonLogic = new JsonLogic(registry);
+
+    @Test
+    public void TreesReadBackAsWritten() throws Exception {
+        for (String rule : RULES) {
+            JsonLogicTree tree = jsonLogic.parse(rule);
+            JsonLogicTree read = jsonLogic.read(ByteBuffer.wrap(bytes(tree)));
+            Assert.assertEquals(rule, tree.treeToString(), read.treeToString());
+            Assert.assertEquals(rule, tree.getFingerprint(), read.getFingerprint());
+            String data = "{\"a\":{\"b\":2,\"s\":\"s\"},\"x\":\"two\"}";
+            Assert.assertEquals(rule, tree.evaluate(data).getStringValue(), read.evaluate(data).getStringValue());
+        }
+    }
+
+    @Test
+    public void TreesFollowEachOther() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String rule : RULES) {
+            jsonLogic.parse(rule).write(out);
+        }
+        jsonLogic.parse("{\"twice\":{\"var\":\"a\"}}").write(out);
+        Path file = Files.createTempFile("jsonlogic", ".bin");
+        try {
+            Files.write(file, out.toByteArray());
+            List<JsonLogicTree> trees = jsonLogic.readAll(file);
+            Assert.assertEquals(RULES.length + 1, trees.size());
+            for (int i = 0; i < RULES.length; i++) {
+                Assert.assertEquals(jsonLogic.parse(RULES[i]).treeToString(), trees.get(i).treeToString());
+            }
+            Assert.assertEquals(4.0, trees.get(RULES.length).evaluate("{\"a\":2}").getDoubleValue());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void LazyBranchesAreWrittenAsText() throws Exception {
+        String branch = "{\"==\":[{\"var\":\"b\"},\"" + String.join("", Collections.nCopies(40, "long")) + "\"]}";
+        String rule = "{\"or\":[{\"var\":\"a\"},{\"==\":[{\"twice\":1},2]}, " + branch + "]}";
+        JsonLogicTree lazy = jsonLogic.parse(rule, 1);
+        Assert.assertTrue(lazy.evaluate("{\"a\":false}").getBooleanValue());
+        JsonLogicTree read = jsonLogic.read(ByteBuffer.wrap(bytes(lazy)));
+        // the operand that was reached is written parsed, the other as written
+        Assert.assertEquals("{\" || \":[{\"var\":\"a\"},{\"==\":[{\"twice\":[1.0]},2.0]}," + branch + "]}",
+                read.treeToString());
+        Assert.assertTrue(read.evaluate("{\"a\":false}").getBooleanValue());
+
+        JsonLogicTree malformed = jsonLogic.parse("{\"or\":[{\"var\":\"a\"},{\"nope\":[1]}]}", 1);
+        JsonLogicTree readMalformed = jsonLogic.read(ByteBuffer.wrap(bytes(malformed)));
+        Assert.assertTrue(readMalformed.evaluate("{\"a\":true}").getBooleanValue());
+        try {
+            readMalformed.evaluate("{\"a\":false}");
+            Assert.fail("the malformed branch was evaluated");
+        } catch (EvaluationException ex) {
+            Assert.assertEquals("Malformed branch of a lazily parsed rule: Unknown operation 'nope' at position 8",
+                    ex.getMessage());
+        }
+    }
+
+    @Test
+    public void OtherVersionsAreRefused() throws Exception {
+        byte[] bytes = bytes(jsonLogic.parse("{\"var\":\"a\"}"));
+        bytes[4] = (byte) (TreeFormat.VERSION + 1);
+        assertRefused(bytes, "Unsupported binary tree version " + (TreeFormat.VERSION + 1));
+        bytes[4] = (byte) TreeFormat.VERSION;
+        bytes[0] = '{';
+        assertRefused(bytes, "Not a binary JsonLogic tree");
+    }
+
+    @Test
+    public void TruncatedTreesAreRefused() throws Exception {
+        for (String rule : RULES) {
+            byte[] bytes = bytes(jsonLogic.parse(rule));
+            for (int length = 0; length < bytes.length; length++) {
+                try {
+                    jsonLogic.read(ByteBuffer.wrap(Arrays.copyOf(bytes, length)));
+                    Assert.fail(rule + " read from " + length + " of " + bytes.length + " bytes");
+                } catch (ParseException ex) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    @Test
+    public void NegativeCountsAreRefused() throws Exception {
+        byte[] tree = bytes(jsonLogic.parse("{\"var\":\"a\"}"));
+        byte[] bytes = Arrays.copyOf(tree, tree.length + 10);
+        // The body length, a varlong of one byte after the header, becomes -1
+        Arrays.fill(bytes, 5, 14, (byte) 0xff);
+        bytes[14] = 0x01;
+        System.arraycopy(tree, 6, bytes, 15, tree.length - 6);
+        assertRefused(bytes, "Malformed binary tree: negative count -1");
+    }
+
+    @Test
+    public void FailedReadsKeepThePosition() throws Exception {
+        byte[] bytes = bytes(jsonLogic.parse("{\"var\":\"a\"}"));
+        ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1));
+        try {
+            jsonLogic.read(buffer);
+            Assert.fail("read a truncated tree");
+        } catch (ParseException ex) {
+            Assert.assertEquals("Truncated binary tree", ex.getMessage());
+        }
+        Assert.assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void CustomOperatorsMustBeKnown() throws Exception {
+        byte[] bytes = bytes(jsonLogic.parse("{\"+\":[{\"twice\":{\"var\":\"a\"}},1]}"));
+        assertRefused(new JsonLogic(), bytes, "Unknown operation 'twice'");
+        OperatorRegistry other = new OperatorRegistry()
+                .register("thrice", operands -> new Result(operands[0].getDoubleValue() * 3), true, 1);
+        assertRefused(new JsonLogic(other), bytes, "Unknown operation 'twice'");
+        Assert.assertEquals(5.0, new JsonLogic(registry).read(ByteBuffer.wrap(bytes)).evaluate("{\"a\":2}").getDoubleValue());
+    }
+
+    private static byte[] bytes(JsonLogicTree tree) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.write(out);
+        return out.toByteArray();
+    }
+
+    private void assertRefused(byte[] bytes, String message) {
+        assertRefused(jsonLogic, bytes, message);
+    }
+
+    private static void assertRefused(JsonLogic jsonLogic, byte[] bytes, String message) {
+        try {
+            jsonLogic.read(ByteBuffer.wrap(bytes));
+            Assert.fail("read " + message);
+        } catch (ParseException ex) {
+            Assert.assertEquals(message, ex.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Records the flight recorder events of a parse and an evaluation and checks
+ * what they carry.
+ *
+ * @author Richard
+ */
+public class JfrEventsTests {
+
+    private static final String RULE = "{\"map\":[{\"var\":\"xs\"},{\"*\":[{\"var\":\"\"},2]}]}";
+
+    @Test
+    public void NothingIsBegunWithoutARecording() {
+        Assert.assertNull(JfrEvents.beginParse());
+        Assert.assertNull(JfrEvents.beginDataConversion());
+        Assert.assertNull(JfrEvents.beginEvaluation());
+        Assert.assertNull(JfrEvents.beginOperator());
+    }
+
+    @Test
+    public void EventsCarryTheRule() throws Exception {
+        JsonLogic jsonLogic = new JsonLogic();
+        JsonLogicTree tree;
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (String name : new String[]{"com.jsonlogic.Parse", "com.jsonlogic.DataConversion",
+                "com.jsonlogic.Evaluation", "com.jsonlogic.Operator"}) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            tree = jsonLogic.parse(RULE);
+            tree.evaluate("{\"xs\":[1,2,3],\"y\":true}");
+            recording.stop();
+            Path file = Files.createTempFile("jsonlogic", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        // the events of the rule are picked out by its fingerprint
+        RecordedEvent parse = single(events, "com.jsonlogic.Parse", tree.getFingerprint());
+        Assert.assertEquals(RULE.length(), parse.getInt("ruleLength"));
+        Assert.assertEquals(5, parse.getInt("nodes"));
+
+        RecordedEvent conversion = single(events, "com.jsonlogic.DataConversion", null);
+        Assert.assertEquals(2, conversion.getInt("variables"));
+
+        RecordedEvent evaluation = single(events, "com.jsonlogic.Evaluation", tree.getFingerprint());
+        Assert.assertEquals(2, evaluation.getInt("variables"));
+
+        RecordedEvent operator = single(events, "com.jsonlogic.Operator", null);
+        Assert.assertEquals("map", operator.getString("operator"));
+        Assert.assertEquals(3, operator.getInt("elements"));
+        Assert.assertEquals(JsonLogicTree.fingerprint(operator.getString("expression")), operator.getLong("fingerprint"));
+    }
+
+    /**
+     * Returns the only event of the type, and with the fingerprint unless
+     * that is null.
+     */
+    private static RecordedEvent single(List<RecordedEvent> events, String name, Long fingerprint) {
+        List<RecordedEvent> found = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)
+                    && (fingerprint == null || event.getLong("fingerprint") == fingerprint)) {
+                found.add(event);
+            }
+        }
+        Assert.assertEquals(name, 1, found.size());
+        return found.get(0);
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import junit.framework.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Checks that VectorKernels gives exactly what ScalarKernels gives, around
+ * the bitmap word and vector lengths where the vector loops hand over to the
+ * scalar ones. NaN stands in for a null in numeric columns, -1 in string
+ * codes. Run with the jdk.incubator.vector module added.
+ *
+ * @author Richard
+ */
+public class VectorKernelsTests {
+
+    private static final int[] COMPARISONS = {ColumnKernels.LT, ColumnKernels.LE, ColumnKernels.GT, ColumnKernels.GE, ColumnKernels.EQ};
+    private static final int[] ARITHMETIC = {ColumnKernels.ADD, ColumnKernels.SUB, ColumnKernels.MUL, ColumnKernels.DIV, ColumnKernels.MOD};
+    // few distinct values, so that equal operands are common
+    private static final double[] VALUES = {-2.5, -1, -0.0, 0.0, 1, 2.5, 3, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    private final ScalarKernels scalar = new ScalarKernels();
+    private final Random random = new Random(42);
+
+    @Test
+    public void KernelsMatchAtEveryBoundary() {
+        ScalarKernels vector = VectorKernels.create();
+        Assume.assumeTrue("the CPU has no usable vector registers", vector instanceof VectorKernels);
+        for (int rows : rowCounts()) {
+            for (int round = 0; round < 20; round++) {
+                check(vector, rows);
+            }
+        }
+    }
+
+    private static TreeSet<Integer> rowCounts() {
+        TreeSet<Integer> rows = new TreeSet<>(Arrays.asList(0, 1, 63, 64, 65, 127, 128, 129, 1000));
+        for (int lanes : new int[]{DoubleVector.SPECIES_PREFERRED.length(), LongVector.SPECIES_PREFERRED.length()}) {
+            rows.add(lanes - 1);
+            rows.add(lanes);
+            rows.add(lanes + 1);
+            rows.add(64 + lanes + 1);
+        }
+        return rows;
+    }
+
+    private void check(ScalarKernels vector, int rows) {
+        double[] a = doubles(rows);
+        double[] b = doubles(rows);
+        double c = VALUES[random.nextInt(VALUES.length)];
+        String at = " at " + rows + " rows";
+        for (int op : COMPARISONS) {
+            long[] expected = new long[Column.words(rows)];
+            long[] actual = new long[Column.words(rows)];
+            scalar.compare(op, a, b, expected, 0, rows);
+            vector.compare(op, a, b, actual, 0, rows);
+            assertEquals("compare " + op + at, expected, actual);
+
+            expected = new long[Column.words(rows)];
+            actual = new long[Column.words(rows)];
+            scalar.compare(op, a, c, expected, 0, rows);
+            vector.compare(op, a, c, actual, 0, rows);
+            assertEquals("compare " + op + " with " + c + at, expected, actual);
+
+            expected = new long[Column.words(rows)];
+            actual = new long[Column.words(rows)];
+            scalar.compare(op, c, b, expected, 0, rows);
+            vector.compare(op, c, b, actual, 0, rows);
+            assertEquals("compare " + c + " with " + op + at, expected, actual);
+        }
+        for (int op : ARITHMETIC) {
+            double[] expected = new double[rows];
+            double[] actual = new double[rows];
+            scalar.arithmetic(op, a, b, expected, 0, rows);
+            vector.arithmetic(op, a, b, actual, 0, rows);
+            assertEquals("arithmetic " + op + at, expected, actual);
+
+            scalar.arithmetic(op, a, c, expected, 0, rows);
+            vector.arithmetic(op, a, c, actual, 0, rows);
+            assertEquals("arithmetic " + op + " with " + c + at, expected, actual);
+
+            scalar.arithmetic(op, c, b, expected, 0, rows);
+            vector.arithmetic(op, c, b, actual, 0, rows);
+            assertEquals("arithmetic " + c + " with " + op + at, expected, actual);
+        }
+
+        long[] expected = new long[Column.words(rows)];
+        long[] actual = new long[Column.words(rows)];
+        scalar.notZero(a, expected, 0, rows);
+        vector.notZero(a, actual, 0, rows);
+        assertEquals("notZero" + at, expected, actual);
+
+        int[] codes = codes(rows);
+        int[] others = codes(rows);
+        expected = new long[Column.words(rows)];
+        actual = new long[Column.words(rows)];
+        scalar.equal(codes, -1, expected, 0, rows);
+        vector.equal(codes, -1, actual, 0, rows);
+        assertEquals("equal codes" + at, expected, actual);
+
+        expected = new long[Column.words(rows)];
+        actual = new long[Column.words(rows)];
+        scalar.equal(codes, others, expected, 0, rows);
+        vector.equal(codes, others, actual, 0, rows);
+        assertEquals("equal columns" + at, expected, actual);
+
+        long[] x = bits(rows);
+        long[] y = bits(rows);
+        scalar.and(x, y, expected);
+        vector.and(x, y, actual);
+        assertEquals("and" + at, expected, actual);
+        scalar.or(x, y, expected);
+        vector.or(x, y, actual);
+        assertEquals("or" + at, expected, actual);
+        scalar.andNot(x, y, expected);
+        vector.andNot(x, y, actual);
+        assertEquals("andNot" + at, expected, actual);
+    }
+
+    private double[] doubles(int rows) {
+        double[] values = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            int pick = random.nextInt(VALUES.length + 2);
+            values[i] = pick < VALUES.length ? VALUES[pick] : pick == VALUES.length ? Double.NaN : random.nextGaussian();
+        }
+        return values;
+    }
+
+    private int[] codes(int rows) {
+        int[] codes = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            codes[i] = random.nextInt(4) - 1;
+        }
+        return codes;
+    }
+
+    private long[] bits(int rows) {
+        long[] bits = new long[Column.words(rows)];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = random.nextLong();
+        }
+        return bits;
+    }
+
+    private static void assertEquals(String message, long[] expected, long[] actual) {
+        Assert.assertEquals(message, Arrays.toString(expected), Arrays.toString(actual));
+    }
+
+    private static void assertEquals(String message, double[] expected, double[] actual) {
+        // Arrays.equals compares as Double.equals does, so NaN matches NaN
+        // and 0.0 does not match -0.0
+        Assert.assertTrue(message + ": " + Arrays.toString(expected) + " but was " + Arrays.toString(actual),
+                Arrays.equals(expected, actual));
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+/**
+ * Runs the differential tests against JsonLogicProcessor, for a tree and for
+ * a rule set, publishing the records as fast as the processor asks for them
+ * and taking the results a few at a time.
+ *
+ * @author Richard
+ */
+public class DifferentialProcessorTests extends DifferentialTests {
+
+    @Override
+    List<Mode> modes() {
+        return Arrays.asList(
+                new Mode("processor") {
+                    @Override
+                    String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                        return publish(JsonLogicProcessor.of(jsonLogic.parse(rule), 8), records,
+                                DifferentialTests::outcome);
+                    }
+                },
+                new Mode("rule set processor") {
+                    @Override
+                    String[] run(String rule, List<Map<String, Object>> records) throws Exception {
+                        RuleSet rules = new RuleSet();
+                        rules.add("rule", jsonLogic.parse(rule));
+                        return publish(JsonLogicProcessor.of(rules, 8), records,
+                                results -> outcome(results.get("rule")));
+                    }
+                });
+    }
+
+    private <R> String[] publish(JsonLogicProcessor<R> processor, List<Map<String, Object>> records,
+            Function<R, String> outcome) {
+        String[] outcomes = new String[records.size()];
+        Upstream upstream = new Upstream();
+        Downstream<R> downstream = new Downstream<>(outcomes, outcome);
+        processor.subscribe(downstream);
+        processor.onSubscribe(upstream);
+        int sent = 0;
+        boolean completed = false;
+        for (int step = 0; !downstream.finished; step++) {
+            if (step > 100 * records.size()) {
+                throw new AssertionError("the processor stalled after " + sent + " records");
+            }
+            if (sent < records.size() && sent < upstream.requested && !upstream.cancelled) {
+                processor.onNext(gson.toJson(records.get(sent++)));
+            } else if (sent == records.size() && !completed) {
+                processor.onComplete();
+                completed = true;
+            } else {
+                downstream.subscription.request(3);
+            }
+        }
+        return outcomes;
+    }
+
+    private static final class Upstream implements Flow.Subscription {
+
+        long requested;
+        boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static final class Downstream<R> implements Flow.Subscriber<R> {
+
+        final String[] outcomes;
+        final Function<R, String> outcome;
+        Flow.Subscription subscription;
+        int received;
+        boolean finished;
+
+        Downstream(String[] outcomes, Function<R, String> outcome) {
+            this.outcomes = outcomes;
+            this.outcome = outcome;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(R item) {
+            outcomes[received++] = outcome.apply(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            outcomes[received] = failure(throwable);
+            finished = true;
+        }
+
+        @Override
+        public void onComplete() {
+            finished = true;
+        }
+    }
+
+}
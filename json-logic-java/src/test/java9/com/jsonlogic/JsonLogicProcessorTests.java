@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 Richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jsonlogic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Drives JsonLogicProcessor from a publisher and a subscriber that are both
+ * under the test's control, so that every request and every signal can be
+ * checked.
+ *
+ * @author Richard
+ */
+public class JsonLogicProcessorTests {
+
+    private final JsonLogic jsonLogic = new JsonLogic();
+
+    @Test
+    public void ResultsArePublishedInOrder() throws Exception {
+        JsonLogicProcessor<Result> processor = JsonLogicProcessor.of(jsonLogic.parse("{\"+\":[{\"var\":\"i\"},1]}"), 8);
+        Upstream upstream = new Upstream();
+        Downstream<Result> downstream = new Downstream<>();
+        processor.subscribe(downstream);
+        processor.onSubscribe(upstream);
+        downstream.request(Long.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(upstream.requested > i);
+            processor.onNext("{\"i\":" + i + "}");
+        }
+        processor.onComplete();
+
+        Assert.assertTrue(downstream.completed);
+        Assert.assertEquals(100, downstream.items.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i + 1.0, downstream.items.get(i).getDoubleValue());
+        }
+    }
+
+    @Test
+    public void DemandIsBoundedByTheBuffer() throws Exception {
+        JsonLogicProcessor<Result> processor = JsonLogicProcessor.of(jsonLogic.parse("{\"var\":\"i\"}"), 8);
+        Upstream upstream = new Upstream();
+        Downstream<Result> downstream = new Downstream<>();
+        processor.subscribe(downstream);
+        processor.onSubscribe(upstream);
+        Assert.assertEquals(8, upstream.requested);
+
+        // nothing is consumed, so nothing more is requested
+        for (int i = 0; i < 8; i++) {
+            processor.onNext("{\"i\":" + i + "}");
+        }
+        Assert.assertEquals(8, upstream.requested);
+        Assert.assertTrue(downstream.items.isEmpty());
+
+        // consuming three quarters of the buffer replenishes it
+        downstream.request(6);
+        Assert.assertEquals(6, downstream.items.size());
+        Assert.assertEquals(14, upstream.requested);
+        downstream.request(2);
+        Assert.assertEquals(8, downstream.items.size());
+    }
+
+    @Test
+    public void OverflowIsAnError() throws Exception {
+        JsonLogicProcessor<Result> processor = JsonLogicProcessor.of(jsonLogic.parse("{\"var\":\"i\"}"), 2);
+        Upstream upstream = new Upstream();
+        Downstream<Result> downstream = new Downstream<>();
+        processor.subscribe(downstream);
+        processor.onSubscribe(upstream);
+        for (int i = 0; i < 3; i++) {
+            processor.onNext("{\"i\":" + i + "}");
+        }
+        Assert.assertTrue(upstream.cancelled);
+        downstream.request(10);
+        Assert.assertEquals(2, downstream.items.size());
+        Assert.assertTrue(downstream.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void FailedRecordCancelsUpstream() throws Exception {
+        JsonLogicProcessor<Result> processor = JsonLogicProcessor.of(jsonLogic.parse("{\"var\":\"i\"}"), 8);
+        Upstream upstream = new Upstream();
+        Downstream<Result> downstream = new Downstream<>();
+        processor.subscribe(downstream);
+        processor.onSubscribe(upstream);
+        downstream.request(10);
+        processor.onNext("{\"i\":1}");
+        processor.onNext("{\"i\":");
+        processor.onNext("{\"i\":3}");
+
+        Assert.assertTrue(upstream.cancelled);
+        Assert.assertEquals(1, downstream.items.size());
+        Assert.assertTrue(downstream.error instanceof ParseException);
+        Assert.assertFalse(downstream.completed);
+    }
+
+    @Test
+    public void UpstreamErrorFollowsTheResults() throws Exception {
+        JsonLogicProcessor<Result> processor = JsonLogicProcessor.of(jsonLogic.parse("{\"var\":\"i\"}"), 8);
+        Upstream upstream = new Upstream();
+        Downstream<Result> downstream = new Downstream<>();
+        processor.subscribe(downstream);
+        processor.onSubscribe(upstream);
+        processor.onNext("{\"i\":1}");
+        processor.onError(new IllegalStateException("publisher failed"));
+        Assert.assertNull(downstream.error);
+        downstream.request(1);
+        Assert.assertEquals(1, downstream.items.size());
+        Assert.assertTrue(downstream.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void NonPositiveRequestIsAnError() throws Exception {
+        JsonLogicProcessor<Result> processor = JsonLogicProcessor.of(jsonLogic.parse("{\"var\":\"i\"}"), 8);
+        Upstream upstream = new Upstream();
+        Downstream<Result> downstream = new Downstream<>();
+        processor.subscribe(downstream);
+        processor.onSubscribe(upstream);
+        downstream.request(0);
+        Assert.assertTrue(downstream.error instanceof IllegalArgumentException);
+        Assert.assertTrue(upstream.cancelled);
+    }
+
+    @Test
+    public void SecondSubscriberIsRejected() throws Exception {
+        JsonLogicProcessor<Result> processor = JsonLogicProcessor.of(jsonLogic.parse("{\"var\":\"i\"}"));
+        processor.subscribe(new Downstream<>());
+        Downstream<Result> second = new Downstream<>();
+        processor.subscribe(second);
+        Assert.assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void RuleSetResultsAreKeyedByName() throws Exception {
+        RuleSet rules = new RuleSet();
+        rules.add("big", jsonLogic.parse("{\">\":[{\"var\":\"i\"},10]}"));
+        rules.add("odd", jsonLogic.parse("{\"%\":[{\"var\":\"i\"},2]}"));
+        JsonLogicProcessor<Map<String, Result>> processor = JsonLogicProcessor.of(rules, 4);
+        Upstream upstream = new Upstream();
+        Downstream<Map<String, Result>> downstream = new Downstream<>();
+        processor.subscribe(downstream);
+        processor.onSubscribe(upstream);
+        downstream.request(Long.MAX_VALUE);
+        processor.onNext("{\"i\":11}");
+        processor.onComplete();
+        Assert.assertTrue(downstream.completed);
+        Assert.assertTrue(downstream.items.get(0).get("big").getBooleanValue());
+        Assert.assertEquals(1.0, downstream.items.get(0).get("odd").getDoubleValue());
+    }
+
+    private static final class Upstream implements Flow.Subscription {
+
+        long requested;
+        boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static final class Downstream<T> implements Flow.Subscriber<T> {
+
+        final List<T> items = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        void request(long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+}